@@ -20,6 +20,7 @@ import com.flowci.core.agent.domain.Agent;
 import com.flowci.core.agent.domain.AgentAction;
 import com.flowci.core.agent.domain.AgentOption;
 import com.flowci.core.agent.domain.DeleteAgent;
+import com.flowci.core.agent.domain.ProfilePoint;
 import com.flowci.core.agent.service.AgentService;
 import com.flowci.core.auth.annotation.Action;
 import lombok.extern.log4j.Log4j2;
@@ -46,6 +47,16 @@ public class AgentController {
         return agentService.getByName(name);
     }
 
+    @GetMapping("/{name}/profiles")
+    @Action(AgentAction.GET)
+    public List<ProfilePoint> listProfiles(@PathVariable String name,
+                                           @RequestParam long from,
+                                           @RequestParam(required = false) Long to) {
+        Agent agent = agentService.getByName(name);
+        long end = to == null ? System.currentTimeMillis() : to;
+        return agentService.listProfiles(agent.getToken(), from, end);
+    }
+
     @GetMapping
     @Action(AgentAction.LIST)
     public List<Agent> list() {
@@ -0,0 +1,20 @@
+package com.flowci.core.agent.dao;
+
+import com.flowci.core.agent.domain.ProfilePoint;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProfilePointDao extends MongoRepository<ProfilePoint, String> {
+
+    List<ProfilePoint> findAllByTokenAndResolutionAndTimestampBetween(String token,
+                                                                      long resolution,
+                                                                      long from,
+                                                                      long to,
+                                                                      Sort sort);
+
+    void deleteAllByToken(String token);
+}
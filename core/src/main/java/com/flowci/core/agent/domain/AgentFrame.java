@@ -0,0 +1,155 @@
+package com.flowci.core.agent.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Binary frame of message from agent websocket, body is a slice of payload without copy
+ * <p>
+ * v1: [version:1][opcode:1][body length:4][body]
+ * legacy: [event name:10][separator:1][body], ex: 'cmd_out___ {...}'
+ *
+ * @author yang
+ */
+@Getter
+@AllArgsConstructor
+public final class AgentFrame {
+
+    public static final byte V1 = 1;
+
+    public static final int V1HeaderLength = 6;
+
+    public static final int LegacyEventLength = 10;
+
+    public static final int LegacyHeaderLength = LegacyEventLength + 1;
+
+    public enum Opcode {
+
+        Connect((byte) 1, "connect___"),
+
+        Profile((byte) 2, "profile___"),
+
+        CmdOut((byte) 3, "cmd_out___"),
+
+        ShellLog((byte) 4, "slog______"),
+
+        TTYLog((byte) 5, "tlog______");
+
+        private static final Opcode[] ByCode = new Opcode[16];
+
+        static {
+            for (Opcode op : values()) {
+                ByCode[op.code] = op;
+            }
+        }
+
+        @Getter
+        private final byte code;
+
+        private final byte[] legacyName;
+
+        Opcode(byte code, String legacyName) {
+            this.code = code;
+            this.legacyName = legacyName.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        static Opcode of(byte code) {
+            return code > 0 && code < ByCode.length ? ByCode[code] : null;
+        }
+
+        /**
+         * Match legacy event name at the beginning of payload
+         */
+        static Opcode ofLegacy(ByteBuffer payload) {
+            int start = payload.position();
+
+            for (Opcode op : values()) {
+                boolean matched = true;
+                for (int i = 0; i < LegacyEventLength; i++) {
+                    if (payload.get(start + i) != op.legacyName[i]) {
+                        matched = false;
+                        break;
+                    }
+                }
+
+                if (matched) {
+                    return op;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Opcode opcode;
+
+    private final ByteBuffer body;
+
+    /**
+     * Decode frame from websocket payload, the position of payload will not be changed
+     *
+     * @return empty if frame is invalid or opcode is unknown
+     */
+    public static Optional<AgentFrame> decode(ByteBuffer payload) {
+        int start = payload.position();
+        int remaining = payload.remaining();
+
+        if (remaining < 1) {
+            return Optional.empty();
+        }
+
+        if (payload.get(start) == V1) {
+            if (remaining < V1HeaderLength) {
+                return Optional.empty();
+            }
+
+            Opcode op = Opcode.of(payload.get(start + 1));
+            int length = payload.getInt(start + 2);
+
+            if (op == null || length < 0 || length > remaining - V1HeaderLength) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new AgentFrame(op, slice(payload, start + V1HeaderLength, length)));
+        }
+
+        if (remaining < LegacyHeaderLength + 1) {
+            return Optional.empty();
+        }
+
+        Opcode op = Opcode.ofLegacy(payload);
+        if (op == null) {
+            return Optional.empty();
+        }
+
+        int length = remaining - LegacyHeaderLength;
+        return Optional.of(new AgentFrame(op, slice(payload, start + LegacyHeaderLength, length)));
+    }
+
+    /**
+     * Slice of body after the first n bytes
+     */
+    public ByteBuffer bodyAfter(int n) {
+        return slice(body, body.position() + n, body.remaining() - n);
+    }
+
+    /**
+     * Encode v1 frame, for agent side and testing
+     */
+    public static ByteBuffer encode(Opcode op, byte[] body) {
+        ByteBuffer buffer = ByteBuffer.allocate(V1HeaderLength + body.length);
+        buffer.put(V1).put(op.code).putInt(body.length).put(body);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer slice(ByteBuffer payload, int offset, int length) {
+        ByteBuffer dup = payload.duplicate();
+        dup.limit(offset + length);
+        dup.position(offset);
+        return dup.slice();
+    }
+}
@@ -85,6 +85,11 @@ public abstract class AgentHost extends Mongoable {
      */
     private int exitOnIdle;
 
+    /**
+     * Min num of idle agents kept by warm pool
+     */
+    private int minIdle;
+
     /**
      * Error message if connection fail
      */
@@ -37,6 +37,10 @@ public class AgentHostOption {
 
     private int exitOnIdle;
 
+    @Min(0)
+    @Max(Integer.MAX_VALUE)
+    private int minIdle;
+
     @NotNull
     private AgentHost.Type type;
 
@@ -71,6 +75,7 @@ public class AgentHostOption {
             host.setMaxSize(maxSize);
             host.setPort(port);
             host.setExitOnIdle(exitOnIdle);
+            host.setMinIdle(minIdle);
             return host;
         }
 
@@ -81,6 +86,7 @@ public class AgentHostOption {
             host.setTags(tags);
             host.setMaxSize(maxSize);
             host.setExitOnIdle(exitOnIdle);
+            host.setMinIdle(minIdle);
             return host;
         }
 
@@ -93,6 +99,7 @@ public class AgentHostOption {
             host.setNamespace(namespace);
             host.setMaxSize(maxSize);
             host.setExitOnIdle(exitOnIdle);
+            host.setMinIdle(minIdle);
             return host;
         }
 
@@ -0,0 +1,53 @@
+package com.flowci.core.agent.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Downsampled agent profile at a point of time
+ *
+ * @author yang
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "agent_profile_point")
+@CompoundIndexes(
+        @CompoundIndex(name = "index_token_resolution_timestamp", def = "{'token': 1, 'resolution': 1, 'timestamp': 1}")
+)
+public class ProfilePoint {
+
+    @Id
+    private String id;
+
+    private String token;
+
+    private long resolution; // in millis, 0 for raw sample
+
+    private long timestamp; // in millis, start of bucket if downsampled
+
+    private float cpuUsage;
+
+    private int freeMemory; // in MB
+
+    private int freeDisk; // in MB
+
+    @JsonIgnore
+    @Indexed(name = "index_profile_point_created_at", expireAfterSeconds = 7 * 24 * 3600)
+    private Date createdAt = new Date();
+
+    public ProfilePoint(String token, long resolution, long timestamp, float cpuUsage, int freeMemory, int freeDisk) {
+        this(null, token, resolution, timestamp, cpuUsage, freeMemory, freeDisk, new Date());
+    }
+}
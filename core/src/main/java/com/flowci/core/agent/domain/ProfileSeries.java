@@ -0,0 +1,234 @@
+package com.flowci.core.agent.domain;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * In memory time series of agent profile with fixed size primitive ring buffers,
+ * samples are downsampled by average to coarser resolutions, ex: raw -> 1 minute -> 10 minutes
+ *
+ * @author yang
+ */
+public final class ProfileSeries {
+
+    public static final int RawSize = 360;
+
+    public static final int MinuteSize = 1440;
+
+    public static final int TenMinutesSize = 1008;
+
+    public static final long Minute = 60 * 1000L;
+
+    public static final long TenMinutes = 10 * Minute;
+
+    private final String token;
+
+    private final Ring raw = new Ring(0, RawSize);
+
+    private final Ring minute = new Ring(Minute, MinuteSize);
+
+    private final Ring tenMinutes = new Ring(TenMinutes, TenMinutesSize);
+
+    private final Bucket minuteBucket = new Bucket(Minute);
+
+    private final Bucket tenMinutesBucket = new Bucket(TenMinutes);
+
+    // minute points not flushed to db yet
+    private final LinkedList<ProfilePoint> unflushed = new LinkedList<>();
+
+    private AgentProfile latest;
+
+    private boolean latestFlushed = true;
+
+    public ProfileSeries(String token) {
+        this.token = token;
+    }
+
+    public synchronized void add(long timestamp, AgentProfile profile) {
+        float cpu = (float) profile.getCpuUsage();
+        int memory = profile.getFreeMemory();
+        int disk = profile.getFreeDisk();
+
+        latest = profile;
+        latestFlushed = false;
+        raw.add(timestamp, cpu, memory, disk);
+
+        if (minuteBucket.isCompletedBy(timestamp)) {
+            long start = minuteBucket.start;
+            float avgCpu = minuteBucket.avgCpu();
+            int avgMemory = minuteBucket.avgMemory();
+            int avgDisk = minuteBucket.avgDisk();
+
+            minute.add(start, avgCpu, avgMemory, avgDisk);
+            addUnflushed(new ProfilePoint(token, Minute, start, avgCpu, avgMemory, avgDisk));
+
+            if (tenMinutesBucket.isCompletedBy(start)) {
+                tenMinutes.add(tenMinutesBucket.start, tenMinutesBucket.avgCpu(),
+                        tenMinutesBucket.avgMemory(), tenMinutesBucket.avgDisk());
+                tenMinutesBucket.reset(start);
+            }
+            tenMinutesBucket.add(start, avgCpu, avgMemory, avgDisk);
+
+            minuteBucket.reset(timestamp);
+        }
+
+        minuteBucket.add(timestamp, cpu, memory, disk);
+    }
+
+    public synchronized AgentProfile getLatest() {
+        return latest;
+    }
+
+    /**
+     * Query points in range from the finest resolution which covers the start time
+     */
+    public synchronized List<ProfilePoint> query(long from, long to) {
+        Ring ring = tenMinutes;
+        if (raw.covers(from)) {
+            ring = raw;
+        } else if (minute.covers(from)) {
+            ring = minute;
+        }
+        return ring.query(token, from, to);
+    }
+
+    /**
+     * Take minute points and latest profile not flushed yet
+     */
+    public synchronized List<ProfilePoint> drainUnflushed() {
+        List<ProfilePoint> list = new ArrayList<>(unflushed);
+        unflushed.clear();
+        return list;
+    }
+
+    public synchronized AgentProfile drainLatest() {
+        if (latestFlushed) {
+            return null;
+        }
+
+        latestFlushed = true;
+        return latest;
+    }
+
+    private void addUnflushed(ProfilePoint point) {
+        if (unflushed.size() >= MinuteSize) {
+            unflushed.removeFirst();
+        }
+        unflushed.add(point);
+    }
+
+    /**
+     * Fixed size ring buffer of points, oldest point will be overwritten
+     */
+    private static final class Ring {
+
+        private final long resolution;
+
+        private final long[] times;
+
+        private final float[] cpu;
+
+        private final int[] memory;
+
+        private final int[] disk;
+
+        private int next = 0;
+
+        private int size = 0;
+
+        Ring(long resolution, int capacity) {
+            this.resolution = resolution;
+            this.times = new long[capacity];
+            this.cpu = new float[capacity];
+            this.memory = new int[capacity];
+            this.disk = new int[capacity];
+        }
+
+        void add(long time, float cpu, int memory, int disk) {
+            this.times[next] = time;
+            this.cpu[next] = cpu;
+            this.memory[next] = memory;
+            this.disk[next] = disk;
+
+            next = (next + 1) % times.length;
+            size = Math.min(size + 1, times.length);
+        }
+
+        boolean covers(long time) {
+            return size > 0 && times[oldest()] <= time;
+        }
+
+        List<ProfilePoint> query(String token, long from, long to) {
+            List<ProfilePoint> list = new LinkedList<>();
+            for (int i = 0, index = oldest(); i < size; i++, index = (index + 1) % times.length) {
+                long time = times[index];
+                if (time >= from && time <= to) {
+                    list.add(new ProfilePoint(token, resolution, time, cpu[index], memory[index], disk[index]));
+                }
+            }
+            return list;
+        }
+
+        private int oldest() {
+            return size < times.length ? 0 : next;
+        }
+    }
+
+    /**
+     * Accumulator of samples within a time bucket
+     */
+    private static final class Bucket {
+
+        private final long length;
+
+        private long start = -1;
+
+        private double cpu;
+
+        private long memory;
+
+        private long disk;
+
+        private int count;
+
+        Bucket(long length) {
+            this.length = length;
+        }
+
+        boolean isCompletedBy(long time) {
+            return count > 0 && time - time % length != start;
+        }
+
+        void add(long time, float cpu, int memory, int disk) {
+            if (count == 0) {
+                start = time - time % length;
+            }
+
+            this.cpu += cpu;
+            this.memory += memory;
+            this.disk += disk;
+            this.count++;
+        }
+
+        void reset(long time) {
+            start = time - time % length;
+            cpu = 0;
+            memory = 0;
+            disk = 0;
+            count = 0;
+        }
+
+        float avgCpu() {
+            return (float) (cpu / count);
+        }
+
+        int avgMemory() {
+            return (int) (memory / count);
+        }
+
+        int avgDisk() {
+            return (int) (disk / count);
+        }
+    }
+}
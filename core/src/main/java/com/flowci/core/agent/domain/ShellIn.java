@@ -52,6 +52,9 @@ public final class ShellIn extends CmdIn {
 
     private Set<String> secrets;
 
+    // W3C traceparent of step span, echoed back by agent in ShellOut
+    private String traceParent;
+
     public ShellIn() {
         super(Type.SHELL);
     }
@@ -33,4 +33,7 @@ public final class ShellOut implements Executed, CmdOut {
     private String error;
 
     private long logSize;
+
+    // W3C traceparent from ShellIn
+    private String traceParent;
 }
@@ -1,14 +1,15 @@
 package com.flowci.core.agent.event;
 
+import com.flowci.core.agent.domain.CmdOut;
 import lombok.Getter;
 
 public class OnCmdOutEvent extends EventFromClient {
 
     @Getter
-    private final byte[] raw;
+    private final CmdOut out;
 
-    public OnCmdOutEvent(Object source, byte[] raw) {
+    public OnCmdOutEvent(Object source, CmdOut out) {
         super(source, null, null);
-        this.raw = raw;
+        this.out = out;
     }
 }
@@ -3,11 +3,14 @@ package com.flowci.core.agent.manager;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flowci.core.agent.domain.*;
 import com.flowci.core.agent.event.*;
+import com.flowci.core.common.config.AppProperties;
 import com.flowci.core.common.domain.StatusCode;
 import com.flowci.core.common.domain.http.ResponseMessage;
 import com.flowci.core.common.manager.SpringEventManager;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
@@ -15,11 +18,14 @@ import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.BinaryWebSocketHandler;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static com.flowci.core.common.helper.JacksonHelper.readValue;
+
 /**
  * Handle event from agent via websocket
  */
@@ -27,21 +33,9 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 public class AgentEventManager extends BinaryWebSocketHandler {
 
-    private final static int EventLength = 10;
-
-    private final static String EventConnect = "connect___";
-
-    private final static String EventProfile = "profile___";
-
-    private final static String EventCmdOut = "cmd_out___";
-
-    private final static String EventShellLog = "slog______";
-
-    private final static String EventTTYLog = "tlog______";
-
     private final static String HeaderToken = "Token";
 
-    private final Map<String, WebSocketSession> agentSessionStore = new ConcurrentHashMap<>();
+    private final Map<String, OutboundQueue> agentSessionStore = new ConcurrentHashMap<>();
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -49,24 +43,75 @@ public class AgentEventManager extends BinaryWebSocketHandler {
     @Autowired
     private SpringEventManager eventManager;
 
-    public <T> void writeMessage(String token, ResponseMessage<T> msg) {
-        WebSocketSession session = agentSessionStore.get(token);
+    @Autowired
+    private AppProperties.Agent agentProperties;
+
+    @Autowired
+    private TaskExecutor agentSenderExecutor;
 
+    @Autowired
+    private AgentRouteManager agentRouteManager;
+
+    public <T> void writeMessage(String token, ResponseMessage<T> msg) {
         try {
             byte[] bytes = objectMapper.writeValueAsBytes(msg);
-            writeMessage(session, bytes);
+            writeMessage(token, bytes);
         } catch (IOException e) {
             log.warn("Unable to write response message for agent {}: {}", token, e.getMessage());
         }
     }
 
     public void writeMessage(String token, byte[] bytes) {
-        WebSocketSession session = agentSessionStore.get(token);
-        if (session == null) {
-            log.warn("Agent {} not connected", token);
-            return;
+        writeMessage(token, bytes, false);
+    }
+
+    /**
+     * Queue message to agent without blocking, or route to the node which agent connected to
+     *
+     * @param droppable message can be dropped if outbound buffer is full, ex: tty input
+     * @return false if agent not connected or message dropped
+     */
+    public boolean writeMessage(String token, byte[] bytes, boolean droppable) {
+        return writeMessage(token, bytes, droppable, null);
+    }
+
+    /**
+     * Queue message to agent without blocking, or route to the node which agent connected to
+     *
+     * @param onLost callback if routed message finally not delivered or not acked by the owner node
+     * @return false if agent not connected or message dropped
+     */
+    public boolean writeMessage(String token, byte[] bytes, boolean droppable, Runnable onLost) {
+        OutboundQueue queue = agentSessionStore.get(token);
+        if (queue != null) {
+            return queue.offer(bytes, droppable);
+        }
+
+        if (agentRouteManager.send(token, bytes, droppable, onLost)) {
+            return true;
+        }
+
+        log.warn("Agent {} not connected", token);
+        return false;
+    }
+
+    /**
+     * Fail and close sessions blocked on send over the time limit, otherwise the blocked
+     * sessions hold sender threads forever if agent sends nothing more
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void checkOutboundTimeout() {
+        for (OutboundQueue queue : agentSessionStore.values()) {
+            queue.checkSendTimeout();
         }
-        writeMessage(session, bytes);
+    }
+
+    /**
+     * Queue message to agent connected to current node only
+     */
+    public boolean writeLocalMessage(String token, byte[] bytes, boolean droppable) {
+        OutboundQueue queue = agentSessionStore.get(token);
+        return queue != null && queue.offer(bytes, droppable);
     }
 
     @Override
@@ -76,39 +121,37 @@ public class AgentEventManager extends BinaryWebSocketHandler {
 
     @Override
     protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
-        byte[] bytes = message.getPayload().array();
+        Optional<AgentFrame> optional = AgentFrame.decode(message.getPayload());
 
-        if (bytes.length < (EventLength + 2)) {
+        if (!optional.isPresent()) {
             log.warn("invalid binary message");
             return;
         }
 
         String token = getToken(session);
-        String event = getEvent(bytes);
-        byte[] body = getBody(bytes);
+        AgentFrame frame = optional.get();
+        ByteBuffer body = frame.getBody();
 
-        if (EventConnect.equals(event)) {
-            onConnected(session, token, body);
-            return;
-        }
+        switch (frame.getOpcode()) {
+            case Connect:
+                onConnected(session, token, body);
+                break;
 
-        if (EventCmdOut.equals(event)) {
-            onCmdOut(token, body);
-            return;
-        }
+            case CmdOut:
+                onCmdOut(token, frame);
+                break;
 
-        if (EventShellLog.equals(event)) {
-            onShellLog(body);
-            return;
-        }
+            case ShellLog:
+                onShellLog(body);
+                break;
 
-        if (EventTTYLog.equals(event)) {
-            onTtyLog(body);
-            return;
-        }
+            case TTYLog:
+                onTtyLog(body);
+                break;
 
-        if (EventProfile.equals(event)) {
-            onProfile(token, body);
+            case Profile:
+                onProfile(token, body);
+                break;
         }
     }
 
@@ -120,32 +163,57 @@ public class AgentEventManager extends BinaryWebSocketHandler {
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String token = getToken(session);
+        OutboundQueue queue = agentSessionStore.get(token);
+
+        // disconnected event has been published on outbound failure
+        if (queue != null && queue.getSession() == session && queue.isFailed()) {
+            return;
+        }
+
         eventManager.publish(new OnDisconnectedEvent(this, token, session));
-        agentSessionStore.remove(token, session);
+
+        if (queue != null && queue.getSession() == session) {
+            agentSessionStore.remove(token, queue);
+            agentRouteManager.unregister(token);
+        }
     }
 
+    /**
+     * Send message in place, only for session not registered
+     */
     private <T> void writeMessage(WebSocketSession session, ResponseMessage<T> msg) {
         try {
             byte[] bytes = objectMapper.writeValueAsBytes(msg);
-            writeMessage(session, bytes);
+            synchronized (session) {
+                session.sendMessage(new BinaryMessage(bytes));
+            }
         } catch (IOException e) {
             log.warn(e);
         }
     }
 
-    private void writeMessage(WebSocketSession session, byte[] body) {
-        synchronized (session) {
-            try {
-                session.sendMessage(new BinaryMessage(body));
-            } catch (IOException e) {
-                log.warn(e);
-            }
+    /**
+     * Mark agent offline and close session instead of retrying, since connection is not reliable
+     */
+    private void onOutboundFailure(String token, OutboundQueue queue, String reason) {
+        log.warn("Unable to send message to agent {}: {}", token, reason);
+        WebSocketSession session = queue.getSession();
+        eventManager.publish(new OnDisconnectedEvent(this, token, session));
+
+        if (agentSessionStore.remove(token, queue)) {
+            agentRouteManager.unregister(token);
+        }
+
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug(e);
         }
     }
 
-    private void onConnected(WebSocketSession session, String token, byte[] body) {
+    private void onConnected(WebSocketSession session, String token, ByteBuffer body) {
         try {
-            AgentInit init = objectMapper.readValue(body, AgentInit.class);
+            AgentInit init = readValue(objectMapper, body, AgentInit.class);
             Objects.requireNonNull(init.getStatus(), "Agent status is missing");
 
             init.setToken(token);
@@ -153,7 +221,14 @@ public class AgentEventManager extends BinaryWebSocketHandler {
 
             OnConnectedEvent event = new OnConnectedEvent(this, token, session, init);
             eventManager.publish(event);
-            agentSessionStore.put(token, session);
+            agentSessionStore.put(token, new OutboundQueue(
+                    session,
+                    agentSenderExecutor,
+                    agentProperties.getOutboundBufferSize(),
+                    agentProperties.getOutboundSendTimeLimit() * 1000L,
+                    (queue, reason) -> onOutboundFailure(token, queue, reason)
+            ));
+            agentRouteManager.register(token);
 
             Agent agent = event.getAgent();
             writeMessage(token, new ResponseMessage<>(StatusCode.OK, agent.getConfig()));
@@ -164,36 +239,58 @@ public class AgentEventManager extends BinaryWebSocketHandler {
         }
     }
 
-    private void onCmdOut(String token, byte[] body) {
+    /**
+     * Decode cmd out in place since the payload buffer may be reused after returned,
+     * the first byte of body is indicator of cmd out type
+     */
+    private void onCmdOut(String token, AgentFrame frame) {
+        ByteBuffer body = frame.getBody();
+
         try {
-            log.debug("Agent {} got cmd back: {}", token, new String(body));
-            eventManager.publish(new OnCmdOutEvent(this, body));
+            byte ind = body.get(body.position());
+            ByteBuffer json = frame.bodyAfter(1);
+
+            switch (ind) {
+                case CmdOut.ShellOutInd:
+                    ShellOut shellOut = readValue(objectMapper, json, ShellOut.class);
+                    log.debug("Agent {} got cmd back: {}", token, shellOut.getId());
+                    eventManager.publish(new OnCmdOutEvent(this, shellOut));
+                    break;
+
+                case CmdOut.TtyOutInd:
+                    TtyCmd.Out ttyOut = readValue(objectMapper, json, TtyCmd.Out.class);
+                    eventManager.publish(new OnCmdOutEvent(this, ttyOut));
+                    break;
+
+                default:
+                    log.warn("Invalid cmd out indicator {} from agent {}", ind, token);
+            }
         } catch (Exception e) {
-            log.warn(e);
+            log.warn("Unable to decode cmd out from agent {}: {}", token, e.getMessage());
         }
     }
 
-    private void onShellLog(byte[] body) {
+    private void onShellLog(ByteBuffer body) {
         try {
-            ShellLog item = objectMapper.readValue(body, ShellLog.class);
+            ShellLog item = readValue(objectMapper, body, ShellLog.class);
             eventManager.publish(new OnShellLogEvent(this, item.getJobId(), item.getStepId(), item.getLog()));
         } catch (IOException e) {
             log.warn(e);
         }
     }
 
-    private void onTtyLog(byte[] body) {
+    private void onTtyLog(ByteBuffer body) {
         try {
-            TtyCmd.Log item = objectMapper.readValue(body, TtyCmd.Log.class);
+            TtyCmd.Log item = readValue(objectMapper, body, TtyCmd.Log.class);
             eventManager.publish(new OnTTYLogEvent(this, item.getId(), item.getLog()));
         } catch (IOException e) {
             log.warn(e);
         }
     }
 
-    private void onProfile(String token, byte[] body) {
+    private void onProfile(String token, ByteBuffer body) {
         try {
-            AgentProfile profile = objectMapper.readValue(body, AgentProfile.class);
+            AgentProfile profile = readValue(objectMapper, body, AgentProfile.class);
             profile.setId(token);
             eventManager.publish(new OnAgentProfileEvent(this, profile));
         } catch (IOException e) {
@@ -205,11 +302,4 @@ public class AgentEventManager extends BinaryWebSocketHandler {
         return session.getHandshakeHeaders().get(HeaderToken).get(0);
     }
 
-    private static String getEvent(byte[] bytes) {
-        return new String(Arrays.copyOf(bytes, EventLength)).trim();
-    }
-
-    private static byte[] getBody(byte[] bytes) {
-        return Arrays.copyOfRange(bytes, EventLength + 1, bytes.length);
-    }
 }
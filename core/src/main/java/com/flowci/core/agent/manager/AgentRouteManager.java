@@ -0,0 +1,302 @@
+package com.flowci.core.agent.manager;
+
+import com.flowci.core.common.config.AppProperties;
+import com.flowci.core.common.helper.CacheHelper;
+import com.flowci.core.common.rabbit.RabbitOperations;
+import com.flowci.util.StringHelper;
+import com.flowci.zookeeper.CoordinationProvider;
+import com.flowci.zookeeper.ZookeeperException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.zookeeper.CreateMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Route message to agent connected on other server node.
+ * <p>
+ * The owner of agent is registered as ephemeral zookeeper node {agent route root}/{token} with data of
+ * the cmd queue name of the node, which is released with zookeeper session if node is down.
+ * Messages for remote agent are sent to the owner's queue, and acknowledged back to sender's queue.
+ *
+ * @author yang
+ */
+@Log4j2
+@Component
+public class AgentRouteManager {
+
+    private static final String HeaderToken = "token";
+
+    private static final String HeaderDroppable = "droppable";
+
+    private static final String HeaderReplyTo = "reply_to";
+
+    private static final String HeaderMessageId = "message_id";
+
+    private static final String HeaderAck = "ack";
+
+    private static final String HeaderDelivered = "delivered";
+
+    private static final int AckTimeoutSeconds = 30;
+
+    private static final int RouteCacheSeconds = 30;
+
+    // key as agent token, value as cmd queue of owner node
+    private final Cache<String, String> routeCache = CacheHelper.createLocalCache(1000, RouteCacheSeconds);
+
+    private static final int MaxAttempts = 2;
+
+    // key as message id, value as message waiting for ack
+    private final Cache<String, Pending> pendingAcks = CacheHelper.createLocalCache(10000, AckTimeoutSeconds,
+            (id, pending, cause) -> {
+                if (cause == RemovalCause.EXPIRED && pending != null) {
+                    onNoAck(id, pending);
+                }
+            });
+
+    @Autowired
+    private CoordinationProvider zk;
+
+    @Autowired
+    private AppProperties.Zookeeper zkProperties;
+
+    @Autowired
+    private String agentCmdQueue;
+
+    @Autowired
+    private RabbitOperations agentCmdQueueManager;
+
+    @Autowired
+    private AgentEventManager agentEventManager;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void startCmdQueueConsumer() throws IOException {
+        agentCmdQueueManager.startConsumer(agentCmdQueue, true, (headers, body, envelope) -> {
+            if (headers == null) {
+                return false;
+            }
+
+            if (headers.containsKey(HeaderAck)) {
+                onAck(headers);
+                return false;
+            }
+
+            onRemoteMessage(headers, body);
+            return false;
+        }, null);
+    }
+
+    /**
+     * Register current node as owner of agent
+     */
+    public void register(String token) {
+        String path = getPath(token);
+        byte[] data = agentCmdQueue.getBytes(StandardCharsets.UTF_8);
+
+        routeCache.invalidate(token);
+
+        try {
+            zk.create(CreateMode.EPHEMERAL, path, data);
+            return;
+        } catch (ZookeeperException ignore) {
+            // registered by other node or previous session
+        }
+
+        try {
+            zk.delete(path, false);
+            zk.create(CreateMode.EPHEMERAL, path, data);
+        } catch (ZookeeperException e) {
+            log.warn("Unable to register agent {}: {}", token, e.getMessage());
+        }
+    }
+
+    /**
+     * Remove registry only if owned by current node
+     */
+    public void unregister(String token) {
+        routeCache.invalidate(token);
+
+        try {
+            Optional<String> owner = getOwner(token);
+            if (owner.isPresent() && owner.get().equals(agentCmdQueue)) {
+                zk.delete(getPath(token), false);
+            }
+        } catch (ZookeeperException e) {
+            log.warn("Unable to unregister agent {}: {}", token, e.getMessage());
+        }
+    }
+
+    /**
+     * Expire pending acks on time, since caffeine only evicts on cache access
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void checkAckTimeout() {
+        pendingAcks.cleanUp();
+    }
+
+    /**
+     * Send message to the node which agent connected to
+     *
+     * @return false if agent not connected to any node
+     */
+    public boolean send(String token, byte[] body, boolean droppable) {
+        return send(token, body, droppable, null);
+    }
+
+    /**
+     * Send message to the node which agent connected to, the non droppable message will be resent once
+     * to the latest owner only if owner node replied not delivered, a message without ack is not resent
+     *
+     * @param onLost callback if message finally not delivered or not acked, ex: cmd owner node lost
+     * @return false if agent not connected to any node
+     */
+    public boolean send(String token, byte[] body, boolean droppable, Runnable onLost) {
+        return send(new Pending(token, body, droppable, 1, onLost));
+    }
+
+    private boolean send(Pending pending) {
+        String token = pending.token;
+        String owner = routeCache.get(token, key -> getOwner(key).orElse(null));
+
+        if (Objects.isNull(owner) || owner.equals(agentCmdQueue)) {
+            routeCache.invalidate(token);
+            return false;
+        }
+
+        String id = StringHelper.randomString(16);
+
+        Map<String, Object> headers = new HashMap<>(4);
+        headers.put(HeaderToken, token);
+        headers.put(HeaderDroppable, pending.droppable);
+        headers.put(HeaderReplyTo, agentCmdQueue);
+        headers.put(HeaderMessageId, id);
+
+        pendingAcks.put(id, pending);
+        if (!agentCmdQueueManager.send(owner, pending.body, headers)) {
+            pendingAcks.invalidate(id);
+            routeCache.invalidate(token);
+            return false;
+        }
+
+        return true;
+    }
+
+    private void onRemoteMessage(Map<String, Object> headers, byte[] body) {
+        String token = headers.get(HeaderToken).toString();
+        boolean droppable = Boolean.parseBoolean(headers.get(HeaderDroppable).toString());
+
+        boolean delivered = agentEventManager.writeLocalMessage(token, body, droppable);
+
+        Map<String, Object> ack = new HashMap<>(3);
+        ack.put(HeaderAck, headers.get(HeaderMessageId).toString());
+        ack.put(HeaderToken, token);
+        ack.put(HeaderDelivered, delivered);
+
+        String replyTo = headers.get(HeaderReplyTo).toString();
+        agentCmdQueueManager.send(replyTo, new byte[0], ack);
+    }
+
+    private void onAck(Map<String, Object> headers) {
+        String id = headers.get(HeaderAck).toString();
+        String token = headers.get(HeaderToken).toString();
+        boolean delivered = Boolean.parseBoolean(headers.get(HeaderDelivered).toString());
+
+        Pending pending = pendingAcks.asMap().remove(id);
+        if (delivered || pending == null) {
+            return;
+        }
+
+        onNack(id, pending);
+    }
+
+    /**
+     * Message might be delivered by a slow owner node or its ack was lost, so it's never resent,
+     * otherwise agent could run the same cmd twice, report lost instead
+     */
+    private void onNoAck(String id, Pending pending) {
+        routeCache.invalidate(pending.token);
+        onLost(id, pending, "no ack");
+    }
+
+    /**
+     * Owner node did not write the message to agent, resend to the latest owner,
+     * which might be current node if agent reconnected, or report lost if still not delivered
+     */
+    private void onNack(String id, Pending pending) {
+        String token = pending.token;
+        routeCache.invalidate(token);
+
+        if (!pending.droppable && pending.attempts < MaxAttempts) {
+            log.info("Message {} for agent {} resending: not delivered by owner node", id, token);
+
+            if (agentEventManager.writeLocalMessage(token, pending.body, false)) {
+                return;
+            }
+
+            if (send(pending.next())) {
+                return;
+            }
+        }
+
+        onLost(id, pending, "not delivered by owner node");
+    }
+
+    private void onLost(String id, Pending pending, String reason) {
+        if (pending.droppable) {
+            log.debug("Message {} for agent {} dropped: {}", id, pending.token, reason);
+            return;
+        }
+
+        log.warn("Message {} for agent {} lost: {}", id, pending.token, reason);
+        if (pending.onLost != null) {
+            pending.onLost.run();
+        }
+    }
+
+    private Optional<String> getOwner(String token) {
+        String path = getPath(token);
+
+        try {
+            if (!zk.exist(path)) {
+                return Optional.empty();
+            }
+            return Optional.of(new String(zk.get(path), StandardCharsets.UTF_8));
+        } catch (ZookeeperException e) {
+            return Optional.empty();
+        }
+    }
+
+    private String getPath(String token) {
+        return zk.makePath(zkProperties.getAgentRouteRoot(), token);
+    }
+
+    @AllArgsConstructor
+    private static class Pending {
+
+        private final String token;
+
+        private final byte[] body;
+
+        private final boolean droppable;
+
+        private final int attempts;
+
+        private final Runnable onLost;
+
+        Pending next() {
+            return new Pending(token, body, droppable, attempts + 1, onLost);
+        }
+    }
+}
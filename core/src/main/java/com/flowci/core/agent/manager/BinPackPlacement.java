@@ -0,0 +1,30 @@
+package com.flowci.core.agent.manager;
+
+import com.flowci.core.agent.domain.AgentProfile;
+
+import java.util.Comparator;
+
+/**
+ * Pack jobs on the agent with least free resources that fits,
+ * and start new agent on the host with least free slots, keep big agents and empty hosts for heavy jobs
+ *
+ * @author yang
+ */
+public class BinPackPlacement implements PlacementStrategy {
+
+    private static final Comparator<AgentProfile> AgentOrder = Comparator
+            .comparing((AgentProfile p) -> !PlacementStrategy.isKnown(p))
+            .thenComparingInt(AgentProfile::getFreeMemory)
+            .thenComparingInt(AgentProfile::getCpuNum)
+            .thenComparing(Comparator.comparingDouble(AgentProfile::getCpuUsage).reversed());
+
+    @Override
+    public Comparator<AgentProfile> agentOrder() {
+        return AgentOrder;
+    }
+
+    @Override
+    public Comparator<Integer> hostOrder() {
+        return Comparator.naturalOrder();
+    }
+}
@@ -0,0 +1,42 @@
+package com.flowci.core.agent.manager;
+
+import com.flowci.core.agent.domain.Agent;
+import com.flowci.core.agent.domain.AgentProfile;
+import com.flowci.tree.Resources;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Select the first agent and try hosts in the original order,
+ * the profile is only loaded when resources are required
+ *
+ * @author yang
+ */
+public class FirstFitPlacement implements PlacementStrategy {
+
+    @Override
+    public Comparator<AgentProfile> agentOrder() {
+        return (a, b) -> 0;
+    }
+
+    @Override
+    public Comparator<Integer> hostOrder() {
+        return (a, b) -> 0;
+    }
+
+    @Override
+    public Optional<Agent> select(List<Agent> agents, Resources required, Function<String, AgentProfile> profiles) {
+        if (agents.isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (required.isEmpty()) {
+            return Optional.of(agents.get(0));
+        }
+
+        return PlacementStrategy.super.select(agents, required, profiles);
+    }
+}
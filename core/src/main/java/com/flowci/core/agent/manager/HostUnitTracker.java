@@ -0,0 +1,138 @@
+package com.flowci.core.agent.manager;
+
+import com.flowci.docker.ContainerManager;
+import com.flowci.docker.DockerManager;
+import com.flowci.docker.domain.Unit;
+import com.flowci.docker.domain.UnitEvent;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Track agent containers or pods of agent host from docker event stream or k8s watch,
+ * units are listed only when the watch is started, or every time if watch is not supported by the host.
+ *
+ * @author yang
+ */
+@Log4j2
+public final class HostUnitTracker implements Closeable {
+
+    private final String hostName;
+
+    private final String namePrefix;
+
+    @Getter
+    private final DockerManager manager;
+
+    // key as unit id
+    private final Map<String, Unit> units = new ConcurrentHashMap<>();
+
+    // ids of units removed while listing, which should not be added back by the listed result
+    private final Set<String> removedWhileListing = ConcurrentHashMap.newKeySet();
+
+    private volatile Closeable watch;
+
+    private volatile boolean watching;
+
+    private volatile boolean supported = true;
+
+    public HostUnitTracker(String hostName, String namePrefix, DockerManager manager) {
+        this.hostName = hostName;
+        this.namePrefix = namePrefix;
+        this.manager = manager;
+    }
+
+    /**
+     * List units with name prefix from tracked state
+     */
+    public List<Unit> list() throws Exception {
+        ContainerManager cm = manager.getContainerManager();
+
+        if (!watching && supported) {
+            startWatch(cm);
+        }
+
+        if (watching) {
+            return new ArrayList<>(units.values());
+        }
+
+        return cm.list(null, namePrefix + "*");
+    }
+
+    public boolean isWatching() {
+        return watching;
+    }
+
+    @Override
+    public synchronized void close() {
+        watching = false;
+        units.clear();
+        removedWhileListing.clear();
+
+        if (watch != null) {
+            try {
+                watch.close();
+            } catch (Exception e) {
+                log.debug("Unable to close watch of host {}: {}", hostName, e.getMessage());
+            }
+            watch = null;
+        }
+    }
+
+    private synchronized void startWatch(ContainerManager cm) throws Exception {
+        if (watching) {
+            return;
+        }
+
+        try {
+            // watch before list, so changes during listing will not be lost
+            watch = cm.watch(namePrefix, this::onEvent);
+        } catch (UnsupportedOperationException e) {
+            supported = false;
+            return;
+        } catch (Exception e) {
+            log.warn("Unable to watch host {}: {}", hostName, e.getMessage());
+            return;
+        }
+
+        try {
+            for (Unit unit : cm.list(null, namePrefix + "*")) {
+                if (!removedWhileListing.contains(unit.getId())) {
+                    units.putIfAbsent(unit.getId(), unit);
+                }
+            }
+            watching = true;
+            removedWhileListing.clear();
+            log.info("Units of host {} are tracked by watch", hostName);
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void onEvent(UnitEvent event) {
+        switch (event.getType()) {
+            case Changed:
+                units.put(event.getId(), event.getUnit());
+                break;
+
+            case Removed:
+                units.remove(event.getId());
+                if (!watching) {
+                    removedWhileListing.add(event.getId());
+                }
+                break;
+
+            case Closed:
+                log.warn("Watch of host {} is closed, will be restarted on next listing", hostName);
+                close();
+                break;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.flowci.core.agent.manager;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded outbound message queue of agent websocket session,
+ * messages are sent in order by sender executor, so the caller never be blocked by slow connection.
+ * <p>
+ * Droppable message, ex: tty input, will be dropped if buffer size over the limit,
+ * other messages are always queued, the session will be failed if a send is over the time limit,
+ * which is checked on offer and by the watchdog, since a blocked send may never see another offer.
+ *
+ * @author yang
+ */
+@Log4j2
+public final class OutboundQueue {
+
+    @Getter
+    private final WebSocketSession session;
+
+    private final Executor sender;
+
+    private final int bufferSizeLimit;
+
+    private final long sendTimeLimit;
+
+    private final BiConsumer<OutboundQueue, String> onFailure;
+
+    private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger bufferSize = new AtomicInteger(0);
+
+    private final AtomicBoolean sending = new AtomicBoolean(false);
+
+    private final AtomicBoolean failed = new AtomicBoolean(false);
+
+    // start time in millis of current send, 0 if not sending
+    private volatile long sendStartAt = 0;
+
+    /**
+     * @param bufferSizeLimit max bytes of queued messages
+     * @param sendTimeLimit   max millis of a single send
+     * @param onFailure       callback with reason, invoked once from sender executor
+     */
+    public OutboundQueue(WebSocketSession session,
+                         Executor sender,
+                         int bufferSizeLimit,
+                         long sendTimeLimit,
+                         BiConsumer<OutboundQueue, String> onFailure) {
+        this.session = session;
+        this.sender = sender;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimit = sendTimeLimit;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Queue message to send
+     *
+     * @return false if message dropped or session failed
+     */
+    public boolean offer(byte[] body, boolean droppable) {
+        if (failed.get()) {
+            return false;
+        }
+
+        if (isSendTimeout()) {
+            fail("send time limit exceeded", false);
+            return false;
+        }
+
+        if (droppable && bufferSize.get() + body.length > bufferSizeLimit) {
+            log.debug("Outbound buffer of session {} is full, message dropped", session.getId());
+            return false;
+        }
+
+        queue.add(body);
+        bufferSize.addAndGet(body.length);
+        schedule();
+        return true;
+    }
+
+    /**
+     * Fail the queue if the current send is over the time limit, called by watchdog periodically.
+     * The failure callback runs on the caller thread, since sender threads may all be blocked
+     *
+     * @return true if failed by send timeout
+     */
+    public boolean checkSendTimeout() {
+        if (failed.get() || !isSendTimeout()) {
+            return false;
+        }
+
+        fail("send time limit exceeded", true);
+        return true;
+    }
+
+    public int getBufferSize() {
+        return bufferSize.get();
+    }
+
+    public boolean isFailed() {
+        return failed.get();
+    }
+
+    private boolean isSendTimeout() {
+        long startAt = sendStartAt;
+        return startAt > 0 && System.currentTimeMillis() - startAt > sendTimeLimit;
+    }
+
+    private void schedule() {
+        if (!sending.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            sender.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            sending.set(false);
+            fail("sender rejected", false);
+        }
+    }
+
+    private void flush() {
+        try {
+            byte[] body;
+            while (!failed.get() && (body = queue.poll()) != null) {
+                bufferSize.addAndGet(-body.length);
+
+                sendStartAt = System.currentTimeMillis();
+                session.sendMessage(new BinaryMessage(body));
+                sendStartAt = 0;
+            }
+        } catch (Throwable e) {
+            fail(e.getMessage(), false);
+        } finally {
+            sendStartAt = 0;
+            sending.set(false);
+        }
+
+        // message could be queued after poll returns null but before sending flag reset
+        if (!failed.get() && !queue.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private void fail(String reason, boolean inline) {
+        if (!failed.compareAndSet(false, true)) {
+            return;
+        }
+
+        queue.clear();
+        bufferSize.set(0);
+
+        if (inline) {
+            onFailure.accept(this, reason);
+            return;
+        }
+
+        try {
+            sender.execute(() -> onFailure.accept(this, reason));
+        } catch (RejectedExecutionException e) {
+            onFailure.accept(this, reason);
+        }
+    }
+}
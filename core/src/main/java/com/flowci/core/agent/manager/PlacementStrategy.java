@@ -0,0 +1,150 @@
+package com.flowci.core.agent.manager;
+
+import com.flowci.core.agent.domain.Agent;
+import com.flowci.core.agent.domain.AgentHost;
+import com.flowci.core.agent.domain.AgentProfile;
+import com.flowci.tree.Resources;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Strategy to select idle agent for job and order agent hosts to start new agent,
+ * which is configured by 'app.agent.placement'
+ *
+ * @author yang
+ */
+public interface PlacementStrategy {
+
+    String FirstFit = "FirstFit";
+
+    String BinPack = "BinPack";
+
+    String Spread = "Spread";
+
+    static PlacementStrategy of(String name) {
+        if (BinPack.equalsIgnoreCase(name)) {
+            return new BinPackPlacement();
+        }
+
+        if (Spread.equalsIgnoreCase(name)) {
+            return new SpreadPlacement();
+        }
+
+        return new FirstFitPlacement();
+    }
+
+    /**
+     * Agent profile with enough free resources for required resources
+     */
+    static boolean fits(AgentProfile profile, Resources required) {
+        if (required.isEmpty()) {
+            return true;
+        }
+
+        return profile.getCpuNum() >= required.getCpu()
+                && profile.getFreeMemory() >= required.getMemory()
+                && profile.getFreeDisk() >= required.getDisk();
+    }
+
+    /**
+     * Agent profile reported from agent, the empty profile is unknown
+     */
+    static boolean isKnown(AgentProfile profile) {
+        return profile.getTotalMemory() > 0;
+    }
+
+    /**
+     * Order of agent profiles, the preferred one is first
+     */
+    Comparator<AgentProfile> agentOrder();
+
+    /**
+     * Order of free agent slots on host, the preferred one is first
+     */
+    Comparator<Integer> hostOrder();
+
+    /**
+     * Select agent from idle agents by order of profile, in the agents which fit the required resources.
+     * The first agent in order will be selected if none of them fits, so job will not wait forever for
+     * an agent that never exists
+     */
+    default Optional<Agent> select(List<Agent> agents, Resources required, Function<String, AgentProfile> profiles) {
+        if (agents.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<Candidate> fit = new ArrayList<>(agents.size());
+        List<Candidate> all = new ArrayList<>(agents.size());
+
+        for (Agent agent : agents) {
+            Candidate c = new Candidate(agent, profiles.apply(agent.getToken()));
+            all.add(c);
+
+            if (fits(c.profile, required)) {
+                fit.add(c);
+            }
+        }
+
+        List<Candidate> list = fit.isEmpty() ? all : fit;
+        Comparator<AgentProfile> order = agentOrder();
+
+        Candidate selected = list.get(0);
+        for (Candidate c : list) {
+            if (order.compare(c.profile, selected.profile) < 0) {
+                selected = c;
+            }
+        }
+        return Optional.of(selected.agent);
+    }
+
+    /**
+     * Order hosts by free agent slots, hosts are tried in order to start agent,
+     * and hosts without free slot are always the last
+     */
+    default List<AgentHost> order(List<AgentHost> hosts, ToIntFunction<AgentHost> freeSlots) {
+        List<HostSlots> list = new ArrayList<>(hosts.size());
+        for (AgentHost host : hosts) {
+            list.add(new HostSlots(host, freeSlots.applyAsInt(host)));
+        }
+
+        // stable sort, keep original order for equal slots
+        Comparator<Integer> order = hostOrder();
+        list.sort(Comparator.<HostSlots, Boolean>comparing(item -> item.slots <= 0)
+                .thenComparing((a, b) -> order.compare(a.slots, b.slots)));
+
+        List<AgentHost> ordered = new ArrayList<>(list.size());
+        for (HostSlots item : list) {
+            ordered.add(item.host);
+        }
+        return ordered;
+    }
+
+    final class Candidate {
+
+        private final Agent agent;
+
+        private final AgentProfile profile;
+
+        private Candidate(Agent agent, AgentProfile profile) {
+            this.agent = agent;
+            this.profile = profile == null ? AgentProfile.EMPTY : profile;
+        }
+    }
+
+    final class HostSlots {
+
+        private final AgentHost host;
+
+        private final int slots;
+
+        private HostSlots(AgentHost host, int slots) {
+            this.host = host;
+            this.slots = slots;
+        }
+    }
+}
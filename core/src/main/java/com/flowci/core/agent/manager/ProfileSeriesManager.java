@@ -0,0 +1,135 @@
+package com.flowci.core.agent.manager;
+
+import com.flowci.core.agent.dao.AgentProfileDao;
+import com.flowci.core.agent.dao.ProfilePointDao;
+import com.flowci.core.agent.domain.AgentProfile;
+import com.flowci.core.agent.domain.ProfilePoint;
+import com.flowci.core.agent.domain.ProfileSeries;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keep time series of agent profiles in memory,
+ * minute points and latest profiles are flushed to db in batch periodically
+ *
+ * @author yang
+ */
+@Log4j2
+@Component
+public class ProfileSeriesManager {
+
+    private static final long PushIntervalInMillis = 5 * 1000L;
+
+    private static final long FlushIntervalInMillis = 60 * 1000L;
+
+    // key as agent token
+    private final Map<String, ProfileSeries> store = new ConcurrentHashMap<>();
+
+    // key as agent token, value as last push time in millis
+    private final Map<String, Long> lastPushAt = new ConcurrentHashMap<>();
+
+    @Autowired
+    private AgentProfileDao agentProfileDao;
+
+    @Autowired
+    private ProfilePointDao profilePointDao;
+
+    public void add(AgentProfile profile) {
+        String token = profile.getId();
+        store.computeIfAbsent(token, ProfileSeries::new).add(System.currentTimeMillis(), profile);
+    }
+
+    public Optional<AgentProfile> getLatest(String token) {
+        ProfileSeries series = store.get(token);
+        return series == null ? Optional.empty() : Optional.ofNullable(series.getLatest());
+    }
+
+    /**
+     * Query points from memory if agent reported to this node, otherwise minute points from db
+     */
+    public List<ProfilePoint> query(String token, long from, long to) {
+        ProfileSeries series = store.get(token);
+        if (series != null) {
+            return series.query(from, to);
+        }
+
+        Sort sort = new Sort(Sort.Direction.ASC, "timestamp");
+        return profilePointDao.findAllByTokenAndResolutionAndTimestampBetween(
+                token, ProfileSeries.Minute, from, to, sort);
+    }
+
+    /**
+     * Throttle push of profile for each agent, subscribers receive at most one update per interval
+     */
+    public boolean shouldPush(String token) {
+        long now = System.currentTimeMillis();
+        boolean[] shouldPush = {false};
+
+        lastPushAt.compute(token, (k, last) -> {
+            if (last == null || now - last >= PushIntervalInMillis) {
+                shouldPush[0] = true;
+                return now;
+            }
+            return last;
+        });
+
+        return shouldPush[0];
+    }
+
+    /**
+     * Flush and release series of agent which is disconnected or offline, points kept in db
+     */
+    public void evict(String token) {
+        lastPushAt.remove(token);
+
+        ProfileSeries series = store.remove(token);
+        if (series != null) {
+            flush(Collections.singletonList(series));
+        }
+    }
+
+    public void remove(String token) {
+        store.remove(token);
+        lastPushAt.remove(token);
+        profilePointDao.deleteAllByToken(token);
+    }
+
+    @Scheduled(fixedRate = FlushIntervalInMillis)
+    public void flush() {
+        flush(store.values());
+    }
+
+    private void flush(Collection<ProfileSeries> seriesList) {
+        List<ProfilePoint> points = new LinkedList<>();
+        List<AgentProfile> latest = new LinkedList<>();
+
+        for (ProfileSeries series : seriesList) {
+            points.addAll(series.drainUnflushed());
+
+            AgentProfile profile = series.drainLatest();
+            if (profile != null) {
+                latest.add(profile);
+            }
+        }
+
+        try {
+            if (!points.isEmpty()) {
+                profilePointDao.insert(points);
+            }
+
+            if (!latest.isEmpty()) {
+                agentProfileDao.saveAll(latest);
+            }
+
+            log.debug("{} profile points and {} profiles flushed", points.size(), latest.size());
+        } catch (Exception e) {
+            log.warn("Unable to flush agent profiles: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.flowci.core.agent.manager;
+
+import com.flowci.core.agent.domain.AgentProfile;
+
+import java.util.Comparator;
+
+/**
+ * Spread jobs to the agent with most free resources,
+ * and start new agent on the host with most free slots
+ *
+ * @author yang
+ */
+public class SpreadPlacement implements PlacementStrategy {
+
+    private static final Comparator<AgentProfile> AgentOrder = Comparator
+            .comparing((AgentProfile p) -> !PlacementStrategy.isKnown(p))
+            .thenComparing(Comparator.comparingInt(AgentProfile::getFreeMemory).reversed())
+            .thenComparingDouble(AgentProfile::getCpuUsage);
+
+    @Override
+    public Comparator<AgentProfile> agentOrder() {
+        return AgentOrder;
+    }
+
+    @Override
+    public Comparator<Integer> hostOrder() {
+        return Comparator.reverseOrder();
+    }
+}
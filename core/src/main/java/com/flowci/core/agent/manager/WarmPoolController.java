@@ -0,0 +1,219 @@
+package com.flowci.core.agent.manager;
+
+import com.flowci.core.agent.domain.Agent;
+import com.flowci.core.agent.domain.AgentHost;
+import com.flowci.docker.DockerManager;
+import com.flowci.util.StringHelper;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.*;
+
+/**
+ * Keep idle agents on agent hosts ahead of demand, so agent startup is not on the critical path of jobs.
+ * <p>
+ * Target idle agents of each host is the min idle of host, plus the share of demand which is
+ * jobs waiting for agent and predicted arrivals within the lead time. The demand is assigned to
+ * hosts in the order of placement strategy.
+ * <p>
+ * Scale up is immediate, scale down only if host is over supplied for consecutive rounds,
+ * and stop one idle agent per round.
+ *
+ * @author yang
+ */
+@Log4j2
+public class WarmPoolController {
+
+    // weight of latest round for arrival rate
+    private static final double Alpha = 0.3;
+
+    /**
+     * Agent operations on host, implemented by agent host service
+     */
+    public interface HostOperations {
+
+        List<Agent> listAgents(AgentHost host);
+
+        Optional<DockerManager> getDockerManager(AgentHost host);
+
+        /**
+         * Start or resume an agent on the host
+         */
+        boolean start(AgentHost host);
+
+        /**
+         * Set agent offline if it's idle
+         */
+        boolean retire(Agent agent);
+    }
+
+    private final HostOperations operations;
+
+    private final long leadTimeInMillis;
+
+    private final int scaleDownDelay;
+
+    // key as host id, value as num of consecutive over supplied rounds
+    private final Map<String, Integer> overSupplied = new HashMap<>();
+
+    // EWMA of job arrivals per millis
+    @Getter
+    private double arrivalRate;
+
+    private long lastReconcileAt;
+
+    // total num of received jobs of all nodes at last reconcile
+    private long lastReceived;
+
+    public WarmPoolController(HostOperations operations, int leadTimeInSeconds, int scaleDownDelay) {
+        this.operations = operations;
+        this.leadTimeInMillis = leadTimeInSeconds * 1000L;
+        this.scaleDownDelay = Math.max(scaleDownDelay, 1);
+    }
+
+    /**
+     * Start or stop agents on hosts to the target idle size
+     *
+     * @param hosts      agent hosts ordered by placement strategy
+     * @param queueDepth num of ongoing jobs from job priority
+     * @param received   total num of jobs received of all nodes from job priority
+     */
+    public synchronized void reconcile(List<AgentHost> hosts, long queueDepth, long received, long now) {
+        updateArrivalRate(received, now);
+
+        List<HostState> states = new ArrayList<>(hosts.size());
+        int busy = 0;
+        int minIdle = 0;
+
+        for (AgentHost host : hosts) {
+            if (host.isDisabled()) {
+                continue;
+            }
+
+            HostState state = new HostState(host, operations.listAgents(host));
+            states.add(state);
+            busy += state.busy;
+            minIdle += host.getMinIdle();
+        }
+
+        double predicted = arrivalRate * leadTimeInMillis;
+        long demand = (long) Math.ceil(Math.max(queueDepth - busy, 0) + predicted);
+        long extra = Math.max(demand - minIdle, 0);
+
+        for (HostState state : states) {
+            int share = (int) Math.min(extra, Math.max(state.capacity() - state.host.getMinIdle(), 0));
+            extra -= share;
+
+            int target = Math.min(state.host.getMinIdle() + share, state.capacity());
+            scale(state, target);
+        }
+    }
+
+    /**
+     * Arrivals are the delta of shared received counter, since reconcile may run on any node
+     */
+    private void updateArrivalRate(long received, long now) {
+        long count = received - lastReceived;
+
+        // counter decreased if flow deleted, skip the round
+        if (lastReconcileAt == 0 || now <= lastReconcileAt || count < 0) {
+            lastReconcileAt = now;
+            lastReceived = received;
+            return;
+        }
+
+        double rate = (double) count / (now - lastReconcileAt);
+        arrivalRate = Alpha * rate + (1 - Alpha) * arrivalRate;
+        lastReconcileAt = now;
+        lastReceived = received;
+    }
+
+    private void scale(HostState state, int target) {
+        AgentHost host = state.host;
+        int supply = state.idle.size() + state.starting;
+
+        if (supply < target) {
+            overSupplied.remove(host.getId());
+
+            for (int i = supply; i < target; i++) {
+                if (!operations.start(host)) {
+                    log.warn("Warm pool: unable to start agent on host {}", host.getName());
+                    return;
+                }
+            }
+
+            log.info("Warm pool: {} agents started on host {}", target - supply, host.getName());
+            return;
+        }
+
+        if (supply == target || state.idle.isEmpty()) {
+            overSupplied.remove(host.getId());
+            return;
+        }
+
+        int rounds = overSupplied.getOrDefault(host.getId(), 0) + 1;
+        if (rounds < scaleDownDelay) {
+            overSupplied.put(host.getId(), rounds);
+            return;
+        }
+
+        overSupplied.remove(host.getId());
+        stopOne(host, state.idle);
+    }
+
+    private void stopOne(AgentHost host, List<Agent> idle) {
+        Optional<DockerManager> manager = operations.getDockerManager(host);
+        if (!manager.isPresent()) {
+            return;
+        }
+
+        for (Agent agent : idle) {
+            if (!StringHelper.hasValue(agent.getContainerId()) || !operations.retire(agent)) {
+                continue;
+            }
+
+            try {
+                manager.get().getContainerManager().stop(agent.getContainerId());
+                log.info("Warm pool: agent {} stopped on host {}", agent.getName(), host.getName());
+            } catch (Exception e) {
+                log.warn("Warm pool: unable to stop agent {}: {}", agent.getName(), e.getMessage());
+            }
+            return;
+        }
+    }
+
+    private static class HostState {
+
+        private final AgentHost host;
+
+        private final List<Agent> idle = new LinkedList<>();
+
+        private int starting;
+
+        private int busy;
+
+        HostState(AgentHost host, List<Agent> agents) {
+            this.host = host;
+
+            for (Agent agent : agents) {
+                if (agent.isIdle()) {
+                    idle.add(agent);
+                } else if (agent.isStarting()) {
+                    starting++;
+                } else if (agent.isBusy()) {
+                    busy++;
+                }
+            }
+        }
+
+        /**
+         * Max num of idle and starting agents on the host
+         */
+        int capacity() {
+            if (host.getMaxSize() == AgentHost.NoLimit) {
+                return Integer.MAX_VALUE;
+            }
+            return Math.max(host.getMaxSize() - busy, 0);
+        }
+    }
+}
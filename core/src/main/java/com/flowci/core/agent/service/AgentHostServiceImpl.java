@@ -20,12 +20,16 @@ import com.flowci.core.agent.dao.AgentDao;
 import com.flowci.core.agent.dao.AgentHostDao;
 import com.flowci.core.agent.domain.*;
 import com.flowci.core.agent.event.AgentHostStatusEvent;
+import com.flowci.core.agent.manager.HostUnitTracker;
+import com.flowci.core.agent.manager.PlacementStrategy;
+import com.flowci.core.agent.manager.WarmPoolController;
 import com.flowci.core.common.config.AppProperties;
 import com.flowci.core.common.domain.Variables;
 import com.flowci.core.common.helper.CacheHelper;
 import com.flowci.core.common.manager.SpringEventManager;
 import com.flowci.core.common.manager.SpringTaskManager;
 import com.flowci.core.common.service.SettingService;
+import com.flowci.core.job.dao.JobPriorityDao;
 import com.flowci.core.job.event.NoIdleAgentEvent;
 import com.flowci.core.secret.domain.KubeConfigSecret;
 import com.flowci.core.secret.domain.RSASecret;
@@ -44,21 +48,25 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.RemovalListener;
 import com.google.common.base.Preconditions;
-import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
 import javax.annotation.Nullable;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 import static com.flowci.core.secret.domain.Secret.Category.KUBE_CONFIG;
 import static com.flowci.core.secret.domain.Secret.Category.SSH_RSA;
@@ -78,6 +86,9 @@ public class AgentHostServiceImpl implements AgentHostService {
     private final Cache<AgentHost, DockerManager> poolManagerCache =
             CacheHelper.createLocalCache(10, 600, new PoolManagerRemover());
 
+    // key as host id
+    private final Map<String, HostUnitTracker> unitTrackers = new ConcurrentHashMap<>();
+
     @Autowired
     private Environment environment;
 
@@ -108,12 +119,51 @@ public class AgentHostServiceImpl implements AgentHostService {
     @Autowired
     private SettingService settingService;
 
+    @Autowired
+    private PlacementStrategy placementStrategy;
+
+    @Autowired
+    private AppProperties.Agent agentProperties;
+
+    @Autowired
+    private JobPriorityDao jobPriorityDao;
+
+    @Autowired
+    private ThreadPoolTaskExecutor agentHostExecutor;
+
+    private WarmPoolController warmPool;
+
     {
         mapping.put(LocalUnixAgentHost.class, new LocalSocketHostAdaptor());
         mapping.put(SshAgentHost.class, new SshHostAdaptor());
         mapping.put(K8sAgentHost.class, new K8sHostAdaptor());
     }
 
+    @PostConstruct
+    public void initWarmPool() {
+        warmPool = new WarmPoolController(new WarmPoolController.HostOperations() {
+            @Override
+            public List<Agent> listAgents(AgentHost host) {
+                return agentDao.findAllByHostId(host.getId());
+            }
+
+            @Override
+            public Optional<DockerManager> getDockerManager(AgentHost host) {
+                return AgentHostServiceImpl.this.getDockerManager(host);
+            }
+
+            @Override
+            public boolean start(AgentHost host) {
+                return AgentHostServiceImpl.this.start(host);
+            }
+
+            @Override
+            public boolean retire(Agent agent) {
+                return agentService.retire(agent.getId());
+            }
+        }, agentProperties.getWarmPoolLeadTime(), agentProperties.getWarmPoolScaleDownDelay());
+    }
+
     //====================================================================
     //        %% Public functions
     //====================================================================
@@ -123,6 +173,7 @@ public class AgentHostServiceImpl implements AgentHostService {
         if (StringHelper.hasValue(host.getId())) {
             agentHostDao.save(host);
             poolManagerCache.invalidate(host);
+            closeUnitTracker(host);
             return host;
         }
 
@@ -143,6 +194,7 @@ public class AgentHostServiceImpl implements AgentHostService {
         agentHostDao.deleteById(host.getId());
         appTaskExecutor.execute(() -> {
             removeAll(host);
+            closeUnitTracker(host);
         });
         return host;
     }
@@ -173,26 +225,27 @@ public class AgentHostServiceImpl implements AgentHostService {
         List<Unit> containerList;
 
         try {
-            containerList = cm.list(null, ContainerNamePrefix + "*");
+            containerList = listUnits(host, optional.get());
         } catch (Exception e) {
             log.warn("Cannot list containers of host {}", host.getName());
             return;
         }
 
-        Set<AgentItemWrapper> containerSet = AgentItemWrapper.toSet(containerList);
-        List<Agent> agentList = agentDao.findAllByHostId(host.getId());
-        Set<AgentItemWrapper> agentSet = AgentItemWrapper.toSet(agentList);
+        Set<String> agentContainers = new HashSet<>();
+        for (Agent agent : agentDao.findAllByHostId(host.getId())) {
+            agentContainers.add(getContainerName(agent));
+        }
 
         // find and remove containers are not belong to host
-        containerSet.removeAll(agentSet);
+        for (Unit unit : containerList) {
+            String name = getUnitName(unit);
+            if (agentContainers.contains(name)) {
+                continue;
+            }
 
-        for (AgentItemWrapper item : containerSet) {
             try {
-                List<Unit> list = cm.list(null, item.getName());
-                if (list.size() > 0) {
-                    cm.delete(list.get(0).getId());
-                }
-                log.info("Agent {} has been cleaned up", item.getName());
+                cm.delete(unit.getId());
+                log.info("Agent {} has been cleaned up", name);
             } catch (Exception ignore) {
             }
         }
@@ -218,6 +271,15 @@ public class AgentHostServiceImpl implements AgentHostService {
 
         DockerManager dockerManager = manager.get();
         ContainerManager cm = dockerManager.getContainerManager();
+        Map<String, Unit> containers = new HashMap<>();
+
+        try {
+            for (Unit unit : listUnits(host, dockerManager)) {
+                containers.put(getUnitName(unit), unit);
+            }
+        } catch (Exception e) {
+            log.warn("Cannot list containers of host {}", host.getName());
+        }
 
         // try to resume if offline, add to start list if resume failed
         for (Agent agent : agents) {
@@ -226,15 +288,14 @@ public class AgentHostServiceImpl implements AgentHostService {
             }
 
             try {
-                List<Unit> list = cm.list(null, getContainerName(agent));
+                Unit container = containers.get(getContainerName(agent));
 
                 // container not exist
-                if (list.isEmpty()) {
+                if (container == null) {
                     startList.add(agent);
                     continue;
                 }
 
-                Unit container = list.get(0);
                 cm.resume(container.getId());
                 log.info("Agent {} been resumed", agent.getName());
                 return true;
@@ -304,7 +365,7 @@ public class AgentHostServiceImpl implements AgentHostService {
         }
 
         try {
-            return optional.get().getContainerManager().list(null, ContainerNamePrefix + "*").size();
+            return listUnits(host, optional.get()).size();
         } catch (Exception e) {
             log.warn("Cannot get container size of host {}", host.getName());
             return -1;
@@ -356,7 +417,7 @@ public class AgentHostServiceImpl implements AgentHostService {
 
         ContainerManager cm = optional.get().getContainerManager();
         try {
-            List<Unit> containers = cm.list(null, ContainerNamePrefix + "*");
+            List<Unit> containers = listUnits(host, optional.get());
             for (Unit c : containers) {
                 cm.delete(c.getId());
             }
@@ -368,9 +429,21 @@ public class AgentHostServiceImpl implements AgentHostService {
     @Scheduled(cron = "0 0/5 * * * ?")
     public void scheduleCollect() {
         taskManager.run("agent-host-collect", false, () -> {
-            for (AgentHost host : list()) {
-                collect(host);
-            }
+            forEachHostInParallel("collect", this::collect);
+        });
+    }
+
+    @Scheduled(fixedDelay = 10 * 1000)
+    public void scheduleWarmPool() {
+        if (!agentProperties.isWarmPoolEnabled()) {
+            return;
+        }
+
+        taskManager.run("agent-warm-pool", false, () -> {
+            List<AgentHost> hosts = placementStrategy.order(list(), this::getFreeSlots);
+            long queueDepth = jobPriorityDao.countAllInQueue();
+            long received = jobPriorityDao.countAllReceived();
+            warmPool.reconcile(hosts, queueDepth, received, System.currentTimeMillis());
         });
     }
 
@@ -394,7 +467,7 @@ public class AgentHostServiceImpl implements AgentHostService {
             return;
         }
 
-        for (AgentHost host : hosts) {
+        for (AgentHost host : placementStrategy.order(hosts, this::getFreeSlots)) {
             if (start(host)) {
                 return;
             }
@@ -405,6 +478,23 @@ public class AgentHostServiceImpl implements AgentHostService {
     //        %% Private functions
     //====================================================================
 
+    /**
+     * Num of agents can be started or resumed on the host
+     */
+    private int getFreeSlots(AgentHost host) {
+        if (host.getMaxSize() == AgentHost.NoLimit) {
+            return Integer.MAX_VALUE;
+        }
+
+        int online = 0;
+        for (Agent agent : agentDao.findAllByHostId(host.getId())) {
+            if (agent.isOnline()) {
+                online++;
+            }
+        }
+        return Math.max(host.getMaxSize() - online, 0);
+    }
+
     private String getContainerName(Agent agent) {
         return String.format("%s-%s", ContainerNamePrefix, StringHelper.escapeNumber(agent.getName()));
     }
@@ -425,15 +515,77 @@ public class AgentHostServiceImpl implements AgentHostService {
     }
 
     private void syncAgents() {
-        for (AgentHost host : list()) {
+        forEachHostInParallel("sync", this::sync);
+    }
+
+    /**
+     * Run task for each host concurrently, wait for each host up to the time limit,
+     * the slow host will be interrupted and not block others
+     */
+    private void forEachHostInParallel(String name, Consumer<AgentHost> task) {
+        List<AgentHost> hosts = list();
+        Map<AgentHost, Future<?>> futures = new LinkedHashMap<>(hosts.size());
+
+        for (AgentHost host : hosts) {
             try {
-                sync(host);
-            } catch (Exception e) {
-                log.warn(e.getMessage());
+                futures.put(host, agentHostExecutor.submit(() -> task.accept(host)));
+            } catch (TaskRejectedException e) {
+                log.warn("Unable to {} host {}: {}", name, host.getName(), e.getMessage());
+            }
+        }
+
+        int timeout = agentProperties.getHostSyncTimeout();
+        for (Map.Entry<AgentHost, Future<?>> entry : futures.entrySet()) {
+            AgentHost host = entry.getKey();
+            Future<?> future = entry.getValue();
+
+            try {
+                future.get(timeout, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("Unable to {} host {} in {} seconds", name, host.getName(), timeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.warn("Unable to {} host {}: {}", name, host.getName(), e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * List agent containers or pods from host unit tracker, which is created for each docker manager
+     */
+    private List<Unit> listUnits(AgentHost host, DockerManager manager) throws Exception {
+        HostUnitTracker tracker = unitTrackers.compute(host.getId(), (id, current) -> {
+            if (current != null && current.getManager() == manager) {
+                return current;
+            }
+
+            if (current != null) {
+                current.close();
             }
+            return new HostUnitTracker(host.getName(), ContainerNamePrefix, manager);
+        });
+
+        return tracker.list();
+    }
+
+    private void closeUnitTracker(AgentHost host) {
+        HostUnitTracker tracker = unitTrackers.remove(host.getId());
+        if (tracker != null) {
+            tracker.close();
         }
     }
 
+    /**
+     * Docker container name is started with '/'
+     */
+    private static String getUnitName(Unit unit) {
+        String name = unit.getName();
+        return name.startsWith("/") ? name.substring(1) : name;
+    }
+
     /**
      * Load or init pool manager from local cache for each agent host
      */
@@ -623,48 +775,6 @@ public class AgentHostServiceImpl implements AgentHostService {
         }
     }
 
-    @AllArgsConstructor(staticName = "of")
-    public static class AgentItemWrapper {
-
-        public static <T> Set<AgentItemWrapper> toSet(List<T> list) {
-            Set<AgentItemWrapper> set = new HashSet<>(list.size());
-            Iterator<T> iterator = list.iterator();
-            for (; iterator.hasNext(); ) {
-                set.add(AgentItemWrapper.of(iterator.next()));
-                iterator.remove();
-            }
-            return set;
-        }
-
-        private final Object object;
-
-        public String getName() {
-            if (object instanceof Agent) {
-                return ((Agent) object).getName();
-            }
-
-            if (object instanceof Unit) {
-                return ((Unit) object).getName();
-            }
-
-            throw new IllegalArgumentException();
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (o instanceof AgentItemWrapper) {
-                AgentItemWrapper obj = (AgentItemWrapper) o;
-                return this.getName().equals(obj.getName());
-            }
-            return false;
-        }
-
-        @Override
-        public int hashCode() {
-            return this.getName().hashCode();
-        }
-    }
-
     @Log4j2
     private static class PoolManagerRemover implements RemovalListener<AgentHost, DockerManager> {
 
@@ -20,6 +20,8 @@ import com.flowci.core.agent.domain.Agent;
 import com.flowci.core.agent.domain.AgentProfile;
 import com.flowci.core.agent.domain.CmdIn;
 import com.flowci.core.agent.domain.AgentOption;
+import com.flowci.core.agent.domain.ProfilePoint;
+import com.flowci.tree.Resources;
 import com.flowci.tree.Selector;
 
 import java.util.Collection;
@@ -41,6 +43,14 @@ public interface AgentService {
      */
     AgentProfile getProfile(String token);
 
+    /**
+     * List profile points of agent in time range, resolution depends on the range
+     *
+     * @param from start time in millis
+     * @param to   end time in millis
+     */
+    List<ProfilePoint> listProfiles(String token, long from, long to);
+
     /**
      * Get agent by name
      */
@@ -77,9 +87,11 @@ public interface AgentService {
     void delete(Agent agent);
 
     /**
-     * Find available agent and set to busy, atomic
+     * Find available agent by placement strategy and set to busy, atomic
+     *
+     * @param required resource hints of steps, agent with enough free resources is preferred
      */
-    Optional<Agent> acquire(String jobId, Selector selector);
+    Optional<Agent> acquire(String jobId, Selector selector, Resources required);
 
     /**
      * Acquire job id to specific agent and set to busy, atomic
@@ -91,6 +103,11 @@ public interface AgentService {
      */
     void release(Collection<String> ids);
 
+    /**
+     * Set agent to OFFLINE only if it's idle, so it cannot be acquired before stopped, atomic
+     */
+    boolean retire(String agentId);
+
     /**
      * Create agent by name and tags
      */
@@ -23,6 +23,8 @@ import com.flowci.core.agent.domain.*;
 import com.flowci.core.agent.domain.Agent.Status;
 import com.flowci.core.agent.event.*;
 import com.flowci.core.agent.manager.AgentEventManager;
+import com.flowci.core.agent.manager.PlacementStrategy;
+import com.flowci.core.agent.manager.ProfileSeriesManager;
 import com.flowci.core.common.config.AppProperties;
 import com.flowci.core.common.domain.PushEvent;
 import com.flowci.core.common.helper.CipherHelper;
@@ -31,14 +33,16 @@ import com.flowci.core.common.manager.SocketPushManager;
 import com.flowci.core.common.manager.SpringEventManager;
 import com.flowci.core.common.manager.SpringTaskManager;
 import com.flowci.core.common.rabbit.RabbitOperations;
+import com.flowci.core.job.domain.Executed;
 import com.flowci.core.job.event.NoIdleAgentEvent;
 import com.flowci.exception.DuplicateException;
 import com.flowci.exception.NotFoundException;
 import com.flowci.exception.StatusException;
+import com.flowci.tree.Resources;
 import com.flowci.tree.Selector;
 import com.flowci.util.ObjectsHelper;
+import com.flowci.zookeeper.CoordinationProvider;
 import com.flowci.zookeeper.InterLock;
-import com.flowci.zookeeper.ZookeeperClient;
 import com.google.common.collect.Sets;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -79,7 +83,7 @@ public class AgentServiceImpl implements AgentService {
     private AppProperties.Zookeeper zkProperties;
 
     @Autowired
-    private ZookeeperClient zk;
+    private CoordinationProvider zk;
 
     @Autowired
     private AgentDao agentDao;
@@ -99,6 +103,12 @@ public class AgentServiceImpl implements AgentService {
     @Autowired
     private AgentEventManager agentEventManager;
 
+    @Autowired
+    private ProfileSeriesManager profileSeriesManager;
+
+    @Autowired
+    private PlacementStrategy placementStrategy;
+
     @Autowired
     private String idleAgentQueue;
 
@@ -167,10 +177,20 @@ public class AgentServiceImpl implements AgentService {
 
     @Override
     public AgentProfile getProfile(String token) {
+        Optional<AgentProfile> latest = profileSeriesManager.getLatest(token);
+        if (latest.isPresent()) {
+            return latest.get();
+        }
+
         Optional<AgentProfile> optional = agentProfileDao.findById(token);
         return optional.orElse(AgentProfile.EMPTY);
     }
 
+    @Override
+    public List<ProfilePoint> listProfiles(String token, long from, long to) {
+        return profileSeriesManager.query(token, from, to);
+    }
+
     @Override
     public Agent getByName(String name) {
         Agent agent = agentDao.findByName(name);
@@ -217,6 +237,7 @@ public class AgentServiceImpl implements AgentService {
     @Override
     public void delete(Agent agent) {
         agentDao.delete(agent);
+        profileSeriesManager.remove(agent.getToken());
         log.debug("{} has been deleted", agent.getName());
     }
 
@@ -251,7 +272,10 @@ public class AgentServiceImpl implements AgentService {
     }
 
     @Override
-    public Optional<Agent> acquire(String jobId, Selector selector) {
+    public Optional<Agent> acquire(String jobId, Selector selector, Resources required) {
+        // load profiles before lock, db lookup per agent holds the cluster lock too long
+        Map<String, AgentProfile> profiles = loadProfiles(agentDao.findAll(selector.getLabel(), Sets.newHashSet(IDLE)));
+
         Optional<InterLock> lock = lock();
         if (!lock.isPresent()) {
             throw new StatusException("Unable to get lock");
@@ -264,7 +288,10 @@ public class AgentServiceImpl implements AgentService {
                 return Optional.empty();
             }
 
-            Agent agent = agents.get(0);
+            Agent agent = placementStrategy.select(agents, required, token -> {
+                AgentProfile profile = profiles.get(token);
+                return profile != null ? profile : profileSeriesManager.getLatest(token).orElse(AgentProfile.EMPTY);
+            }).get();
             agent.setJobId(jobId);
             update(agent, BUSY);
 
@@ -299,6 +326,26 @@ public class AgentServiceImpl implements AgentService {
         }
     }
 
+    @Override
+    public boolean retire(String agentId) {
+        Optional<InterLock> lock = lock();
+        if (!lock.isPresent()) {
+            return false;
+        }
+
+        try {
+            Optional<Agent> optional = agentDao.findById(agentId);
+            if (!optional.isPresent() || !optional.get().isIdle()) {
+                return false;
+            }
+
+            update(optional.get(), OFFLINE);
+            return true;
+        } finally {
+            unlock(lock.get());
+        }
+    }
+
     @Override
     public Agent create(AgentOption option) {
         String name = option.getName();
@@ -350,6 +397,10 @@ public class AgentServiceImpl implements AgentService {
         agent.setStatus(status);
         agentDao.save(agent);
 
+        if (status == OFFLINE) {
+            profileSeriesManager.evict(agent.getToken());
+        }
+
         eventManager.publish(new AgentStatusEvent(this, agent));
         return agent;
     }
@@ -358,13 +409,40 @@ public class AgentServiceImpl implements AgentService {
     public void dispatch(CmdIn cmd, Agent agent) {
         try {
             byte[] body = objectMapper.writeValueAsBytes(cmd);
-            agentEventManager.writeMessage(agent.getToken(), body);
+            boolean droppable = cmd.getType() == CmdIn.Type.TTY;
+
+            Runnable onLost = () -> onCmdLost(cmd, agent);
+
+            if (!agentEventManager.writeMessage(agent.getToken(), body, droppable, onLost)) {
+                log.warn("Cmd {} not queued for agent {}", cmd.getType(), agent.getName());
+            }
+
             eventManager.publish(new CmdSentEvent(this, agent, cmd));
         } catch (IOException e) {
             log.warn(e);
         }
     }
 
+    /**
+     * Fail the step if shell cmd to agent connected on other node is not delivered or not acked,
+     * the cmd is not sent again since it might be running, otherwise the job waits for callback until timeout
+     */
+    private void onCmdLost(CmdIn cmd, Agent agent) {
+        if (!(cmd instanceof ShellIn)) {
+            return;
+        }
+
+        ShellIn in = (ShellIn) cmd;
+        ShellOut out = new ShellOut()
+                .setId(in.getId())
+                .setStatus(Executed.Status.EXCEPTION)
+                .setError(String.format("Cmd to agent %s is lost, not delivered or not acked", agent.getName()))
+                .setFinishAt(new Date())
+                .setTraceParent(in.getTraceParent());
+
+        eventManager.publish(new OnCmdOutEvent(this, out));
+    }
+
     //====================================================================
     //        %% Spring Event Listener
     //====================================================================
@@ -416,12 +494,18 @@ public class AgentServiceImpl implements AgentService {
 
     @EventListener
     public void onProfileReceived(OnAgentProfileEvent event) {
-        agentProfileDao.save(event.getProfile());
-        socketPushManager.push(topicForAgentProfile, PushEvent.STATUS_CHANGE, event.getProfile());
+        AgentProfile profile = event.getProfile();
+        profileSeriesManager.add(profile);
+
+        if (profileSeriesManager.shouldPush(profile.getId())) {
+            socketPushManager.push(topicForAgentProfile, PushEvent.STATUS_CHANGE, profile);
+        }
     }
 
     @EventListener
     public void onDisconnected(OnDisconnectedEvent event) {
+        profileSeriesManager.evict(event.getToken());
+
         Optional<InterLock> lock = lock();
         try {
             Agent target = getByToken(event.getToken());
@@ -437,6 +521,31 @@ public class AgentServiceImpl implements AgentService {
     //        %% Private methods
     //====================================================================
 
+    /**
+     * Latest profiles of agents from memory, or from db in one query if not reported to this node
+     */
+    private Map<String, AgentProfile> loadProfiles(List<Agent> agents) {
+        Map<String, AgentProfile> profiles = new HashMap<>(agents.size());
+        List<String> missing = new LinkedList<>();
+
+        for (Agent agent : agents) {
+            Optional<AgentProfile> latest = profileSeriesManager.getLatest(agent.getToken());
+            if (latest.isPresent()) {
+                profiles.put(agent.getToken(), latest.get());
+                continue;
+            }
+            missing.add(agent.getToken());
+        }
+
+        if (!missing.isEmpty()) {
+            for (AgentProfile profile : agentProfileDao.findAllById(missing)) {
+                profiles.put(profile.getId(), profile);
+            }
+        }
+
+        return profiles;
+    }
+
     private Optional<InterLock> lock() {
         String path = zk.makePath("/agent-locks", FetchAgentLockKey);
         Optional<InterLock> lock = zk.lock(path, DefaultAgentLockTimeout);
@@ -65,6 +65,18 @@ public class JwtHelper {
         }
     }
 
+    /**
+     * Get expire time of token in millis, or 0 if token cannot be decoded or has no expire time
+     */
+    public static long getExpiresAt(String token) {
+        try {
+            Date expiresAt = JWT.decode(token).getExpiresAt();
+            return expiresAt == null ? 0 : expiresAt.getTime();
+        } catch (JWTDecodeException e) {
+            return 0;
+        }
+    }
+
     public static boolean verify(String token, User user, boolean checkExpire) {
         try {
             Algorithm algorithm = Algorithm.HMAC256(user.getPasswordOnMd5());
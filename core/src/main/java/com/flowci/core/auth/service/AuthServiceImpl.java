@@ -24,18 +24,28 @@ import com.flowci.core.auth.domain.Tokens;
 import com.flowci.core.auth.domain.UserAuth;
 import com.flowci.core.auth.helper.JwtHelper;
 import com.flowci.core.common.config.AppProperties;
+import com.flowci.core.common.helper.CacheHelper;
 import com.flowci.core.common.manager.SessionManager;
+import com.flowci.core.common.manager.SpringEventManager;
 import com.flowci.core.user.domain.User;
+import com.flowci.core.user.event.UserAuthChangedEvent;
 import com.flowci.core.user.service.UserService;
 import com.flowci.exception.AuthenticationException;
 import com.flowci.exception.NotFoundException;
 import com.flowci.util.HashingHelper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Log4j2
 @Service
@@ -56,6 +66,30 @@ public class AuthServiceImpl implements AuthService {
     @Autowired
     private PermissionMap permissionMap;
 
+    @Autowired
+    private SpringEventManager eventManager;
+
+    // key as token, invalidated by UserAuthChangedEvent
+    private Cache<String, VerifiedUser> tokenCache;
+
+    // key as email, value taken from invalidation counter, verified user is cached only if not changed during verify
+    private Cache<String, Long> generations;
+
+    // increased on each invalidation, so a generation expired and created again never gets the same value
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void initTokenCache() {
+        int size = authProperties.getTokenCacheSize();
+        tokenCache = CacheHelper.createLocalCache(size, new VerifiedUserExpiry());
+        generations = CacheHelper.createLocalCache(size, authProperties.getTokenCacheSeconds());
+    }
+
+    @EventListener
+    public void onUserAuthChanged(UserAuthChangedEvent event) {
+        invalidate(event.getEmail());
+    }
+
     @Override
     public Boolean isEnabled() {
         return authProperties.getEnabled();
@@ -86,6 +120,8 @@ public class AuthServiceImpl implements AuthService {
     public void logout() {
         User user = sessionManager.remove();
         userAuthDao.deleteByEmail(user.getEmail());
+
+        eventManager.publishAndBroadcast(new UserAuthChangedEvent(this, user.getEmail()));
     }
 
     @Override
@@ -144,7 +180,13 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public Optional<User> get(String token) {
+        VerifiedUser cached = tokenCache.getIfPresent(token);
+        if (cached != null) {
+            return Optional.of(cached.user);
+        }
+
         String email = JwtHelper.decode(token);
+        long generation = generationOf(email);
 
         User user = getUser(email);
         if (Objects.isNull(user)) {
@@ -153,12 +195,42 @@ public class AuthServiceImpl implements AuthService {
 
         boolean verify = JwtHelper.verify(token, user, true);
         if (verify) {
+            cache(token, user, generation);
             return Optional.of(user);
         }
 
         return Optional.empty();
     }
 
+    private void invalidate(String email) {
+        generations.put(email, invalidations.incrementAndGet());
+        tokenCache.asMap().values().removeIf(v -> Objects.equals(v.user.getEmail(), email));
+    }
+
+    /**
+     * Cache verified user, and drop it if user auth changed since verify started,
+     * otherwise a concurrent verify may put back the invalidated user
+     */
+    private void cache(String token, User user, long generation) {
+        long expireAt = System.currentTimeMillis() + authProperties.getTokenCacheSeconds() * 1000L;
+
+        long tokenExpireAt = JwtHelper.getExpiresAt(token);
+        if (tokenExpireAt > 0) {
+            expireAt = Math.min(expireAt, tokenExpireAt);
+        }
+
+        tokenCache.put(token, new VerifiedUser(user, expireAt));
+
+        if (generationOf(user.getEmail()) != generation) {
+            tokenCache.invalidate(token);
+        }
+    }
+
+    private long generationOf(String email) {
+        Long generation = generations.getIfPresent(email);
+        return Objects.isNull(generation) ? 0L : generation;
+    }
+
     private User getUser(String email) {
         try {
             return userService.getByEmail(email);
@@ -176,4 +248,32 @@ public class AuthServiceImpl implements AuthService {
         }
         userAuthDao.insert(auth);
     }
+
+    @AllArgsConstructor
+    private static class VerifiedUser {
+
+        private final User user;
+
+        // in millis
+        private final long expireAt;
+    }
+
+    private static class VerifiedUserExpiry implements Expiry<String, VerifiedUser> {
+
+        @Override
+        public long expireAfterCreate(String token, VerifiedUser value, long currentTime) {
+            long millis = Math.max(value.expireAt - System.currentTimeMillis(), 0);
+            return TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedUser value, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedUser value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
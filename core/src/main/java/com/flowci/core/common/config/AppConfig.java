@@ -17,6 +17,8 @@
 package com.flowci.core.common.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flowci.core.agent.manager.PlacementStrategy;
+import com.flowci.core.common.domain.TraceContext;
 import com.flowci.core.common.event.AsyncEvent;
 import com.flowci.core.common.helper.JacksonHelper;
 import com.flowci.core.common.helper.ThreadHelper;
@@ -84,7 +86,26 @@ public class AppConfig {
     public ThreadPoolTaskExecutor getAppTaskExecutor() {
         int corePoolSize = appProperties.getCorePoolSize();
         int maxPoolSize = appProperties.getMaxPoolSize();
-        return ThreadHelper.createTaskExecutor(maxPoolSize, corePoolSize, 100, "app-task-");
+        return ThreadHelper.createTaskExecutor(maxPoolSize, corePoolSize, 100, "app-task-", TraceContext::wrap);
+    }
+
+    @Bean("agentSenderExecutor")
+    public ThreadPoolTaskExecutor getAgentSenderExecutor(AppProperties.Agent agentProperties) {
+        int poolSize = agentProperties.getSenderPoolSize();
+        return ThreadHelper.createTaskExecutor(poolSize, poolSize, 1000, "agent-sender-");
+    }
+
+    @Bean("agentHostExecutor")
+    public ThreadPoolTaskExecutor getAgentHostExecutor(AppProperties.Agent agentProperties) {
+        int poolSize = agentProperties.getHostSyncPoolSize();
+        return ThreadHelper.createTaskExecutor(poolSize, poolSize, 100, "agent-host-");
+    }
+
+    @Bean("placementStrategy")
+    public PlacementStrategy getPlacementStrategy(AppProperties.Agent agentProperties) {
+        PlacementStrategy strategy = PlacementStrategy.of(agentProperties.getPlacement());
+        log.info("Agent placement strategy {} is applied", strategy.getClass().getSimpleName());
+        return strategy;
     }
 
     @Bean(name = "applicationEventMulticaster")
@@ -51,6 +51,9 @@ public class AppProperties {
     @Length(max = 16, min = 16)
     private String secret;
 
+    // ttl of decrypted secret values in memory, disabled if 0
+    private int secretCacheSeconds;
+
     private boolean autoLocalAgentHost;
 
     private boolean defaultSmtpConfig;
@@ -79,6 +82,12 @@ public class AppProperties {
         return new Job();
     }
 
+    @Bean("agentProperties")
+    @ConfigurationProperties(prefix = "app.agent")
+    public Agent agent() {
+        return new Agent();
+    }
+
     @Bean("pluginProperties")
     @ConfigurationProperties(prefix = "app.plugin")
     public Plugin plugin() {
@@ -97,6 +106,12 @@ public class AppProperties {
         return new Auth();
     }
 
+    @Bean("metricsProperties")
+    @ConfigurationProperties(prefix = "app.metrics")
+    public Metrics metrics() {
+        return new Metrics();
+    }
+
     @Bean("minioProperties")
     @ConfigurationProperties(prefix = "app.minio")
     public Minio minio() {
@@ -113,6 +128,65 @@ public class AppProperties {
     public static class Job {
 
         private int retryWaitingSeconds;
+
+        // interval to verify job lease is still owned by current node
+        private int leaseRenewSeconds;
+
+        // release job lease if not used within the time
+        private int leaseIdleSeconds;
+
+        // archive finished jobs after days if not set on flow, never archive if <= 0
+        private int archiveAfterDays;
+
+        // max num of jobs archived per flow in each run
+        private int archiveBatchSize;
+
+        // pause between archiving two jobs, to throttle load on db
+        private int archiveIntervalMillis;
+
+        // max num of records or files deleted in one batch when flow removed
+        private int deleteBatchSize;
+
+        // pause between deletion batches, to throttle load on db and file storage
+        private int deleteIntervalMillis;
+    }
+
+    @Data
+    public static class Metrics {
+
+        // max num of distinct values of flow and plugin tags, the rest are tagged as 'other'
+        private int maxTagValues;
+    }
+
+    @Data
+    public static class Agent {
+
+        // max bytes queued to send for each agent, tty input will be dropped over the limit
+        private int outboundBufferSize;
+
+        // max seconds of sending a message, agent will be marked as offline over the limit
+        private int outboundSendTimeLimit;
+
+        // num of threads to send message to agents
+        private int senderPoolSize;
+
+        // agent placement strategy: FirstFit, BinPack or Spread
+        private String placement;
+
+        // keep idle agents on hosts ahead of demand
+        private boolean warmPoolEnabled;
+
+        // seconds to start an agent, arrivals in this period are predicted as demand
+        private int warmPoolLeadTime;
+
+        // num of consecutive rounds with over supplied idle agents before stopping one
+        private int warmPoolScaleDownDelay;
+
+        // num of agent hosts to sync or collect concurrently
+        private int hostSyncPoolSize;
+
+        // max seconds to sync or collect an agent host
+        private int hostSyncTimeout;
     }
 
     @Data
@@ -121,19 +195,32 @@ public class AppProperties {
         private String defaultRepo;
 
         private Boolean autoUpdate;
+
+        // max number of plugin repos fetched in parallel
+        private int syncPoolSize;
+
+        // keep the previous version dir for agents still fetching it from git servlet
+        private int retiredVersionKeepSeconds;
     }
 
     @Data
     public static class Zookeeper {
 
+        // zookeeper or local, local provider is in-process for single node deployment
+        private String provider;
+
         private Boolean embedded;
 
         private String host;
 
         private String agentRoot;
 
+        private String agentRouteRoot;
+
         private String cronRoot;
 
+        private String jobLeaseRoot;
+
         private Integer timeout;
 
         private Integer retry;
@@ -171,6 +258,12 @@ public class AppProperties {
 
         // expired for refresh token
         private Integer refreshExpiredSeconds;
+
+        // max num of verified tokens in cache
+        private Integer tokenCacheSize;
+
+        // max seconds of verified token in cache, capped by token expire time
+        private Integer tokenCacheSeconds;
     }
 
     @Data
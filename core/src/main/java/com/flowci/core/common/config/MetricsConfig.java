@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.common.config;
+
+import com.flowci.core.common.metrics.TagLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * @author yang
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String Prefix = "flowci.";
+
+    public static final String TagFlow = "flow";
+
+    public static final String TagPlugin = "plugin";
+
+    public static final String TagStatus = "status";
+
+    // fixed histogram buckets of flowci timers, from db call to step duration
+    private static final Duration[] Buckets = {
+            Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofMillis(100),
+            Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(10),
+            Duration.ofSeconds(30), Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofMinutes(15),
+            Duration.ofMinutes(30), Duration.ofHours(1)
+    };
+
+    /**
+     * Get or register flowci timer with fixed sla buckets, published as histogram by the prometheus registry
+     */
+    public static Timer timer(MeterRegistry registry, String name, Iterable<Tag> tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .sla(Buckets)
+                .register(registry);
+    }
+
+    @Bean
+    public MeterFilter tagLimitFilter(AppProperties.Metrics metricsProperties) {
+        return new TagLimitFilter(Prefix, metricsProperties.getMaxTagValues(), TagFlow, TagPlugin);
+    }
+}
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flowci.core.agent.domain.K8sAgentHost;
 import com.flowci.core.agent.domain.LocalUnixAgentHost;
 import com.flowci.core.agent.domain.SshAgentHost;
+import com.flowci.core.common.metrics.MongoCommandMetrics;
 import com.flowci.core.common.mongo.EncryptConverter;
 import com.flowci.core.common.mongo.VariableMapConverter;
 import com.flowci.core.secret.domain.*;
@@ -27,7 +28,9 @@ import com.flowci.core.config.domain.SmtpConfig;
 import com.flowci.core.config.domain.TextConfig;
 import com.flowci.core.job.domain.JobItem;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoClientURI;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
@@ -59,10 +62,16 @@ public class MongoConfig extends AbstractMongoConfiguration {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Override
     public MongoClient mongoClient() {
         log.info("Mongo URI: {}", mongoProperties.getUri());
-        MongoClientURI uri = new MongoClientURI(mongoProperties.getUri());
+        MongoClientOptions.Builder options = MongoClientOptions.builder()
+                .addCommandListener(new MongoCommandMetrics(meterRegistry));
+
+        MongoClientURI uri = new MongoClientURI(mongoProperties.getUri(), options);
         return new MongoClient(uri);
     }
 
@@ -104,7 +113,7 @@ public class MongoConfig extends AbstractMongoConfiguration {
         converters.add(variableConverter.getStringVarWriter());
         converters.add(variableConverter.getTypedVarWriter());
 
-        EncryptConverter encryptConverter = new EncryptConverter(appProperties.getSecret());
+        EncryptConverter encryptConverter = new EncryptConverter(appProperties.getSecret(), appProperties.getSecretCacheSeconds());
         converters.add(encryptConverter.new SimpleKeyPairReader());
         converters.add(encryptConverter.new SimpleKeyPairWriter());
 
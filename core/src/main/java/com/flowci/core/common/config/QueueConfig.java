@@ -87,6 +87,21 @@ public class QueueConfig {
         return manager;
     }
 
+    /**
+     * Cmd queue of current node for messages to agents connected to this node
+     */
+    @Bean("agentCmdQueue")
+    public String agentCmdQueue() {
+        return "flow.agent.cmd.q." + StringHelper.randomString(8);
+    }
+
+    @Bean("agentCmdQueueManager")
+    public RabbitOperations agentCmdQueueManager(Connection rabbitConnection, String agentCmdQueue) throws IOException {
+        RabbitOperations manager = new RabbitOperations(rabbitConnection, 10);
+        manager.declareTemp(agentCmdQueue);
+        return manager;
+    }
+
     @Bean("wsBroadcastQueue")
     public String wsBroadcastQueue() {
         return "bc.ws.q." + StringHelper.randomString(8);
@@ -17,10 +17,14 @@
 package com.flowci.core.common.config;
 
 import com.flowci.core.common.helper.ThreadHelper;
+import com.flowci.core.common.metrics.MeteredCoordinationProvider;
 import com.flowci.exception.CIException;
+import com.flowci.zookeeper.CoordinationProvider;
+import com.flowci.zookeeper.LocalCoordinationProvider;
 import com.flowci.zookeeper.LocalServer;
 import com.flowci.zookeeper.ZookeeperClient;
 import com.flowci.zookeeper.ZookeeperException;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
 import org.apache.zookeeper.CreateMode;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,7 +44,9 @@ import java.nio.file.Paths;
 @Configuration
 public class ZookeeperConfig {
 
-    private ZookeeperClient client;
+    private static final String LocalProvider = "local";
+
+    private CoordinationProvider client;
 
     private LocalServer server;
 
@@ -48,23 +54,22 @@ public class ZookeeperConfig {
     private AppProperties.Zookeeper zkProperties;
 
     @Bean(name = "zk")
-    public ZookeeperClient zookeeperClient(TaskExecutor appTaskExecutor) {
-        if (zkProperties.getEmbedded()) {
-            startEmbeddedServer();
-            log.info("Embedded zookeeper been started ~");
+    public CoordinationProvider zookeeperClient(TaskExecutor appTaskExecutor, MeterRegistry meterRegistry) {
+        if (LocalProvider.equalsIgnoreCase(zkProperties.getProvider())) {
+            client = new LocalCoordinationProvider(appTaskExecutor);
+            log.info("In-process coordination provider been applied ~");
+        } else {
+            client = createZookeeperClient(appTaskExecutor);
         }
 
-        String host = zkProperties.getHost();
-        Integer timeout = zkProperties.getTimeout();
-        Integer retry = zkProperties.getRetry();
-
-        client = new ZookeeperClient(host, retry, timeout, appTaskExecutor);
         client.start();
 
         initRoots(client, zkProperties.getCronRoot());
         initRoots(client, zkProperties.getAgentRoot());
+        initRoots(client, zkProperties.getAgentRouteRoot());
+        initRoots(client, zkProperties.getJobLeaseRoot());
 
-        return client;
+        return new MeteredCoordinationProvider(client, meterRegistry);
     }
 
     @PreDestroy
@@ -78,7 +83,20 @@ public class ZookeeperConfig {
         }
     }
 
-    private void initRoots(ZookeeperClient client, String rootPath) {
+    private ZookeeperClient createZookeeperClient(TaskExecutor appTaskExecutor) {
+        if (zkProperties.getEmbedded()) {
+            startEmbeddedServer();
+            log.info("Embedded zookeeper been started ~");
+        }
+
+        String host = zkProperties.getHost();
+        Integer timeout = zkProperties.getTimeout();
+        Integer retry = zkProperties.getRetry();
+
+        return new ZookeeperClient(host, retry, timeout, appTaskExecutor);
+    }
+
+    private void initRoots(CoordinationProvider client, String rootPath) {
         try {
             client.create(CreateMode.PERSISTENT, rootPath, null);
         } catch (ZookeeperException ignore) {
@@ -0,0 +1,14 @@
+package com.flowci.core.common.dao;
+
+import com.flowci.core.common.domain.Span;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SpanDao extends MongoRepository<Span, String> {
+
+    List<Span> findAllByTraceId(String traceId, Sort sort);
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.common.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finished span of a trace, serialized in zipkin v2 json format, so spans of a job
+ * can be imported to zipkin or other tracing tools directly.
+ * <p>
+ * Spans are removed after 30 days by ttl index.
+ *
+ * @author yang
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Document(collection = "trace_span")
+public class Span {
+
+    public static final String ServiceName = "flow.ci";
+
+    private static final Map<String, String> LocalEndpoint = ImmutableMap.of("serviceName", ServiceName);
+
+    /**
+     * Span id as document id
+     */
+    @Id
+    private String id;
+
+    @Indexed(name = "index_trace_span_trace_id")
+    private String traceId;
+
+    private String parentId;
+
+    private String name;
+
+    /**
+     * Epoch microseconds of span started
+     */
+    private Long timestamp;
+
+    /**
+     * Duration in microseconds
+     */
+    private Long duration;
+
+    private Map<String, String> tags = new HashMap<>();
+
+    @JsonIgnore
+    @Indexed(name = "index_trace_span_created_at", expireAfterSeconds = 30 * 24 * 3600)
+    private Date createdAt = new Date();
+
+    public Map<String, String> getLocalEndpoint() {
+        return LocalEndpoint;
+    }
+}
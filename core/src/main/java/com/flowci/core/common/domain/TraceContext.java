@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.common.domain;
+
+import com.flowci.util.StringHelper;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace id and span id of current span, carried as W3C trace context 'traceparent',
+ * ex: 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01
+ * <p>
+ * The context of current thread is propagated by app task executor, rabbit message headers,
+ * and the shell cmd to agent and back.
+ *
+ * @author yang
+ */
+@Getter
+@EqualsAndHashCode
+public final class TraceContext {
+
+    public static final String Header = "traceparent";
+
+    private static final String Version = "00";
+
+    private static final String Sampled = "01";
+
+    private static final ThreadLocal<TraceContext> Current = new ThreadLocal<>();
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    /**
+     * 32 hex chars
+     */
+    private final String traceId;
+
+    /**
+     * 16 hex chars
+     */
+    private final String spanId;
+
+    private TraceContext(String traceId, String spanId) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+    }
+
+    public static TraceContext newTrace() {
+        return new TraceContext(randomHex(2), randomHex(1));
+    }
+
+    public static Optional<TraceContext> current() {
+        return Optional.ofNullable(Current.get());
+    }
+
+    /**
+     * Parse from traceparent, empty if format is invalid
+     */
+    public static Optional<TraceContext> parse(String traceParent) {
+        if (!StringHelper.hasValue(traceParent)) {
+            return Optional.empty();
+        }
+
+        String[] parts = traceParent.trim().split("-");
+        if (parts.length < 4 || parts[1].length() != 32 || parts[2].length() != 16) {
+            return Optional.empty();
+        }
+
+        if (!isHex(parts[1]) || !isHex(parts[2])) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new TraceContext(parts[1], parts[2]));
+    }
+
+    /**
+     * Read context from message headers
+     */
+    public static Optional<TraceContext> extract(Map<String, Object> headers) {
+        if (Objects.isNull(headers)) {
+            return Optional.empty();
+        }
+
+        Object value = headers.get(Header);
+        return Objects.isNull(value) ? Optional.empty() : parse(value.toString());
+    }
+
+    /**
+     * Put context of current thread to message headers
+     */
+    public static void inject(Map<String, Object> headers) {
+        TraceContext context = Current.get();
+        if (context != null) {
+            headers.put(Header, context.toTraceParent());
+        }
+    }
+
+    /**
+     * Run task with context of the caller thread
+     */
+    public static Runnable wrap(Runnable task) {
+        TraceContext context = Current.get();
+        if (context == null) {
+            return task;
+        }
+
+        return () -> {
+            try (Scope ignored = context.activate()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * New span in the same trace
+     */
+    public TraceContext newChild() {
+        return new TraceContext(traceId, randomHex(1));
+    }
+
+    /**
+     * Set as context of current thread, the previous context will be restored when scope closed
+     */
+    public Scope activate() {
+        TraceContext previous = Current.get();
+        Current.set(this);
+
+        return () -> {
+            if (previous == null) {
+                Current.remove();
+                return;
+            }
+            Current.set(previous);
+        };
+    }
+
+    public String toTraceParent() {
+        return Version + "-" + traceId + "-" + spanId + "-" + Sampled;
+    }
+
+    @Override
+    public String toString() {
+        return toTraceParent();
+    }
+
+    private static String randomHex(int numOfLong) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder builder = new StringBuilder(numOfLong * 16);
+
+        for (int i = 0; i < numOfLong; i++) {
+            String hex = Long.toHexString(random.nextLong());
+            for (int j = hex.length(); j < 16; j++) {
+                builder.append('0');
+            }
+            builder.append(hex);
+        }
+
+        return builder.toString();
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
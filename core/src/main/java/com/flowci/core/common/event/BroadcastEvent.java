@@ -1,11 +1,13 @@
 package com.flowci.core.common.event;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.context.ApplicationEvent;
 
 @Getter
 @Setter
+@JsonIgnoreProperties({"source", "timestamp"})
 public abstract class BroadcastEvent extends ApplicationEvent {
 
     private final static Object Source = new Object();
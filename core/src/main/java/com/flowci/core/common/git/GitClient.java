@@ -12,16 +12,23 @@ import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.eclipse.jgit.api.*;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.*;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.util.FS;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Predicate;
 
 @Log4j2
 @AllArgsConstructor
@@ -29,6 +36,8 @@ public class GitClient {
 
     private static final String RefPrefix = "refs/heads/";
 
+    private static final String PackSuffix = ".pack";
+
     private static final int timeoutInSecond = 20;
 
     private final String repoUrl;
@@ -56,11 +65,83 @@ public class GitClient {
         return branches;
     }
 
-    public void klone(Path dir, String branch) throws Exception {
+    /**
+     * Get head commit id of the branch from remote without fetching anything
+     */
+    public Optional<String> headCommit(String branch) throws Exception {
+        LsRemoteCommand command = Git.lsRemoteRepository()
+                .setRemote(repoUrl)
+                .setHeads(true)
+                .setTimeout(timeoutInSecond);
+
+        setupSecret(command);
+
+        for (Ref ref : command.call()) {
+            if (ref.getName().equals(RefPrefix + branch)) {
+                return Optional.of(ref.getObjectId().getName());
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Read content of the first file matched in root dir of the commit, without checkout.
+     * The branch will be fetched into the bare repo dir only if the commit is not existed locally,
+     * so that the following fetches only download the new objects
+     */
+    public Optional<byte[]> fetchFile(Path bareDir, String branch, String commitId, Predicate<String> filter)
+            throws Exception {
+        try (Git git = openOrInitBare(bareDir)) {
+            Repository repo = git.getRepository();
+            ObjectId commit = ObjectId.fromString(commitId);
+
+            if (!repo.hasObject(commit)) {
+                String ref = RefPrefix + branch;
+                FetchCommand fetchCommand = git.fetch()
+                        .setRemote(repoUrl)
+                        .setRefSpecs(new RefSpec("+" + ref + ":" + ref))
+                        .setTimeout(timeoutInSecond)
+                        .setProgressMonitor(new GitProgressMonitor(repoUrl, bareDir.toFile()));
+
+                setupSecret(fetchCommand).call();
+            }
+
+            try (RevWalk revWalk = new RevWalk(repo); TreeWalk treeWalk = new TreeWalk(repo)) {
+                RevCommit revCommit = revWalk.parseCommit(commit);
+                treeWalk.addTree(revCommit.getTree());
+                treeWalk.setRecursive(false);
+
+                while (treeWalk.next()) {
+                    if (treeWalk.getFileMode(0) != FileMode.REGULAR_FILE) {
+                        continue;
+                    }
+
+                    if (filter.test(treeWalk.getNameString())) {
+                        return Optional.of(repo.open(treeWalk.getObjectId(0)).getBytes());
+                    }
+                }
+            }
+
+            return Optional.empty();
+        } catch (GitAPIException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * Clone the branch into dir, or pull it if the dir is existed
+     *
+     * @return size in bytes of the pack files received by the fetch
+     */
+    public long klone(Path dir, String branch) throws Exception {
         GitProgressMonitor monitor = new GitProgressMonitor(repoUrl, dir.toFile());
 
         if (Files.exists(dir)) {
             try (Git git = Git.open(dir.toFile())) {
+                File gitDir = git.getRepository().getDirectory();
+                Set<String> packsBeforeFetch = packFiles(gitDir).keySet();
+
                 RemoteSetUrlCommand setRemote = git.remoteSetUrl();
                 setRemote.setName("origin");
                 setRemote.setUri(new URIish(repoUrl));
@@ -72,7 +153,7 @@ public class GitClient {
                         .setProgressMonitor(monitor);
 
                 setupSecret(pullCommand).call();
-                return;
+                return sizeOfPacks(gitDir, packsBeforeFetch);
             } catch (GitAPIException e) {
                 throw new IOException(e.getMessage());
             }
@@ -89,13 +170,52 @@ public class GitClient {
                 .setBranch(branch);
         setupSecret(cloneCommand);
 
-        try(Git ignored = cloneCommand.call()) {
-
+        try (Git git = cloneCommand.call()) {
+            return sizeOfPacks(git.getRepository().getDirectory(), Collections.emptySet());
         } catch (GitAPIException e) {
             throw new IOException(e.getMessage());
         }
     }
 
+    /**
+     * Total size of pack files except the excluded, the received pack is kept as it is by jgit
+     */
+    private static long sizeOfPacks(File gitDir, Set<String> excludes) {
+        long size = 0;
+        for (Map.Entry<String, Long> pack : packFiles(gitDir).entrySet()) {
+            if (!excludes.contains(pack.getKey())) {
+                size += pack.getValue();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Pack files of the repo, key as file name, value as size
+     */
+    private static Map<String, Long> packFiles(File gitDir) {
+        File[] files = Paths.get(gitDir.toString(), "objects", "pack").toFile()
+                .listFiles((dir, name) -> name.endsWith(PackSuffix));
+
+        if (Objects.isNull(files)) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Long> packs = new HashMap<>(files.length);
+        for (File file : files) {
+            packs.put(file.getName(), file.length());
+        }
+        return packs;
+    }
+
+    private static Git openOrInitBare(Path dir) throws IOException, GitAPIException {
+        if (Files.exists(dir)) {
+            return Git.open(dir.toFile());
+        }
+
+        return Git.init().setBare(true).setDirectory(dir.toFile()).call();
+    }
+
     private TransportCommand<?, ?> setupSecret(TransportCommand<?, ?> command) throws Exception {
         if (Objects.isNull(secret)) {
             return command;
@@ -18,6 +18,7 @@ package com.flowci.core.common.helper;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.benmanes.caffeine.cache.RemovalListener;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
@@ -43,6 +44,14 @@ public class CacheHelper {
                 .build();
     }
 
+    public static <K, V> Cache<K, V> createLocalCache(int maxSize, Expiry<K, V> expiry) {
+        return Caffeine.newBuilder()
+                .initialCapacity(maxSize / 2)
+                .maximumSize(maxSize)
+                .expireAfter(expiry)
+                .build();
+    }
+
     public static CacheManager createCacheManager(int expireInSeconds, int maxSize) {
         Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
                 .initialCapacity(maxSize / 2)
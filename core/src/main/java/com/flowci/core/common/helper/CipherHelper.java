@@ -20,6 +20,7 @@ package com.flowci.core.common.helper;
 import com.flowci.domain.SimpleKeyPair;
 import com.flowci.exception.StatusException;
 import com.flowci.util.StringHelper;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.KeyPair;
@@ -27,6 +28,7 @@ import sun.security.util.DerInputStream;
 import sun.security.util.DerValue;
 
 import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -39,6 +41,10 @@ import java.security.spec.RSAPrivateCrtKeySpec;
 import java.security.spec.RSAPublicKeySpec;
 import java.util.Base64;
 
+/**
+ * Cipher and KeyFactory are not thread safe and expensive to get instance,
+ * so they are confined to thread and reused, parsed keys are cached by key content.
+ */
 public abstract class CipherHelper {
 
     public static abstract class RSA {
@@ -47,6 +53,22 @@ public abstract class CipherHelper {
 
         private static final String RsaPrivateKeyEnd = "-----END RSA PRIVATE KEY-----";
 
+        private static final ThreadLocal<CipherHolder> Ciphers = ThreadLocal.withInitial(() -> new CipherHolder("RSA"));
+
+        private static final ThreadLocal<KeyFactory> KeyFactories = ThreadLocal.withInitial(() -> {
+            try {
+                return KeyFactory.getInstance("RSA");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // key as key content
+        private static final Cache<String, PublicKey> PublicKeys = CacheHelper.createLocalCache(100, 3600);
+
+        // key as key content
+        private static final Cache<String, PrivateKey> PrivateKeys = CacheHelper.createLocalCache(100, 3600);
+
         public static boolean isPrivateKey(String src) {
             src = src.trim();
             return src.startsWith(RsaPrivateKeyStart) && src.endsWith(RsaPrivateKeyEnd);
@@ -75,25 +97,27 @@ public abstract class CipherHelper {
 
         public static String encrypt(String source, String sshPublicKey) {
             try {
-                Cipher cipher = Cipher.getInstance("RSA");
-                cipher.init(Cipher.ENCRYPT_MODE, toPublicKey(sshPublicKey));
+                PublicKey key = PublicKeys.get(sshPublicKey, k -> unchecked(() -> toPublicKey(k)));
+                Cipher cipher = Ciphers.get().init(Cipher.ENCRYPT_MODE, key);
 
                 byte[] raw = cipher.doFinal(toBytes(source));
                 return Base64.getEncoder().encodeToString(raw);
             } catch (Throwable e) {
+                Ciphers.get().reset();
                 return StringHelper.EMPTY;
             }
         }
 
         public static String decrypt(String encrypted, String privateKey) {
             try {
-                Cipher cipher = Cipher.getInstance("RSA");
-                cipher.init(Cipher.DECRYPT_MODE, toPrivateKey(privateKey));
+                PrivateKey key = PrivateKeys.get(privateKey, k -> unchecked(() -> toPrivateKey(k)));
+                Cipher cipher = Ciphers.get().init(Cipher.DECRYPT_MODE, key);
 
                 byte[] decoded = Base64.getDecoder().decode(encrypted);
                 byte[] raw = cipher.doFinal(decoded);
                 return new String(raw);
             } catch (Throwable e) {
+                Ciphers.get().reset();
                 return StringHelper.EMPTY;
             }
         }
@@ -120,8 +144,8 @@ public abstract class CipherHelper {
         }
 
         private static PrivateKey toPrivateKey(String key)
-                throws NoSuchAlgorithmException, InvalidKeySpecException, IOException {
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+                throws InvalidKeySpecException, IOException {
+            KeyFactory keyFactory = KeyFactories.get();
 
             String content = key.replaceAll("\\n", "").replace(RsaPrivateKeyStart, "").replace(RsaPrivateKeyEnd, "");
             byte[] bytes = Base64.getDecoder().decode(content);
@@ -148,8 +172,7 @@ public abstract class CipherHelper {
         /**
          * from <type><space><base64data><space><comment> to public key
          */
-        private static PublicKey toPublicKey(String sshPublicKey)
-                throws NoSuchAlgorithmException, InvalidKeySpecException {
+        private static PublicKey toPublicKey(String sshPublicKey) throws InvalidKeySpecException {
             String[] line = sshPublicKey.trim().split(" ", 3);
             String type = line[0];
             String content = line[1];
@@ -166,7 +189,7 @@ public abstract class CipherHelper {
             if (type.equals("ssh-rsa")) {
                 BigInteger e = new BigInteger(readDERString(buf));
                 BigInteger y = new BigInteger(readDERString(buf));
-                return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(y, e));
+                return KeyFactories.get().generatePublic(new RSAPublicKeySpec(y, e));
             }
 
             throw new InvalidKeySpecException("Unknown key type '" + type + "'");
@@ -185,29 +208,34 @@ public abstract class CipherHelper {
 
     public static abstract class AES {
 
+        private static final ThreadLocal<CipherHolder> Ciphers =
+                ThreadLocal.withInitial(() -> new CipherHolder("AES/ECB/PKCS5PADDING"));
+
+        // key as secret
+        private static final Cache<String, SecretKeySpec> Keys = CacheHelper.createLocalCache(10, 3600);
+
         public static String encrypt(String source, String secret) {
             try {
-                SecretKeySpec key = new SecretKeySpec(toBytes(secret), "AES");
-                Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5PADDING");
-                cipher.init(Cipher.ENCRYPT_MODE, key);
+                SecretKeySpec key = Keys.get(secret, s -> new SecretKeySpec(toBytes(s), "AES"));
+                Cipher cipher = Ciphers.get().init(Cipher.ENCRYPT_MODE, key);
 
                 byte[] bytes = cipher.doFinal(toBytes(source));
                 return Base64.getEncoder().encodeToString(bytes);
             } catch (Throwable e) {
+                Ciphers.get().reset();
                 return StringHelper.EMPTY;
             }
         }
 
         public static String decrypt(String encrypted, String secret) {
             try {
-                SecretKeySpec key = new SecretKeySpec(toBytes(secret), "AES");
-
-                Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5PADDING");
-                cipher.init(Cipher.DECRYPT_MODE, key);
+                SecretKeySpec key = Keys.get(secret, s -> new SecretKeySpec(toBytes(s), "AES"));
+                Cipher cipher = Ciphers.get().init(Cipher.DECRYPT_MODE, key);
 
                 byte[] source = cipher.doFinal(Base64.getDecoder().decode(encrypted));
                 return new String(source);
             } catch (Throwable e) {
+                Ciphers.get().reset();
                 return StringHelper.EMPTY;
             }
         }
@@ -216,4 +244,57 @@ public abstract class CipherHelper {
     private static byte[] toBytes(String val) {
         return val.getBytes(StandardCharsets.UTF_8);
     }
+
+    private static <T> T unchecked(KeySupplier<T> supplier) {
+        try {
+            return supplier.get();
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface KeySupplier<T> {
+
+        T get() throws Exception;
+    }
+
+    /**
+     * Thread confined cipher, init is skipped if mode and key are not changed,
+     * since the cipher is reset to the initialized state after doFinal
+     */
+    private static final class CipherHolder {
+
+        private final Cipher cipher;
+
+        private int mode;
+
+        private Key key;
+
+        CipherHolder(String transformation) {
+            try {
+                this.cipher = Cipher.getInstance(transformation);
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Cipher init(int mode, Key key) throws InvalidKeyException {
+            if (this.mode != mode || this.key != key) {
+                // reset holder first, in case of init failure
+                this.key = null;
+                cipher.init(mode, key);
+                this.mode = mode;
+                this.key = key;
+            }
+            return cipher;
+        }
+
+        /**
+         * Force init on next use, since state of cipher is unknown if doFinal failed
+         */
+        void reset() {
+            this.key = null;
+        }
+    }
 }
@@ -20,9 +20,12 @@ import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.flowci.core.common.domain.JsonablePage;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 
 /**
@@ -46,4 +49,15 @@ public abstract class JacksonHelper {
         return mapper;
     }
 
+    /**
+     * Read value from remaining bytes of buffer without copy, the position of buffer will not be changed
+     */
+    public static <T> T readValue(ObjectMapper mapper, ByteBuffer buffer, Class<T> type) throws IOException {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            return mapper.readValue(buffer.array(), offset, buffer.remaining(), type);
+        }
+
+        return mapper.readValue(new ByteBufferBackedInputStream(buffer.duplicate()), type);
+    }
 }
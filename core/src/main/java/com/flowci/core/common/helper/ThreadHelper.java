@@ -16,6 +16,7 @@
 
 package com.flowci.core.common.helper;
 
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.RejectedExecutionHandler;
@@ -30,7 +31,19 @@ public abstract class ThreadHelper {
                                                             int corePoolSize,
                                                             int queueSize,
                                                             String threadNamePrefix) {
+        return createTaskExecutor(maxPoolSize, corePoolSize, queueSize, threadNamePrefix, null);
+    }
+
+    /**
+     * Create task executor with decorator, which must be set before executor initialized
+     */
+    public static ThreadPoolTaskExecutor createTaskExecutor(int maxPoolSize,
+                                                            int corePoolSize,
+                                                            int queueSize,
+                                                            String threadNamePrefix,
+                                                            TaskDecorator decorator) {
         ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setTaskDecorator(decorator);
         taskExecutor.setCorePoolSize(corePoolSize);
         taskExecutor.setMaxPoolSize(maxPoolSize);
         taskExecutor.setQueueCapacity(queueSize);
@@ -1,8 +1,15 @@
 package com.flowci.core.common.manager;
 
+import com.flowci.core.common.event.BroadcastEvent;
 import org.springframework.context.ApplicationEvent;
 
 public interface SpringEventManager {
 
     <T extends ApplicationEvent > T publish(T event);
+
+    /**
+     * Publish event on current node synchronously, then broadcast it to other nodes,
+     * for the changes that should be visible on current node before the request returns
+     */
+    <T extends BroadcastEvent> T publishAndBroadcast(T event);
 }
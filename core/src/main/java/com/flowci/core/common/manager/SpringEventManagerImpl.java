@@ -86,6 +86,15 @@ public class SpringEventManagerImpl implements SpringEventManager {
         return event;
     }
 
+    @Override
+    public <T extends BroadcastEvent> T publishAndBroadcast(T event) {
+        event.setInternal(true);
+        applicationEventPublisher.publishEvent(event);
+
+        event.setInternal(false);
+        return publish(event);
+    }
+
     private static <T extends ApplicationEvent> boolean shouldBroadcast(T event) {
         if (event instanceof BroadcastEvent) {
             BroadcastEvent be = (BroadcastEvent) event;
@@ -1,11 +1,8 @@
 package com.flowci.core.common.manager;
 
 import com.flowci.core.common.config.AppProperties;
-import com.flowci.zookeeper.ZookeeperClient;
-import com.flowci.zookeeper.ZookeeperException;
+import com.flowci.zookeeper.CoordinationProvider;
 import lombok.extern.log4j.Log4j2;
-import org.apache.curator.utils.ZKPaths;
-import org.apache.zookeeper.CreateMode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -17,7 +14,7 @@ import org.springframework.stereotype.Component;
 public class SpringTaskManager {
 
     @Autowired
-    private ZookeeperClient zk;
+    private CoordinationProvider zk;
 
     @Autowired
     private AppProperties.Zookeeper zkProperties;
@@ -46,21 +43,12 @@ public class SpringTaskManager {
     }
 
     private boolean lock(String name) {
-        try {
-            String path = ZKPaths.makePath(zkProperties.getCronRoot(), name);
-            zk.create(CreateMode.EPHEMERAL, path, null);
-            return true;
-        } catch (ZookeeperException e) {
-            return false;
-        }
+        String path = zk.makePath(zkProperties.getCronRoot(), name);
+        return zk.claim(path, null);
     }
 
     private void release(String name) {
-        try {
-            String path = ZKPaths.makePath(zkProperties.getCronRoot(), name);
-            zk.delete(path, false);
-        } catch (ZookeeperException ignore) {
-
-        }
+        String path = zk.makePath(zkProperties.getCronRoot(), name);
+        zk.unclaim(path);
     }
 }
@@ -0,0 +1,183 @@
+package com.flowci.core.common.manager;
+
+import com.flowci.core.common.dao.SpanDao;
+import com.flowci.core.common.domain.Span;
+import com.flowci.core.common.domain.TraceContext;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Record spans of trace, spans are buffered and flushed to db in batch,
+ * so the traced code path is not blocked by db writing.
+ */
+@Log4j2
+@Component
+public class TraceManager {
+
+    private static final int MaxBufferSize = 10000;
+
+    private static final Sort SortByTimestamp = new Sort(Sort.Direction.ASC, "timestamp");
+
+    private static final int DuplicateKeyErrorCode = 11000;
+
+    private final Queue<Span> buffer = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger bufferSize = new AtomicInteger(0);
+
+    @Autowired
+    private SpanDao spanDao;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    /**
+     * Start span as child of current context, or a new trace if no context,
+     * the span is set as current context until closed
+     */
+    public ActiveSpan start(String name) {
+        Optional<TraceContext> parent = TraceContext.current();
+
+        TraceContext context = parent.map(TraceContext::newChild).orElseGet(TraceContext::newTrace);
+        String parentId = parent.map(TraceContext::getSpanId).orElse(null);
+
+        return new ActiveSpan(name, context, parentId);
+    }
+
+    /**
+     * Record finished span as child of current context
+     */
+    public void record(String name, Date start, Date end, String... tags) {
+        Optional<TraceContext> parent = TraceContext.current();
+
+        TraceContext context = parent.map(TraceContext::newChild).orElseGet(TraceContext::newTrace);
+        String parentId = parent.map(TraceContext::getSpanId).orElse(null);
+
+        record(context, parentId, name, start, end, tags);
+    }
+
+    /**
+     * Record finished span with context from other node or agent
+     */
+    public void record(TraceContext context, String parentId, String name, Date start, Date end, String... tags) {
+        if (Objects.isNull(start) || Objects.isNull(end)) {
+            return;
+        }
+
+        long micros = TimeUnit.MILLISECONDS.toMicros(start.getTime());
+        long duration = TimeUnit.MILLISECONDS.toMicros(Math.max(end.getTime() - start.getTime(), 0));
+        add(context, parentId, name, micros, duration, toMap(tags));
+    }
+
+    public List<Span> list(String traceId) {
+        return spanDao.findAllByTraceId(traceId, SortByTimestamp);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelay = 1000)
+    public void flush() {
+        List<Span> spans = new LinkedList<>();
+
+        Span span;
+        while ((span = buffer.poll()) != null) {
+            bufferSize.decrementAndGet();
+            spans.add(span);
+        }
+
+        if (spans.isEmpty()) {
+            return;
+        }
+
+        // unordered, so a duplicated span id, ex: span reported again by agent, does not stop the rest of batch
+        try {
+            mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Span.class).insert(spans).execute();
+        } catch (BulkOperationException e) {
+            long failed = e.getErrors().stream().filter(err -> err.getCode() != DuplicateKeyErrorCode).count();
+            if (failed > 0) {
+                log.warn("Unable to save {} of {} spans: {}", failed, spans.size(), e.getMessage());
+            }
+        } catch (Exception e) {
+            log.warn("Unable to save {} spans: {}", spans.size(), e.getMessage());
+        }
+    }
+
+    private void add(TraceContext context, String parentId, String name, long timestamp, long duration, Map<String, String> tags) {
+        if (bufferSize.incrementAndGet() > MaxBufferSize) {
+            bufferSize.decrementAndGet();
+            log.debug("Span {} dropped since buffer is full", name);
+            return;
+        }
+
+        Span span = new Span()
+                .setId(context.getSpanId())
+                .setTraceId(context.getTraceId())
+                .setParentId(parentId)
+                .setName(name)
+                .setTimestamp(timestamp)
+                .setDuration(Math.max(duration, 1))
+                .setTags(tags);
+
+        buffer.add(span);
+    }
+
+    private static Map<String, String> toMap(String... tags) {
+        Map<String, String> map = new HashMap<>(tags.length / 2 + 1);
+        for (int i = 0; i + 1 < tags.length; i += 2) {
+            if (tags[i + 1] != null) {
+                map.put(tags[i], tags[i + 1]);
+            }
+        }
+        return map;
+    }
+
+    public final class ActiveSpan implements AutoCloseable {
+
+        private final String name;
+
+        @Getter
+        private final TraceContext context;
+
+        private final String parentId;
+
+        private final long timestamp = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+        private final long start = System.nanoTime();
+
+        private final Map<String, String> tags = new HashMap<>();
+
+        private final TraceContext.Scope scope;
+
+        private ActiveSpan(String name, TraceContext context, String parentId) {
+            this.name = name;
+            this.context = context;
+            this.parentId = parentId;
+            this.scope = context.activate();
+        }
+
+        public ActiveSpan tag(String key, String value) {
+            if (value != null) {
+                tags.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            scope.close();
+            long duration = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            add(context, parentId, name, timestamp, duration, tags);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Objects;
+import java.util.function.Predicate;
 
 @Component
 public class VarManager {
@@ -19,41 +20,50 @@ public class VarManager {
     private SpringEventManager eventManager;
 
     public boolean verify(Input input, String value) {
-        if (input.isRequired() && !StringHelper.hasValue(value)) {
-            return false;
-        }
+        return compile(input).test(value);
+    }
 
-        if (!input.isRequired() && !StringHelper.hasValue(value)) {
-            return true;
+    public boolean verify(VarType type, String value) {
+        return compile(type).test(value);
+    }
+
+    /**
+     * Create validator of input, which can be reused for every value of the input
+     */
+    public Predicate<String> compile(Input input) {
+        Predicate<String> byType = compile(input.getType());
+
+        if (input.isRequired()) {
+            return value -> StringHelper.hasValue(value) && byType.test(value);
         }
 
-        return verify(input.getType(), value);
+        return value -> !StringHelper.hasValue(value) || byType.test(value);
     }
 
-    public boolean verify(VarType type, String value) {
+    public Predicate<String> compile(VarType type) {
         switch (type) {
             case INT:
-                return ObjectsHelper.tryParseInt(value);
+                return ObjectsHelper::tryParseInt;
 
             case BOOL:
-                return Objects.equals(value, "true") || Objects.equals(value, "false");
+                return value -> Objects.equals(value, "true") || Objects.equals(value, "false");
 
             case HTTP_URL:
-                return PatternHelper.isWebURL(value);
+                return PatternHelper::isWebURL;
 
             case GIT_URL:
-                return PatternHelper.isGitURL(value);
+                return PatternHelper::isGitURL;
 
             case EMAIL:
-                return PatternHelper.isEmail(value);
+                return PatternHelper::isEmail;
 
             case CONFIG:
-                return !eventManager.publish(new GetConfigEvent(this, value)).hasError();
+                return value -> !eventManager.publish(new GetConfigEvent(this, value)).hasError();
 
             case SECRET:
-                return !eventManager.publish(new GetSecretEvent(this, value)).hasError();
+                return value -> !eventManager.publish(new GetSecretEvent(this, value)).hasError();
         }
 
-        return true;
+        return value -> true;
     }
 }
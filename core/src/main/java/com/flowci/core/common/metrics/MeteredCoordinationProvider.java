@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.common.metrics;
+
+import com.flowci.core.common.config.MetricsConfig;
+import com.flowci.zookeeper.ChildrenListener;
+import com.flowci.zookeeper.CoordinationProvider;
+import com.flowci.zookeeper.InterLock;
+import com.flowci.zookeeper.LockMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.zookeeper.CreateMode;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Record latency of coordination calls with tags of operation and status,
+ * lock latency is the time to acquire the lock, not including the time holding it.
+ *
+ * @author yang
+ */
+public class MeteredCoordinationProvider implements CoordinationProvider {
+
+    public static final String Metric = "flowci.zookeeper.call";
+
+    private final CoordinationProvider provider;
+
+    private final MeterRegistry registry;
+
+    public MeteredCoordinationProvider(CoordinationProvider provider, MeterRegistry registry) {
+        this.provider = provider;
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean start() {
+        return provider.start();
+    }
+
+    @Override
+    public String makePath(String parent, String child) {
+        return provider.makePath(parent, child);
+    }
+
+    @Override
+    public boolean exist(String path) {
+        return time("exist", () -> provider.exist(path));
+    }
+
+    @Override
+    public String create(CreateMode mode, String path, byte[] data) {
+        return time("create", () -> provider.create(mode, path, data));
+    }
+
+    @Override
+    public List<String> children(String root) {
+        return time("children", () -> provider.children(root));
+    }
+
+    @Override
+    public void delete(String path, boolean isDeleteChildren) {
+        time("delete", () -> {
+            provider.delete(path, isDeleteChildren);
+            return null;
+        });
+    }
+
+    @Override
+    public byte[] get(String path) {
+        return time("get", () -> provider.get(path));
+    }
+
+    @Override
+    public void set(String path, byte[] data) {
+        time("set", () -> {
+            provider.set(path, data);
+            return null;
+        });
+    }
+
+    @Override
+    public void lock(String path, Consumer<String> consumer) {
+        long start = System.nanoTime();
+        boolean[] acquired = {false};
+
+        try {
+            provider.lock(path, p -> {
+                acquired[0] = true;
+                record("lock", true, start);
+                consumer.accept(p);
+            });
+        } finally {
+            if (!acquired[0]) {
+                record("lock", false, start);
+            }
+        }
+    }
+
+    @Override
+    public Optional<InterLock> lock(String path, int timeout) {
+        long start = System.nanoTime();
+        Optional<InterLock> lock = Optional.empty();
+
+        try {
+            lock = provider.lock(path, timeout);
+            return lock;
+        } finally {
+            record("lock", lock.isPresent(), start);
+        }
+    }
+
+    @Override
+    public void release(InterLock lock) {
+        time("release", () -> {
+            provider.release(lock);
+            return null;
+        });
+    }
+
+    @Override
+    public Map<String, LockMetrics> getLockMetrics() {
+        return provider.getLockMetrics();
+    }
+
+    @Override
+    public boolean watchChildren(String rootPath, ChildrenListener listener) {
+        return provider.watchChildren(rootPath, listener);
+    }
+
+    @Override
+    public void close() {
+        provider.close();
+    }
+
+    private <T> T time(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        boolean success = false;
+
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            record(operation, success, start);
+        }
+    }
+
+    private void record(String operation, boolean success, long start) {
+        MetricsConfig.timer(registry, Metric, Tags.of("operation", operation, "status", success ? "success" : "failure"))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.common.metrics;
+
+import com.flowci.core.common.config.MetricsConfig;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record latency of mongo commands with tags of command name, collection and status
+ *
+ * @author yang
+ */
+public class MongoCommandMetrics implements CommandListener {
+
+    public static final String Metric = "flowci.mongo.command";
+
+    private static final String Unknown = "unknown";
+
+    private final MeterRegistry registry;
+
+    // key as request id, value as collection name
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+
+    public MongoCommandMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        // the value of first key is collection name for crud commands, ex: {find: "job", filter: ...}
+        BsonValue value = event.getCommand().get(event.getCommandName());
+        String collection = value != null && value.isString() ? value.asString().getValue() : Unknown;
+        collections.put(event.getRequestId(), collection);
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        record(event.getRequestId(), event.getCommandName(), "success", event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        record(event.getRequestId(), event.getCommandName(), "failure", event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void record(int requestId, String command, String status, long nanos) {
+        String collection = collections.remove(requestId);
+
+        MetricsConfig.timer(registry, Metric, Tags.of(
+                "command", command,
+                "collection", collection == null ? Unknown : collection,
+                "status", status
+        )).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
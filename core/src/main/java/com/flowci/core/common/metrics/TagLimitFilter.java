@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.common.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limit distinct values of unbounded tags, ex: flow name and plugin name,
+ * values after the first {max} are replaced by 'other', so num of series is bounded under heavy load.
+ *
+ * @author yang
+ */
+public class TagLimitFilter implements MeterFilter {
+
+    public static final String Other = "other";
+
+    private final String prefix;
+
+    private final Set<String> keys;
+
+    private final int max;
+
+    // key as tag key, value as accepted tag values
+    private final Map<String, Set<String>> accepted = new ConcurrentHashMap<>();
+
+    public TagLimitFilter(String prefix, int max, String... keys) {
+        this.prefix = prefix;
+        this.max = max;
+        this.keys = new HashSet<>(Arrays.asList(keys));
+    }
+
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        if (!id.getName().startsWith(prefix)) {
+            return id;
+        }
+
+        List<Tag> tags = null;
+
+        for (Tag tag : id.getTags()) {
+            if (!keys.contains(tag.getKey()) || accept(tag)) {
+                continue;
+            }
+
+            if (tags == null) {
+                tags = new ArrayList<>(id.getTags());
+            }
+
+            tags.set(tags.indexOf(tag), Tag.of(tag.getKey(), Other));
+        }
+
+        return tags == null ? id : id.replaceTags(tags);
+    }
+
+    private boolean accept(Tag tag) {
+        Set<String> values = accepted.computeIfAbsent(tag.getKey(), k -> ConcurrentHashMap.newKeySet());
+        if (values.contains(tag.getValue())) {
+            return true;
+        }
+
+        synchronized (values) {
+            if (values.size() >= max) {
+                return false;
+            }
+            values.add(tag.getValue());
+            return true;
+        }
+    }
+}
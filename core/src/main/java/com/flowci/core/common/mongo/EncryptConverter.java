@@ -17,17 +17,29 @@
 
 package com.flowci.core.common.mongo;
 
+import com.flowci.core.common.helper.CacheHelper;
 import com.flowci.core.common.helper.CipherHelper;
 import com.flowci.domain.SimpleAuthPair;
 import com.flowci.domain.SimpleKeyPair;
 import com.flowci.domain.SecretField;
+import com.flowci.util.StringHelper;
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.bson.Document;
 import org.springframework.core.convert.converter.Converter;
 
+import java.util.Objects;
+
+/**
+ * Encrypt secret fields by app secret, the decrypted values can be cached in short time by encrypted value,
+ * which is changed with content of the document, new secret instance is created for each read.
+ */
 @Getter
 public class EncryptConverter {
 
+    private static final int DecryptedCacheSize = 1000;
+
     private static final String FieldPublicKey = "publicKey";
 
     private static final String FieldPrivateKey = "privateKey";
@@ -40,8 +52,34 @@ public class EncryptConverter {
 
     private final String appSecret;
 
+    // key as encrypted value, null if cache disabled
+    @Getter(AccessLevel.NONE)
+    private final Cache<String, String> decrypted;
+
     public EncryptConverter(String appSecret) {
+        this(appSecret, 0);
+    }
+
+    /**
+     * @param cacheInSeconds ttl of decrypted values, disabled if 0
+     */
+    public EncryptConverter(String appSecret, int cacheInSeconds) {
         this.appSecret = appSecret;
+        this.decrypted = cacheInSeconds > 0 ? CacheHelper.createLocalCache(DecryptedCacheSize, cacheInSeconds) : null;
+    }
+
+    private String decrypt(String encrypted) {
+        if (Objects.isNull(decrypted) || Objects.isNull(encrypted)) {
+            return CipherHelper.AES.decrypt(encrypted, appSecret);
+        }
+
+        // empty value from failed decrypt is not cached, mapping to null skips the entry
+        String value = decrypted.get(encrypted, key -> {
+            String raw = CipherHelper.AES.decrypt(key, appSecret);
+            return StringHelper.hasValue(raw) ? raw : null;
+        });
+
+        return Objects.isNull(value) ? StringHelper.EMPTY : value;
     }
 
     public class SimpleKeyPairReader implements Converter<Document, SimpleKeyPair> {
@@ -52,8 +90,8 @@ public class EncryptConverter {
             String encryptedPrivateKey = source.getString(FieldPrivateKey);
 
             return SimpleKeyPair.of(
-                CipherHelper.AES.decrypt(encryptedPublicKey, appSecret),
-                CipherHelper.AES.decrypt(encryptedPrivateKey, appSecret)
+                decrypt(encryptedPublicKey),
+                decrypt(encryptedPrivateKey)
             );
         }
     }
@@ -77,8 +115,8 @@ public class EncryptConverter {
             String encryptedPassword = source.getString(FieldPassword);
 
             return SimpleAuthPair.of(
-                CipherHelper.AES.decrypt(encryptedUsername, appSecret),
-                CipherHelper.AES.decrypt(encryptedPassword, appSecret)
+                decrypt(encryptedUsername),
+                decrypt(encryptedPassword)
             );
         }
     }
@@ -100,7 +138,7 @@ public class EncryptConverter {
         public SecretField convert(Document source) {
             String token = source.getString(FieldData);
             return SecretField.of(
-                    CipherHelper.AES.decrypt(token, appSecret)
+                    decrypt(token)
             );
         }
     }
@@ -18,6 +18,7 @@
 package com.flowci.core.common.rabbit;
 
 import com.flowci.core.common.config.QueueConfig;
+import com.flowci.core.common.domain.TraceContext;
 import com.flowci.util.StringHelper;
 import com.rabbitmq.client.*;
 import lombok.Getter;
@@ -27,6 +28,7 @@ import org.springframework.core.task.TaskExecutor;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Log4j2
@@ -99,7 +101,7 @@ public class RabbitOperations implements AutoCloseable {
 
     public boolean sendToEx(String ex, byte[] body, Map<String, Object> headers) {
         try {
-            AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().headers(headers).build();
+            AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().headers(withTrace(headers)).build();
             this.channel.basicPublish(ex, StringHelper.EMPTY, props, body);
             return true;
         } catch (IOException e) {
@@ -112,7 +114,21 @@ public class RabbitOperations implements AutoCloseable {
      */
     public boolean send(String routingKey, byte[] body) {
         try {
-            this.channel.basicPublish(StringHelper.EMPTY, routingKey, null, body);
+            AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().headers(withTrace(null)).build();
+            this.channel.basicPublish(StringHelper.EMPTY, routingKey, props, body);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Send to routing key with default exchange and headers
+     */
+    public boolean send(String routingKey, byte[] body, Map<String, Object> headers) {
+        try {
+            AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().headers(withTrace(headers)).build();
+            this.channel.basicPublish(StringHelper.EMPTY, routingKey, props, body);
             return true;
         } catch (IOException e) {
             return false;
@@ -125,6 +141,7 @@ public class RabbitOperations implements AutoCloseable {
     public boolean send(String routingKey, byte[] body, Integer priority, int expireInSecond) {
         try {
             AMQP.BasicProperties props = new AMQP.BasicProperties.Builder()
+                    .headers(withTrace(null))
                     .priority(priority)
                     .expiration(Integer.toString(expireInSecond * 1000))
                     .build();
@@ -185,8 +202,33 @@ public class RabbitOperations implements AutoCloseable {
         channel.close();
     }
 
+    /**
+     * Copy headers with trace context of current thread, or null if no headers and context
+     */
+    private static Map<String, Object> withTrace(Map<String, Object> headers) {
+        if (!TraceContext.current().isPresent()) {
+            return headers;
+        }
+
+        Map<String, Object> copied = Objects.isNull(headers) ? new HashMap<>(1) : new HashMap<>(headers);
+        TraceContext.inject(copied);
+        return copied;
+    }
+
     private void doHandleDelivery(Envelope envelope, AMQP.BasicProperties properties, byte[] body, OnMessage onMessage) {
-        boolean isSendAck = onMessage.on(properties.getHeaders(), body, envelope);
+        TraceContext.Scope scope = TraceContext.extract(properties.getHeaders())
+                .map(TraceContext::activate)
+                .orElse(null);
+
+        boolean isSendAck;
+        try {
+            isSendAck = onMessage.on(properties.getHeaders(), body, envelope);
+        } finally {
+            if (scope != null) {
+                scope.close();
+            }
+        }
+
         if (isSendAck) {
             try {
                 getChannel().basicAck(envelope.getDeliveryTag(), false);
@@ -77,6 +77,8 @@ public final class Flow extends Mongoable implements Pathable {
 
     private int stepTimeout = 900; // job step timeout in second;
 
+    private Integer archiveAfterDays; // archive finished jobs after days, app default if null, never if <= 0
+
     private String cron;
 
     // variables from yml
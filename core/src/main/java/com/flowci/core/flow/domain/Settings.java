@@ -26,6 +26,8 @@ public final class Settings {
 
     private String cron;
 
+    private Integer archiveAfterDays;
+
     public boolean hasCron() {
         return StringHelper.hasValue(cron);
     }
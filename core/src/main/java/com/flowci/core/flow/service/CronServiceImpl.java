@@ -21,6 +21,7 @@ import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.parser.CronParser;
 import com.flowci.core.common.manager.SpringEventManager;
 import com.flowci.core.common.manager.SpringTaskManager;
+import com.flowci.core.common.manager.TraceManager;
 import com.flowci.core.flow.domain.Flow;
 import com.flowci.core.flow.domain.Yml;
 import com.flowci.core.flow.event.FlowInitEvent;
@@ -59,6 +60,9 @@ public class CronServiceImpl implements CronService {
     @Autowired
     private SpringTaskManager taskManager;
 
+    @Autowired
+    private TraceManager traceManager;
+
     @Autowired
     private YmlService ymlService;
 
@@ -120,7 +124,9 @@ public class CronServiceImpl implements CronService {
             String taskName = String.format("%s-%s", flow.getName(), expressionBase64);
 
             taskManager.run(taskName, false, () -> {
-                try {
+                try (TraceManager.ActiveSpan span = traceManager.start("cron")) {
+                    span.tag("flow", flow.getName());
+
                     Yml yml = ymlService.getYml(flow.getId(), Yml.DEFAULT_NAME);
                     log.info("Start flow '{}' from cron task", flow.getName());
 
@@ -59,6 +59,7 @@ public class FlowSettingServiceImpl implements FlowSettingService {
         flow.setJobTimeout(settings.getJobTimeout());
         flow.setStepTimeout(settings.getStepTimeout());
         flow.setCron(settings.getCron());
+        flow.setArchiveAfterDays(settings.getArchiveAfterDays());
         flowDao.save(flow);
 
         cronService.set(flow);
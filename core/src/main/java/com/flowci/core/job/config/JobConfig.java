@@ -19,11 +19,16 @@ package com.flowci.core.job.config;
 import com.flowci.core.common.config.AppProperties;
 import com.flowci.core.common.helper.CacheHelper;
 import com.flowci.core.common.helper.ThreadHelper;
+import com.flowci.core.common.manager.SpringEventManager;
 import com.flowci.core.job.domain.JobSmContext;
 import com.flowci.core.job.domain.Step;
+import com.flowci.core.job.event.JobLeaseHandoffEvent;
+import com.flowci.core.job.manager.JobLeaseManager;
 import com.flowci.sm.StateMachine;
 import com.flowci.tree.NodeTree;
 import com.flowci.util.FileHelper;
+import com.flowci.util.StringHelper;
+import com.flowci.zookeeper.CoordinationProvider;
 import com.github.benmanes.caffeine.cache.Cache;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,9 +37,13 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author yang
@@ -46,6 +55,12 @@ public class JobConfig {
     @Autowired
     private AppProperties appProperties;
 
+    @Autowired
+    private AppProperties.Job jobProperties;
+
+    @Autowired
+    private AppProperties.Zookeeper zkProperties;
+
     @Autowired
     private ThreadPoolTaskExecutor appTaskExecutor;
 
@@ -59,11 +74,18 @@ public class JobConfig {
         return CacheHelper.createLocalCache(100, 60);
     }
 
+    @Bean("repoYamlCache")
+    public Cache<String, String> repoYamlCache() {
+        return CacheHelper.createLocalCache(100, 3600);
+    }
+
     @Bean("repoDir")
     public Path pluginDir() throws IOException {
         String workspace = appProperties.getWorkspace().toString();
         Path pluginDir = Paths.get(workspace, "repos");
-        return FileHelper.createDirectory(pluginDir);
+        FileHelper.createDirectory(pluginDir);
+        removeLegacyRepoDirs(pluginDir);
+        return pluginDir;
     }
 
     @Bean("jobConditionExecutor")
@@ -71,8 +93,48 @@ public class JobConfig {
         return ThreadHelper.createTaskExecutor(20, 20, 100, "job-cond-");
     }
 
+    @Bean("jobArchiveExecutor")
+    public ThreadPoolTaskExecutor jobArchiveExecutor() {
+        return ThreadHelper.createTaskExecutor(1, 1, 1, "job-archive-");
+    }
+
+    @Bean("flowDeletionExecutor")
+    public ThreadPoolTaskExecutor flowDeletionExecutor() {
+        return ThreadHelper.createTaskExecutor(1, 1, 1, "flow-deletion-");
+    }
+
+    @Bean(name = "jobLeaseManager", destroyMethod = "close")
+    public JobLeaseManager jobLeaseManager(CoordinationProvider zk, SpringEventManager eventManager) {
+        return new JobLeaseManager(
+                zk,
+                zkProperties.getJobLeaseRoot(),
+                StringHelper.randomString(16),
+                (jobId, nodeId) -> eventManager.publish(new JobLeaseHandoffEvent(this, jobId, nodeId)),
+                appTaskExecutor,
+                jobProperties.getLeaseRenewSeconds(),
+                jobProperties.getLeaseIdleSeconds()
+        );
+    }
+
     @Bean("sm")
     public StateMachine<JobSmContext> jobStateMachine() {
         return new StateMachine<>("JOB_STATUS", appTaskExecutor);
     }
+
+    /**
+     * Yaml repos were cloned to working dirs named {b64 of url}_{branch}, which are replaced by
+     * bare repos named {b64 of url}.git, remove the working dirs left by the previous version
+     */
+    private static void removeLegacyRepoDirs(Path repoDir) {
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(repoDir, path -> !path.toString().endsWith(".git"))) {
+            for (Path dir : dirs) {
+                try (Stream<Path> paths = Files.walk(dir)) {
+                    paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+                log.info("Legacy repo dir {} removed", dir);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to remove legacy repo dirs: {}", e.getMessage());
+        }
+    }
 }
@@ -17,7 +17,9 @@
 package com.flowci.core.job.controller;
 
 import com.flowci.core.auth.annotation.Action;
+import com.flowci.core.common.domain.Span;
 import com.flowci.core.common.manager.SessionManager;
+import com.flowci.core.common.manager.TraceManager;
 import com.flowci.core.flow.domain.Flow;
 import com.flowci.core.flow.domain.Yml;
 import com.flowci.core.flow.service.YmlService;
@@ -60,13 +62,25 @@ public class JobController extends BaseController {
     @Autowired
     private TaskExecutor appTaskExecutor;
 
+    @Autowired
+    private TraceManager traceManager;
+
+    /**
+     * List jobs by build number descending, use build number of the last item as 'before' for the next page
+     */
     @GetMapping("/{flow}")
     @Action(JobAction.LIST)
     public Page<JobItem> list(@PathVariable("flow") String name,
                               @RequestParam(required = false, defaultValue = DefaultPage) int page,
-                              @RequestParam(required = false, defaultValue = DefaultSize) int size) {
+                              @RequestParam(required = false, defaultValue = DefaultSize) int size,
+                              @RequestParam(required = false) Long before) {
 
         Flow flow = flowService.get(name);
+
+        if (before != null) {
+            return jobService.listBefore(flow, before, size);
+        }
+
         return jobService.list(flow, page, size);
     }
 
@@ -98,6 +112,17 @@ public class JobController extends BaseController {
         return stepService.list(job);
     }
 
+    /**
+     * Spans of job in zipkin v2 json format
+     */
+    @GetMapping("/{flow}/{buildNumberOrLatest}/trace")
+    @Action(JobAction.GET)
+    public List<Span> listSpans(@PathVariable String flow,
+                                @PathVariable String buildNumberOrLatest) {
+        Job job = get(flow, buildNumberOrLatest);
+        return jobService.listSpans(job);
+    }
+
     @GetMapping("/{flow}/{buildNumberOrLatest}/tasks")
     @Action(JobAction.LIST_STEPS)
     public List<ExecutedLocalTask> listTasks(@PathVariable String flow,
@@ -111,7 +136,11 @@ public class JobController extends BaseController {
     public Job create(@Validated @RequestBody CreateJob data) {
         Flow flow = flowService.get(data.getFlow());
         String b64Yaml = ymlService.getYmlString(flow.getId(), Yml.DEFAULT_NAME);
-        return jobService.create(flow, StringHelper.fromBase64(b64Yaml), Trigger.API, data.getInputs());
+
+        try (TraceManager.ActiveSpan span = traceManager.start("api")) {
+            span.tag("flow", flow.getName());
+            return jobService.create(flow, StringHelper.fromBase64(b64Yaml), Trigger.API, data.getInputs());
+        }
     }
 
     @PostMapping("/run")
@@ -127,11 +156,15 @@ public class JobController extends BaseController {
         String ymlStr = StringHelper.fromBase64(b64Yml);
 
         // start from thread since could be loading yaml from git repo
-        appTaskExecutor.execute(() -> {
-            sessionManager.set(current);
-            Job job = jobService.create(flow, ymlStr, Trigger.API, body.getInputs());
-            jobService.start(job);
-        });
+        try (TraceManager.ActiveSpan span = traceManager.start("api")) {
+            span.tag("flow", flow.getName());
+
+            appTaskExecutor.execute(() -> {
+                sessionManager.set(current);
+                Job job = jobService.create(flow, ymlStr, Trigger.API, body.getInputs());
+                jobService.start(job);
+            });
+        }
     }
 
     @PostMapping("/rerun")
@@ -0,0 +1,18 @@
+package com.flowci.core.job.dao;
+
+import com.flowci.core.job.domain.JobItem;
+
+import java.util.List;
+
+public interface CustomJobArchiveDao {
+
+    /**
+     * List items of archived jobs which build number is less than the given one, by build number descending
+     */
+    List<JobItem> findAllItemsByFlowIdBefore(String flowId, long buildNumber, int size);
+
+    /**
+     * List items of archived jobs which build number is greater than 'after' and less than 'before'
+     */
+    List<JobItem> findAllItemsByFlowIdBetween(String flowId, long after, long before);
+}
@@ -0,0 +1,43 @@
+package com.flowci.core.job.dao;
+
+import com.flowci.core.job.domain.JobArchive;
+import com.flowci.core.job.domain.JobItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class CustomJobArchiveDaoImpl implements CustomJobArchiveDao {
+
+    private static final Sort SortByBuildNumber = Sort.by(Sort.Direction.DESC, "buildNumber");
+
+    @Autowired
+    private MongoOperations operations;
+
+    @Override
+    public List<JobItem> findAllItemsByFlowIdBefore(String flowId, long buildNumber, int size) {
+        Query q = query(where("flowId").is(flowId).and("buildNumber").lt(buildNumber)).limit(size);
+        return findItems(q);
+    }
+
+    @Override
+    public List<JobItem> findAllItemsByFlowIdBetween(String flowId, long after, long before) {
+        Query q = query(where("flowId").is(flowId).and("buildNumber").gt(after).lt(before));
+        return findItems(q);
+    }
+
+    private List<JobItem> findItems(Query q) {
+        q.with(SortByBuildNumber);
+        q.fields().include("item");
+
+        return operations.find(q, JobArchive.class).stream()
+                .map(JobArchive::getItem)
+                .collect(Collectors.toList());
+    }
+}
@@ -1,6 +1,23 @@
 package com.flowci.core.job.dao;
 
+import com.flowci.core.job.domain.Job;
+
+import java.util.Date;
+import java.util.List;
+
 public interface CustomJobDao {
 
     void increaseNumOfArtifact(String jobId);
+
+    /**
+     * List finished jobs of flow which finished before the given date, by build number ascending
+     */
+    List<Job> findAllFinishedBefore(String flowId, Date finishAt, int size);
+
+    /**
+     * Delete job only if it's finished
+     *
+     * @return num of deleted
+     */
+    long deleteFinished(String jobId);
 }
@@ -2,9 +2,13 @@ package com.flowci.core.job.dao;
 
 import com.flowci.core.job.domain.Job;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Update;
 
+import java.util.Date;
+import java.util.List;
+
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
@@ -20,4 +24,22 @@ public class CustomJobDaoImpl implements CustomJobDao {
                 new Update().inc("numOfArtifact", 1),
                 Job.class);
     }
+
+    @Override
+    public List<Job> findAllFinishedBefore(String flowId, Date finishAt, int size) {
+        return operations.find(
+                query(where("flowId").is(flowId)
+                        .and("status").in(Job.FINISH_STATUS)
+                        .and("finishAt").lt(finishAt))
+                        .with(Sort.by(Sort.Direction.ASC, "buildNumber"))
+                        .limit(size),
+                Job.class);
+    }
+
+    @Override
+    public long deleteFinished(String jobId) {
+        return operations.remove(
+                query(where("_id").is(jobId).and("status").in(Job.FINISH_STATUS)),
+                Job.class).getDeletedCount();
+    }
 }
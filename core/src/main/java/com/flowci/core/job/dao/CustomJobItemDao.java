@@ -0,0 +1,19 @@
+package com.flowci.core.job.dao;
+
+import com.flowci.core.job.domain.JobItem;
+
+import java.util.List;
+
+public interface CustomJobItemDao {
+
+    /**
+     * List jobs which build number is less than the given one, by build number descending,
+     * only fields of list item and context keys shown on the list are loaded
+     */
+    List<JobItem> findAllByFlowIdBefore(String flowId, long buildNumber, int size);
+
+    /**
+     * List jobs which build number is greater than 'after' and less than 'before', by build number descending
+     */
+    List<JobItem> findAllByFlowIdBetween(String flowId, long after, long before);
+}
@@ -0,0 +1,54 @@
+package com.flowci.core.job.dao;
+
+import com.flowci.core.job.domain.JobItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Field;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class CustomJobItemDaoImpl implements CustomJobItemDao {
+
+    private static final Sort SortByBuildNumber = Sort.by(Sort.Direction.DESC, "buildNumber");
+
+    @Autowired
+    private MongoOperations operations;
+
+    @Override
+    public List<JobItem> findAllByFlowIdBefore(String flowId, long buildNumber, int size) {
+        Query q = query(where("flowId").is(flowId).and("buildNumber").lt(buildNumber)).limit(size);
+        return findItems(q);
+    }
+
+    @Override
+    public List<JobItem> findAllByFlowIdBetween(String flowId, long after, long before) {
+        Query q = query(where("flowId").is(flowId).and("buildNumber").gt(after).lt(before));
+        return findItems(q);
+    }
+
+    private List<JobItem> findItems(Query q) {
+        q.with(SortByBuildNumber);
+
+        Field fields = q.fields()
+                .include("_id")
+                .include("buildNumber")
+                .include("flowId")
+                .include("trigger")
+                .include("status")
+                .include("createdAt")
+                .include("startAt")
+                .include("finishAt")
+                .include("numOfArtifact");
+
+        for (String key : JobItem.ContextKeys) {
+            fields.include("context." + key);
+        }
+
+        return operations.find(q, JobItem.class);
+    }
+}
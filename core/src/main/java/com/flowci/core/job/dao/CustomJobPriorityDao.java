@@ -14,4 +14,10 @@ public interface CustomJobPriorityDao {
 
     // only return job with flow id and build number
     List<JobKey> findAllMinBuildNumber();
+
+    // num of ongoing jobs of all flows
+    long countAllInQueue();
+
+    // total num of jobs received of all flows
+    long countAllReceived();
 }
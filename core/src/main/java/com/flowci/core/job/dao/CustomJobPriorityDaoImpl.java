@@ -7,6 +7,7 @@ import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
@@ -19,6 +20,8 @@ public class CustomJobPriorityDaoImpl implements CustomJobPriorityDao {
 
     private final static String FieldQueue = "queue";
 
+    private final static String FieldReceived = "received";
+
     @Autowired
     private MongoOperations operations;
 
@@ -29,6 +32,7 @@ public class CustomJobPriorityDaoImpl implements CustomJobPriorityDao {
 
         Update u = new Update();
         u.addToSet(FieldQueue, buildNumber);
+        u.inc(FieldReceived, 1);
 
         operations.findAndModify(q, u, JobPriority.class);
     }
@@ -76,6 +80,37 @@ public class CustomJobPriorityDaoImpl implements CustomJobPriorityDao {
         return operations.aggregate(aggregation, "job_priority", JobKey.class).getMappedResults();
     }
 
+    @Override
+    public long countAllInQueue() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.project().and(ArrayOperators.Size.lengthOfArray(FieldQueue)).as("size"),
+                Aggregation.group().sum("size").as("number")
+        );
+
+        AggregationResults<NumberResult> results = operations.aggregate(aggregation, "job_priority", NumberResult.class);
+        NumberResult numberResult = results.getUniqueMappedResult();
+        if (numberResult == null || numberResult.number == null) {
+            return 0;
+        }
+
+        return numberResult.number;
+    }
+
+    @Override
+    public long countAllReceived() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group().sum(FieldReceived).as("number")
+        );
+
+        AggregationResults<NumberResult> results = operations.aggregate(aggregation, "job_priority", NumberResult.class);
+        NumberResult numberResult = results.getUniqueMappedResult();
+        if (numberResult == null || numberResult.number == null) {
+            return 0;
+        }
+
+        return numberResult.number;
+    }
+
     private static class NumberResult {
 
         public Long number;
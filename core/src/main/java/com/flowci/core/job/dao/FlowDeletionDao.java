@@ -0,0 +1,12 @@
+package com.flowci.core.job.dao;
+
+import com.flowci.core.job.domain.FlowDeletion;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * @author yang
+ */
+@Repository
+public interface FlowDeletionDao extends MongoRepository<FlowDeletion, String> {
+}
@@ -0,0 +1,16 @@
+package com.flowci.core.job.dao;
+
+import com.flowci.core.job.domain.JobArchive;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * @author yang
+ */
+@Repository
+public interface JobArchiveDao extends MongoRepository<JobArchive, String>, CustomJobArchiveDao {
+
+    Optional<JobArchive> findByKey(String key);
+}
@@ -17,8 +17,6 @@
 package com.flowci.core.job.dao;
 
 import com.flowci.core.job.domain.JobItem;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -26,8 +24,6 @@ import org.springframework.stereotype.Repository;
  * @author yang
  */
 @Repository
-public interface JobItemDao extends MongoRepository<JobItem, String> {
-
-    Page<JobItem> findAllByFlowId(String flowId, Pageable pageable);
+public interface JobItemDao extends MongoRepository<JobItem, String>, CustomJobItemDao {
 
 }
@@ -0,0 +1,73 @@
+package com.flowci.core.job.domain;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Progress of deleting jobs and files of a removed flow, the document is saved after each batch,
+ * so the deletion can be resumed from the stage after server restarted, and removed when finished.
+ *
+ * @author yang
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+@Document(collection = "flow_deletion")
+public class FlowDeletion {
+
+    /**
+     * Stages in order of deletion
+     */
+    public enum Stage {
+
+        JOBS,
+
+        ARCHIVES,
+
+        STEPS,
+
+        TASKS,
+
+        AGENTS,
+
+        PRIORITIES,
+
+        CACHES,
+
+        FILES,
+
+        NUMBER
+    }
+
+    /**
+     * Flow id
+     */
+    @Id
+    private String id;
+
+    private String flowName;
+
+    private Stage stage = Stage.JOBS;
+
+    // num of deleted records or files of each stage
+    private Map<String, Long> deleted = new HashMap<>();
+
+    private Date createdAt;
+
+    private Date updatedAt;
+
+    public long getDeleted(Stage stage) {
+        return deleted.getOrDefault(stage.name(), 0L);
+    }
+
+    public void addDeleted(Stage stage, long num) {
+        deleted.merge(stage.name(), num, Long::sum);
+    }
+}
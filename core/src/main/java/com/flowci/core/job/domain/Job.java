@@ -255,6 +255,11 @@ public class Job extends Mongoable implements Pathable {
 
     private int numOfArtifact = 0;
 
+    /**
+     * W3C traceparent of the span which created the job, spans of job are recorded as children of it
+     */
+    private String traceParent;
+
     public void setExpire(int expire) {
         this.expire = expire;
         Instant expireAt = Instant.now().plus(expire, ChronoUnit.SECONDS);
@@ -0,0 +1,54 @@
+package com.flowci.core.job.domain;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Cold storage of finished job, one document per job, the list item is kept as it is for the job list,
+ * the job with context, steps, local tasks and yaml are gzip compressed bson.
+ *
+ * @author yang
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+@Document(collection = "job_archive")
+@CompoundIndex(
+        name = "index_job_archive_flowid_and_buildnum",
+        def = "{'flowId': 1, 'buildNumber': 1}",
+        unique = true
+)
+public class JobArchive {
+
+    /**
+     * Job id
+     */
+    @Id
+    private String id;
+
+    private String flowId;
+
+    private Long buildNumber;
+
+    @Indexed(name = "index_job_archive_key", unique = true)
+    private String key;
+
+    private JobItem item;
+
+    private byte[] job;
+
+    private byte[] steps;
+
+    private byte[] tasks;
+
+    private byte[] yml;
+
+    private Date archivedAt;
+}
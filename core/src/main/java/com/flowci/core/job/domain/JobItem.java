@@ -67,28 +67,36 @@ public class JobItem extends JobDesc {
 
     }
 
-    public static class ContextReader implements Converter<org.bson.Document, Context> {
-
-        @Override
-        public Context convert(org.bson.Document source) {
-            Context context = new Context(source);
-            context.putIfNotEmpty(Variables.GIT_EVENT);
+    /**
+     * Keys of job context shown on the list
+     */
+    public static final String[] ContextKeys = {
+            Variables.GIT_EVENT,
 
             // git push / tag
-            context.putIfNotEmpty(Variables.GIT_BRANCH);
-            context.putIfNotEmpty(Variables.GIT_COMMIT_ID);
-            context.putIfNotEmpty(Variables.GIT_COMMIT_URL);
-            context.putIfNotEmpty(Variables.GIT_COMMIT_MESSAGE);
+            Variables.GIT_BRANCH,
+            Variables.GIT_COMMIT_ID,
+            Variables.GIT_COMMIT_URL,
+            Variables.GIT_COMMIT_MESSAGE,
 
             // git pr
-            context.putIfNotEmpty(Variables.PR_TITLE);
-            context.putIfNotEmpty(Variables.PR_NUMBER);
-            context.putIfNotEmpty(Variables.PR_URL);
-            context.putIfNotEmpty(Variables.PR_HEAD_REPO_NAME);
-            context.putIfNotEmpty(Variables.PR_HEAD_REPO_BRANCH);
-            context.putIfNotEmpty(Variables.PR_BASE_REPO_NAME);
-            context.putIfNotEmpty(Variables.PR_BASE_REPO_BRANCH);
+            Variables.PR_TITLE,
+            Variables.PR_NUMBER,
+            Variables.PR_URL,
+            Variables.PR_HEAD_REPO_NAME,
+            Variables.PR_HEAD_REPO_BRANCH,
+            Variables.PR_BASE_REPO_NAME,
+            Variables.PR_BASE_REPO_BRANCH
+    };
+
+    public static class ContextReader implements Converter<org.bson.Document, Context> {
 
+        @Override
+        public Context convert(org.bson.Document source) {
+            Context context = new Context(source);
+            for (String key : ContextKeys) {
+                context.putIfNotEmpty(key);
+            }
             return context;
         }
     }
@@ -106,4 +114,31 @@ public class JobItem extends JobDesc {
     private Date finishAt;
 
     private int numOfArtifact;
+
+    /**
+     * List item of job with context keys shown on the list
+     */
+    public static JobItem of(Job job) {
+        JobItem item = new JobItem();
+        item.setId(job.getId());
+        item.setBuildNumber(job.getBuildNumber());
+        item.setFlowId(job.getFlowId());
+        item.setTrigger(job.getTrigger());
+        item.setStatus(job.getStatus());
+        item.setCreatedAt(job.getCreatedAt());
+        item.setStartAt(job.getStartAt());
+        item.setFinishAt(job.getFinishAt());
+        item.setNumOfArtifact(job.getNumOfArtifact());
+
+        Context context = new Context();
+        for (String key : ContextKeys) {
+            String value = job.getContext().get(key);
+            if (!Strings.isNullOrEmpty(value)) {
+                context.put(key, value);
+            }
+        }
+
+        item.setContext(context);
+        return item;
+    }
 }
@@ -25,4 +25,7 @@ public class JobPriority extends Mongoable {
 
     // ongoing job build number that received from queue into application
     private List<Long> queue = new ArrayList<>();
+
+    // total num of jobs received from queue, shared job arrival counter of all nodes
+    private long received;
 }
@@ -0,0 +1,28 @@
+package com.flowci.core.job.event;
+
+import com.flowci.core.common.event.BroadcastEvent;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Request the node which owns the job lease to release it
+ */
+@Getter
+@Setter
+public class JobLeaseHandoffEvent extends BroadcastEvent {
+
+    private String jobId;
+
+    // node id of requester
+    private String requester;
+
+    public JobLeaseHandoffEvent() {
+        super();
+    }
+
+    public JobLeaseHandoffEvent(Object source, String jobId, String requester) {
+        super(source);
+        this.jobId = jobId;
+        this.requester = requester;
+    }
+}
@@ -61,7 +61,7 @@ public class CmdManagerImpl implements CmdManager {
                 .setBash(r.fetchBash())
                 .setPwsh(r.fetchPwsh())
                 .setEnvFilters(r.fetchFilters())
-                .setInputs(r.fetchEnvs().merge(job.getContext(), false))
+                .setInputs(r.fetchEnvs().overlay(job.getContext()))
                 .setTimeout(r.fetchTimeout(job.getTimeout()))
                 .setRetry(r.fetchRetry(0))
                 .setSecrets(r.getSecrets())
@@ -124,7 +124,9 @@ public class CmdManagerImpl implements CmdManager {
                     break;
                 }
             }
-            cmd.getDockers().add(plugin.getDocker());
+
+            // copy since plugin is shared from plugin registry
+            cmd.getDockers().add(ObjectsHelper.copy(plugin.getDocker()));
         });
     }
 
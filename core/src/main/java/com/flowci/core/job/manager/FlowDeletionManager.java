@@ -0,0 +1,236 @@
+package com.flowci.core.job.manager;
+
+import com.flowci.core.common.config.AppProperties;
+import com.flowci.core.common.helper.ThreadHelper;
+import com.flowci.core.common.manager.SpringEventManager;
+import com.flowci.core.common.manager.SpringTaskManager;
+import com.flowci.core.flow.domain.Flow;
+import com.flowci.core.job.dao.FlowDeletionDao;
+import com.flowci.core.job.dao.JobNumberDao;
+import com.flowci.core.job.domain.*;
+import com.flowci.core.job.domain.FlowDeletion.Stage;
+import com.flowci.core.job.event.JobDeletedEvent;
+import com.flowci.store.FileManager;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Delete jobs, job related records and files of removed flow in background, by batch of ids
+ * with a pause between batches, to throttle load on db and file storage.
+ * <p>
+ * The progress is saved to flow_deletion after each batch, pending deletions are resumed by the
+ * scheduled task, ex: after server restarted.
+ *
+ * @author yang
+ */
+@Log4j2
+@Component
+public class FlowDeletionManager {
+
+    private static final String TaskName = "flow-deletion";
+
+    private static final String Id = "_id";
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Autowired
+    private AppProperties.Job jobProperties;
+
+    @Autowired
+    private MongoOperations operations;
+
+    @Autowired
+    private FlowDeletionDao flowDeletionDao;
+
+    @Autowired
+    private JobNumberDao jobNumberDao;
+
+    @Autowired
+    private FileManager fileManager;
+
+    @Autowired
+    private SpringEventManager eventManager;
+
+    @Autowired
+    private SpringTaskManager taskManager;
+
+    @Autowired
+    private TaskExecutor flowDeletionExecutor;
+
+    public void start(Flow flow) {
+        FlowDeletion deletion = new FlowDeletion()
+                .setId(flow.getId())
+                .setFlowName(flow.getName())
+                .setCreatedAt(new Date());
+
+        flowDeletionDao.save(deletion);
+        log.info("Deletion of flow {} is scheduled", flow.getName());
+
+        scheduleDeletion();
+    }
+
+    /**
+     * Delete on single thread of own executor, to not block other scheduled tasks
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void scheduleDeletion() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            flowDeletionExecutor.execute(() -> {
+                try {
+                    taskManager.run(TaskName, false, this::deleteAll);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (Exception e) {
+            running.set(false);
+            log.warn("Unable to start flow deletion: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Run pending deletions until nothing left, stop on error and retry in the next round
+     */
+    private void deleteAll() {
+        List<FlowDeletion> pending;
+        while (!(pending = flowDeletionDao.findAll()).isEmpty()) {
+            for (FlowDeletion deletion : pending) {
+                try {
+                    delete(deletion);
+                } catch (Exception e) {
+                    log.warn("Unable to delete flow {} on {}: {}", deletion.getFlowName(), deletion.getStage(), e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+
+    private void delete(FlowDeletion deletion) throws IOException {
+        Stage[] stages = Stage.values();
+        int batchSize = jobProperties.getDeleteBatchSize();
+
+        for (int i = deletion.getStage().ordinal(); i < stages.length; i++) {
+            Stage stage = stages[i];
+            deletion.setStage(stage);
+
+            while (true) {
+                long num = deleteBatch(deletion.getId(), stage, batchSize);
+
+                deletion.addDeleted(stage, num);
+                deletion.setUpdatedAt(new Date());
+                flowDeletionDao.save(deletion);
+
+                if (num < batchSize) {
+                    break;
+                }
+
+                ThreadHelper.sleep(jobProperties.getDeleteIntervalMillis());
+            }
+
+            log.info("Deleted: {} {} of flow {}", deletion.getDeleted(stage), stage, deletion.getFlowName());
+        }
+
+        flowDeletionDao.deleteById(deletion.getId());
+
+        Flow flow = new Flow(deletion.getFlowName());
+        flow.setId(deletion.getId());
+
+        long numOfJobs = deletion.getDeleted(Stage.JOBS) + deletion.getDeleted(Stage.ARCHIVES);
+        eventManager.publish(new JobDeletedEvent(this, flow, numOfJobs));
+    }
+
+    private long deleteBatch(String flowId, Stage stage, int size) throws IOException {
+        switch (stage) {
+            case JOBS:
+                return deleteJobs(Job.class, flowId, size);
+            case ARCHIVES:
+                return deleteJobs(JobArchive.class, flowId, size);
+            case STEPS:
+                return deleteByFlowId(Step.class, flowId, size);
+            case TASKS:
+                return deleteByFlowId(ExecutedLocalTask.class, flowId, size);
+            case AGENTS:
+                return deleteByFlowId(JobAgent.class, flowId, size);
+            case PRIORITIES:
+                return deleteByFlowId(JobPriority.class, flowId, size);
+            case CACHES:
+                return deleteByFlowId(JobCache.class, flowId, size);
+            case FILES:
+                return fileManager.removeDir(size, Flow.path(flowId));
+            case NUMBER:
+                jobNumberDao.deleteAllByFlowId(flowId);
+                return 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Delete a batch of jobs or archived jobs with yml, reports and artifacts of them
+     */
+    private long deleteJobs(Class<?> entity, String flowId, int size) {
+        List<Object> ids = findIds(entity, flowId, size);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        List<String> jobIds = ids.stream().map(Object::toString).collect(Collectors.toList());
+        remove(JobReport.class, fieldName(JobReport.class, "jobId"), jobIds);
+        remove(JobArtifact.class, fieldName(JobArtifact.class, "jobId"), jobIds);
+        remove(JobYml.class, Id, ids);
+
+        return remove(entity, Id, ids);
+    }
+
+    private long deleteByFlowId(Class<?> entity, String flowId, int size) {
+        List<Object> ids = findIds(entity, flowId, size);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return remove(entity, Id, ids);
+    }
+
+    /**
+     * Find raw document ids by flow id, the ids are used to delete in the same type as stored
+     */
+    private List<Object> findIds(Class<?> entity, String flowId, int size) {
+        Query query = new Query(Criteria.where(fieldName(entity, "flowId")).is(flowId)).limit(size);
+        query.fields().include(Id);
+
+        return operations.find(query, Document.class, operations.getCollectionName(entity))
+                .stream()
+                .map(doc -> doc.get(Id))
+                .collect(Collectors.toList());
+    }
+
+    private long remove(Class<?> entity, String field, Collection<?> values) {
+        Query query = new Query(Criteria.where(field).in(values));
+        return operations.remove(query, operations.getCollectionName(entity)).getDeletedCount();
+    }
+
+    private String fieldName(Class<?> entity, String property) {
+        return operations.getConverter()
+                .getMappingContext()
+                .getRequiredPersistentEntity(entity)
+                .getRequiredPersistentProperty(property)
+                .getFieldName();
+    }
+}
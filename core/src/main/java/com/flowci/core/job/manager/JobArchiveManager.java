@@ -0,0 +1,317 @@
+package com.flowci.core.job.manager;
+
+import com.flowci.core.common.config.AppProperties;
+import com.flowci.core.common.helper.CacheHelper;
+import com.flowci.core.common.helper.ThreadHelper;
+import com.flowci.core.common.manager.SpringTaskManager;
+import com.flowci.core.flow.dao.FlowDao;
+import com.flowci.core.flow.domain.Flow;
+import com.flowci.core.job.dao.*;
+import com.flowci.core.job.domain.*;
+import com.flowci.exception.CIException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.mongodb.MongoClient;
+import lombok.extern.log4j.Log4j2;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Move finished jobs older than the archive policy of flow from hot collections (job, executed_cmd,
+ * job_yml, executed_local_task) into one compressed document of job_archive.
+ * <p>
+ * Jobs are archived in background by batch per flow with a pause between jobs, and read back
+ * transparently by job, step and local task services when not found in hot collections.
+ *
+ * @author yang
+ */
+@Log4j2
+@Component
+public class JobArchiveManager {
+
+    private static final String TaskName = "job-archive";
+
+    private static final String Items = "items";
+
+    private static final DocumentCodec Codec = new DocumentCodec(MongoClient.getDefaultCodecRegistry());
+
+    // key as job id, archived job is read multiple times when it's opened
+    private final Cache<String, JobArchive> archives = CacheHelper.createLocalCache(50, 60);
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Autowired
+    private AppProperties.Job jobProperties;
+
+    @Autowired
+    private MongoOperations operations;
+
+    @Autowired
+    private FlowDao flowDao;
+
+    @Autowired
+    private JobDao jobDao;
+
+    @Autowired
+    private ExecutedCmdDao executedCmdDao;
+
+    @Autowired
+    private ExecutedLocalTaskDao executedLocalTaskDao;
+
+    @Autowired
+    private JobYmlDao jobYmlDao;
+
+    @Autowired
+    private JobArchiveDao jobArchiveDao;
+
+    @Autowired
+    private SpringTaskManager taskManager;
+
+    @Autowired
+    private TaskExecutor jobArchiveExecutor;
+
+    /**
+     * Archive finished job, the job is removed from hot collections only if it's still finished,
+     * and the archive is dropped otherwise, ex: job restarted while archiving
+     *
+     * @return true if archived
+     */
+    public boolean archive(Job job) {
+        String jobId = job.getId();
+        List<Step> steps = executedCmdDao.findAllByFlowIdAndBuildNumber(job.getFlowId(), job.getBuildNumber());
+        List<ExecutedLocalTask> tasks = executedLocalTaskDao.findAllByJobId(jobId);
+        Optional<JobYml> yml = jobYmlDao.findById(jobId);
+
+        JobArchive archive = new JobArchive()
+                .setId(jobId)
+                .setFlowId(job.getFlowId())
+                .setBuildNumber(job.getBuildNumber())
+                .setKey(job.getKey())
+                .setItem(JobItem.of(job))
+                .setJob(compress(job))
+                .setSteps(compress(steps))
+                .setTasks(compress(tasks))
+                .setYml(yml.map(this::compress).orElse(null))
+                .setArchivedAt(new Date());
+
+        jobArchiveDao.save(archive);
+
+        if (jobDao.deleteFinished(jobId) == 0) {
+            jobArchiveDao.deleteById(jobId);
+            return false;
+        }
+
+        executedCmdDao.deleteByJobId(jobId);
+        executedLocalTaskDao.deleteAllByJobId(jobId);
+        jobYmlDao.deleteById(jobId);
+        return true;
+    }
+
+    /**
+     * Move archived job back to hot collections
+     *
+     * @return false if job is not archived
+     */
+    public boolean restore(String jobId) {
+        Optional<JobArchive> optional = jobArchiveDao.findById(jobId);
+        if (!optional.isPresent()) {
+            return false;
+        }
+
+        JobArchive archive = optional.get();
+        executedCmdDao.saveAll(decompressList(archive.getSteps(), Step.class));
+        executedLocalTaskDao.saveAll(decompressList(archive.getTasks(), ExecutedLocalTask.class));
+
+        if (archive.getYml() != null) {
+            jobYmlDao.save(decompress(archive.getYml(), JobYml.class));
+        }
+
+        jobDao.save(decompress(archive.getJob(), Job.class));
+        jobArchiveDao.deleteById(jobId);
+        archives.invalidate(jobId);
+
+        log.info("Job {} restored from archive", jobId);
+        return true;
+    }
+
+    public Optional<Job> get(String jobId) {
+        return load(jobId).map(archive -> decompress(archive.getJob(), Job.class));
+    }
+
+    public Optional<Job> getByKey(String key) {
+        Optional<JobArchive> optional = jobArchiveDao.findByKey(key);
+        optional.ifPresent(archive -> archives.put(archive.getId(), archive));
+        return optional.map(archive -> decompress(archive.getJob(), Job.class));
+    }
+
+    public Optional<JobYml> getYml(String jobId) {
+        return load(jobId)
+                .filter(archive -> archive.getYml() != null)
+                .map(archive -> decompress(archive.getYml(), JobYml.class));
+    }
+
+    public Optional<List<Step>> listSteps(String jobId) {
+        return load(jobId).map(archive -> decompressList(archive.getSteps(), Step.class));
+    }
+
+    public Optional<List<ExecutedLocalTask>> listTasks(String jobId) {
+        return load(jobId).map(archive -> decompressList(archive.getTasks(), ExecutedLocalTask.class));
+    }
+
+    public List<JobItem> listBefore(String flowId, long buildNumber, int size) {
+        return jobArchiveDao.findAllItemsByFlowIdBefore(flowId, buildNumber, size);
+    }
+
+    public List<JobItem> listBetween(String flowId, long after, long before) {
+        return jobArchiveDao.findAllItemsByFlowIdBetween(flowId, after, before);
+    }
+
+    /**
+     * Archive on single thread of own executor, to not block other scheduled tasks
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000)
+    public void scheduleArchive() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            jobArchiveExecutor.execute(() -> {
+                try {
+                    taskManager.run(TaskName, false, this::archiveAll);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (Exception e) {
+            running.set(false);
+            log.warn("Unable to start job archiving: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Archive a batch of jobs for each flow, the rest will be archived in the next round
+     */
+    private void archiveAll() {
+        for (Flow flow : flowDao.findAll()) {
+            int days = Optional.ofNullable(flow.getArchiveAfterDays()).orElse(jobProperties.getArchiveAfterDays());
+            if (days <= 0) {
+                continue;
+            }
+
+            Date before = Date.from(Instant.now().minus(days, ChronoUnit.DAYS));
+            List<Job> jobs = jobDao.findAllFinishedBefore(flow.getId(), before, jobProperties.getArchiveBatchSize());
+
+            int numOfArchived = 0;
+            for (Job job : jobs) {
+                try {
+                    if (archive(job)) {
+                        numOfArchived++;
+                    }
+                } catch (Exception e) {
+                    log.warn("Unable to archive job {}: {}", job.getId(), e.getMessage());
+                }
+
+                ThreadHelper.sleep(jobProperties.getArchiveIntervalMillis());
+            }
+
+            if (numOfArchived > 0) {
+                log.info("{} jobs of flow {} archived", numOfArchived, flow.getName());
+            }
+        }
+    }
+
+    private Optional<JobArchive> load(String jobId) {
+        return Optional.ofNullable(archives.get(jobId, id -> jobArchiveDao.findById(id).orElse(null)));
+    }
+
+    private byte[] compress(Object entity) {
+        Document doc = new Document();
+        converter().write(entity, doc);
+        return gzip(encode(doc));
+    }
+
+    private byte[] compress(List<?> entities) {
+        List<Document> docs = new ArrayList<>(entities.size());
+        for (Object entity : entities) {
+            Document doc = new Document();
+            converter().write(entity, doc);
+            docs.add(doc);
+        }
+        return gzip(encode(new Document(Items, docs)));
+    }
+
+    private <T> T decompress(byte[] bytes, Class<T> type) {
+        return converter().read(type, decode(gunzip(bytes)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> decompressList(byte[] bytes, Class<T> type) {
+        List<Document> docs = (List<Document>) decode(gunzip(bytes)).get(Items);
+        return docs.stream().map(doc -> converter().read(type, doc)).collect(Collectors.toList());
+    }
+
+    private MongoConverter converter() {
+        return operations.getConverter();
+    }
+
+    private static byte[] encode(Document doc) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            Codec.encode(writer, doc, EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Document decode(byte[] bytes) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+            return Codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new CIException("Unable to compress job archive: {0}", e.getMessage());
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = gzip.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new CIException("Unable to decompress job archive: {0}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.flowci.core.job.manager;
+
+import com.flowci.exception.StatusException;
+import com.flowci.zookeeper.ChildrenListener;
+import com.flowci.zookeeper.ConnectionListener;
+import com.flowci.zookeeper.CoordinationProvider;
+import com.flowci.zookeeper.InterLock;
+import com.flowci.zookeeper.ZookeeperException;
+import lombok.extern.log4j.Log4j2;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.utils.ZKPaths;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Job lock as a lease owned by server node, so chained transitions and bursts of callbacks
+ * of the same job on the owner node do not go to the coordination provider.
+ * <p>
+ * The lease is an ephemeral node {lease root}/{job id} with data of node id, threads of the owner node
+ * are serialized by a local reentrant lock. Ownership is verified after the renew interval, released
+ * after idle for a while or job finished, and handed off explicitly when other node requests the job.
+ * <p>
+ * Ownership of all leases is dropped once connection suspended or lost, and of the lease if its node removed,
+ * so the lease must be verified or claimed again before next transition.
+ *
+ * @author yang
+ */
+@Log4j2
+public class JobLeaseManager {
+
+    private static final long HandoffPollInterval = 50;
+
+    private final CoordinationProvider coordination;
+
+    private final String root;
+
+    private final String nodeId;
+
+    private final byte[] nodeIdBytes;
+
+    // send handoff request with job id and requester node id to all nodes
+    private final BiConsumer<String, String> handoffRequester;
+
+    private final Executor executor;
+
+    private final long renewIntervalInMillis;
+
+    private final long idleTimeInMillis;
+
+    // key as job id
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    public JobLeaseManager(CoordinationProvider coordination,
+                           String root,
+                           String nodeId,
+                           BiConsumer<String, String> handoffRequester,
+                           Executor executor,
+                           int renewIntervalInSeconds,
+                           int idleTimeInSeconds) {
+        this.coordination = coordination;
+        this.root = root;
+        this.nodeId = nodeId;
+        this.nodeIdBytes = nodeId.getBytes(StandardCharsets.UTF_8);
+        this.handoffRequester = handoffRequester;
+        this.executor = executor;
+        this.renewIntervalInMillis = renewIntervalInSeconds * 1000L;
+        this.idleTimeInMillis = idleTimeInSeconds * 1000L;
+
+        coordination.addConnectionListener(this::onConnectionStateChanged);
+
+        if (!coordination.watchChildren(root, this::onLeaseChanged)) {
+            log.warn("Unable to watch job leases of {}", root);
+        }
+    }
+
+    /**
+     * Lock the job on current thread, the lease will be claimed if not owned by current node
+     */
+    public Optional<InterLock> acquire(String jobId, int timeoutInSeconds) {
+        long deadline = System.currentTimeMillis() + timeoutInSeconds * 1000L;
+
+        try {
+            while (true) {
+                Lease lease = leases.computeIfAbsent(jobId, Lease::new);
+                long remaining = Math.max(deadline - System.currentTimeMillis(), 0);
+
+                if (!lease.local.tryLock(remaining, TimeUnit.MILLISECONDS)) {
+                    return Optional.empty();
+                }
+
+                // lease been released by other thread while waiting
+                if (lease.released) {
+                    lease.local.unlock();
+                    continue;
+                }
+
+                if (ensureOwned(lease, deadline)) {
+                    lease.lastUsedAt = System.currentTimeMillis();
+                    return Optional.of(new InterLock(getPath(jobId), lease));
+                }
+
+                lease.local.unlock();
+                return Optional.empty();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Unlock the job on current thread, the lease is kept by current node
+     */
+    public void release(InterLock lock) {
+        try {
+            lock.getLock().release();
+        } catch (Exception e) {
+            throw new StatusException("Unable to release lock of {0}: {1}", lock.getPath(), e.getMessage());
+        }
+    }
+
+    public boolean isOwned(String jobId) {
+        Lease lease = leases.get(jobId);
+        return lease != null && lease.owned;
+    }
+
+    /**
+     * Give up the lease after current holder finished, if requested by other node
+     */
+    public void onHandoffRequest(String jobId, String requester) {
+        if (Objects.equals(requester, nodeId) || !isOwned(jobId)) {
+            return;
+        }
+
+        executor.execute(() -> {
+            log.debug("Hand off lease of job {} to node {}", jobId, requester);
+            expire(jobId);
+        });
+    }
+
+    /**
+     * Release lease of the job, waiting for the current holder
+     */
+    public void expire(String jobId) {
+        Lease lease = leases.get(jobId);
+        if (lease == null) {
+            return;
+        }
+
+        lease.local.lock();
+        try {
+            releaseLease(lease);
+        } finally {
+            lease.local.unlock();
+        }
+    }
+
+    /**
+     * Release leases not used within idle time and not locked by any thread
+     */
+    public void expireIdle(long now) {
+        for (Lease lease : leases.values()) {
+            if (now - lease.lastUsedAt < idleTimeInMillis || lease.local.isLocked() || !lease.local.tryLock()) {
+                continue;
+            }
+
+            try {
+                if (now - lease.lastUsedAt >= idleTimeInMillis) {
+                    releaseLease(lease);
+                }
+            } finally {
+                lease.local.unlock();
+            }
+        }
+    }
+
+    /**
+     * Lease nodes might be removed if session lost, or not visible to other nodes while suspended
+     */
+    public void onConnectionStateChanged(ConnectionListener.State state) {
+        if (state != ConnectionListener.State.Suspended && state != ConnectionListener.State.Lost) {
+            return;
+        }
+
+        log.warn("Connection {}, ownership of {} job leases dropped", state, leases.size());
+        for (Lease lease : leases.values()) {
+            lease.owned = false;
+        }
+    }
+
+    public int size() {
+        return leases.size();
+    }
+
+    public void close() {
+        for (String jobId : leases.keySet()) {
+            expire(jobId);
+        }
+    }
+
+    /**
+     * Verify or claim the lease, must be called with local lock
+     */
+    private boolean ensureOwned(Lease lease, long deadline) throws InterruptedException {
+        long now = System.currentTimeMillis();
+
+        if (lease.owned) {
+            if (now - lease.verifiedAt < renewIntervalInMillis) {
+                return true;
+            }
+
+            if (isOwner(lease.path)) {
+                lease.verifiedAt = now;
+                return true;
+            }
+
+            log.warn("Lease of job {} is lost", lease.jobId);
+            lease.owned = false;
+        }
+
+        boolean requested = false;
+
+        while (true) {
+            if (coordination.claim(lease.path, nodeIdBytes) || isOwner(lease.path)) {
+                lease.owned = true;
+                lease.verifiedAt = System.currentTimeMillis();
+                return true;
+            }
+
+            if (!requested) {
+                handoffRequester.accept(lease.jobId, nodeId);
+                requested = true;
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+
+            Thread.sleep(HandoffPollInterval);
+        }
+    }
+
+    private void onLeaseChanged(ChildrenListener.Type type, String path, byte[] data) {
+        if (type != ChildrenListener.Type.Removed) {
+            return;
+        }
+
+        Lease lease = leases.get(ZKPaths.getNodeFromPath(path));
+        if (lease != null && lease.owned) {
+            log.debug("Lease node of job {} is removed", lease.jobId);
+            lease.owned = false;
+        }
+    }
+
+    private void releaseLease(Lease lease) {
+        if (lease.released) {
+            return;
+        }
+
+        if (lease.owned && isOwner(lease.path)) {
+            coordination.unclaim(lease.path);
+        }
+
+        lease.owned = false;
+        lease.released = true;
+        leases.remove(lease.jobId, lease);
+    }
+
+    private boolean isOwner(String path) {
+        try {
+            byte[] owner = coordination.get(path);
+            return new String(owner, StandardCharsets.UTF_8).equals(nodeId);
+        } catch (ZookeeperException e) {
+            return false;
+        }
+    }
+
+    private String getPath(String jobId) {
+        return coordination.makePath(root, jobId);
+    }
+
+    private final class Lease implements InterProcessLock {
+
+        private final String jobId;
+
+        private final String path;
+
+        private final ReentrantLock local = new ReentrantLock();
+
+        // fields below are updated with local lock held
+
+        private volatile boolean owned;
+
+        private volatile boolean released;
+
+        private volatile long verifiedAt;
+
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        Lease(String jobId) {
+            this.jobId = jobId;
+            this.path = getPath(jobId);
+        }
+
+        @Override
+        public void acquire() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void release() {
+            local.unlock();
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return local.isLocked();
+        }
+    }
+}
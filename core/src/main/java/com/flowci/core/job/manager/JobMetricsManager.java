@@ -0,0 +1,126 @@
+package com.flowci.core.job.manager;
+
+import com.flowci.core.agent.event.OnShellLogEvent;
+import com.flowci.core.common.helper.CacheHelper;
+import com.flowci.core.job.domain.Job;
+import com.flowci.core.job.domain.Step;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static com.flowci.core.common.config.MetricsConfig.*;
+
+/**
+ * Timers of job lifecycle, tagged by flow name, plugin name and status only,
+ * distinct flow and plugin values are bounded by the tag limit filter.
+ * <p>
+ * Dispatch to first log is recorded only if the agent is connected to the node which dispatched the step.
+ *
+ * @author yang
+ */
+@Component
+public class JobMetricsManager {
+
+    public static final String QueueWait = "flowci.job.queue.wait";
+
+    public static final String PriorityWait = "flowci.job.priority.wait";
+
+    public static final String AgentAcquire = "flowci.job.agent.acquire";
+
+    public static final String ConditionEval = "flowci.job.condition";
+
+    public static final String Callback = "flowci.job.callback";
+
+    public static final String FirstLog = "flowci.step.first.log";
+
+    public static final String StepDuration = "flowci.step.duration";
+
+    private static final String NoPlugin = "none";
+
+    private static final int DispatchedTimeoutSeconds = 600;
+
+    // key as step id, value as dispatched step
+    private final Cache<String, Dispatched> dispatched =
+            CacheHelper.createLocalCache(10000, DispatchedTimeoutSeconds);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Record time from job queued to running, the queued time is the last update time of job
+     */
+    public void recordQueueWait(Job job, Date queuedAt) {
+        if (Objects.isNull(queuedAt)) {
+            return;
+        }
+
+        long millis = System.currentTimeMillis() - queuedAt.getTime();
+        timer(meterRegistry, QueueWait, Tags.of(TagFlow, job.getFlowName()))
+                .record(Math.max(millis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record time from start in nanos with tags of flow and extra tag pairs
+     */
+    public void record(String metric, Job job, long start, String... tags) {
+        timer(meterRegistry, metric, Tags.of(tags).and(TagFlow, job.getFlowName()))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStep(Job job, Step step) {
+        if (!step.isFinished() || Objects.isNull(step.getStartAt()) || Objects.isNull(step.getFinishAt())) {
+            return;
+        }
+
+        long millis = step.getFinishAt().getTime() - step.getStartAt().getTime();
+        timer(meterRegistry, StepDuration, stepTags(job.getFlowName(), step.getPlugin())
+                .and(TagStatus, step.getStatus().name()))
+                .record(Math.max(millis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    public void onDispatched(Job job, Step step) {
+        dispatched.put(step.getId(), new Dispatched(job.getFlowName(), step.getPlugin(), System.nanoTime()));
+    }
+
+    @EventListener
+    public void onShellLog(OnShellLogEvent event) {
+        Dispatched step = dispatched.getIfPresent(event.getStepId());
+        if (Objects.isNull(step)) {
+            return;
+        }
+
+        dispatched.invalidate(event.getStepId());
+        timer(meterRegistry, FirstLog, stepTags(step.flow, step.plugin))
+                .record(System.nanoTime() - step.at, TimeUnit.NANOSECONDS);
+    }
+
+    private static Tags stepTags(String flow, String plugin) {
+        return Tags.of(
+                Tag.of(TagFlow, flow),
+                Tag.of(TagPlugin, Objects.isNull(plugin) ? NoPlugin : plugin)
+        );
+    }
+
+    private static final class Dispatched {
+
+        private final String flow;
+
+        private final String plugin;
+
+        private final long at;
+
+        Dispatched(String flow, String plugin, long at) {
+            this.flow = flow;
+            this.plugin = plugin;
+            this.at = at;
+        }
+    }
+}
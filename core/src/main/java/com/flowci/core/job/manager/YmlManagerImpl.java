@@ -43,6 +43,9 @@ public class YmlManagerImpl implements YmlManager {
     @Autowired
     private JobYmlDao jobYmlDao;
 
+    @Autowired
+    private JobArchiveManager jobArchiveManager;
+
     @Override
     public FlowNode parse(String yml) {
         return YmlParser.load(yml);
@@ -56,6 +59,11 @@ public class YmlManagerImpl implements YmlManager {
             return optional.get();
         }
 
+        Optional<JobYml> archived = jobArchiveManager.getYml(job.getId());
+        if (archived.isPresent()) {
+            return archived.get();
+        }
+
         throw new NotFoundException("The yml for job {0} is not existed", job.getId());
     }
 
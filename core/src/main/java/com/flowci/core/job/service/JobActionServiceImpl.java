@@ -19,11 +19,14 @@ package com.flowci.core.job.service;
 import com.flowci.core.agent.domain.*;
 import com.flowci.core.agent.event.IdleAgentEvent;
 import com.flowci.core.agent.service.AgentService;
+import com.flowci.core.common.config.MetricsConfig;
+import com.flowci.core.common.domain.TraceContext;
 import com.flowci.core.common.domain.Variables;
 import com.flowci.core.common.git.GitClient;
 import com.flowci.core.common.helper.ThreadHelper;
 import com.flowci.core.common.manager.ConditionManager;
 import com.flowci.core.common.manager.SpringEventManager;
+import com.flowci.core.common.manager.TraceManager;
 import com.flowci.core.common.rabbit.RabbitOperations;
 import com.flowci.core.job.dao.JobAgentDao;
 import com.flowci.core.job.dao.JobDao;
@@ -32,12 +35,14 @@ import com.flowci.core.job.domain.*;
 import com.flowci.core.job.event.JobReceivedEvent;
 import com.flowci.core.job.event.JobStatusChangeEvent;
 import com.flowci.core.job.manager.CmdManager;
+import com.flowci.core.job.manager.JobMetricsManager;
 import com.flowci.core.job.manager.YmlManager;
 import com.flowci.core.job.util.Errors;
 import com.flowci.core.job.util.StatusHelper;
 import com.flowci.core.secret.domain.Secret;
 import com.flowci.core.secret.service.SecretService;
 import com.flowci.domain.SimpleSecret;
+import com.flowci.domain.StringVars;
 import com.flowci.domain.Vars;
 import com.flowci.exception.CIException;
 import com.flowci.exception.NotAvailableException;
@@ -47,9 +52,11 @@ import com.flowci.tree.*;
 import com.flowci.util.ObjectsHelper;
 import com.flowci.util.StringHelper;
 import com.flowci.zookeeper.InterLock;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import groovy.util.ScriptException;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -57,12 +64,12 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static com.flowci.core.job.domain.Executed.Status.RUNNING;
 import static com.flowci.core.job.domain.Executed.Status.WAITING_AGENT;
@@ -115,6 +122,9 @@ public class JobActionServiceImpl implements JobActionService {
 
     private static final long RetryInterval = 10 * 1000; // 10 seconds
 
+    private static final TraceContext.Scope NoTraceScope = () -> {
+    };
+
     @Autowired
     private Path repoDir;
 
@@ -163,6 +173,17 @@ public class JobActionServiceImpl implements JobActionService {
     @Autowired
     private StateMachine<JobSmContext> sm;
 
+    @Autowired
+    private JobMetricsManager jobMetricsManager;
+
+    @Autowired
+    private TraceManager traceManager;
+
+    @Autowired
+    private Cache<String, String> repoYamlCache;
+
+    private final Striped<Lock> repoLocks = Striped.lazyWeakLock(32);
+
     @EventListener
     public void init(ContextRefreshedEvent ignore) {
         try {
@@ -174,6 +195,7 @@ public class JobActionServiceImpl implements JobActionService {
             fromCancelling();
 
             sm.addHookActionOnTargetStatus(new ActionOnFinishStatus(), Success, Failure, Timeout, Cancelled);
+            sm.compile();
         } catch (SmException.TransitionExisted ignored) {
         }
     }
@@ -225,47 +247,60 @@ public class JobActionServiceImpl implements JobActionService {
 
     @Override
     public void toLoading(String jobId) {
-        onTransition(jobId, Loading, null);
+        onTransition(jobId, Loading, "job.loading", null);
     }
 
     @Override
     public void toCreated(String jobId, String yml) {
-        onTransition(jobId, Created, context -> {
+        onTransition(jobId, Created, "job.created", context -> {
             context.setYml(yml);
         });
     }
 
     @Override
     public void toStart(String jobId) {
-        onTransition(jobId, Queued, null);
+        onTransition(jobId, Queued, "job.enqueue", null);
     }
 
     @Override
     public void toRun(String jobId) {
-        onTransition(jobId, Running, null);
+        onTransition(jobId, Running, "job.run", null);
     }
 
     @Override
     public void toContinue(String jobId, ShellOut so) {
-        onTransition(jobId, Running, c -> {
-            Step step = stepService.get(so.getId());
-            step.setFrom(so);
-            stepService.resultUpdate(step);
-            log.info("[Callback]: {}-{} = {}", step.getJobId(), step.getNodePath(), step.getStatus());
-
-            c.setStep(step);
-            Job job = c.getJob();
-            log.debug("---- Job Status {} {} {} {}", job.isOnPostSteps(), step.getNodePath(), job.getStatus(), job.getStatusFromContext());
-
-            if (job.isCancelling()) {
-                c.setTo(Cancelled);
-            }
-        });
+        long start = System.nanoTime();
+        Optional<TraceContext> stepTrace = TraceContext.parse(so.getTraceParent());
+
+        // callback span as child of step span if traceparent echoed back by agent
+        JobSmContext context;
+        try (TraceContext.Scope ignored = stepTrace.map(TraceContext::activate).orElse(NoTraceScope)) {
+            context = onTransition(jobId, Running, "job.callback", c -> {
+                Step step = stepService.get(so.getId());
+                step.setFrom(so);
+                stepService.resultUpdate(step);
+                log.info("[Callback]: {}-{} = {}", step.getJobId(), step.getNodePath(), step.getStatus());
+
+                c.setStep(step);
+                Job job = c.getJob();
+                jobMetricsManager.recordStep(job, step);
+                recordStepSpan(job, step, stepTrace);
+                log.debug("---- Job Status {} {} {} {}", job.isOnPostSteps(), step.getNodePath(), job.getStatus(), job.getStatusFromContext());
+
+                if (job.isCancelling()) {
+                    c.setTo(Cancelled);
+                }
+            });
+        }
+
+        if (context != null) {
+            jobMetricsManager.record(JobMetricsManager.Callback, context.getJob(), start);
+        }
     }
 
     @Override
     public void toCancelled(String jobId, CIException exception) {
-        onTransition(jobId, Cancelled, context -> {
+        onTransition(jobId, Cancelled, "job.cancel", context -> {
             context.setError(exception);
 
             Job job = context.getJob();
@@ -280,7 +315,7 @@ public class JobActionServiceImpl implements JobActionService {
 
     @Override
     public void toTimeout(String jobId) {
-        onTransition(jobId, Timeout, null);
+        onTransition(jobId, Timeout, "job.timeout", null);
     }
 
     private void fromPending() {
@@ -404,13 +439,24 @@ public class JobActionServiceImpl implements JobActionService {
             @Override
             public void accept(JobSmContext context) throws Exception {
                 Job job = context.getJob();
+                Date queuedAt = job.getUpdatedAt();
                 eventManager.publish(new JobReceivedEvent(this, job));
 
-                jobPriorityDao.addJob(job.getFlowId(), job.getBuildNumber());
-                if (!waitIfJobNotOnTopPriority(context)) {
+                long start = System.nanoTime();
+                boolean onTop;
+
+                try (TraceManager.ActiveSpan ignored = traceManager.start("job.priority")) {
+                    jobPriorityDao.addJob(job.getFlowId(), job.getBuildNumber());
+                    onTop = waitIfJobNotOnTopPriority(context);
+                    jobMetricsManager.record(JobMetricsManager.PriorityWait, job, start);
+                }
+
+                if (!onTop) {
                     return;
                 }
 
+                jobMetricsManager.recordQueueWait(job, queuedAt);
+                recordJobSpan(job, "job.queue", queuedAt, new Date());
                 job.setStartAt(new Date());
                 setJobStatusAndSave(job, Job.Status.RUNNING, null);
 
@@ -689,7 +735,7 @@ public class JobActionServiceImpl implements JobActionService {
         Selector selector = flow.fetchSelector();
 
         // find agent outside job, blocking thread
-        Optional<Agent> optional = agentService.acquire(job.getId(), selector);
+        Optional<Agent> optional = agentService.acquire(job.getId(), selector, flow.fetchResources());
         if (optional.isPresent()) {
             Agent agent = optional.get();
             AgentProfile profile = agentService.getProfile(agent.getToken());
@@ -702,6 +748,20 @@ public class JobActionServiceImpl implements JobActionService {
         return Optional.empty();
     }
 
+    private Optional<Agent> acquireAgent(Job job, String source, Supplier<Optional<Agent>> fetcher) {
+        long start = System.nanoTime();
+
+        try (TraceManager.ActiveSpan span = traceManager.start("agent.acquire")) {
+            Optional<Agent> agent = fetcher.get();
+            String status = agent.isPresent() ? "acquired" : "none";
+
+            span.tag("source", source).tag("status", status);
+            jobMetricsManager.record(JobMetricsManager.AgentAcquire, job, start,
+                    "source", source, MetricsConfig.TagStatus, status);
+            return agent;
+        }
+    }
+
     private boolean assignAgentToWaitingStep(String agentId, Job job, NodeTree tree, boolean shouldIdle) {
         List<Step> steps = stepService.list(job, Lists.newArrayList(WAITING_AGENT));
         if (steps.isEmpty()) {
@@ -815,68 +875,102 @@ public class JobActionServiceImpl implements JobActionService {
         stepService.toStatus(steps, Step.Status.KILLING, null);
     }
 
-    private void onTransition(String jobId, Status to, Consumer<JobSmContext> onContext) {
+    /**
+     * @return context of executed transition, or null if job cannot be locked
+     */
+    private JobSmContext onTransition(String jobId, Status to, String spanName, Consumer<JobSmContext> onContext) {
         Optional<InterLock> lock = jobService.lock(jobId);
 
         if (!lock.isPresent()) {
             Job job = getJob(jobId);
             toFailureStatus(job, new CIException("Fail to lock job"));
-            return;
+            return null;
         }
 
         log.debug("Job {} is locked", jobId);
         Job job = getJob(jobId);
 
-        JobSmContext context = new JobSmContext(jobId);
-        context.setLock(lock.get());
-        context.setJob(job);
-        context.setCurrent(new Status(job.getStatus().name()));
-        context.setTo(to);
+        try (TraceContext.Scope ignored = activateTrace(job);
+             TraceManager.ActiveSpan span = traceManager.start(spanName)) {
+            span.tag("flow", job.getFlowName()).tag("from", job.getStatus().name());
 
-        if (onContext != null) {
-            onContext.accept(context);
-        }
+            JobSmContext context = new JobSmContext(jobId);
+            context.setLock(lock.get());
+            context.setJob(job);
+            context.setCurrent(new Status(job.getStatus().name()));
+            context.setTo(to);
 
-        sm.execute(context);
+            if (onContext != null) {
+                onContext.accept(context);
+            }
+
+            sm.execute(context);
+            return context;
+        }
     }
 
+    /**
+     * Load yaml from the head commit of yaml branch, the yaml is cached by repo and commit id,
+     * and only the file blob will be read from the local bare repo without checkout
+     */
     private String fetchYamlFromGit(Job job) {
         final String gitUrl = job.getGitUrl();
+        final String branch = job.getYamlRepoBranch();
 
         if (!StringHelper.hasValue(gitUrl)) {
             throw new NotAvailableException("Git url is missing");
         }
 
-        final Path dir = getFlowRepoDir(gitUrl, job.getYamlRepoBranch());
+        final GitClient client = new GitClient(gitUrl, tmpDir, getSimpleSecret(job.getCredentialName()));
+        final Lock lock = repoLocks.get(gitUrl);
 
         try {
-            GitClient client = new GitClient(gitUrl, tmpDir, getSimpleSecret(job.getCredentialName()));
-            client.klone(dir, job.getYamlRepoBranch());
-        } catch (Exception e) {
-            throw new NotAvailableException("Unable to fetch yaml config for flow");
-        }
+            Optional<String> commitId = client.headCommit(branch);
+            if (!commitId.isPresent()) {
+                throw new NotAvailableException("Branch {0} not found in repo", branch);
+            }
 
-        String[] files = dir.toFile().list((currentDir, fileName) ->
-                (fileName.endsWith(".yaml") || fileName.endsWith(".yml")) && fileName.startsWith(".flowci"));
+            String cacheKey = gitUrl + "@" + commitId.get();
+            String yml = repoYamlCache.getIfPresent(cacheKey);
+            if (yml != null) {
+                return yml;
+            }
 
-        if (files == null || files.length == 0) {
-            throw new NotAvailableException("Unable to find yaml file in repo");
-        }
+            // serialize access to the same local repo
+            lock.lock();
+            try {
+                yml = repoYamlCache.getIfPresent(cacheKey);
+                if (yml != null) {
+                    return yml;
+                }
 
-        try {
-            byte[] ymlInBytes = Files.readAllBytes(Paths.get(dir.toString(), files[0]));
-            return new String(ymlInBytes);
-        } catch (IOException e) {
-            throw new NotAvailableException("Unable to read yaml file in repo").setExtra(job);
+                Optional<byte[]> content = client.fetchFile(getRepoDir(gitUrl), branch, commitId.get(), fileName ->
+                        (fileName.endsWith(".yaml") || fileName.endsWith(".yml")) && fileName.startsWith(".flowci"));
+
+                if (!content.isPresent()) {
+                    throw new NotAvailableException("Unable to find yaml file in repo");
+                }
+
+                yml = new String(content.get());
+                repoYamlCache.put(cacheKey, yml);
+                return yml;
+            } finally {
+                lock.unlock();
+            }
+        } catch (CIException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Unable to fetch yaml from {} on branch {}", gitUrl, branch, e);
+            throw new NotAvailableException("Unable to fetch yaml config for flow: {0}", e, e.getMessage());
         }
     }
 
     /**
-     * Get flow repo path: {repo dir}/{flow id}
+     * Get local bare repo path: {repo dir}/{b64 of repo url}.git
      */
-    private Path getFlowRepoDir(String repoUrl, String branch) {
-        String b64 = Base64.getEncoder().encodeToString(repoUrl.getBytes());
-        return Paths.get(repoDir.toString(), b64 + "_" + branch);
+    private Path getRepoDir(String repoUrl) {
+        String b64 = Base64.getUrlEncoder().encodeToString(repoUrl.getBytes());
+        return Paths.get(repoDir.toString(), b64 + ".git");
     }
 
     private SimpleSecret getSimpleSecret(String credentialName) {
@@ -980,13 +1074,13 @@ public class JobActionServiceImpl implements JobActionService {
             job.addToCurrentPath(step);
             jobDao.save(job);
 
-            Optional<Agent> optionalFromJob = fetchAgentFromJob(job, node);
+            Optional<Agent> optionalFromJob = acquireAgent(job, "job", () -> fetchAgentFromJob(job, node));
             if (optionalFromJob.isPresent()) {
                 dispatch(job, node, step, optionalFromJob.get());
                 continue;
             }
 
-            Optional<Agent> optionalFromPool = fetchAgentFromPool(job, node);
+            Optional<Agent> optionalFromPool = acquireAgent(job, "pool", () -> fetchAgentFromPool(job, node));
             if (optionalFromPool.isPresent()) {
                 Agent agent = optionalFromPool.get();
                 dispatch(job, node, step, agent);
@@ -1013,17 +1107,79 @@ public class JobActionServiceImpl implements JobActionService {
             return true;
         }
 
-        Vars<String> inputs = node.fetchEnvs().merge(job.getContext());
-        return conditionManager.run(node.getCondition(), inputs);
+        Vars<String> inputs = new StringVars().overlay(job.getContext(), node.fetchEnvs());
+        long start = System.nanoTime();
+
+        if (!node.hasCondition()) {
+            return conditionManager.run(node.getCondition(), inputs);
+        }
+
+        try (TraceManager.ActiveSpan span = traceManager.start("job.condition")) {
+            span.tag("step.path", node.getPathAsString());
+            return conditionManager.run(node.getCondition(), inputs);
+        } finally {
+            jobMetricsManager.record(JobMetricsManager.ConditionEval, job, start);
+        }
     }
 
     private void dispatch(Job job, Node node, Step step, Agent agent) {
-        step.setAgentId(agent.getId());
-        stepService.toStatus(step, RUNNING, null, false);
+        try (TraceManager.ActiveSpan span = traceManager.start("step.dispatch")) {
+            span.tag("step.path", step.getNodePath()).tag("agent", agent.getName());
+
+            step.setAgentId(agent.getId());
+            stepService.toStatus(step, RUNNING, null, false);
+
+            ShellIn cmd = cmdManager.createShellCmd(job, step, node);
+            TraceContext.parse(job.getTraceParent()).ifPresent(c -> cmd.setTraceParent(c.newChild().toTraceParent()));
+
+            jobMetricsManager.onDispatched(job, step);
+            agentService.dispatch(cmd, agent);
+            logInfo(job, "send to agent: step={}, agent={}", node.getName(), agent.getName());
+        }
+    }
+
+    /**
+     * Record finished step as child span of job, the span id is from ShellIn if echoed back by agent
+     */
+    private void recordStepSpan(Job job, Step step, Optional<TraceContext> stepTrace) {
+        Optional<TraceContext> jobTrace = TraceContext.parse(job.getTraceParent());
+        if (!jobTrace.isPresent() || !step.isFinished()) {
+            return;
+        }
+
+        TraceContext parent = jobTrace.get();
+        TraceContext context = stepTrace
+                .filter(c -> c.getTraceId().equals(parent.getTraceId()))
+                .orElseGet(parent::newChild);
+
+        traceManager.record(context, parent.getSpanId(), "step", step.getStartAt(), step.getFinishAt(),
+                "step.path", step.getNodePath(),
+                "plugin", step.getPlugin(),
+                "status", step.getStatus().name(),
+                "agent.id", step.getAgentId());
+    }
+
+    private void recordJobSpan(Job job, String name, Date start, Date end) {
+        TraceContext.parse(job.getTraceParent()).ifPresent(parent -> {
+            traceManager.record(parent.newChild(), parent.getSpanId(), name, start, end);
+        });
+    }
+
+    /**
+     * Activate trace of job, unless the current thread is already in the same trace, ex: from webhook or step
+     */
+    private TraceContext.Scope activateTrace(Job job) {
+        Optional<TraceContext> jobTrace = TraceContext.parse(job.getTraceParent());
+        if (!jobTrace.isPresent()) {
+            return NoTraceScope;
+        }
+
+        Optional<TraceContext> current = TraceContext.current();
+        if (current.isPresent() && current.get().getTraceId().equals(jobTrace.get().getTraceId())) {
+            return NoTraceScope;
+        }
 
-        ShellIn cmd = cmdManager.createShellCmd(job, step, node);
-        agentService.dispatch(cmd, agent);
-        logInfo(job, "send to agent: step={}, agent={}", node.getName(), agent.getName());
+        return jobTrace.get().activate();
     }
 
     /**
@@ -16,7 +16,6 @@
 
 package com.flowci.core.job.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flowci.core.agent.domain.Agent;
 import com.flowci.core.agent.domain.CmdOut;
 import com.flowci.core.agent.domain.ShellOut;
@@ -26,6 +25,7 @@ import com.flowci.core.agent.event.OnCmdOutEvent;
 import com.flowci.core.common.config.AppProperties;
 import com.flowci.core.common.manager.ConditionManager;
 import com.flowci.core.common.manager.SpringEventManager;
+import com.flowci.core.common.manager.TraceManager;
 import com.flowci.core.common.rabbit.RabbitOperations;
 import com.flowci.core.flow.domain.Flow;
 import com.flowci.core.flow.event.FlowCreatedEvent;
@@ -45,7 +45,6 @@ import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.Arrays;
 
 @Log4j2
 @Service
@@ -54,9 +53,6 @@ public class JobEventServiceImpl implements JobEventService {
     @Autowired
     private AppProperties.RabbitMQ rabbitProperties;
 
-    @Autowired
-    private ObjectMapper objectMapper;
-
     @Autowired
     private SpringEventManager eventManager;
 
@@ -81,6 +77,9 @@ public class JobEventServiceImpl implements JobEventService {
     @Autowired
     private StepService stepService;
 
+    @Autowired
+    private TraceManager traceManager;
+
     //====================================================================
     //        %% Internal events
     //====================================================================
@@ -113,8 +112,10 @@ public class JobEventServiceImpl implements JobEventService {
                 boolean canCreateJob = true;
 
                 if (root.hasCondition()) {
-                    root.getEnvironments().merge(event.getInput());
-                    canCreateJob = conditionManager.run(root.getCondition(), root.getEnvironments());
+                    try (TraceManager.ActiveSpan ignored = traceManager.start("trigger.condition")) {
+                        root.getEnvironments().merge(event.getInput());
+                        canCreateJob = conditionManager.run(root.getCondition(), root.getEnvironments());
+                    }
                 }
 
                 if (!canCreateJob) {
@@ -148,27 +149,15 @@ public class JobEventServiceImpl implements JobEventService {
 
     @EventListener
     public void handleCmdOutFromAgent(OnCmdOutEvent event) {
-        byte[] raw = event.getRaw();
-        byte ind = raw[0];
-        byte[] body = Arrays.copyOfRange(raw, 1, raw.length);
+        CmdOut out = event.getOut();
 
-        try {
-            switch (ind) {
-                case CmdOut.ShellOutInd:
-                    ShellOut shellOut = objectMapper.readValue(body, ShellOut.class);
-                    handleCallback(shellOut);
-                    break;
-
-                case CmdOut.TtyOutInd:
-                    TtyCmd.Out ttyOut = objectMapper.readValue(body, TtyCmd.Out.class);
-                    eventManager.publish(new TtyStatusUpdateEvent(this, ttyOut));
-                    break;
-
-                default:
-                    log.warn("Invalid message from callback queue: {}", new String(raw));
-            }
-        } catch (IOException e) {
-            log.warn("Unable to decode message from callback queue: {}", new String(raw));
+        if (out instanceof ShellOut) {
+            handleCallback((ShellOut) out);
+            return;
+        }
+
+        if (out instanceof TtyCmd.Out) {
+            eventManager.publish(new TtyStatusUpdateEvent(this, (TtyCmd.Out) out));
         }
     }
 
@@ -16,6 +16,7 @@
 
 package com.flowci.core.job.service;
 
+import com.flowci.core.common.domain.Span;
 import com.flowci.core.flow.domain.Flow;
 import com.flowci.core.job.domain.Job;
 import com.flowci.core.job.domain.Job.Trigger;
@@ -27,6 +28,7 @@ import com.flowci.zookeeper.InterLock;
 import org.springframework.data.domain.Page;
 
 import javax.annotation.Nullable;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -56,16 +58,26 @@ public interface JobService {
      */
     JobYml getYml(Job job);
 
+    /**
+     * List spans of the job trace, from trigger to the latest step callback
+     */
+    List<Span> listSpans(Job job);
+
     /**
      * Get latest job
      */
     Job getLatest(String flowId);
 
     /**
-     * List job with fields only shown on the list
+     * List job with fields only shown on the list, page is located by build number instead of skipping
      */
     Page<JobItem> list(Flow flow, int page, int size);
 
+    /**
+     * List job with fields only shown on the list, which build number is less than the given one
+     */
+    Page<JobItem> listBefore(Flow flow, long buildNumber, int size);
+
     /**
      * Create a job by flow and yml, job status will be PENDING -> LOADING -> CREATED,
      *
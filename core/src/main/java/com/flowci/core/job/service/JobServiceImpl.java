@@ -16,16 +16,23 @@
 
 package com.flowci.core.job.service;
 
+import com.flowci.core.common.domain.Span;
+import com.flowci.core.common.domain.TraceContext;
 import com.flowci.core.common.domain.Variables;
 import com.flowci.core.common.manager.SessionManager;
 import com.flowci.core.common.manager.SpringEventManager;
+import com.flowci.core.common.manager.TraceManager;
 import com.flowci.core.common.service.SettingService;
 import com.flowci.core.flow.domain.Flow;
 import com.flowci.core.job.dao.*;
 import com.flowci.core.job.domain.*;
 import com.flowci.core.job.domain.Job.Trigger;
 import com.flowci.core.job.event.JobCreatedEvent;
-import com.flowci.core.job.event.JobDeletedEvent;
+import com.flowci.core.job.event.JobLeaseHandoffEvent;
+import com.flowci.core.job.event.JobStatusChangeEvent;
+import com.flowci.core.job.manager.FlowDeletionManager;
+import com.flowci.core.job.manager.JobArchiveManager;
+import com.flowci.core.job.manager.JobLeaseManager;
 import com.flowci.core.job.manager.YmlManager;
 import com.flowci.core.user.domain.User;
 import com.flowci.domain.StringVars;
@@ -37,21 +44,28 @@ import com.flowci.store.FileManager;
 import com.flowci.tree.FlowNode;
 import com.flowci.util.StringHelper;
 import com.flowci.zookeeper.InterLock;
-import com.flowci.zookeeper.ZookeeperClient;
 import com.google.common.collect.Maps;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -120,7 +134,16 @@ public class JobServiceImpl implements JobService {
     private SettingService settingService;
 
     @Autowired
-    private ZookeeperClient zk;
+    private JobLeaseManager jobLeaseManager;
+
+    @Autowired
+    private JobArchiveManager jobArchiveManager;
+
+    @Autowired
+    private FlowDeletionManager flowDeletionManager;
+
+    @Autowired
+    private TraceManager traceManager;
 
     //====================================================================
     //        %% Public functions
@@ -134,6 +157,11 @@ public class JobServiceImpl implements JobService {
             return job.get();
         }
 
+        Optional<Job> archived = jobArchiveManager.get(jobId);
+        if (archived.isPresent()) {
+            return archived.get();
+        }
+
         throw new NotFoundException("Job {0} not found", jobId);
     }
 
@@ -152,6 +180,11 @@ public class JobServiceImpl implements JobService {
             return optional.get();
         }
 
+        Optional<Job> archived = jobArchiveManager.getByKey(key);
+        if (archived.isPresent()) {
+            return archived.get();
+        }
+
         throw new NotFoundException(
                 "The flow {0} for build number {1} cannot found", flowId, Long.toString(buildNumber));
     }
@@ -161,6 +194,15 @@ public class JobServiceImpl implements JobService {
         return ymlManager.get(job);
     }
 
+    @Override
+    public List<Span> listSpans(Job job) {
+        Optional<TraceContext> context = TraceContext.parse(job.getTraceParent());
+        if (!context.isPresent()) {
+            return Collections.emptyList();
+        }
+        return traceManager.list(context.get().getTraceId());
+    }
+
     @Override
     public Job getLatest(String flowId) {
         Optional<JobNumber> optional = jobNumberDao.findById(flowId);
@@ -175,13 +217,24 @@ public class JobServiceImpl implements JobService {
 
     @Override
     public Page<JobItem> list(Flow flow, int page, int size) {
-        PageRequest pageable = PageRequest.of(page, size, SortByBuildNumber);
-        return jobItemDao.findAllByFlowId(flow.getId(), pageable);
+        long latest = getLatestBuildNumber(flow.getId());
+        return listPage(flow.getId(), latest, page, size);
+    }
+
+    @Override
+    public Page<JobItem> listBefore(Flow flow, long buildNumber, int size) {
+        long latest = getLatestBuildNumber(flow.getId());
+        return listBefore(flow.getId(), latest, Math.min(buildNumber, latest + 1), size);
     }
 
     @Override
     public Job create(Flow flow, String yml, Trigger trigger, StringVars input) {
-        Job job = createJob(flow, trigger, input);
+        Job job;
+        try (TraceManager.ActiveSpan span = traceManager.start("job.create")) {
+            span.tag("flow", flow.getName()).tag("trigger", trigger.name());
+            job = createJob(flow, trigger, input);
+        }
+
         eventManager.publish(new JobCreatedEvent(this, job));
 
         if (job.isYamlFromRepo()) {
@@ -213,6 +266,8 @@ public class JobServiceImpl implements JobService {
             throw new StatusException("Job not finished, cannot re-start");
         }
 
+        jobArchiveManager.restore(job.getId());
+
         // load yaml
         JobYml yml = ymlManager.get(job);
         FlowNode root = ymlManager.parse(yml.getRaw());
@@ -230,6 +285,12 @@ public class JobServiceImpl implements JobService {
         job.setPriority(Job.MaxPriority);
         job.setCreatedBy(sessionManager.getUserEmail());
 
+        // new trace for rerun
+        try (TraceManager.ActiveSpan span = traceManager.start("job.rerun")) {
+            span.tag("flow", flow.getName());
+            job.setTraceParent(span.getContext().toTraceParent());
+        }
+
         // re-init job context
         Vars<String> context = job.getContext();
         String lastCommitId = context.get(GIT_COMMIT_ID);
@@ -264,6 +325,8 @@ public class JobServiceImpl implements JobService {
             throw new StatusException("Job is not failure status, cannot re-start from failure step");
         }
 
+        jobArchiveManager.restore(job.getId());
+
         // reset job properties
         job.setFinishAt(null);
         job.setStartAt(null);
@@ -283,33 +346,12 @@ public class JobServiceImpl implements JobService {
 
     @Override
     public void delete(Flow flow) {
-        appTaskExecutor.execute(() -> {
-            jobNumberDao.deleteAllByFlowId(flow.getId());
-            log.info("Deleted: job number of flow {}", flow.getName());
-
-            jobPriorityDao.deleteAllByFlowId(flow.getId());
-            log.info("Deleted: job priority of flow {}", flow.getName());
-
-            jobAgentDao.deleteAllByFlowId(flow.getId());
-            log.info("Deleted: job agent of flow {}", flow.getName());
-
-            Long numOfJobDeleted = jobDao.deleteAllByFlowId(flow.getId());
-            log.info("Deleted: {} jobs of flow {}", numOfJobDeleted, flow.getName());
-
-            Long numOfStepDeleted = stepService.delete(flow);
-            log.info("Deleted: {} steps of flow {}", numOfStepDeleted, flow.getName());
-
-            Long numOfTaskDeleted = localTaskService.delete(flow);
-            log.info("Deleted: {} tasks of flow {}", numOfTaskDeleted, flow.getName());
-
-            eventManager.publish(new JobDeletedEvent(this, flow, numOfJobDeleted));
-        });
+        flowDeletionManager.start(flow);
     }
 
     @Override
     public Optional<InterLock> lock(String jobId) {
-        String path = zk.makePath("/job-locks", jobId);
-        Optional<InterLock> lock = zk.lock(path, DefaultJobLockTimeout);
+        Optional<InterLock> lock = jobLeaseManager.acquire(jobId, DefaultJobLockTimeout);
         lock.ifPresent(interLock -> log.debug("Lock: {}", jobId));
         return lock;
     }
@@ -317,17 +359,91 @@ public class JobServiceImpl implements JobService {
     @Override
     public void unlock(InterLock lock, String jobId) {
         try {
-            zk.release(lock);
+            jobLeaseManager.release(lock);
             log.debug("Unlock: {}", jobId);
         } catch (Exception warn) {
             log.warn(warn);
         }
     }
 
+    //====================================================================
+    //        %% Spring Event Listener
+    //====================================================================
+
+    @EventListener
+    public void onJobLeaseHandoff(JobLeaseHandoffEvent event) {
+        jobLeaseManager.onHandoffRequest(event.getJobId(), event.getRequester());
+    }
+
+    @EventListener
+    public void onJobStatusChange(JobStatusChangeEvent event) {
+        Job job = event.getJob();
+        if (job.isDone() && jobLeaseManager.isOwned(job.getId())) {
+            appTaskExecutor.execute(() -> jobLeaseManager.expire(job.getId()));
+        }
+    }
+
+    @Scheduled(fixedDelay = 30 * 1000)
+    public void scheduleJobLeaseExpiration() {
+        jobLeaseManager.expireIdle(System.currentTimeMillis());
+    }
+
     //====================================================================
     //        %% Utils
     //====================================================================
 
+    /**
+     * The build number sequence of flow as total number of jobs, since build number is increased by one for each job
+     */
+    private long getLatestBuildNumber(String flowId) {
+        Optional<JobNumber> optional = jobNumberDao.findById(flowId);
+        return optional.map(JobNumber::getNumber).orElse(0L);
+    }
+
+    /**
+     * Page of jobs with build number less than 'before', page number is derived from the position of the cursor,
+     * archived jobs are merged since they are not strictly older than the jobs in hot collection by build number
+     */
+    private Page<JobItem> listBefore(String flowId, long total, long before, int size) {
+        List<JobItem> items = before > 1
+                ? jobItemDao.findAllByFlowIdBefore(flowId, before, size)
+                : Collections.emptyList();
+
+        if (before > 1) {
+            List<JobItem> archived = jobArchiveManager.listBefore(flowId, before, size);
+
+            if (!archived.isEmpty()) {
+                List<JobItem> merged = new ArrayList<>(items.size() + archived.size());
+                merged.addAll(items);
+                merged.addAll(archived);
+                merged.sort(Comparator.comparing(JobItem::getBuildNumber).reversed());
+                items = merged.subList(0, Math.min(size, merged.size()));
+            }
+        }
+
+        int page = (int) (Math.max(total + 1 - before, 0) / size);
+        return new BuildNumberPage(items, PageRequest.of(page, size, SortByBuildNumber), total);
+    }
+
+    /**
+     * Page of jobs in fixed build number range, (latest - (page + 1) * size, latest - page * size],
+     * so pages never overlap, and page could be shorter than size if build numbers have gaps
+     */
+    private Page<JobItem> listPage(String flowId, long total, int page, int size) {
+        long before = total + 1 - (long) page * size;
+        long after = Math.max(before - 1 - size, 0);
+
+        List<JobItem> items = Collections.emptyList();
+
+        if (before > 1) {
+            items = new ArrayList<>(jobItemDao.findAllByFlowIdBetween(flowId, after, before));
+            items.addAll(jobArchiveManager.listBetween(flowId, after, before));
+            items.sort(Comparator.comparing(JobItem::getBuildNumber).reversed());
+        }
+
+        return new BuildNumberPage(items, PageRequest.of(page, size, SortByBuildNumber), total);
+    }
+
     private Job createJob(Flow flow, Trigger trigger, Vars<String> input) {
         // create job number
         JobNumber jobNumber = jobNumberDao.increaseBuildNumber(flow.getId());
@@ -343,6 +459,7 @@ public class JobServiceImpl implements JobService {
         job.setExpire(flow.getJobTimeout());
         job.setYamlFromRepo(flow.isYamlFromRepo());
         job.setYamlRepoBranch(flow.getYamlRepoBranch());
+        TraceContext.current().ifPresent(c -> job.setTraceParent(c.toTraceParent()));
 
         // init job context
         initJobContext(job, flow, input);
@@ -388,7 +505,8 @@ public class JobServiceImpl implements JobService {
     }
 
     private void initJobContext(Job job, Flow flow, Vars<String> inputs) {
-        StringVars context = new StringVars();
+        // job context is created as StringVars, and read back as StringVars by VariableMapConverter
+        StringVars context = (StringVars) job.getContext();
         context.mergeFromTypedVars(flow.getLocally());
 
         context.put(Variables.App.ServerUrl, settingService.get().getServerUrl());
@@ -405,7 +523,29 @@ public class JobServiceImpl implements JobService {
         if (!Objects.isNull(inputs)) {
             context.merge(inputs);
         }
+    }
 
-        job.getContext().merge(context);
+    /**
+     * Page of build number range, the total is kept as given even if the page is short
+     * because of gaps, which PageImpl would recompute from the page content
+     */
+    private static class BuildNumberPage extends PageImpl<JobItem> {
+
+        private final long total;
+
+        BuildNumberPage(List<JobItem> content, Pageable pageable, long total) {
+            super(content, pageable, total);
+            this.total = total;
+        }
+
+        @Override
+        public long getTotalElements() {
+            return total;
+        }
+
+        @Override
+        public int getTotalPages() {
+            return getSize() == 0 ? 1 : (int) Math.ceil((double) total / (double) getSize());
+        }
     }
 }
@@ -10,6 +10,7 @@ import com.flowci.core.job.domain.Executed;
 import com.flowci.core.job.domain.ExecutedLocalTask;
 import com.flowci.core.job.domain.Job;
 import com.flowci.core.job.event.TaskUpdateEvent;
+import com.flowci.core.job.manager.JobArchiveManager;
 import com.flowci.core.job.manager.YmlManager;
 import com.flowci.core.plugin.domain.Plugin;
 import com.flowci.core.plugin.event.GetPluginAndVerifySetContext;
@@ -19,6 +20,8 @@ import com.flowci.docker.DockerManager;
 import com.flowci.docker.ImageManager;
 import com.flowci.docker.domain.ContainerStartOption;
 import com.flowci.domain.LocalTask;
+import com.flowci.domain.StringVars;
+import com.flowci.domain.Vars;
 import com.flowci.exception.StatusException;
 import com.flowci.tree.NodeTree;
 import com.flowci.util.ObjectsHelper;
@@ -43,6 +46,9 @@ public class LocalTaskServiceImpl implements LocalTaskService {
     @Autowired
     private ExecutedLocalTaskDao executedLocalTaskDao;
 
+    @Autowired
+    private JobArchiveManager jobArchiveManager;
+
     @Autowired
     private SpringEventManager eventManager;
 
@@ -81,7 +87,11 @@ public class LocalTaskServiceImpl implements LocalTaskService {
 
     @Override
     public List<ExecutedLocalTask> list(Job job) {
-        return executedLocalTaskDao.findAllByJobId(job.getId());
+        List<ExecutedLocalTask> tasks = executedLocalTaskDao.findAllByJobId(job.getId());
+        if (tasks.isEmpty()) {
+            return jobArchiveManager.listTasks(job.getId()).orElse(tasks);
+        }
+        return tasks;
     }
 
     @Override
@@ -120,13 +130,16 @@ public class LocalTaskServiceImpl implements LocalTaskService {
         option.setImage(DefaultImage);
         option.addEntryPoint("/bin/bash");
         option.addEntryPoint("-c");
-        option.getEnv()
+
+        Vars<String> agentEnvs = new StringVars(4)
                 .putAndReturn(Variables.Agent.ServerUrl, settingService.get().getServerUrl())
                 .putAndReturn(Variables.Agent.Token, ApiAuth.LocalTaskToken)
                 .putAndReturn(Variables.Agent.Workspace, "/ws/")
-                .putAndReturn(Variables.Agent.PluginDir, "/ws/.plugins")
-                .merge(job.getContext())
-                .merge(task.getEnvs());
+                .putAndReturn(Variables.Agent.PluginDir, "/ws/.plugins");
+
+        // priority: task envs > job context > agent envs
+        // flatten since the env is read by other threads while job context is still changing
+        option.getEnv().overlay(task.getEnvs(), job.getContext(), agentEnvs).flatten();
 
         if (task.hasPlugin()) {
             String name = task.getPlugin();
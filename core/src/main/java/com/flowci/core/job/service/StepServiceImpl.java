@@ -23,6 +23,7 @@ import com.flowci.core.job.domain.Executed;
 import com.flowci.core.job.domain.Job;
 import com.flowci.core.job.domain.Step;
 import com.flowci.core.job.event.StepUpdateEvent;
+import com.flowci.core.job.manager.JobArchiveManager;
 import com.flowci.core.job.manager.YmlManager;
 import com.flowci.exception.NotFoundException;
 import com.flowci.tree.*;
@@ -52,6 +53,9 @@ public class StepServiceImpl implements StepService {
     @Autowired
     private YmlManager ymlManager;
 
+    @Autowired
+    private JobArchiveManager jobArchiveManager;
+
     @Autowired
     private SpringEventManager eventManager;
 
@@ -233,8 +237,13 @@ public class StepServiceImpl implements StepService {
     }
 
     private List<Step> list(String jobId, String flowId, long buildNumber) {
-        return jobStepCache.get(jobId,
-                s -> executedCmdDao.findAllByFlowIdAndBuildNumber(flowId, buildNumber));
+        return jobStepCache.get(jobId, s -> {
+            List<Step> steps = executedCmdDao.findAllByFlowIdAndBuildNumber(flowId, buildNumber);
+            if (steps.isEmpty()) {
+                return jobArchiveManager.listSteps(jobId).orElse(steps);
+            }
+            return steps;
+        });
     }
 
     private static Step newInstance(Job job, Node node) {
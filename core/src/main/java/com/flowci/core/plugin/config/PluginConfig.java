@@ -17,6 +17,7 @@
 package com.flowci.core.plugin.config;
 
 import com.flowci.core.common.config.AppProperties;
+import com.flowci.core.common.helper.ThreadHelper;
 import com.flowci.core.plugin.PluginRepoResolver;
 import com.flowci.util.FileHelper;
 import lombok.extern.log4j.Log4j2;
@@ -25,6 +26,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -49,6 +51,12 @@ public class PluginConfig {
         return FileHelper.createDirectory(pluginDir);
     }
 
+    @Bean("pluginSyncExecutor")
+    public ThreadPoolTaskExecutor pluginSyncExecutor(AppProperties.Plugin pluginProperties) {
+        int poolSize = pluginProperties.getSyncPoolSize();
+        return ThreadHelper.createTaskExecutor(poolSize, poolSize, 100, "plugin-sync-");
+    }
+
     @Bean("gitServletBean")
     public ServletRegistrationBean<GitServlet> gitServletBean(Path pluginDir, PluginRepoResolver pluginRepoResolver) {
         GitServlet servlet = new GitServlet();
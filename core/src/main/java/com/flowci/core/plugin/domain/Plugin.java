@@ -70,6 +70,12 @@ public class Plugin extends PluginRepoInfo {
 
     public void update(Plugin src) {
         this.setVersion(src.getVersion());
+        this.setSource(src.getSource());
+        this.setBranch(src.getBranch());
+        this.setDescription(src.getDescription());
+        this.setTags(src.getTags());
+        this.setAuthor(src.getAuthor());
+        this.setExports(src.exports);
         this.setIcon(src.icon);
         this.setInputs(src.inputs);
         this.setStatsTypes(src.statsTypes);
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.plugin.event;
+
+import com.flowci.core.common.event.BroadcastEvent;
+
+/**
+ * Broadcast to all server nodes to reload the in-memory plugin registry
+ *
+ * @author yang
+ */
+public class PluginRefreshEvent extends BroadcastEvent {
+
+    public PluginRefreshEvent() {
+        super();
+    }
+
+    public PluginRefreshEvent(Object source) {
+        super(source);
+    }
+}
@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author yang
@@ -74,12 +75,16 @@ public interface PluginService {
     List<PluginRepoInfo> load(String repoUrl);
 
     /**
-     * Git clone plugin repos in Async
+     * Git clone plugin repos in Async, skipped if a sync is in progress
+     *
+     * @return future completed when all plugins are fetched
      */
-    void clone(List<PluginRepoInfo> repos);
+    CompletableFuture<Void> clone(List<PluginRepoInfo> repos);
 
     /**
-     * Reload default plugin repo
+     * Reload default plugin repo, only changed plugins will be fetched
+     *
+     * @return future completed when all changed plugins are fetched
      */
-    void reload();
+    CompletableFuture<Void> reload();
 }
@@ -19,8 +19,10 @@ package com.flowci.core.plugin.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flowci.core.common.config.AppProperties;
+import com.flowci.core.common.config.MetricsConfig;
 import com.flowci.core.common.git.GitClient;
 import com.flowci.core.common.manager.HttpRequestManager;
+import com.flowci.core.common.manager.SpringEventManager;
 import com.flowci.core.common.manager.VarManager;
 import com.flowci.core.plugin.dao.PluginDao;
 import com.flowci.core.plugin.domain.Plugin;
@@ -28,19 +30,26 @@ import com.flowci.core.plugin.domain.PluginParser;
 import com.flowci.core.plugin.domain.PluginRepoInfo;
 import com.flowci.core.plugin.event.GetPluginAndVerifySetContext;
 import com.flowci.core.plugin.event.GetPluginEvent;
+import com.flowci.core.plugin.event.PluginRefreshEvent;
 import com.flowci.core.plugin.event.RepoCloneEvent;
 import com.flowci.domain.Input;
 import com.flowci.domain.Vars;
 import com.flowci.exception.ArgumentException;
 import com.flowci.exception.NotFoundException;
 import com.flowci.util.StringHelper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -51,6 +60,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * @author yang
@@ -70,6 +85,10 @@ public class PluginServiceImpl implements PluginService {
 
     private static final byte[] EmptyBytes = new byte[0];
 
+    private static final String SyncDurationMetric = "flowci.plugin.sync.duration";
+
+    private static final String SyncFetchedBytesMetric = "flowci.plugin.sync.fetched.bytes";
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -80,7 +99,7 @@ public class PluginServiceImpl implements PluginService {
     private AppProperties.Plugin pluginProperties;
 
     @Autowired
-    private TaskExecutor appTaskExecutor;
+    private TaskExecutor pluginSyncExecutor;
 
     @Autowired
     private ApplicationContext context;
@@ -94,7 +113,34 @@ public class PluginServiceImpl implements PluginService {
     @Autowired
     private HttpRequestManager httpManager;
 
-    private final Object reloadLock = new Object();
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SpringEventManager eventManager;
+
+    private final AtomicBoolean syncing = new AtomicBoolean(false);
+
+    // plugin or version dirs not used anymore, key as dir, value as the time to remove it
+    private final Map<Path, Long> retired = new ConcurrentHashMap<>();
+
+    // in-memory plugin registry, loaded from db on start and refreshed after sync
+    private volatile Registry registry = new Registry(0L, Collections.emptyMap());
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void initRegistry() {
+        refreshRegistry();
+
+        // old versions left by the previous run
+        for (Registered registered : registry.plugins.values()) {
+            retireOtherVersions(registered.plugin);
+        }
+    }
+
+    @EventListener
+    public void onPluginRefresh(PluginRefreshEvent ignore) {
+        refreshRegistry();
+    }
 
     @EventListener
     public void onGetPluginEvent(GetPluginEvent event) {
@@ -127,6 +173,11 @@ public class PluginServiceImpl implements PluginService {
      */
     @Override
     public Optional<String> verifyInputAndSetDefaultValue(Plugin plugin, Vars<String> context) {
+        Registered registered = registry.plugins.get(plugin.getName());
+        if (Objects.isNull(registered) || registered.plugin != plugin) {
+            registered = new Registered(plugin, varManager);
+        }
+
         for (Input input : plugin.getInputs()) {
             String value = context.get(input.getName());
 
@@ -137,7 +188,7 @@ public class PluginServiceImpl implements PluginService {
             }
 
             // verify value
-            if (!varManager.verify(input, value)) {
+            if (!registered.validators.get(input.getName()).test(value)) {
                 return Optional.of(input.getName());
             }
         }
@@ -157,6 +208,11 @@ public class PluginServiceImpl implements PluginService {
 
     @Override
     public Plugin get(String name) {
+        Registered registered = registry.plugins.get(name);
+        if (Objects.nonNull(registered)) {
+            return registered.plugin;
+        }
+
         Optional<Plugin> optional = pluginDao.findByName(name);
         if (!optional.isPresent()) {
             throw new NotFoundException("The plugin {0} is not found", name);
@@ -204,32 +260,26 @@ public class PluginServiceImpl implements PluginService {
     }
 
     @Override
-    public void clone(List<PluginRepoInfo> repos) {
+    public CompletableFuture<Void> clone(List<PluginRepoInfo> repos) {
         log.info("Loading plugins");
-
-        for (PluginRepoInfo repo : repos) {
-            appTaskExecutor.execute(() -> {
-                try {
-                    Plugin plugin = clone(repo);
-                    saveOrUpdate(plugin);
-                    context.publishEvent(new RepoCloneEvent(this, plugin));
-                    log.info("Plugin {} been clone", plugin);
-                } catch (Exception e) {
-                    log.warn("Unable to clone plugin repo {} {}", repo.getSource(), e.getMessage());
-                }
-            });
-        }
+        return syncOnce(() -> Optional.of(repos));
     }
 
     @Override
-    public void reload() {
-        synchronized (reloadLock) {
-            pluginDao.deleteAll();
-
+    public CompletableFuture<Void> reload() {
+        return syncOnce(() -> {
             String repoUrl = pluginProperties.getDefaultRepo();
             List<PluginRepoInfo> repos = load(repoUrl);
-            clone(repos);
-        }
+
+            // keep installed plugins if repo index not available
+            if (repos.isEmpty()) {
+                return Optional.empty();
+            }
+
+            List<PluginRepoInfo> changed = removeAndFindChanged(repos);
+            log.info("Sync plugins: {} of {} changed", changed.size(), repos.size());
+            return Optional.of(changed);
+        });
     }
 
     @Scheduled(fixedRate = 1000 * 3600)
@@ -239,6 +289,148 @@ public class PluginServiceImpl implements PluginService {
         }
     }
 
+    /**
+     * Remove retired plugin and version dirs after keep time, since agents may still fetch
+     * the previous version through the git servlet right after the new version is saved
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void removeRetiredVersions() {
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<Path, Long> entry : retired.entrySet()) {
+            Path dir = entry.getKey();
+            if (entry.getValue() > now) {
+                continue;
+            }
+
+            retired.remove(dir);
+            if (!isInUse(dir)) {
+                deleteDir(dir);
+                log.info("Retired plugin dir {} removed", dir);
+            }
+        }
+    }
+
+    /**
+     * Run a sync only if no other sync is in progress
+     *
+     * @param toSync returns repos to fetch, or empty to skip the sync
+     */
+    private CompletableFuture<Void> syncOnce(Supplier<Optional<List<PluginRepoInfo>>> toSync) {
+        if (!syncing.compareAndSet(false, true)) {
+            log.info("Plugin sync is in progress");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        try {
+            Optional<List<PluginRepoInfo>> repos = toSync.get();
+            if (!repos.isPresent()) {
+                syncing.set(false);
+                return CompletableFuture.completedFuture(null);
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+
+            return syncAll(repos.get()).whenComplete((ignore, e) -> {
+                sample.stop(MetricsConfig.timer(meterRegistry, SyncDurationMetric, Tags.empty()));
+                syncing.set(false);
+            });
+        } catch (Throwable e) {
+            syncing.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Fetch plugins in parallel, and notify all nodes to refresh plugin registry when all finished
+     */
+    private CompletableFuture<Void> syncAll(List<PluginRepoInfo> repos) {
+        LongAdder fetched = new LongAdder();
+        CompletableFuture<?>[] futures = new CompletableFuture[repos.size()];
+        for (int i = 0; i < repos.size(); i++) {
+            PluginRepoInfo repo = repos.get(i);
+            futures[i] = CompletableFuture.runAsync(() -> fetched.add(sync(repo)), pluginSyncExecutor);
+        }
+
+        return CompletableFuture.allOf(futures).whenComplete((ignore, e) -> {
+            DistributionSummary.builder(SyncFetchedBytesMetric)
+                    .baseUnit("bytes")
+                    .register(meterRegistry)
+                    .record(fetched.sum());
+
+            eventManager.publish(new PluginRefreshEvent(this));
+        });
+    }
+
+    private synchronized void refreshRegistry() {
+        Map<String, Registered> plugins = new HashMap<>();
+        for (Plugin plugin : pluginDao.findAll()) {
+            plugins.put(plugin.getName(), new Registered(plugin, varManager));
+        }
+
+        registry = new Registry(registry.version + 1, Collections.unmodifiableMap(plugins));
+        log.info("Plugin registry v{} loaded with {} plugins", registry.version, plugins.size());
+    }
+
+    /**
+     * Remove installed plugins which are not in the repo index anymore,
+     * and return repos that not installed or version/source changed
+     */
+    private List<PluginRepoInfo> removeAndFindChanged(List<PluginRepoInfo> repos) {
+        Map<String, Plugin> installed = new HashMap<>();
+        for (Plugin plugin : pluginDao.findAll()) {
+            installed.put(plugin.getName(), plugin);
+        }
+
+        List<PluginRepoInfo> changed = new LinkedList<>();
+        for (PluginRepoInfo repo : repos) {
+            Plugin exist = installed.remove(repo.getName());
+            if (isChanged(exist, repo)) {
+                changed.add(repo);
+            }
+        }
+
+        for (Plugin removed : installed.values()) {
+            pluginDao.delete(removed);
+            retire(Paths.get(pluginDir.toString(), removed.getName()));
+            log.info("Plugin {} been removed from repo", removed.getName());
+        }
+
+        return changed;
+    }
+
+    private boolean isChanged(Plugin exist, PluginRepoInfo repo) {
+        if (Objects.isNull(exist)) {
+            return true;
+        }
+
+        return !Objects.equals(exist.getVersion(), repo.getVersion())
+                || !Objects.equals(exist.getSource(), repo.getSource())
+                || !Objects.equals(exist.getBranch(), repo.getBranch())
+                || !Files.exists(getDir(exist));
+    }
+
+    /**
+     * Fetch plugin into its version dir, the installed version will be used until
+     * the new version is fetched and saved, then the old version dir will be retired
+     *
+     * @return bytes fetched from the plugin repo
+     */
+    private long sync(PluginRepoInfo repo) {
+        try {
+            Fetched fetched = clone(repo);
+            Plugin plugin = fetched.plugin;
+            saveOrUpdate(plugin);
+            retireOtherVersions(plugin);
+            context.publishEvent(new RepoCloneEvent(this, plugin));
+            log.info("Plugin {} been clone with {} bytes fetched", plugin, fetched.bytes);
+            return fetched.bytes;
+        } catch (Exception e) {
+            log.warn("Unable to clone plugin repo {} {}", repo.getSource(), e.getMessage());
+            return 0;
+        }
+    }
+
     private void saveOrUpdate(Plugin pluginFromRepo) {
         Optional<Plugin> optional = pluginDao.findByName(pluginFromRepo.getName());
 
@@ -252,14 +444,14 @@ public class PluginServiceImpl implements PluginService {
         pluginDao.save(pluginFromRepo);
     }
 
-    private Plugin clone(PluginRepoInfo repo) throws Exception {
+    private Fetched clone(PluginRepoInfo repo) throws Exception {
         log.info("Start to load plugin: {}", repo);
         Path dir = getPluginRepoDir(repo.getName(), repo.getVersion().toString());
 
         GitClient client = new GitClient(repo.getSource(), null, null);
-        client.klone(dir, repo.getBranch());
+        long bytes = client.klone(dir, repo.getBranch());
 
-        return load(dir.toFile(), repo);
+        return new Fetched(load(dir.toFile(), repo), bytes);
     }
 
     /**
@@ -303,10 +495,94 @@ public class PluginServiceImpl implements PluginService {
         }
     }
 
+    private void retireOtherVersions(Plugin plugin) {
+        Path current = getDir(plugin);
+        File[] versions = Paths.get(pluginDir.toString(), plugin.getName()).toFile().listFiles();
+        if (Objects.isNull(versions)) {
+            return;
+        }
+
+        for (File version : versions) {
+            if (!version.toPath().equals(current)) {
+                retire(version.toPath());
+            }
+        }
+    }
+
+    private void retire(Path dir) {
+        long removeAt = System.currentTimeMillis() + pluginProperties.getRetiredVersionKeepSeconds() * 1000L;
+        retired.putIfAbsent(dir, removeAt);
+    }
+
+    /**
+     * Check the plugin dir or version dir is used by the installed plugin, ex: plugin added back
+     */
+    private boolean isInUse(Path dir) {
+        if (dir.getParent().equals(pluginDir)) {
+            return pluginDao.findByName(dir.getFileName().toString()).isPresent();
+        }
+
+        Optional<Plugin> installed = pluginDao.findByName(dir.getParent().getFileName().toString());
+        return installed.isPresent() && getDir(installed.get()).equals(dir);
+    }
+
+    private static void deleteDir(Path dir) {
+        try {
+            FileSystemUtils.deleteRecursively(dir);
+        } catch (IOException e) {
+            log.warn("Unable to delete plugin dir {}: {}", dir, e.getMessage());
+        }
+    }
+
     /**
      * Get plugin repo path: {plugin dir}/{repo}/{version}
      */
     private Path getPluginRepoDir(String name, String version) {
         return Paths.get(pluginDir.toString(), name, version);
     }
+
+    private static class Registry {
+
+        private final long version;
+
+        private final Map<String, Registered> plugins;
+
+        Registry(long version, Map<String, Registered> plugins) {
+            this.version = version;
+            this.plugins = plugins;
+        }
+    }
+
+    /**
+     * Plugin with validators of its inputs
+     */
+    private static class Registered {
+
+        private final Plugin plugin;
+
+        private final Map<String, Predicate<String>> validators = new HashMap<>();
+
+        Registered(Plugin plugin, VarManager varManager) {
+            this.plugin = plugin;
+
+            for (Input input : plugin.getInputs()) {
+                validators.put(input.getName(), varManager.compile(input));
+            }
+        }
+    }
+
+    /**
+     * Plugin loaded from repo with bytes fetched
+     */
+    private static class Fetched {
+
+        private final Plugin plugin;
+
+        private final long bytes;
+
+        Fetched(Plugin plugin, long bytes) {
+            this.plugin = plugin;
+            this.bytes = bytes;
+        }
+    }
 }
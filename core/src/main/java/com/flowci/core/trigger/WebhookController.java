@@ -18,6 +18,7 @@ package com.flowci.core.trigger;
 
 import com.flowci.core.common.domain.GitSource;
 import com.flowci.core.common.manager.SpringEventManager;
+import com.flowci.core.common.manager.TraceManager;
 import com.flowci.core.trigger.converter.*;
 import com.flowci.core.trigger.domain.GitTrigger;
 import com.flowci.core.trigger.event.GitHookEvent;
@@ -62,6 +63,9 @@ public class WebhookController {
     @Autowired
     private SpringEventManager eventManager;
 
+    @Autowired
+    private TraceManager traceManager;
+
     private final Map<GitSource, TriggerConverter> converterMap = new HashMap<>(3);
 
     @PostConstruct
@@ -75,14 +79,18 @@ public class WebhookController {
     @PostMapping("/{name}")
     public void onGitTrigger(@PathVariable String name) throws IOException {
         GitSourceWithEvent data = findGitSourceByHeader(request);
-        Optional<GitTrigger> trigger = converterMap.get(data.source).convert(data.event, request.getInputStream());
 
-        if (!trigger.isPresent()) {
-            throw new ArgumentException("Unsupported git event {0}", data.event);
-        }
+        try (TraceManager.ActiveSpan span = traceManager.start("webhook")) {
+            span.tag("flow", name).tag("git.source", data.source.name()).tag("git.event", data.event);
 
-        log.info("{} trigger received: {}", data.source, trigger.get());
-        eventManager.publish(new GitHookEvent(this, name, trigger.get()));
+            Optional<GitTrigger> trigger = converterMap.get(data.source).convert(data.event, request.getInputStream());
+            if (!trigger.isPresent()) {
+                throw new ArgumentException("Unsupported git event {0}", data.event);
+            }
+
+            log.info("{} trigger received: {}", data.source, trigger.get());
+            eventManager.publish(new GitHookEvent(this, name, trigger.get()));
+        }
     }
 
     private GitSourceWithEvent findGitSourceByHeader(HttpServletRequest request) {
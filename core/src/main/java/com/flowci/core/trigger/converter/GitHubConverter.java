@@ -22,16 +22,14 @@ import com.flowci.core.trigger.domain.*;
 import com.flowci.core.trigger.domain.GitPrTrigger.Source;
 import com.flowci.core.trigger.domain.GitTrigger.GitEvent;
 import com.flowci.core.trigger.util.BranchHelper;
+import com.flowci.core.trigger.util.JsonFieldReader.Fields;
 import com.flowci.exception.ArgumentException;
-import com.flowci.util.ObjectsHelper;
 import com.google.common.collect.ImmutableMap;
-import java.util.List;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 
@@ -50,11 +48,51 @@ public class GitHubConverter extends TriggerConverter {
 
     public static final String PR = "pull_request";
 
+    private static final String TagRefPrefix = "refs/tags";
+
+    private static final String PrOpen = "opened";
+
+    private static final String PrClosed = "closed";
+
+    private static final String[] PushOrTagFields = {
+            "ref",
+            "commits[]",
+            "head_commit.id",
+            "head_commit.message",
+            "head_commit.timestamp",
+            "head_commit.url",
+            "pusher.name",
+            "pusher.email",
+            "pusher.username"
+    };
+
+    private static final String[] PrFields = {
+            "action",
+            "number",
+            "pull_request.html_url",
+            "pull_request.title",
+            "pull_request.body",
+            "pull_request.created_at",
+            "pull_request.commits",
+            "pull_request.changed_files",
+            "pull_request.merged",
+            "pull_request.head.ref",
+            "pull_request.head.sha",
+            "pull_request.head.repo.full_name",
+            "pull_request.head.repo.html_url",
+            "pull_request.base.ref",
+            "pull_request.base.sha",
+            "pull_request.base.repo.full_name",
+            "pull_request.base.repo.html_url",
+            "sender.id",
+            "sender.login"
+    };
+
     private final Map<String, Function<InputStream, GitTrigger>> mapping =
             ImmutableMap.<String, Function<InputStream, GitTrigger>>builder()
                     .put(Ping, new EventConverter<>("Ping", PingEvent.class))
-                    .put(PushOrTag, new EventConverter<>("PushOrTag", PushOrTagEvent.class))
-                    .put(PR, new EventConverter<>("PR", PrEvent.class))
+                    .put(PushOrTag, new FieldsConverter("PushOrTag", GitHubConverter::toPushOrTagTrigger, PushOrTagFields))
+                    .put(PR, new FieldsConverter("PR", GitHubConverter::toPrTrigger, PrFields))
                     .build();
 
     @Override
@@ -67,6 +105,82 @@ public class GitHubConverter extends TriggerConverter {
         return mapping;
     }
 
+    private static GitPushTrigger toPushOrTagTrigger(Fields fields) {
+        if (!fields.has("head_commit.id")) {
+            throw new ArgumentException("No commits data on Github push or tag event");
+        }
+
+        String ref = fields.get("ref");
+
+        GitPushTrigger trigger = new GitPushTrigger();
+        trigger.setSource(GitSource.GITHUB);
+        trigger.setEvent(ref.startsWith(TagRefPrefix) ? GitEvent.TAG : GitEvent.PUSH);
+
+        trigger.setCommitId(fields.get("head_commit.id"));
+        trigger.setMessage(fields.get("head_commit.message"));
+        trigger.setCommitUrl(fields.get("head_commit.url"));
+        trigger.setRef(BranchHelper.getBranchName(ref));
+        trigger.setTime(fields.get("head_commit.timestamp"));
+        trigger.setNumOfCommit(fields.getInt("commits[]"));
+
+        // set commit author info
+        trigger.setAuthor(new GitUser()
+                .setEmail(fields.get("pusher.email"))
+                .setName(fields.get("pusher.name"))
+                .setUsername(fields.get("pusher.username")));
+        return trigger;
+    }
+
+    private static GitPrTrigger toPrTrigger(Fields fields) {
+        GitPrTrigger trigger = new GitPrTrigger();
+        trigger.setEvent(getPrEvent(fields));
+        trigger.setSource(GitSource.GITHUB);
+
+        trigger.setNumber(fields.get("number"));
+        trigger.setBody(fields.get("pull_request.body"));
+        trigger.setTitle(fields.get("pull_request.title"));
+        trigger.setUrl(fields.get("pull_request.html_url"));
+        trigger.setTime(fields.get("pull_request.created_at"));
+        trigger.setNumOfCommits(fields.get("pull_request.commits"));
+        trigger.setNumOfFileChanges(fields.get("pull_request.changed_files"));
+        trigger.setMerged(fields.getBoolean("pull_request.merged"));
+
+        Source head = new Source();
+        head.setCommit(fields.get("pull_request.head.sha"));
+        head.setRef(fields.get("pull_request.head.ref"));
+        head.setRepoName(fields.get("pull_request.head.repo.full_name"));
+        head.setRepoUrl(fields.get("pull_request.head.repo.html_url"));
+        trigger.setHead(head);
+
+        Source base = new Source();
+        base.setCommit(fields.get("pull_request.base.sha"));
+        base.setRef(fields.get("pull_request.base.ref"));
+        base.setRepoName(fields.get("pull_request.base.repo.full_name"));
+        base.setRepoUrl(fields.get("pull_request.base.repo.html_url"));
+        trigger.setBase(base);
+
+        GitUser sender = new GitUser()
+                .setId(fields.get("sender.id"))
+                .setUsername(fields.get("sender.login"));
+        trigger.setSender(sender);
+
+        return trigger;
+    }
+
+    private static GitEvent getPrEvent(Fields fields) {
+        String action = fields.get("action");
+
+        if (PrOpen.equals(action)) {
+            return GitEvent.PR_OPENED;
+        }
+
+        if (PrClosed.equals(action) && Boolean.TRUE.equals(fields.getBoolean("pull_request.merged"))) {
+            return GitEvent.PR_MERGED;
+        }
+
+        throw new ArgumentException("Cannot handle action {0} from pull request", action);
+    }
+
     // ======================================================
     //      Objects for GitHub
     // ======================================================
@@ -100,195 +214,4 @@ public class GitHubConverter extends TriggerConverter {
         public String createdAt;
 
     }
-
-    private static class PushOrTagEvent implements GitTriggerable {
-
-        private static final String TagRefPrefix = "refs/tags";
-
-        public String ref;
-
-        public List<Commit> commits;
-
-        @JsonProperty("head_commit")
-        public Commit commit;
-
-        public Author pusher;
-
-        private GitEvent getEvent() {
-            return ref.startsWith(TagRefPrefix) ? GitEvent.TAG : GitEvent.PUSH;
-        }
-
-        @Override
-        public GitPushTrigger toTrigger() {
-            if (Objects.isNull(commit)) {
-                throw new ArgumentException("No commits data on Github push or tag event");
-            }
-
-            GitPushTrigger trigger = new GitPushTrigger();
-            trigger.setSource(GitSource.GITHUB);
-            trigger.setEvent(getEvent());
-
-            trigger.setCommitId(commit.id);
-            trigger.setMessage(commit.message);
-            trigger.setCommitUrl(commit.url);
-            trigger.setRef(BranchHelper.getBranchName(ref));
-            trigger.setTime(commit.timestamp);
-            trigger.setNumOfCommit(0);
-
-            ObjectsHelper.ifNotNull(commits, val -> {
-                trigger.setNumOfCommit(val.size());
-            });
-
-            // set commit author info
-            trigger.setAuthor(pusher.toGitUser());
-            return trigger;
-        }
-    }
-
-    private static class PrEvent implements GitTriggerable {
-
-        public static final String PrOpen = "opened";
-
-        public static final String PrClosed = "closed";
-
-        public String action;
-
-        public String number;
-
-        @JsonProperty("pull_request")
-        public PrBody prBody;
-
-        @JsonProperty("sender")
-        public PrSender prSender;
-
-        @Override
-        public GitPrTrigger toTrigger() {
-            GitPrTrigger trigger = new GitPrTrigger();
-            trigger.setEvent(getEvent());
-            trigger.setSource(GitSource.GITHUB);
-
-            trigger.setNumber(number);
-            trigger.setBody(prBody.body);
-            trigger.setTitle(prBody.title);
-            trigger.setUrl(prBody.url);
-            trigger.setTime(prBody.time);
-            trigger.setNumOfCommits(prBody.numOfCommits);
-            trigger.setNumOfFileChanges(prBody.numOfFileChanges);
-            trigger.setMerged(prBody.merged);
-
-            Source head = new Source();
-            head.setCommit(prBody.head.sha);
-            head.setRef(prBody.head.ref);
-            head.setRepoName(prBody.head.repo.fullName);
-            head.setRepoUrl(prBody.head.repo.url);
-            trigger.setHead(head);
-
-            Source base = new Source();
-            base.setCommit(prBody.base.sha);
-            base.setRef(prBody.base.ref);
-            base.setRepoName(prBody.base.repo.fullName);
-            base.setRepoUrl(prBody.base.repo.url);
-            trigger.setBase(base);
-
-            GitUser sender = new GitUser()
-                    .setId(prSender.id)
-                    .setUsername(prSender.username);
-            trigger.setSender(sender);
-
-            return trigger;
-        }
-
-        private GitEvent getEvent() {
-            if (action.equals(PrOpen)) {
-                return GitEvent.PR_OPENED;
-            }
-
-            if (action.equals(PrClosed) && prBody.merged) {
-                return GitEvent.PR_MERGED;
-            }
-
-            throw new ArgumentException("Cannot handle action {0} from pull request", action);
-        }
-    }
-
-    private static class PrBody {
-
-        @JsonProperty("html_url")
-        public String url;
-
-        public String title;
-
-        public String body;
-
-        @JsonProperty("created_at")
-        public String time;
-
-        public PrSource head;
-
-        public PrSource base;
-
-        @JsonProperty("commits")
-        public String numOfCommits;
-
-        @JsonProperty("changed_files")
-        public String numOfFileChanges;
-
-        public Boolean merged;
-    }
-
-    private static class PrSource {
-
-        public String ref;
-
-        public String sha;
-
-        public PrRepo repo;
-    }
-
-    private static class PrRepo {
-
-        public String id;
-
-        @JsonProperty("full_name")
-        public String fullName;
-
-        @JsonProperty("html_url")
-        public String url;
-    }
-
-    private static class PrSender {
-
-        public String id;
-
-        @JsonProperty("login")
-        public String username;
-    }
-
-    private static class Commit {
-
-        public String id;
-
-        public String message;
-
-        public String timestamp;
-
-        public String url;
-    }
-
-    private static class Author {
-
-        public String name;
-
-        public String email;
-
-        public String username;
-
-        public GitUser toGitUser() {
-            return new GitUser()
-                    .setEmail(email)
-                    .setName(name)
-                    .setUsername(username);
-        }
-
-    }
 }
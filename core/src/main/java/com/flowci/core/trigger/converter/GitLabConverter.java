@@ -16,14 +16,12 @@
 
 package com.flowci.core.trigger.converter;
 
-import com.fasterxml.jackson.annotation.JsonAlias;
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.flowci.core.common.domain.GitSource;
 import com.flowci.core.trigger.domain.*;
 import com.flowci.core.trigger.domain.GitTrigger.GitEvent;
 import com.flowci.core.trigger.util.BranchHelper;
+import com.flowci.core.trigger.util.JsonFieldReader.Fields;
 import com.flowci.exception.ArgumentException;
-import com.flowci.util.ObjectsHelper;
 import com.flowci.util.StringHelper;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
@@ -31,7 +29,6 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
@@ -51,11 +48,53 @@ public class GitLabConverter extends TriggerConverter {
 
     public static final String PR = "Merge Request Hook";
 
+    private static final String PushEvent = "push";
+
+    private static final String TagEvent = "tag_push";
+
+    private static final String PrOpened = "opened";
+
+    private static final String PrMerged = "merged";
+
+    private static final String[] PushOrTagFields = {
+        "event_name",
+        "after",
+        "ref",
+        "message",
+        "user_name",
+        "user_username",
+        "user_avatar",
+        "commits[]",
+        "commits[0].message",
+        "commits[0].timestamp",
+        "commits[0].url",
+        "commits[0].author.name",
+        "commits[0].author.email"
+    };
+
+    private static final String[] PrFields = {
+        "user.username",
+        "user.avatar_url",
+        "object_attributes.title",
+        "object_attributes.created_at",
+        "object_attributes.description",
+        "object_attributes.state",
+        "object_attributes.url",
+        "object_attributes.iid",
+        "object_attributes.source_branch",
+        "object_attributes.source.name",
+        "object_attributes.source.web_url",
+        "object_attributes.target_branch",
+        "object_attributes.target.name",
+        "object_attributes.target.web_url",
+        "object_attributes.last_commit.id"
+    };
+
     private final Map<String, Function<InputStream, GitTrigger>> mapping =
         ImmutableMap.<String, Function<InputStream, GitTrigger>>builder()
-            .put(Push, new EventConverter<>("Push", PushOrTagEvent.class))
-            .put(Tag, new EventConverter<>("Tag", PushOrTagEvent.class))
-            .put(PR, new EventConverter<>("PR", PrEvent.class))
+            .put(Push, new FieldsConverter("Push", GitLabConverter::toPushOrTagTrigger, PushOrTagFields))
+            .put(Tag, new FieldsConverter("Tag", GitLabConverter::toPushOrTagTrigger, PushOrTagFields))
+            .put(PR, new FieldsConverter("PR", GitLabConverter::toPrTrigger, PrFields))
             .build();
 
     @Override
@@ -68,244 +107,101 @@ public class GitLabConverter extends TriggerConverter {
         return mapping;
     }
 
-    // ======================================================
-    //      Objects for GitLab
-    // ======================================================
-
-    private abstract static class Event implements GitTriggerable {
-
-        @JsonProperty("event_name")
-        public String name;
-    }
-
-    private static class PushOrTagEvent extends Event {
-
-        static final String PushEvent = "push";
-
-        static final String TagEvent = "tag_push";
-
-        public String before;
-
-        public String after;
-
-        public String ref;
-
-        public String message;
-
-        @JsonAlias("user_id")
-        public String userId;
-
-        @JsonAlias("user_name")
-        public String nameOfUser;
-
-        @JsonAlias("user_username")
-        public String username;
-
-        @JsonAlias("user_email")
-        public String email;
-
-        @JsonAlias("user_avatar")
-        public String avatar;
-
-        public List<Commit> commits;
-
-        @Override
-        public GitTrigger toTrigger() {
-            if (commits == null || commits.size() == 0) {
-                throw new ArgumentException("No commits data on GitLab push event");
-            }
-
-            GitPushTrigger trigger = new GitPushTrigger();
-            trigger.setSource(GitSource.GITLAB);
-            trigger.setEvent(getEvent());
-
-            trigger.setCommitId(after);
-            trigger.setMessage(message);
-
-            ObjectsHelper.ifNotNull(commits, val -> {
-                if (val.size() == 0) {
-                    return;
-                }
-
-                Commit topCommit = val.get(0);
-
-                // get message from commit if no message available
-                if (Strings.isNullOrEmpty(message)) {
-                    trigger.setMessage(topCommit.message);
-                }
-
-                trigger.setCommitUrl(topCommit.url);
-                trigger.setRef(BranchHelper.getBranchName(ref));
-                trigger.setTime(topCommit.timestamp);
-                trigger.setNumOfCommit(val.size());
-
-                // set commit author info
-                GitUser gitUser = new GitUser()
-                    .setEmail(topCommit.author.email);
-
-                if (Objects.equals(topCommit.author.name, nameOfUser)) {
-                    gitUser.setUsername(username);
-                    gitUser.setAvatarLink(avatar);
-                }
-
-                trigger.setAuthor(gitUser);
-            });
-
-
-            return trigger;
-        }
-
-        private GitEvent getEvent() {
-            if (name.equals(TagEvent)) {
-                return GitEvent.TAG;
-            }
-
-            if (name.equals(PushEvent)) {
-                return GitEvent.PUSH;
-            }
-
-            throw new ArgumentException("Unsupported event '{0}' from gitlab", name);
+    private static GitTrigger toPushOrTagTrigger(Fields fields) {
+        int numOfCommit = fields.getInt("commits[]");
+        if (numOfCommit == 0) {
+            throw new ArgumentException("No commits data on GitLab push event");
         }
-    }
-
-    private static class PrEvent extends Event {
 
-        static final String PrOpened = "opened";
+        GitPushTrigger trigger = new GitPushTrigger();
+        trigger.setSource(GitSource.GITLAB);
+        trigger.setEvent(getPushOrTagEvent(fields.get("event_name")));
 
-        static final String PrMerged = "merged";
+        trigger.setCommitId(fields.get("after"));
+        trigger.setMessage(fields.get("message"));
 
-        public GitLabUser user;
-
-        @JsonAlias("object_attributes")
-        public PrAttributes attributes;
-
-        @Override
-        public GitTrigger toTrigger() {
-            GitPrTrigger trigger = new GitPrTrigger();
-            setTriggerEvent(trigger);
-
-            trigger.setSource(GitSource.GITLAB);
-            trigger.setNumber(attributes.number);
-            trigger.setBody(attributes.description);
-            trigger.setTitle(attributes.title);
-            trigger.setUrl(attributes.url);
-            trigger.setTime(attributes.createdAt);
-            trigger.setNumOfCommits("0");
-            trigger.setNumOfFileChanges("0");
-            trigger.setMerged(attributes.state.equals(PrMerged));
-
-            GitPrTrigger.Source head = new GitPrTrigger.Source();
-            head.setCommit(attributes.lastCommit.id);
-            head.setRef(attributes.sourceBranch);
-            head.setRepoName(attributes.source.name);
-            head.setRepoUrl(attributes.source.webUrl);
-            trigger.setHead(head);
-
-            GitPrTrigger.Source base = new GitPrTrigger.Source();
-            base.setCommit(StringHelper.EMPTY);
-            base.setRef(attributes.targetBranch);
-            base.setRepoName(attributes.target.name);
-            base.setRepoUrl(attributes.target.webUrl);
-            trigger.setBase(base);
-
-            GitUser sender = new GitUser()
-                .setUsername(user.username)
-                .setAvatarLink(user.avatar);
-            trigger.setSender(sender);
-
-            return trigger;
+        // get message from commit if no message available
+        if (Strings.isNullOrEmpty(trigger.getMessage())) {
+            trigger.setMessage(fields.get("commits[0].message"));
         }
 
-        private void setTriggerEvent(GitPrTrigger trigger) {
-            if (attributes.state.equals(PrOpened)) {
-                trigger.setEvent(GitTrigger.GitEvent.PR_OPENED);
-                return;
-            }
+        trigger.setCommitUrl(fields.get("commits[0].url"));
+        trigger.setRef(BranchHelper.getBranchName(fields.get("ref")));
+        trigger.setTime(fields.get("commits[0].timestamp"));
+        trigger.setNumOfCommit(numOfCommit);
 
-            if (attributes.state.equals(PrMerged)) {
-                trigger.setEvent(GitTrigger.GitEvent.PR_MERGED);
-                return;
-            }
+        // set commit author info
+        GitUser gitUser = new GitUser()
+            .setEmail(fields.get("commits[0].author.email"));
 
-            throw new ArgumentException("Unsupported pr action '{0}' from gitlab", attributes.state);
+        if (Objects.equals(fields.get("commits[0].author.name"), fields.get("user_name"))) {
+            gitUser.setUsername(fields.get("user_username"));
+            gitUser.setAvatarLink(fields.get("user_avatar"));
         }
-    }
-
-    private static class PrAttributes {
-
-        public String title;
-
-        @JsonAlias("created_at")
-        public String createdAt;
-
-        public String description;
-
-        public String state;
-
-        public String url;
-
-        @JsonAlias("iid")
-        public String number;
-
-        @JsonAlias("source_branch")
-        public String sourceBranch;
-
-        public Project source;
-
-        @JsonAlias("target_branch")
-        public String targetBranch;
-
-        public Project target;
-
-        @JsonAlias("last_commit")
-        public Commit lastCommit;
 
+        trigger.setAuthor(gitUser);
+        return trigger;
     }
 
-    private static class Project {
-
-        public String id;
+    private static GitEvent getPushOrTagEvent(String name) {
+        if (TagEvent.equals(name)) {
+            return GitEvent.TAG;
+        }
 
-        public String name;
+        if (PushEvent.equals(name)) {
+            return GitEvent.PUSH;
+        }
 
-        @JsonAlias("web_url")
-        public String webUrl;
+        throw new ArgumentException("Unsupported event '{0}' from gitlab", name);
     }
 
-    private static class GitLabUser {
-
-        @JsonAlias("user_id")
-        public String id;
-
-        @JsonAlias({"user_name", "name"})
-        public String name;
-
-        @JsonAlias({"user_username", "username"})
-        public String username;
-
-        @JsonAlias("user_email")
-        public String email;
-
-        @JsonAlias({"user_avatar", "avatar_url"})
-        public String avatar;
+    private static GitTrigger toPrTrigger(Fields fields) {
+        String state = fields.get("object_attributes.state");
+
+        GitPrTrigger trigger = new GitPrTrigger();
+        trigger.setEvent(getPrEvent(state));
+
+        trigger.setSource(GitSource.GITLAB);
+        trigger.setNumber(fields.get("object_attributes.iid"));
+        trigger.setBody(fields.get("object_attributes.description"));
+        trigger.setTitle(fields.get("object_attributes.title"));
+        trigger.setUrl(fields.get("object_attributes.url"));
+        trigger.setTime(fields.get("object_attributes.created_at"));
+        trigger.setNumOfCommits("0");
+        trigger.setNumOfFileChanges("0");
+        trigger.setMerged(PrMerged.equals(state));
+
+        GitPrTrigger.Source head = new GitPrTrigger.Source();
+        head.setCommit(fields.get("object_attributes.last_commit.id"));
+        head.setRef(fields.get("object_attributes.source_branch"));
+        head.setRepoName(fields.get("object_attributes.source.name"));
+        head.setRepoUrl(fields.get("object_attributes.source.web_url"));
+        trigger.setHead(head);
+
+        GitPrTrigger.Source base = new GitPrTrigger.Source();
+        base.setCommit(StringHelper.EMPTY);
+        base.setRef(fields.get("object_attributes.target_branch"));
+        base.setRepoName(fields.get("object_attributes.target.name"));
+        base.setRepoUrl(fields.get("object_attributes.target.web_url"));
+        trigger.setBase(base);
+
+        GitUser sender = new GitUser()
+            .setUsername(fields.get("user.username"))
+            .setAvatarLink(fields.get("user.avatar_url"));
+        trigger.setSender(sender);
+
+        return trigger;
     }
 
-    private static class Commit {
-
-        public String id;
-
-        public String message;
-
-        public String timestamp;
-
-        public String url;
-
-        public GitLabUser author;
+    private static GitEvent getPrEvent(String state) {
+        if (PrOpened.equals(state)) {
+            return GitEvent.PR_OPENED;
+        }
 
-        // modified file name list
-        public List<String> modified;
+        if (PrMerged.equals(state)) {
+            return GitEvent.PR_MERGED;
+        }
 
-        // removed file name list
-        public List<String> removed;
+        throw new ArgumentException("Unsupported pr action '{0}' from gitlab", state);
     }
 }
@@ -16,13 +16,12 @@
 
 package com.flowci.core.trigger.converter;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.flowci.core.common.domain.GitSource;
 import com.flowci.core.trigger.domain.*;
 import com.flowci.core.trigger.util.BranchHelper;
+import com.flowci.core.trigger.util.JsonFieldReader.Fields;
 import com.flowci.exception.ArgumentException;
 import com.google.common.collect.ImmutableMap;
-import lombok.EqualsAndHashCode;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
 
@@ -47,12 +46,58 @@ public class GiteeConverter extends TriggerConverter {
 
     public static final String PR = "Merge Request Hook";
 
+    private static final String TagRefPrefix = "refs/tags";
+
+    private static final String PrOpen = "open";
+
+    private static final String PrMerged = "merge";
+
+    private static final String[] PushOrTagFields = {
+            "ref",
+            "head_commit.id",
+            "head_commit.message",
+            "head_commit.timestamp",
+            "head_commit.url",
+            "total_commits_count",
+            "pusher.id",
+            "pusher.name",
+            "pusher.email",
+            "pusher.username",
+            "pusher.avatar_url",
+            "sender.id",
+            "sender.avatar_url"
+    };
+
+    private static final String[] PrFields = {
+            "action",
+            "pull_request.number",
+            "pull_request.title",
+            "pull_request.body",
+            "pull_request.created_at",
+            "pull_request.html_url",
+            "pull_request.commits",
+            "pull_request.changed_files",
+            "pull_request.head.ref",
+            "pull_request.head.sha",
+            "pull_request.head.repo.full_name",
+            "pull_request.head.repo.html_url",
+            "pull_request.base.ref",
+            "pull_request.base.sha",
+            "pull_request.base.repo.full_name",
+            "pull_request.base.repo.html_url",
+            "sender.id",
+            "sender.name",
+            "sender.email",
+            "sender.username",
+            "sender.avatar_url"
+    };
+
     private final Map<String, Function<InputStream, GitTrigger>> mapping =
             ImmutableMap.<String, Function<InputStream, GitTrigger>>builder()
                     .put(Ping, new EventConverter<>("Ping", GiteeConverter.PingEvent.class))
-                    .put(Push, new EventConverter<>("Push", GiteeConverter.PushOrTagEvent.class))
-                    .put(Tag, new EventConverter<>("Tag", GiteeConverter.PushOrTagEvent.class))
-                    .put(PR, new EventConverter<>("PR", GiteeConverter.PrEvent.class))
+                    .put(Push, new FieldsConverter("Push", GiteeConverter::toPushOrTagTrigger, PushOrTagFields))
+                    .put(Tag, new FieldsConverter("Tag", GiteeConverter::toPushOrTagTrigger, PushOrTagFields))
+                    .put(PR, new FieldsConverter("PR", GiteeConverter::toPrTrigger, PrFields))
                     .build();
 
     @Override
@@ -65,207 +110,95 @@ public class GiteeConverter extends TriggerConverter {
         return mapping;
     }
 
-    private static class PingEvent implements GitTriggerable {
-
-        @Override
-        public GitPingTrigger toTrigger() {
-            GitPingTrigger trigger = new GitPingTrigger();
-            trigger.setSource(GitSource.GITEE);
-            trigger.setEvent(GitTrigger.GitEvent.PING);
-            return trigger;
+    private static GitTrigger toPushOrTagTrigger(Fields fields) {
+        if (!fields.has("head_commit.id")) {
+            throw new ArgumentException("No commits data on Gitee push or tag event");
         }
-    }
 
-    private static class PushOrTagEvent implements GitTriggerable {
+        String ref = fields.get("ref");
 
-        private static final String TagRefPrefix = "refs/tags";
+        GitPushTrigger trigger = new GitPushTrigger();
+        trigger.setSource(GitSource.GITEE);
+        trigger.setEvent(ref.startsWith(TagRefPrefix) ? GitTrigger.GitEvent.TAG : GitTrigger.GitEvent.PUSH);
 
-        public String ref;
+        trigger.setAuthor(toGitUser(fields, "pusher"));
+        trigger.setCommitId(fields.get("head_commit.id"));
+        trigger.setMessage(fields.get("head_commit.message"));
+        trigger.setCommitUrl(fields.get("head_commit.url"));
+        trigger.setRef(BranchHelper.getBranchName(ref));
+        trigger.setTime(fields.get("head_commit.timestamp"));
+        trigger.setNumOfCommit(fields.getInt("total_commits_count"));
 
-        @JsonProperty("head_commit")
-        public Commit commit;
-
-        @JsonProperty("total_commits_count")
-        public int numOfCommit;
-
-        public Author pusher;
-
-        public Author sender;
-
-        private GitTrigger.GitEvent getEvent() {
-            return ref.startsWith(TagRefPrefix) ? GitTrigger.GitEvent.TAG : GitTrigger.GitEvent.PUSH;
+        if (Objects.equals(fields.get("pusher.id"), fields.get("sender.id"))) {
+            trigger.getAuthor().setAvatarLink(fields.get("sender.avatar_url"));
         }
 
-        @Override
-        public GitTrigger toTrigger() {
-            if (Objects.isNull(commit)) {
-                throw new ArgumentException("No commits data on Gitee push or tag event");
-            }
-
-            GitPushTrigger trigger = new GitPushTrigger();
-            trigger.setSource(GitSource.GITEE);
-            trigger.setEvent(getEvent());
-
-            trigger.setAuthor(pusher.toGitUser());
-            trigger.setCommitId(commit.id);
-            trigger.setMessage(commit.message);
-            trigger.setCommitUrl(commit.url);
-            trigger.setRef(BranchHelper.getBranchName(ref));
-            trigger.setTime(commit.timestamp);
-            trigger.setNumOfCommit(numOfCommit);
-
-            if (pusher.equals(sender)) {
-                trigger.getAuthor().setAvatarLink(sender.avatarUrl);
-            }
-
-            return trigger;
-        }
+        return trigger;
     }
 
-    private static class PrEvent implements GitTriggerable {
-
-        public static final String PrOpen = "open";
-
-        public static final String PrMerged = "merge";
-
-        public String action;
-
-        @JsonProperty("pull_request")
-        public PullRequest prBody;
-
-        public Author sender;
-
-        @Override
-        public GitTrigger toTrigger() {
-            GitPrTrigger trigger = new GitPrTrigger();
-            trigger.setSource(GitSource.GITEE);
-            trigger.setEvent(getEvent());
-
-            trigger.setTitle(prBody.title);
-            trigger.setBody(prBody.body);
-            trigger.setTime(prBody.createdAt);
-            trigger.setNumber(prBody.number);
-            trigger.setUrl(prBody.url);
-            trigger.setMerged(isMerged());
-            trigger.setNumOfCommits(prBody.numOfCommits);
-            trigger.setNumOfFileChanges(prBody.numOfFileChanges);
-            trigger.setSender(sender.toGitUser());
-
-            GitPrTrigger.Source head = new GitPrTrigger.Source();
-            head.setCommit(prBody.head.sha);
-            head.setRef(prBody.head.ref);
-            head.setRepoName(prBody.head.repo.fullName);
-            head.setRepoUrl(prBody.head.repo.url);
-            trigger.setHead(head);
-
-            GitPrTrigger.Source base = new GitPrTrigger.Source();
-            base.setCommit(prBody.base.sha);
-            base.setRef(prBody.base.ref);
-            base.setRepoName(prBody.base.repo.fullName);
-            base.setRepoUrl(prBody.base.repo.url);
-            trigger.setBase(base);
-
-            return trigger;
-        }
+    private static GitTrigger toPrTrigger(Fields fields) {
+        String action = fields.get("action");
+
+        GitPrTrigger trigger = new GitPrTrigger();
+        trigger.setSource(GitSource.GITEE);
+        trigger.setEvent(getPrEvent(action));
+
+        trigger.setTitle(fields.get("pull_request.title"));
+        trigger.setBody(fields.get("pull_request.body"));
+        trigger.setTime(fields.get("pull_request.created_at"));
+        trigger.setNumber(fields.get("pull_request.number"));
+        trigger.setUrl(fields.get("pull_request.html_url"));
+        trigger.setMerged(PrMerged.equals(action));
+        trigger.setNumOfCommits(fields.get("pull_request.commits"));
+        trigger.setNumOfFileChanges(fields.get("pull_request.changed_files"));
+        trigger.setSender(toGitUser(fields, "sender"));
+
+        GitPrTrigger.Source head = new GitPrTrigger.Source();
+        head.setCommit(fields.get("pull_request.head.sha"));
+        head.setRef(fields.get("pull_request.head.ref"));
+        head.setRepoName(fields.get("pull_request.head.repo.full_name"));
+        head.setRepoUrl(fields.get("pull_request.head.repo.html_url"));
+        trigger.setHead(head);
+
+        GitPrTrigger.Source base = new GitPrTrigger.Source();
+        base.setCommit(fields.get("pull_request.base.sha"));
+        base.setRef(fields.get("pull_request.base.ref"));
+        base.setRepoName(fields.get("pull_request.base.repo.full_name"));
+        base.setRepoUrl(fields.get("pull_request.base.repo.html_url"));
+        trigger.setBase(base);
+
+        return trigger;
+    }
 
-        private boolean isMerged() {
-            return PrMerged.equals(action);
+    private static GitTrigger.GitEvent getPrEvent(String action) {
+        if (PrOpen.equals(action)) {
+            return GitTrigger.GitEvent.PR_OPENED;
         }
 
-        private GitTrigger.GitEvent getEvent() {
-            if (PrOpen.equals(action)) {
-                return GitTrigger.GitEvent.PR_OPENED;
-            }
-
-            if (PrMerged.equals(action)) {
-                return GitTrigger.GitEvent.PR_MERGED;
-            }
-
-            throw new ArgumentException("Cannot handle action {0} from pull request", action);
+        if (PrMerged.equals(action)) {
+            return GitTrigger.GitEvent.PR_MERGED;
         }
-    }
 
-    private static class PullRequest {
-
-        public String id;
-
-        public String number;
-
-        public String title;
-
-        public String body;
-
-        @JsonProperty("created_at")
-        public String createdAt;
-
-        @JsonProperty("html_url")
-        public String url;
-
-        @JsonProperty("commits")
-        public String numOfCommits;
-
-        @JsonProperty("changed_files")
-        public String numOfFileChanges;
-
-        public PrSource head;
-
-        public PrSource base;
+        throw new ArgumentException("Cannot handle action {0} from pull request", action);
     }
 
-    private static class PrSource {
-
-        public String ref;
-
-        public String sha;
-
-        public PrRepo repo;
+    private static GitUser toGitUser(Fields fields, String path) {
+        return new GitUser()
+                .setId(fields.get(path + ".id"))
+                .setEmail(fields.get(path + ".email"))
+                .setName(fields.get(path + ".name"))
+                .setAvatarLink(fields.get(path + ".avatar_url"))
+                .setUsername(fields.get(path + ".username"));
     }
 
-    private static class PrRepo {
-
-        public String id;
-
-        @JsonProperty("full_name")
-        public String fullName;
-
-        @JsonProperty("html_url")
-        public String url;
-    }
-
-    private static class Commit {
-
-        public String id;
-
-        public String message;
-
-        public String timestamp;
-
-        public String url;
-
-        public Author author;
-    }
-
-    @EqualsAndHashCode(of = {"id"})
-    private static class Author {
-
-        public String id;
-
-        public String name;
-
-        public String email;
-
-        public String username;
-
-        @JsonProperty("avatar_url")
-        public String avatarUrl;
+    private static class PingEvent implements GitTriggerable {
 
-        public GitUser toGitUser() {
-            return new GitUser()
-                    .setId(id)
-                    .setEmail(email)
-                    .setName(name)
-                    .setAvatarLink(avatarUrl)
-                    .setUsername(username);
+        @Override
+        public GitPingTrigger toTrigger() {
+            GitPingTrigger trigger = new GitPingTrigger();
+            trigger.setSource(GitSource.GITEE);
+            trigger.setEvent(GitTrigger.GitEvent.PING);
+            return trigger;
         }
     }
 }
@@ -16,10 +16,10 @@
 
 package com.flowci.core.trigger.converter;
 
-import com.fasterxml.jackson.annotation.JsonAlias;
 import com.flowci.core.common.domain.GitSource;
 import com.flowci.core.trigger.domain.*;
 import com.flowci.core.trigger.util.BranchHelper;
+import com.flowci.core.trigger.util.JsonFieldReader.Fields;
 import com.flowci.exception.ArgumentException;
 import com.flowci.util.StringHelper;
 import com.google.common.collect.ImmutableMap;
@@ -27,9 +27,7 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
-import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.function.Function;
 
 @Log4j2
@@ -44,11 +42,59 @@ public class GogsConverter extends TriggerConverter {
 
     public static final String PR = "pull_request";
 
+    private static final String ACTION_OPENED = "opened";
+
+    private static final String ACTION_CLOSED = "closed";
+
+    private static final String[] PushFields = {
+            "ref",
+            "commits[]",
+            "commits[0].id",
+            "commits[0].message",
+            "commits[0].url",
+            "commits[0].timestamp",
+            "pusher.id",
+            "pusher.username",
+            "pusher.email",
+            "pusher.avatar_url"
+    };
+
+    private static final String[] ReleaseFields = {
+            "release.id",
+            "release.tag_name",
+            "release.name",
+            "release.created_at",
+            "release.author.id",
+            "release.author.username",
+            "release.author.email",
+            "release.author.avatar_url"
+    };
+
+    private static final String[] PrFields = {
+            "action",
+            "pull_request.number",
+            "pull_request.title",
+            "pull_request.body",
+            "pull_request.html_url",
+            "pull_request.head_repo.full_name",
+            "pull_request.head_repo.html_url",
+            "pull_request.head_branch",
+            "pull_request.base_repo.full_name",
+            "pull_request.base_repo.html_url",
+            "pull_request.base_branch",
+            "pull_request.merged",
+            "pull_request.merged_at",
+            "sender.id",
+            "sender.username",
+            "sender.email",
+            "sender.avatar_url"
+    };
+
     private final Map<String, Function<InputStream, GitTrigger>> mapping =
             ImmutableMap.<String, Function<InputStream, GitTrigger>>builder()
-                    .put(Push, new EventConverter<>("Push", PushEvent.class))
-                    .put(Tag, new EventConverter<>("Tag", ReleaseEvent.class))
-                    .put(PR, new EventConverter<>("PR", PrEvent.class))
+                    .put(Push, new FieldsConverter("Push", GogsConverter::toPushTrigger, PushFields))
+                    .put(Tag, new FieldsConverter("Tag", GogsConverter::toTagTrigger, ReleaseFields))
+                    .put(PR, new FieldsConverter("PR", GogsConverter::toPrTrigger, PrFields))
                     .build();
 
     @Override
@@ -61,238 +107,101 @@ public class GogsConverter extends TriggerConverter {
         return mapping;
     }
 
-    // ======================================================
-    //      Objects for GitHub
-    // ======================================================
-
-    private static class PushEvent implements GitTriggerable {
-
-        public String before;
-
-        public String after;
-
-        public String ref;
-
-        public List<Commit> commits;
-
-        public User pusher;
-
-        @Override
-        public GitTrigger toTrigger() {
-            if (Objects.isNull(commits) || commits.isEmpty()) {
-                throw new ArgumentException("No commits data on Gogs push event");
-            }
-
-            GitPushTrigger trigger = new GitPushTrigger();
-            trigger.setSource(GitSource.GOGS);
-            trigger.setEvent(GitTrigger.GitEvent.PUSH);
-
-            Commit commit = commits.get(0);
-
-            trigger.setCommitId(commit.id);
-            trigger.setMessage(commit.message);
-            trigger.setCommitUrl(commit.url);
-            trigger.setRef(BranchHelper.getBranchName(ref));
-            trigger.setTime(commit.timestamp);
-            trigger.setNumOfCommit(commits.size());
-
-            // set commit author info
-            trigger.setAuthor(pusher.toGitUser());
-
-            return trigger;
+    private static GitTrigger toPushTrigger(Fields fields) {
+        int numOfCommit = fields.getInt("commits[]");
+        if (numOfCommit == 0) {
+            throw new ArgumentException("No commits data on Gogs push event");
         }
-    }
 
-    // Release event
-    private static class ReleaseEvent implements GitTriggerable {
+        GitPushTrigger trigger = new GitPushTrigger();
+        trigger.setSource(GitSource.GOGS);
+        trigger.setEvent(GitTrigger.GitEvent.PUSH);
 
-        public String action;
+        trigger.setCommitId(fields.get("commits[0].id"));
+        trigger.setMessage(fields.get("commits[0].message"));
+        trigger.setCommitUrl(fields.get("commits[0].url"));
+        trigger.setRef(BranchHelper.getBranchName(fields.get("ref")));
+        trigger.setTime(fields.get("commits[0].timestamp"));
+        trigger.setNumOfCommit(numOfCommit);
 
-        public Release release;
+        // set commit author info
+        trigger.setAuthor(toGitUser(fields, "pusher"));
 
-        @Override
-        public GitTrigger toTrigger() {
-            GitPushTrigger tag = new GitPushTrigger();
-            tag.setEvent(GitTrigger.GitEvent.TAG);
-            tag.setSource(GitSource.GOGS);
-
-            tag.setRef(release.tagName);
-            tag.setMessage(release.name);
-            tag.setCommitId(release.id);
-            tag.setTime(release.createdAt);
-            tag.setCommitUrl(StringHelper.EMPTY);
-            tag.setAuthor(release.author.toGitUser());
-            tag.setNumOfCommit(0);
-
-            return tag;
-        }
+        return trigger;
     }
 
-    private static class PrEvent implements GitTriggerable {
-
-        static final String ACTION_OPENED = "opened";
+    private static GitTrigger toTagTrigger(Fields fields) {
+        GitPushTrigger tag = new GitPushTrigger();
+        tag.setEvent(GitTrigger.GitEvent.TAG);
+        tag.setSource(GitSource.GOGS);
 
-        static final String ACTION_CLOSED = "closed";
+        tag.setRef(fields.get("release.tag_name"));
+        tag.setMessage(fields.get("release.name"));
+        tag.setCommitId(fields.get("release.id"));
+        tag.setTime(fields.get("release.created_at"));
+        tag.setCommitUrl(StringHelper.EMPTY);
+        tag.setAuthor(toGitUser(fields, "release.author"));
+        tag.setNumOfCommit(0);
 
-        public String action;
-
-        @JsonAlias("pull_request")
-        public PrBody prBody;
-
-        public User sender;
-
-        @Override
-        public GitTrigger toTrigger() {
-            GitPrTrigger trigger = new GitPrTrigger();
-            setTriggerEvent(trigger);
-
-            trigger.setSource(GitSource.GOGS);
-            trigger.setNumber(prBody.number);
-            trigger.setBody(prBody.body);
-            trigger.setTitle(prBody.title);
-            trigger.setUrl(prBody.url);
-            trigger.setTime(prBody.mergedAt);
-            trigger.setNumOfCommits(StringHelper.EMPTY);
-            trigger.setNumOfFileChanges(StringHelper.EMPTY);
-            trigger.setMerged(prBody.merged);
-
-            GitPrTrigger.Source head = new GitPrTrigger.Source();
-            head.setCommit(StringHelper.EMPTY);
-            head.setRef(prBody.headBranch);
-            head.setRepoName(prBody.head.fullName);
-            head.setRepoUrl(prBody.head.url);
-            trigger.setHead(head);
-
-            GitPrTrigger.Source base = new GitPrTrigger.Source();
-            base.setCommit(StringHelper.EMPTY);
-            base.setRef(prBody.baseBranch);
-            base.setRepoName(prBody.base.fullName);
-            base.setRepoUrl(prBody.base.url);
-            trigger.setBase(base);
-
-            trigger.setSender(sender.toGitUser());
-
-            if (!StringHelper.hasValue(trigger.getTime())) {
-                trigger.setTime(StringHelper.EMPTY);
-            }
-
-            return trigger;
-        }
-
-        private void setTriggerEvent(GitPrTrigger trigger) {
-            if (action.equals(ACTION_OPENED)) {
-                trigger.setEvent(GitTrigger.GitEvent.PR_OPENED);
-                return;
-            }
-
-            if (action.equals(ACTION_CLOSED) && prBody.merged) {
-                trigger.setEvent(GitTrigger.GitEvent.PR_MERGED);
-                return;
-            }
-
-            throw new ArgumentException("Cannot handle action {0} from pull request", action);
-        }
+        return tag;
     }
 
-    private static class PrBody {
-
-        public String id;
-
-        public String number;
-
-        public String title;
-
-        public String body;
-
-        public User user;
-
-        @JsonAlias("html_url")
-        public String url;
-
-        @JsonAlias("head_repo")
-        public Repo head;
-
-        @JsonAlias("head_branch")
-        public String headBranch;
-
-        @JsonAlias("base_repo")
-        public Repo base;
-
-        @JsonAlias("base_branch")
-        public String baseBranch;
-
-        public boolean merged;
-
-        @JsonAlias("merged_at")
-        public String mergedAt;
-    }
-
-    private static class Repo {
-
-        public String name;
-
-        @JsonAlias("full_name")
-        public String fullName;
-
-        @JsonAlias("html_url")
-        public String url;
-    }
-
-    private static class Release {
-
-        public String id;
-
-        @JsonAlias("tag_name")
-        public String tagName;
-
-        @JsonAlias("target_commitish")
-        public String ref;
-
-        // title
-        public String name;
-
-        public String body;
-
-        @JsonAlias("created_at")
-        public String createdAt;
+    private static GitTrigger toPrTrigger(Fields fields) {
+        boolean merged = Boolean.TRUE.equals(fields.getBoolean("pull_request.merged"));
+
+        GitPrTrigger trigger = new GitPrTrigger();
+        trigger.setEvent(getPrEvent(fields.get("action"), merged));
+
+        trigger.setSource(GitSource.GOGS);
+        trigger.setNumber(fields.get("pull_request.number"));
+        trigger.setBody(fields.get("pull_request.body"));
+        trigger.setTitle(fields.get("pull_request.title"));
+        trigger.setUrl(fields.get("pull_request.html_url"));
+        trigger.setTime(fields.get("pull_request.merged_at"));
+        trigger.setNumOfCommits(StringHelper.EMPTY);
+        trigger.setNumOfFileChanges(StringHelper.EMPTY);
+        trigger.setMerged(merged);
+
+        GitPrTrigger.Source head = new GitPrTrigger.Source();
+        head.setCommit(StringHelper.EMPTY);
+        head.setRef(fields.get("pull_request.head_branch"));
+        head.setRepoName(fields.get("pull_request.head_repo.full_name"));
+        head.setRepoUrl(fields.get("pull_request.head_repo.html_url"));
+        trigger.setHead(head);
+
+        GitPrTrigger.Source base = new GitPrTrigger.Source();
+        base.setCommit(StringHelper.EMPTY);
+        base.setRef(fields.get("pull_request.base_branch"));
+        base.setRepoName(fields.get("pull_request.base_repo.full_name"));
+        base.setRepoUrl(fields.get("pull_request.base_repo.html_url"));
+        trigger.setBase(base);
+
+        trigger.setSender(toGitUser(fields, "sender"));
+
+        if (!StringHelper.hasValue(trigger.getTime())) {
+            trigger.setTime(StringHelper.EMPTY);
+        }
 
-        public User author;
+        return trigger;
     }
 
-    private static class Commit {
-
-        public String id;
-
-        public String message;
-
-        public String url;
-
-        public User author;
-
-        public User committer;
+    private static GitTrigger.GitEvent getPrEvent(String action, boolean merged) {
+        if (ACTION_OPENED.equals(action)) {
+            return GitTrigger.GitEvent.PR_OPENED;
+        }
 
-        public List<String> modified;
+        if (ACTION_CLOSED.equals(action) && merged) {
+            return GitTrigger.GitEvent.PR_MERGED;
+        }
 
-        public String timestamp;
+        throw new ArgumentException("Cannot handle action {0} from pull request", action);
     }
 
-    private static class User {
-
-        public String id;
-
-        public String username;
-
-        public String email;
-
-        @JsonAlias("avatar_url")
-        public String avatarUrl;
-
-        GitUser toGitUser() {
-            return new GitUser()
-                    .setId(id)
-                    .setEmail(email)
-                    .setUsername(username)
-                    .setAvatarLink(avatarUrl);
-        }
+    private static GitUser toGitUser(Fields fields, String path) {
+        return new GitUser()
+                .setId(fields.get(path + ".id"))
+                .setEmail(fields.get(path + ".email"))
+                .setUsername(fields.get(path + ".username"))
+                .setAvatarLink(fields.get(path + ".avatar_url"));
     }
 }
@@ -20,6 +20,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flowci.core.common.domain.GitSource;
 import com.flowci.core.trigger.domain.GitTriggerable;
 import com.flowci.core.trigger.domain.GitTrigger;
+import com.flowci.core.trigger.util.JsonFieldReader;
+import com.flowci.core.trigger.util.JsonFieldReader.Fields;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -77,4 +79,33 @@ public abstract class TriggerConverter {
             }
         }
     }
+
+    /**
+     * Convert event by streaming the required fields only, for large payload like push event
+     */
+    class FieldsConverter implements Function<InputStream, GitTrigger> {
+
+        private final String eventName;
+
+        private final JsonFieldReader reader;
+
+        private final Function<Fields, GitTrigger> mapper;
+
+        FieldsConverter(String eventName, Function<Fields, GitTrigger> mapper, String... paths) {
+            this.eventName = eventName;
+            this.reader = new JsonFieldReader(paths);
+            this.mapper = mapper;
+        }
+
+        @Override
+        public GitTrigger apply(InputStream stream) {
+            try {
+                Fields fields = reader.read(stream);
+                return mapper.apply(fields);
+            } catch (IOException e) {
+                log.warn("Unable to parse {} event for {}", eventName, getGitSource());
+                return null;
+            }
+        }
+    }
 }
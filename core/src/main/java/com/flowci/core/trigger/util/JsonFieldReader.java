@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.trigger.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Pull scalar values of given paths from json stream without building object graph,
+ * everything not on the paths will be skipped by the parser.
+ * <p>
+ * Path syntax:
+ * - 'head_commit.id': field of nested object
+ * - 'commits[0].id': field of array item by index
+ * - 'commits[]': number of items in array
+ *
+ * @author yang
+ */
+public final class JsonFieldReader {
+
+    private static final JsonFactory Factory = new JsonFactory();
+
+    private static final String SizeSuffix = "[]";
+
+    private final Node root = new Node();
+
+    private final int numOfPaths;
+
+    private final boolean hasSizePath;
+
+    public JsonFieldReader(String... paths) {
+        boolean hasSizePath = false;
+
+        for (String path : paths) {
+            if (path.endsWith(SizeSuffix)) {
+                hasSizePath = true;
+                root.lookup(path.substring(0, path.length() - SizeSuffix.length())).sizePath = path;
+                continue;
+            }
+
+            root.lookup(path).path = path;
+        }
+
+        this.numOfPaths = paths.length;
+        this.hasSizePath = hasSizePath;
+    }
+
+    public Fields read(InputStream stream) throws IOException {
+        try (JsonParser parser = Factory.createParser(stream)) {
+            Fields fields = new Fields();
+            if (parser.nextToken() == null) {
+                return fields;
+            }
+
+            readValue(parser, root, fields);
+            return fields;
+        }
+    }
+
+    private void readValue(JsonParser parser, Node node, Fields fields) throws IOException {
+        JsonToken token = parser.currentToken();
+
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.fields.get(parser.getCurrentName());
+                parser.nextToken();
+
+                if (Objects.isNull(child)) {
+                    parser.skipChildren();
+                } else {
+                    readValue(parser, child, fields);
+                }
+
+                if (isCompleted(fields)) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        if (token == JsonToken.START_ARRAY) {
+            int size = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                Node child = node.items.get(size);
+
+                if (Objects.isNull(child)) {
+                    parser.skipChildren();
+                } else {
+                    readValue(parser, child, fields);
+                }
+
+                if (isCompleted(fields)) {
+                    return;
+                }
+                size++;
+            }
+
+            if (Objects.nonNull(node.sizePath)) {
+                fields.values.put(node.sizePath, Integer.toString(size));
+            }
+            return;
+        }
+
+        if (Objects.nonNull(node.path)) {
+            fields.values.put(node.path, token == JsonToken.VALUE_NULL ? null : parser.getValueAsString());
+        }
+    }
+
+    /**
+     * Stop reading if all paths loaded, size path requires the whole array to be scanned
+     */
+    private boolean isCompleted(Fields fields) {
+        return !hasSizePath && fields.values.size() == numOfPaths;
+    }
+
+    /**
+     * Path tree node, the path and size path are set if it's required
+     */
+    private static final class Node {
+
+        private final Map<String, Node> fields = new HashMap<>();
+
+        private final Map<Integer, Node> items = new HashMap<>();
+
+        private String path;
+
+        private String sizePath;
+
+        private Node lookup(String path) {
+            Node node = this;
+            int start = 0;
+
+            for (int i = 0; i <= path.length(); i++) {
+                char c = i == path.length() ? '.' : path.charAt(i);
+
+                if (c == '.' || c == '[') {
+                    if (i > start) {
+                        node = node.fields.computeIfAbsent(path.substring(start, i), k -> new Node());
+                    }
+                    start = i + 1;
+                    continue;
+                }
+
+                if (c == ']') {
+                    int index = Integer.parseInt(path.substring(start, i));
+                    node = node.items.computeIfAbsent(index, k -> new Node());
+                    start = i + 1;
+                }
+            }
+
+            return node;
+        }
+    }
+
+    public static final class Fields {
+
+        private final Map<String, String> values = new HashMap<>();
+
+        public boolean has(String path) {
+            return Objects.nonNull(values.get(path));
+        }
+
+        public String get(String path) {
+            return values.get(path);
+        }
+
+        public int getInt(String path) {
+            String value = values.get(path);
+            return Objects.isNull(value) ? 0 : Integer.parseInt(value);
+        }
+
+        public Boolean getBoolean(String path) {
+            String value = values.get(path);
+            return Objects.isNull(value) ? null : Boolean.valueOf(value);
+        }
+    }
+}
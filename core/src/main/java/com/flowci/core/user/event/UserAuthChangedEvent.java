@@ -0,0 +1,41 @@
+/*
+ *   Copyright (c) 2019 flow.ci
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+package com.flowci.core.user.event;
+
+import com.flowci.core.common.event.BroadcastEvent;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Broadcast to all nodes when user logout, password or role changed, or user deleted,
+ * cached credentials of the user should be dropped.
+ */
+@Getter
+@Setter
+public class UserAuthChangedEvent extends BroadcastEvent {
+
+    private String email;
+
+    public UserAuthChangedEvent() {
+        super();
+    }
+
+    public UserAuthChangedEvent(Object source, String email) {
+        super(source);
+        this.email = email;
+    }
+}
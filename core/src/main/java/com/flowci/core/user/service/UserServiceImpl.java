@@ -21,6 +21,7 @@ import com.flowci.core.common.manager.SpringEventManager;
 import com.flowci.core.user.dao.UserDao;
 import com.flowci.core.user.domain.User;
 import com.flowci.core.user.domain.User.Role;
+import com.flowci.core.user.event.UserAuthChangedEvent;
 import com.flowci.core.user.event.UserDeletedEvent;
 import com.flowci.exception.ArgumentException;
 import com.flowci.exception.DuplicateException;
@@ -34,6 +35,7 @@ import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -114,10 +116,7 @@ public class UserServiceImpl implements UserService {
         if (Objects.equals(user.getPasswordOnMd5(), oldOnMd5)) {
             user.setPasswordOnMd5(newOnMd5);
             userDao.save(user);
-            Cache cache = userCacheManager.getCache(UserCacheName);
-            if (cache != null) {
-                cache.evict(user.getEmail());
-            }
+            eventManager.publishAndBroadcast(new UserAuthChangedEvent(this, user.getEmail()));
             return;
         }
 
@@ -137,6 +136,7 @@ public class UserServiceImpl implements UserService {
 
         user.setRole(newRole);
         userDao.save(user);
+        eventManager.publishAndBroadcast(new UserAuthChangedEvent(this, email));
     }
 
     @Override
@@ -149,9 +149,25 @@ public class UserServiceImpl implements UserService {
 
         userDao.delete(user);
         eventManager.publish(new UserDeletedEvent(this, user));
+        eventManager.publishAndBroadcast(new UserAuthChangedEvent(this, email));
         return user;
     }
 
+    /**
+     * Evict user cache on all nodes, since user changed on other node is not visible from local cache
+     */
+    @EventListener
+    public void onUserAuthChanged(UserAuthChangedEvent event) {
+        evictCache(event.getEmail());
+    }
+
+    private void evictCache(String email) {
+        Cache cache = userCacheManager.getCache(UserCacheName);
+        if (cache != null) {
+            cache.evict(email);
+        }
+    }
+
     private User create(String email, String md5pw, Role role, Boolean isDefaultAdmin) {
         try {
             User user = new User(email, md5pw, role, isDefaultAdmin);
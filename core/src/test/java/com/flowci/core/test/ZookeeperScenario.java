@@ -24,7 +24,7 @@ import com.flowci.core.agent.event.OnConnectedEvent;
 import com.flowci.core.common.config.AppProperties;
 import com.flowci.domain.Common;
 import com.flowci.domain.ObjectWrapper;
-import com.flowci.zookeeper.ZookeeperClient;
+import com.flowci.zookeeper.CoordinationProvider;
 import lombok.extern.log4j.Log4j2;
 import org.junit.Assert;
 import org.junit.Before;
@@ -51,7 +51,7 @@ public abstract class ZookeeperScenario extends SpringScenario {
     private final Map<String, Object> attributes = new HashMap<>();
 
     @Autowired
-    private ZookeeperClient zk;
+    private CoordinationProvider zk;
 
     @Autowired
     private AppProperties.Zookeeper zkProperties;
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.agent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flowci.core.agent.domain.AgentFrame;
+import com.flowci.core.agent.domain.AgentFrame.Opcode;
+import com.flowci.core.agent.domain.ShellLog;
+import com.flowci.core.common.helper.JacksonHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * @author yang
+ */
+public class AgentFrameTest {
+
+    private final ObjectMapper objectMapper = JacksonHelper.create();
+
+    @Test
+    public void should_decode_v1_frame() throws Exception {
+        ShellLog log = new ShellLog();
+        log.setJobId("job");
+        log.setStepId("step");
+        log.setLog("aGVsbG8=");
+
+        ByteBuffer payload = AgentFrame.encode(Opcode.ShellLog, objectMapper.writeValueAsBytes(log));
+
+        Optional<AgentFrame> frame = AgentFrame.decode(payload);
+        Assert.assertTrue(frame.isPresent());
+        Assert.assertEquals(Opcode.ShellLog, frame.get().getOpcode());
+
+        ShellLog decoded = JacksonHelper.readValue(objectMapper, frame.get().getBody(), ShellLog.class);
+        Assert.assertEquals("job", decoded.getJobId());
+        Assert.assertEquals("step", decoded.getStepId());
+        Assert.assertEquals("aGVsbG8=", decoded.getLog());
+    }
+
+    @Test
+    public void should_decode_legacy_frame() {
+        byte[] bytes = "cmd_out___ \u0001{\"id\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+
+        Optional<AgentFrame> frame = AgentFrame.decode(ByteBuffer.wrap(bytes));
+        Assert.assertTrue(frame.isPresent());
+        Assert.assertEquals(Opcode.CmdOut, frame.get().getOpcode());
+
+        ByteBuffer body = frame.get().getBody();
+        Assert.assertEquals(1, body.get(body.position()));
+
+        ByteBuffer json = frame.get().bodyAfter(1);
+        Assert.assertEquals("{\"id\":\"1\"}", StandardCharsets.UTF_8.decode(json).toString());
+    }
+
+    @Test
+    public void should_reject_invalid_frame() {
+        Assert.assertFalse(AgentFrame.decode(ByteBuffer.wrap("unknown___ {}".getBytes())).isPresent());
+        Assert.assertFalse(AgentFrame.decode(ByteBuffer.wrap("slog______".getBytes())).isPresent());
+
+        ByteBuffer truncated = ByteBuffer.allocate(8);
+        truncated.put(AgentFrame.V1).put(Opcode.Profile.getCode()).putInt(100).putShort((short) 0);
+        truncated.flip();
+        Assert.assertFalse(AgentFrame.decode(truncated).isPresent());
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.agent;
+
+import com.flowci.core.agent.manager.AgentRouteManager;
+import com.flowci.core.common.config.AppProperties;
+import com.flowci.core.test.SpringScenario;
+import com.flowci.zookeeper.CoordinationProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author yang
+ */
+public class AgentRouteManagerTest extends SpringScenario {
+
+    @Autowired
+    private AgentRouteManager agentRouteManager;
+
+    @Autowired
+    private CoordinationProvider zk;
+
+    @Autowired
+    private AppProperties.Zookeeper zkProperties;
+
+    @Autowired
+    private String agentCmdQueue;
+
+    @Test
+    public void should_register_current_node_as_agent_owner() {
+        String token = "route-test-token";
+        String path = zk.makePath(zkProperties.getAgentRouteRoot(), token);
+
+        agentRouteManager.register(token);
+        Assert.assertTrue(zk.exist(path));
+        Assert.assertEquals(agentCmdQueue, new String(zk.get(path), StandardCharsets.UTF_8));
+
+        // should not route to itself
+        Assert.assertFalse(agentRouteManager.send(token, "hello".getBytes(), false));
+
+        agentRouteManager.unregister(token);
+        Assert.assertFalse(zk.exist(path));
+        Assert.assertFalse(agentRouteManager.send(token, "hello".getBytes(), false));
+    }
+}
@@ -25,7 +25,7 @@ import com.flowci.core.agent.event.CmdSentEvent;
 import com.flowci.core.agent.service.AgentService;
 import com.flowci.core.common.config.AppProperties;
 import com.flowci.core.test.ZookeeperScenario;
-import com.flowci.zookeeper.ZookeeperClient;
+import com.flowci.zookeeper.CoordinationProvider;
 import com.google.common.collect.ImmutableSet;
 import org.junit.Assert;
 import org.junit.Test;
@@ -44,7 +44,7 @@ public class AgentServiceTest extends ZookeeperScenario {
     private AppProperties.Zookeeper zkProperties;
 
     @Autowired
-    private ZookeeperClient zk;
+    private CoordinationProvider zk;
 
     @Autowired
     private AgentService agentService;
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.agent;
+
+import com.flowci.core.agent.manager.HostUnitTracker;
+import com.flowci.docker.ContainerManager;
+import com.flowci.docker.DockerManager;
+import com.flowci.docker.ImageManager;
+import com.flowci.docker.domain.Output;
+import com.flowci.docker.domain.StartOption;
+import com.flowci.docker.domain.Unit;
+import com.flowci.docker.domain.UnitEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @author yang
+ */
+public class HostUnitTrackerTest {
+
+    @Test
+    public void should_list_once_and_track_by_events() throws Exception {
+        FakeDockerManager docker = new FakeDockerManager(true);
+        docker.units.add(new FakeUnit("1", "/flowci-agent-a"));
+
+        HostUnitTracker tracker = new HostUnitTracker("host", "flowci-agent", docker);
+        Assert.assertEquals(1, tracker.list().size());
+        Assert.assertTrue(tracker.isWatching());
+
+        // when: container created and removed
+        docker.onEvent.accept(new UnitEvent(UnitEvent.Type.Changed, "2", "flowci-agent-b", new FakeUnit("2", "/flowci-agent-b")));
+        docker.onEvent.accept(new UnitEvent(UnitEvent.Type.Removed, "1", "flowci-agent-a", null));
+
+        // then: list from tracked state only
+        List<Unit> units = tracker.list();
+        Assert.assertEquals(1, units.size());
+        Assert.assertEquals("2", units.get(0).getId());
+        Assert.assertEquals(1, docker.numOfList);
+
+        // when: watch closed by error
+        docker.onEvent.accept(UnitEvent.closed());
+        Assert.assertFalse(tracker.isWatching());
+        Assert.assertTrue(docker.watchClosed);
+
+        // then: watch restarted and listed again
+        Assert.assertEquals(1, tracker.list().size());
+        Assert.assertEquals(2, docker.numOfList);
+        Assert.assertEquals(2, docker.numOfWatch);
+    }
+
+    @Test
+    public void should_not_add_unit_removed_while_listing() throws Exception {
+        FakeDockerManager docker = new FakeDockerManager(true);
+        docker.units.add(new FakeUnit("1", "/flowci-agent-a"));
+        docker.units.add(new FakeUnit("2", "/flowci-agent-b"));
+
+        // container removed after listed but before the list returned
+        docker.duringList = () -> docker.onEvent.accept(
+                new UnitEvent(UnitEvent.Type.Removed, "1", "flowci-agent-a", null));
+
+        HostUnitTracker tracker = new HostUnitTracker("host", "flowci-agent", docker);
+        List<Unit> units = tracker.list();
+
+        Assert.assertTrue(tracker.isWatching());
+        Assert.assertEquals(1, units.size());
+        Assert.assertEquals("2", units.get(0).getId());
+    }
+
+    @Test
+    public void should_list_every_time_if_watch_not_supported() throws Exception {
+        FakeDockerManager docker = new FakeDockerManager(false);
+        docker.units.add(new FakeUnit("1", "/flowci-agent-a"));
+
+        HostUnitTracker tracker = new HostUnitTracker("host", "flowci-agent", docker);
+        Assert.assertEquals(1, tracker.list().size());
+        Assert.assertEquals(1, tracker.list().size());
+
+        Assert.assertFalse(tracker.isWatching());
+        Assert.assertEquals(2, docker.numOfList);
+        Assert.assertEquals(1, docker.numOfWatch);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class FakeUnit implements Unit {
+
+        private final String id;
+
+        private final String name;
+
+        @Override
+        public String getStatus() {
+            return "running";
+        }
+
+        @Override
+        public Long getExitCode() {
+            return null;
+        }
+
+        @Override
+        public Boolean isRunning() {
+            return true;
+        }
+    }
+
+    private static class FakeDockerManager implements DockerManager, ContainerManager {
+
+        private final boolean watchSupported;
+
+        private final List<Unit> units = new ArrayList<>();
+
+        private Consumer<UnitEvent> onEvent;
+
+        private Runnable duringList = () -> {
+        };
+
+        private int numOfList;
+
+        private int numOfWatch;
+
+        private boolean watchClosed;
+
+        FakeDockerManager(boolean watchSupported) {
+            this.watchSupported = watchSupported;
+        }
+
+        @Override
+        public ContainerManager getContainerManager() {
+            return this;
+        }
+
+        @Override
+        public ImageManager getImageManager() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public List<Unit> list(String statusFilter, String nameFilter) {
+            numOfList++;
+            List<Unit> listed = new ArrayList<>(units);
+            duringList.run();
+            return listed;
+        }
+
+        @Override
+        public Unit inspect(String id) {
+            return null;
+        }
+
+        @Override
+        public String start(StartOption option) {
+            return null;
+        }
+
+        @Override
+        public void wait(String id, int timeoutInSeconds, Consumer<Output> onLog) {
+        }
+
+        @Override
+        public void stop(String id) {
+        }
+
+        @Override
+        public void resume(String id) {
+        }
+
+        @Override
+        public void delete(String id) {
+        }
+
+        @Override
+        public Closeable watch(String namePrefix, Consumer<UnitEvent> onEvent) {
+            numOfWatch++;
+            if (!watchSupported) {
+                throw new UnsupportedOperationException();
+            }
+
+            this.onEvent = onEvent;
+            this.watchClosed = false;
+            return () -> watchClosed = true;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.agent;
+
+import com.flowci.core.agent.manager.OutboundQueue;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * @author yang
+ */
+public class OutboundQueueTest {
+
+    private final ExecutorService sender = Executors.newFixedThreadPool(2);
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private WebSocketSession session;
+
+    @Before
+    public void init() throws Exception {
+        session = Mockito.mock(WebSocketSession.class);
+        Mockito.doAnswer(invocation -> {
+            BinaryMessage message = invocation.getArgument(0);
+            String body = new String(message.getPayload().array());
+            if (body.equals("block")) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            sent.add(body);
+            return null;
+        }).when(session).sendMessage(Mockito.any());
+    }
+
+    @After
+    public void close() {
+        release.countDown();
+        sender.shutdownNow();
+    }
+
+    @Test
+    public void should_send_in_order_and_drop_droppable_when_full() throws Exception {
+        OutboundQueue queue = new OutboundQueue(session, sender, 10, 10000, (q, reason) -> {
+        });
+
+        Assert.assertTrue(queue.offer("block".getBytes(), false));
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        Assert.assertTrue(queue.offer("cmd-1".getBytes(), false));
+        Assert.assertTrue(queue.offer("tty-1".getBytes(), true));
+        Assert.assertFalse(queue.offer("tty-2".getBytes(), true));
+        Assert.assertTrue(queue.offer("cmd-2".getBytes(), false));
+
+        release.countDown();
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        Assert.assertEquals(4, sent.size());
+        Assert.assertEquals("block", sent.get(0));
+        Assert.assertEquals("cmd-1", sent.get(1));
+        Assert.assertEquals("tty-1", sent.get(2));
+        Assert.assertEquals("cmd-2", sent.get(3));
+        Assert.assertEquals(0, queue.getBufferSize());
+    }
+
+    @Test
+    public void should_fail_if_send_over_time_limit() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        OutboundQueue queue = new OutboundQueue(session, sender, 1024, 100, (q, reason) -> failed.countDown());
+
+        Assert.assertTrue(queue.offer("block".getBytes(), false));
+        TimeUnit.MILLISECONDS.sleep(300);
+
+        Assert.assertFalse(queue.offer("cmd".getBytes(), false));
+        Assert.assertTrue(failed.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(queue.isFailed());
+    }
+
+    @Test
+    public void should_fail_blocked_send_by_watchdog() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        CountDownLatch failed = new CountDownLatch(1);
+        OutboundQueue queue = new OutboundQueue(session, single, 1024, 100, (q, reason) -> failed.countDown());
+
+        try {
+            Assert.assertTrue(queue.offer("block".getBytes(), false));
+            Assert.assertFalse(queue.checkSendTimeout());
+
+            // when: no more offer after the send blocked over time limit
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            // then: failed by watchdog check, callback not waiting for the blocked sender thread
+            Assert.assertTrue(queue.checkSendTimeout());
+            Assert.assertTrue(failed.await(1, TimeUnit.SECONDS));
+            Assert.assertTrue(queue.isFailed());
+            Assert.assertFalse(queue.checkSendTimeout());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.agent;
+
+import com.flowci.core.agent.domain.Agent;
+import com.flowci.core.agent.domain.AgentHost;
+import com.flowci.core.agent.domain.AgentProfile;
+import com.flowci.core.agent.domain.LocalUnixAgentHost;
+import com.flowci.core.agent.manager.PlacementStrategy;
+import com.flowci.tree.Resources;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author yang
+ */
+public class PlacementStrategyTest {
+
+    private final Agent small = agent("small");
+
+    private final Agent medium = agent("medium");
+
+    private final Agent large = agent("large");
+
+    private final Agent unknown = agent("unknown");
+
+    private final List<Agent> agents = Lists.newArrayList(unknown, large, small, medium);
+
+    private final Map<String, AgentProfile> profiles = ImmutableMap.of(
+            "small", profile(2, 0.5, 1024),
+            "medium", profile(4, 0.2, 4096),
+            "large", profile(16, 0.1, 32768)
+    );
+
+    @Test
+    public void should_select_first_agent_by_first_fit() {
+        PlacementStrategy strategy = PlacementStrategy.of(PlacementStrategy.FirstFit);
+
+        Assert.assertEquals(unknown, select(strategy, Resources.EMPTY));
+        Assert.assertEquals(large, select(strategy, new Resources(4, 2048, 0)));
+    }
+
+    @Test
+    public void should_select_smallest_agent_that_fits_by_bin_pack() {
+        PlacementStrategy strategy = PlacementStrategy.of(PlacementStrategy.BinPack);
+
+        Assert.assertEquals(small, select(strategy, Resources.EMPTY));
+        Assert.assertEquals(medium, select(strategy, new Resources(4, 2048, 0)));
+        Assert.assertEquals(large, select(strategy, new Resources(8, 0, 0)));
+    }
+
+    @Test
+    public void should_select_agent_with_most_free_resources_by_spread() {
+        PlacementStrategy strategy = PlacementStrategy.of(PlacementStrategy.Spread);
+
+        Assert.assertEquals(large, select(strategy, Resources.EMPTY));
+        Assert.assertEquals(large, select(strategy, new Resources(2, 512, 0)));
+    }
+
+    @Test
+    public void should_fallback_to_order_if_no_agent_fits() {
+        PlacementStrategy strategy = PlacementStrategy.of(PlacementStrategy.BinPack);
+        Assert.assertEquals(small, select(strategy, new Resources(64, 0, 0)));
+    }
+
+    @Test
+    public void should_order_hosts_by_free_slots() {
+        AgentHost a = host("a");
+        AgentHost b = host("b");
+        AgentHost c = host("c");
+        List<AgentHost> hosts = Lists.newArrayList(a, b, c);
+        Map<AgentHost, Integer> slots = ImmutableMap.of(a, 3, b, 1, c, 5);
+
+        List<AgentHost> binPack = PlacementStrategy.of(PlacementStrategy.BinPack).order(hosts, slots::get);
+        Assert.assertEquals(Lists.newArrayList(b, a, c), binPack);
+
+        List<AgentHost> spread = PlacementStrategy.of(PlacementStrategy.Spread).order(hosts, slots::get);
+        Assert.assertEquals(Lists.newArrayList(c, a, b), spread);
+
+        List<AgentHost> firstFit = PlacementStrategy.of(PlacementStrategy.FirstFit).order(hosts, slots::get);
+        Assert.assertEquals(hosts, firstFit);
+    }
+
+    @Test
+    public void should_order_hosts_without_free_slots_last() {
+        AgentHost a = host("a");
+        AgentHost b = host("b");
+        AgentHost c = host("c");
+        List<AgentHost> hosts = Lists.newArrayList(a, b, c);
+        Map<AgentHost, Integer> slots = ImmutableMap.of(a, 0, b, 2, c, 1);
+
+        List<AgentHost> binPack = PlacementStrategy.of(PlacementStrategy.BinPack).order(hosts, slots::get);
+        Assert.assertEquals(Lists.newArrayList(c, b, a), binPack);
+
+        List<AgentHost> firstFit = PlacementStrategy.of(PlacementStrategy.FirstFit).order(hosts, slots::get);
+        Assert.assertEquals(Lists.newArrayList(b, c, a), firstFit);
+    }
+
+    private Agent select(PlacementStrategy strategy, Resources required) {
+        return strategy.select(agents, required, token -> profiles.getOrDefault(token, AgentProfile.EMPTY)).get();
+    }
+
+    private static Agent agent(String name) {
+        Agent agent = new Agent(name);
+        agent.setToken(name);
+        return agent;
+    }
+
+    private static AgentHost host(String name) {
+        AgentHost host = new LocalUnixAgentHost();
+        host.setId(name);
+        host.setName(name);
+        return host;
+    }
+
+    private static AgentProfile profile(int cpu, double usage, int freeMemory) {
+        return new AgentProfile()
+                .setCpuNum(cpu)
+                .setCpuUsage(usage)
+                .setTotalMemory(freeMemory * 2)
+                .setFreeMemory(freeMemory)
+                .setFreeDisk(10240);
+    }
+}
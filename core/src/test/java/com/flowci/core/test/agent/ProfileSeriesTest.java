@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.agent;
+
+import com.flowci.core.agent.domain.AgentProfile;
+import com.flowci.core.agent.domain.ProfilePoint;
+import com.flowci.core.agent.domain.ProfileSeries;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * @author yang
+ */
+public class ProfileSeriesTest {
+
+    private static final long Second = 1000L;
+
+    @Test
+    public void should_downsample_to_minute_and_ten_minutes() {
+        ProfileSeries series = new ProfileSeries("token");
+
+        // 21 minutes of samples every 10 seconds, cpu as minute index
+        long start = 0;
+        for (int minute = 0; minute <= 20; minute++) {
+            for (int i = 0; i < 6; i++) {
+                long time = start + minute * ProfileSeries.Minute + i * 10 * Second;
+                series.add(time, profile(minute, 1000 + i * 10));
+            }
+        }
+
+        List<ProfilePoint> minutes = series.drainUnflushed();
+        Assert.assertEquals(20, minutes.size());
+        Assert.assertTrue(series.drainUnflushed().isEmpty());
+
+        ProfilePoint first = minutes.get(0);
+        Assert.assertEquals(0, first.getTimestamp());
+        Assert.assertEquals(ProfileSeries.Minute, first.getResolution());
+        Assert.assertEquals(0.0f, first.getCpuUsage(), 0.001);
+        Assert.assertEquals(1025, first.getFreeMemory());
+        Assert.assertEquals(19.0f, minutes.get(19).getCpuUsage(), 0.001);
+
+        // raw buffer covers last hour
+        List<ProfilePoint> raw = series.query(20 * ProfileSeries.Minute, 21 * ProfileSeries.Minute);
+        Assert.assertEquals(6, raw.size());
+        Assert.assertEquals(0, raw.get(0).getResolution());
+
+        Assert.assertEquals(20, series.getLatest().getCpuUsage(), 0.001);
+        Assert.assertNotNull(series.drainLatest());
+        Assert.assertNull(series.drainLatest());
+    }
+
+    @Test
+    public void should_query_coarser_resolution_when_raw_not_covered() {
+        ProfileSeries series = new ProfileSeries("token");
+
+        long total = ProfileSeries.RawSize * 2;
+        for (int i = 0; i < total; i++) {
+            series.add(i * 10 * Second, profile(1, 100));
+        }
+
+        List<ProfilePoint> points = series.query(0, total * 10 * Second);
+        Assert.assertFalse(points.isEmpty());
+        Assert.assertEquals(ProfileSeries.Minute, points.get(0).getResolution());
+        Assert.assertEquals(0, points.get(0).getTimestamp());
+    }
+
+    private static AgentProfile profile(double cpu, int freeMemory) {
+        AgentProfile profile = new AgentProfile();
+        profile.setId("token");
+        profile.setCpuUsage(cpu);
+        profile.setFreeMemory(freeMemory);
+        profile.setFreeDisk(5000);
+        return profile;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.agent;
+
+import com.flowci.core.agent.domain.Agent;
+import com.flowci.core.agent.domain.AgentHost;
+import com.flowci.core.agent.domain.LocalUnixAgentHost;
+import com.flowci.core.agent.manager.WarmPoolController;
+import com.flowci.docker.ContainerManager;
+import com.flowci.docker.DockerManager;
+import com.flowci.docker.ImageManager;
+import com.flowci.docker.domain.ContainerStartOption;
+import com.flowci.docker.domain.Output;
+import com.flowci.docker.domain.StartOption;
+import com.flowci.docker.domain.Unit;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * @author yang
+ */
+public class WarmPoolControllerTest {
+
+    private static final int LeadTime = 60;
+
+    private static final int ScaleDownDelay = 3;
+
+    private final FakeDockerManager docker = new FakeDockerManager();
+
+    private final Map<String, List<Agent>> agents = new HashMap<>();
+
+    private WarmPoolController controller;
+
+    private AgentHost host;
+
+    @Before
+    public void init() {
+        host = new LocalUnixAgentHost();
+        host.setId("host-a");
+        host.setName("host-a");
+        host.setMaxSize(5);
+        host.setMinIdle(1);
+        agents.put(host.getId(), new LinkedList<>());
+
+        controller = new WarmPoolController(new WarmPoolController.HostOperations() {
+            @Override
+            public List<Agent> listAgents(AgentHost host) {
+                return agents.get(host.getId());
+            }
+
+            @Override
+            public Optional<DockerManager> getDockerManager(AgentHost host) {
+                return Optional.of(docker);
+            }
+
+            @Override
+            public boolean start(AgentHost host) {
+                try {
+                    Agent agent = new Agent("agent-" + docker.containers.size());
+                    agent.setId(agent.getName());
+                    agent.setContainerId(docker.getContainerManager().start(new ContainerStartOption()));
+                    agent.setStatus(Agent.Status.STARTING);
+                    agents.get(host.getId()).add(agent);
+                    return true;
+                } catch (Exception e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public boolean retire(Agent agent) {
+                if (!agent.isIdle()) {
+                    return false;
+                }
+                agent.setStatus(Agent.Status.OFFLINE);
+                return true;
+            }
+        }, LeadTime, ScaleDownDelay);
+    }
+
+    @Test
+    public void should_keep_min_idle_agents() {
+        controller.reconcile(Lists.newArrayList(host), 0, 0, 1000);
+        Assert.assertEquals(1, docker.containers.size());
+
+        // starting agent is counted as supply
+        controller.reconcile(Lists.newArrayList(host), 0, 0, 2000);
+        Assert.assertEquals(1, docker.containers.size());
+    }
+
+    @Test
+    public void should_scale_up_by_waiting_jobs_and_limit_by_max_size() {
+        // 7 jobs waiting, 1 for min idle, 4 more up to max size
+        controller.reconcile(Lists.newArrayList(host), 7, 0, 1000);
+        Assert.assertEquals(5, docker.containers.size());
+    }
+
+    @Test
+    public void should_assign_demand_to_hosts_in_order() {
+        AgentHost other = new LocalUnixAgentHost();
+        other.setId("host-b");
+        other.setName("host-b");
+        other.setMaxSize(5);
+        agents.put(other.getId(), new LinkedList<>());
+
+        controller.reconcile(Lists.newArrayList(host, other), 7, 0, 1000);
+        Assert.assertEquals(5, agents.get(host.getId()).size());
+        Assert.assertEquals(2, agents.get(other.getId()).size());
+    }
+
+    @Test
+    public void should_scale_up_ahead_by_arrival_rate() {
+        controller.reconcile(Lists.newArrayList(host), 0, 0, 1000);
+        Assert.assertEquals(1, docker.containers.size());
+
+        // 3 arrivals of all nodes in 10 seconds, predicted over 1 within lead time
+        controller.reconcile(Lists.newArrayList(host), 0, 3, 11000);
+        Assert.assertTrue(controller.getArrivalRate() > 0);
+        Assert.assertTrue(docker.containers.size() > 1);
+    }
+
+    @Test
+    public void should_scale_down_idle_agents_with_hysteresis() {
+        controller.reconcile(Lists.newArrayList(host), 3, 0, 1000);
+        Assert.assertEquals(3, docker.containers.size());
+
+        // all agents started and no demand
+        for (Agent agent : agents.get(host.getId())) {
+            agent.setStatus(Agent.Status.IDLE);
+        }
+
+        // not stopped before delay
+        for (int i = 1; i < ScaleDownDelay; i++) {
+            controller.reconcile(Lists.newArrayList(host), 0, 0, 1000 + i);
+            Assert.assertTrue(docker.stopped.isEmpty());
+        }
+
+        // stop one agent per round
+        controller.reconcile(Lists.newArrayList(host), 0, 0, 1000 + ScaleDownDelay);
+        Assert.assertEquals(1, docker.stopped.size());
+
+        // keep min idle
+        for (int i = 0; i < ScaleDownDelay * 3; i++) {
+            controller.reconcile(Lists.newArrayList(host), 0, 0, 2000 + i);
+        }
+        Assert.assertEquals(2, docker.stopped.size());
+        Assert.assertEquals(1, agents.get(host.getId()).stream().filter(Agent::isIdle).count());
+    }
+
+    @Test
+    public void should_reset_scale_down_if_demand_comes_back() {
+        controller.reconcile(Lists.newArrayList(host), 2, 0, 1000);
+        for (Agent agent : agents.get(host.getId())) {
+            agent.setStatus(Agent.Status.IDLE);
+        }
+
+        controller.reconcile(Lists.newArrayList(host), 0, 0, 1001);
+        controller.reconcile(Lists.newArrayList(host), 0, 0, 1002);
+        controller.reconcile(Lists.newArrayList(host), 2, 0, 1003);
+        controller.reconcile(Lists.newArrayList(host), 0, 0, 1004);
+        controller.reconcile(Lists.newArrayList(host), 0, 0, 1005);
+
+        Assert.assertTrue(docker.stopped.isEmpty());
+    }
+
+    private static class FakeDockerManager implements DockerManager {
+
+        private final List<String> containers = new LinkedList<>();
+
+        private final List<String> stopped = new LinkedList<>();
+
+        private final ContainerManager cm = new ContainerManager() {
+            @Override
+            public List<Unit> list(String statusFilter, String nameFilter) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public Unit inspect(String id) {
+                return null;
+            }
+
+            @Override
+            public String start(StartOption option) {
+                String id = "container-" + containers.size();
+                containers.add(id);
+                return id;
+            }
+
+            @Override
+            public void wait(String id, int timeoutInSeconds, Consumer<Output> onLog) {
+            }
+
+            @Override
+            public void stop(String id) {
+                stopped.add(id);
+            }
+
+            @Override
+            public void resume(String id) {
+            }
+
+            @Override
+            public void delete(String id) {
+                containers.remove(id);
+            }
+        };
+
+        @Override
+        public ContainerManager getContainerManager() {
+            return cm;
+        }
+
+        @Override
+        public ImageManager getImageManager() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -96,6 +96,22 @@ public class AuthControllerTest extends SpringScenario {
         Assert.assertFalse(authService.set(token));
     }
 
+    @Test
+    public void should_reload_user_of_cached_token_after_role_changed() throws Exception {
+        ResponseMessage<Tokens> message = authHelper.login(user.getEmail(), user.getPasswordOnMd5());
+        String token = message.getData().getToken();
+
+        Assert.assertTrue(authService.set(token));
+        Assert.assertEquals(User.Role.Admin, sessionManager.get().getRole());
+
+        // when: change role
+        userService.changeRole(user.getEmail(), User.Role.Developer);
+
+        // then: user should be reloaded with new role without waiting for broadcast event
+        Assert.assertTrue(authService.set(token));
+        Assert.assertEquals(User.Role.Developer, sessionManager.get().getRole());
+    }
+
     @Test
     public void should_refresh_token_while_NOT_expired() throws Exception {
         ResponseMessage<Tokens> message = authHelper.login(user.getEmail(), user.getPasswordOnMd5());
@@ -45,6 +45,15 @@ public class JwtHelperTest {
         Assert.assertEquals(user.getEmail(), email);
     }
 
+    @Test
+    public void should_get_expire_time_of_token() {
+        long expiresAt = JwtHelper.getExpiresAt(token.getValue());
+        long diff = expiresAt - System.currentTimeMillis();
+        Assert.assertTrue(diff > 0 && diff <= 60 * 1000);
+
+        Assert.assertEquals(0, JwtHelper.getExpiresAt("invalid"));
+    }
+
     @Test
     public void should_verify_token() {
         boolean verify = JwtHelper.verify(token.getValue(), user, false);
@@ -48,6 +48,16 @@ public class CipherHelperTest {
         Assert.assertEquals(source, decrypted);
     }
 
+    @Test
+    public void should_decrypt_by_aes_after_failure() {
+        final String secret = "ssdkF$HUy2A#D%kd";
+        String encrypted = CipherHelper.AES.encrypt(source, secret);
+
+        Assert.assertEquals(StringHelper.EMPTY, CipherHelper.AES.decrypt("invalid", secret));
+        Assert.assertEquals(StringHelper.EMPTY, CipherHelper.AES.decrypt(encrypted, "1234567890abcdef"));
+        Assert.assertEquals(source, CipherHelper.AES.decrypt(encrypted, secret));
+    }
+
     @Test
     public void should_encrypt_decrypt_by_rsa() {
         SimpleKeyPair pair = RSA.gen("hello@flow.ci");
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.common;
+
+import com.flowci.core.common.git.GitClient;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+public class GitClientTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path origin;
+
+    private Git git;
+
+    private GitClient client;
+
+    @Before
+    public void init() throws Exception {
+        origin = folder.newFolder("origin").toPath();
+        git = Git.init().setDirectory(origin.toFile()).call();
+
+        String url = origin.toUri().toString();
+        client = new GitClient(url, folder.newFolder("tmp").toPath(), null);
+    }
+
+    @Test
+    public void should_fetch_file_by_head_commit_into_bare_repo() throws Exception {
+        Path bareDir = Paths.get(folder.getRoot().toString(), "repo.git");
+        RevCommit first = commit(".flowci.yml", "steps: first");
+
+        // when:
+        Optional<String> head = client.headCommit("master");
+
+        // then:
+        Assert.assertTrue(head.isPresent());
+        Assert.assertEquals(first.getName(), head.get());
+
+        Optional<byte[]> content = client.fetchFile(bareDir, "master", head.get(), name -> name.equals(".flowci.yml"));
+        Assert.assertTrue(content.isPresent());
+        Assert.assertEquals("steps: first", new String(content.get()));
+
+        // when: new commit pushed
+        RevCommit second = commit(".flowci.yml", "steps: second");
+        head = client.headCommit("master");
+        Assert.assertEquals(second.getName(), head.get());
+
+        // then: the new commit fetched into the same bare repo
+        content = client.fetchFile(bareDir, "master", head.get(), name -> name.equals(".flowci.yml"));
+        Assert.assertEquals("steps: second", new String(content.get()));
+
+        // then: file of the previous commit can be read without fetching
+        content = client.fetchFile(bareDir, "master", first.getName(), name -> name.equals(".flowci.yml"));
+        Assert.assertEquals("steps: first", new String(content.get()));
+    }
+
+    @Test
+    public void should_return_empty_if_branch_or_file_not_found() throws Exception {
+        RevCommit commit = commit("README.md", "hello");
+        Path bareDir = Paths.get(folder.getRoot().toString(), "repo.git");
+
+        Assert.assertFalse(client.headCommit("develop").isPresent());
+
+        Optional<byte[]> content = client.fetchFile(bareDir, "master", commit.getName(), name -> name.endsWith(".yml"));
+        Assert.assertFalse(content.isPresent());
+    }
+
+    @Test
+    public void should_return_bytes_fetched_by_clone_and_pull() throws Exception {
+        Path dir = Paths.get(folder.getRoot().toString(), "cloned");
+        commit("README.md", "hello");
+
+        // when: clone
+        long fetched = client.klone(dir, "master");
+
+        // then:
+        Assert.assertTrue(fetched > 0);
+
+        // when: pull without new commit
+        fetched = client.klone(dir, "master");
+
+        // then: nothing fetched
+        Assert.assertEquals(0, fetched);
+
+        // when: pull new commit
+        commit("README.md", "hello world");
+        fetched = client.klone(dir, "master");
+
+        // then:
+        Assert.assertTrue(fetched > 0);
+        Assert.assertEquals("hello world", new String(Files.readAllBytes(Paths.get(dir.toString(), "README.md"))));
+    }
+
+    private RevCommit commit(String fileName, String content) throws Exception {
+        Files.write(Paths.get(origin.toString(), fileName), content.getBytes());
+        git.add().addFilepattern(fileName).call();
+        return git.commit().setMessage("update " + fileName).call();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.flowci.core.test.common;
+
+import com.flowci.core.common.domain.TraceContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TraceContextTest {
+
+    @Test
+    public void should_format_and_parse_trace_parent() {
+        TraceContext context = TraceContext.newTrace();
+        Assert.assertEquals(32, context.getTraceId().length());
+        Assert.assertEquals(16, context.getSpanId().length());
+
+        Optional<TraceContext> parsed = TraceContext.parse(context.toTraceParent());
+        Assert.assertTrue(parsed.isPresent());
+        Assert.assertEquals(context, parsed.get());
+
+        TraceContext child = context.newChild();
+        Assert.assertEquals(context.getTraceId(), child.getTraceId());
+        Assert.assertNotEquals(context.getSpanId(), child.getSpanId());
+
+        Assert.assertFalse(TraceContext.parse(null).isPresent());
+        Assert.assertFalse(TraceContext.parse("00-123-456-01").isPresent());
+        Assert.assertFalse(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e473X-00f067aa0ba902b7-01").isPresent());
+    }
+
+    @Test
+    public void should_activate_and_restore_context() {
+        TraceContext parent = TraceContext.newTrace();
+        TraceContext child = parent.newChild();
+
+        try (TraceContext.Scope ignored = parent.activate()) {
+            try (TraceContext.Scope ignored2 = child.activate()) {
+                Assert.assertEquals(child, TraceContext.current().get());
+            }
+            Assert.assertEquals(parent, TraceContext.current().get());
+        }
+
+        Assert.assertFalse(TraceContext.current().isPresent());
+    }
+
+    @Test
+    public void should_propagate_context_by_headers_and_task() throws InterruptedException {
+        TraceContext context = TraceContext.newTrace();
+        Map<String, Object> headers = new HashMap<>();
+        AtomicReference<TraceContext> fromTask = new AtomicReference<>();
+
+        Runnable task;
+        try (TraceContext.Scope ignored = context.activate()) {
+            TraceContext.inject(headers);
+            task = TraceContext.wrap(() -> fromTask.set(TraceContext.current().orElse(null)));
+        }
+
+        Assert.assertEquals(context, TraceContext.extract(headers).get());
+
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+
+        Assert.assertEquals(context, fromTask.get());
+    }
+}
@@ -24,6 +24,8 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.function.Predicate;
+
 /**
  * @author yang
  */
@@ -94,4 +96,20 @@ public class VarManagerTest extends SpringScenario {
         Assert.assertFalse(varManager.verify(in, "git@github.com:FlowCI"));
         Assert.assertFalse(varManager.verify(in, "git@github.com"));
     }
+
+    @Test
+    public void should_reuse_compiled_validator() {
+        Input in = new Input()
+            .setName("test")
+            .setAlias("test")
+            .setRequired(true)
+            .setType(VarType.BOOL);
+
+        Predicate<String> validator = varManager.compile(in);
+
+        Assert.assertTrue(validator.test("true"));
+        Assert.assertTrue(validator.test("false"));
+        Assert.assertFalse(validator.test(""));
+        Assert.assertFalse(validator.test("yes"));
+    }
 }
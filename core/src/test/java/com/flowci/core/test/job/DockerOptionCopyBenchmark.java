@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.job;
+
+import com.flowci.domain.DockerOption;
+import com.flowci.util.ObjectsHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare copy constructor of DockerOption with java serialization for multi-container step,
+ * run by main method or 'java -cp ... org.openjdk.jmh.Main DockerOptionCopyBenchmark'
+ *
+ * @author yang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DockerOptionCopyBenchmark {
+
+    @Param({"1", "3", "5"})
+    public int numOfContainers;
+
+    private List<DockerOption> dockers;
+
+    @Setup
+    public void setup() {
+        dockers = new ArrayList<>(numOfContainers);
+
+        for (int i = 0; i < numOfContainers; i++) {
+            DockerOption option = new DockerOption()
+                    .setImage("mysql:5.7")
+                    .setName("mysql-" + i)
+                    .setEntrypoint(Arrays.asList("docker-entrypoint.sh"))
+                    .setCommand(Arrays.asList("mysqld", "--character-set-server=utf8mb4"))
+                    .setNetwork("flow-ci-network")
+                    .setRuntime(i == 0);
+            option.getEnvironment().put("MYSQL_ROOT_PASSWORD", "12345");
+            option.getEnvironment().put("MYSQL_DATABASE", "flowci");
+            option.getPorts().add((3306 + i) + ":3306");
+            dockers.add(option);
+        }
+    }
+
+    @Benchmark
+    public List<DockerOption> copyConstructor() {
+        return ObjectsHelper.copy(dockers);
+    }
+
+    @Benchmark
+    public List<DockerOption> serialization() throws IOException, ClassNotFoundException {
+        List<DockerOption> list = new ArrayList<>(dockers.size());
+        for (DockerOption option : dockers) {
+            list.add(serializationCopy(option));
+        }
+        return list;
+    }
+
+    private static DockerOption serializationCopy(DockerOption source) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(source);
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            return (DockerOption) ois.readObject();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(DockerOptionCopyBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.job;
+
+import com.flowci.core.common.config.AppProperties;
+import com.flowci.core.flow.domain.Flow;
+import com.flowci.core.flow.domain.Yml;
+import com.flowci.core.flow.service.FlowService;
+import com.flowci.core.flow.service.YmlService;
+import com.flowci.core.job.dao.ExecutedCmdDao;
+import com.flowci.core.job.dao.FlowDeletionDao;
+import com.flowci.core.job.dao.JobDao;
+import com.flowci.core.job.domain.Job;
+import com.flowci.core.job.domain.Job.Trigger;
+import com.flowci.core.job.event.JobDeletedEvent;
+import com.flowci.core.job.manager.FlowDeletionManager;
+import com.flowci.core.job.manager.JobArchiveManager;
+import com.flowci.core.job.service.JobService;
+import com.flowci.core.test.ZookeeperScenario;
+import com.flowci.domain.StringVars;
+import com.flowci.store.FileManager;
+import com.flowci.util.StringHelper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author yang
+ */
+public class FlowDeletionManagerTest extends ZookeeperScenario {
+
+    @Autowired
+    private AppProperties.Job jobProperties;
+
+    @Autowired
+    private FlowService flowService;
+
+    @Autowired
+    private YmlService ymlService;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private ExecutedCmdDao executedCmdDao;
+
+    @Autowired
+    private JobDao jobDao;
+
+    @Autowired
+    private FlowDeletionDao flowDeletionDao;
+
+    @Autowired
+    private JobArchiveManager jobArchiveManager;
+
+    @Autowired
+    private FlowDeletionManager flowDeletionManager;
+
+    @Autowired
+    private FileManager fileManager;
+
+    private int batchSize;
+
+    private Flow flow;
+
+    private Yml yml;
+
+    @Before
+    public void mockFlowAndYml() throws IOException {
+        mockLogin();
+        flow = flowService.create("hello");
+        String yaml = StringHelper.toString(load("flow.yml"));
+        yml = ymlService.saveYml(flow, Yml.DEFAULT_NAME, StringHelper.toBase64(yaml));
+
+        batchSize = jobProperties.getDeleteBatchSize();
+        jobProperties.setDeleteBatchSize(2);
+    }
+
+    @After
+    public void resetBatchSize() {
+        jobProperties.setDeleteBatchSize(batchSize);
+    }
+
+    @Test
+    public void should_delete_jobs_and_files_of_flow_by_batch() throws Exception {
+        // init: 3 jobs with one archived, and a log file
+        Job first = jobService.create(flow, yml.getRaw(), Trigger.MANUAL, StringVars.EMPTY);
+        Job second = jobService.create(flow, yml.getRaw(), Trigger.MANUAL, StringVars.EMPTY);
+        Job third = jobService.create(flow, yml.getRaw(), Trigger.MANUAL, StringVars.EMPTY);
+
+        first.setStatus(Job.Status.SUCCESS);
+        first.setFinishAt(new Date());
+        jobDao.save(first);
+        Assert.assertTrue(jobArchiveManager.archive(first));
+
+        fileManager.save("test.log", StringHelper.toInputStream("log"), flow, Job.path(second.getBuildNumber()), () -> "logs");
+        Assert.assertTrue(fileManager.exist(flow));
+
+        CountDownLatch counter = new CountDownLatch(1);
+        AtomicLong numOfJobs = new AtomicLong();
+        addEventListener((ApplicationListener<JobDeletedEvent>) event -> {
+            numOfJobs.set(event.getNumOfJobs());
+            counter.countDown();
+        });
+
+        // when:
+        flowDeletionManager.start(flow);
+
+        // then:
+        Assert.assertTrue(counter.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(3, numOfJobs.get());
+
+        Assert.assertFalse(jobDao.findById(second.getId()).isPresent());
+        Assert.assertFalse(jobDao.findById(third.getId()).isPresent());
+        Assert.assertFalse(jobArchiveManager.get(first.getId()).isPresent());
+        Assert.assertTrue(executedCmdDao.findAllByFlowIdAndBuildNumber(flow.getId(), third.getBuildNumber()).isEmpty());
+
+        Assert.assertFalse(fileManager.exist(flow));
+        Assert.assertFalse(flowDeletionDao.findById(flow.getId()).isPresent());
+    }
+}
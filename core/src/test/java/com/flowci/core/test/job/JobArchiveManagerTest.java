@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.job;
+
+import com.flowci.core.flow.domain.Flow;
+import com.flowci.core.flow.domain.Yml;
+import com.flowci.core.flow.service.FlowService;
+import com.flowci.core.flow.service.YmlService;
+import com.flowci.core.job.dao.ExecutedCmdDao;
+import com.flowci.core.job.dao.JobDao;
+import com.flowci.core.job.domain.Job;
+import com.flowci.core.job.domain.Job.Trigger;
+import com.flowci.core.job.domain.JobItem;
+import com.flowci.core.job.domain.Step;
+import com.flowci.core.job.manager.JobArchiveManager;
+import com.flowci.core.job.manager.YmlManager;
+import com.flowci.core.job.service.JobService;
+import com.flowci.core.job.service.StepService;
+import com.flowci.core.test.ZookeeperScenario;
+import com.flowci.domain.StringVars;
+import com.flowci.util.StringHelper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author yang
+ */
+public class JobArchiveManagerTest extends ZookeeperScenario {
+
+    @Autowired
+    private FlowService flowService;
+
+    @Autowired
+    private YmlService ymlService;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private StepService stepService;
+
+    @Autowired
+    private YmlManager ymlManager;
+
+    @Autowired
+    private JobDao jobDao;
+
+    @Autowired
+    private ExecutedCmdDao executedCmdDao;
+
+    @Autowired
+    private JobArchiveManager jobArchiveManager;
+
+    private Flow flow;
+
+    private Yml yml;
+
+    @Before
+    public void mockFlowAndYml() throws IOException {
+        mockLogin();
+        flow = flowService.create("hello");
+        String yaml = StringHelper.toString(load("flow.yml"));
+        yml = ymlService.saveYml(flow, Yml.DEFAULT_NAME, StringHelper.toBase64(yaml));
+    }
+
+    @Test
+    public void should_read_archived_job_transparently() {
+        // init: finished job
+        Job job = jobService.create(flow, yml.getRaw(), Trigger.MANUAL, StringVars.EMPTY);
+        job.setStatus(Job.Status.SUCCESS);
+        job.setFinishAt(new Date());
+        jobDao.save(job);
+
+        List<Step> steps = stepService.list(job);
+        Assert.assertEquals(2, steps.size());
+
+        // when:
+        Assert.assertTrue(jobArchiveManager.archive(job));
+
+        // then: removed from hot collections
+        Assert.assertFalse(jobDao.findById(job.getId()).isPresent());
+        Assert.assertTrue(executedCmdDao.findAllByFlowIdAndBuildNumber(flow.getId(), job.getBuildNumber()).isEmpty());
+
+        // then: read from archive
+        Job archived = jobService.get(job.getId());
+        Assert.assertEquals(job.getKey(), archived.getKey());
+        Assert.assertEquals(job.getContext(), archived.getContext());
+        Assert.assertEquals(job.getId(), jobService.get(flow.getId(), job.getBuildNumber()).getId());
+        Assert.assertEquals(yml.getRaw(), ymlManager.get(archived).getRaw());
+
+        List<Step> archivedSteps = jobArchiveManager.listSteps(job.getId()).get();
+        Assert.assertEquals(2, archivedSteps.size());
+        Assert.assertEquals(steps.get(0).getNodePath(), archivedSteps.get(0).getNodePath());
+
+        Page<JobItem> page = jobService.list(flow, 0, 10);
+        Assert.assertEquals(1, page.getContent().size());
+        Assert.assertEquals(job.getId(), page.getContent().get(0).getId());
+    }
+
+    @Test
+    public void should_not_archive_job_if_not_finished() {
+        Job job = jobService.create(flow, yml.getRaw(), Trigger.MANUAL, StringVars.EMPTY);
+
+        Assert.assertFalse(jobArchiveManager.archive(job));
+        Assert.assertTrue(jobDao.findById(job.getId()).isPresent());
+        Assert.assertFalse(jobArchiveManager.get(job.getId()).isPresent());
+    }
+
+    @Test
+    public void should_restore_archived_job() {
+        Job job = jobService.create(flow, yml.getRaw(), Trigger.MANUAL, StringVars.EMPTY);
+        job.setStatus(Job.Status.FAILURE);
+        job.setFinishAt(new Date());
+        jobDao.save(job);
+
+        Assert.assertTrue(jobArchiveManager.archive(job));
+        Assert.assertTrue(jobArchiveManager.restore(job.getId()));
+
+        Assert.assertTrue(jobDao.findById(job.getId()).isPresent());
+        Assert.assertEquals(2, executedCmdDao.findAllByFlowIdAndBuildNumber(flow.getId(), job.getBuildNumber()).size());
+        Assert.assertFalse(jobArchiveManager.get(job.getId()).isPresent());
+    }
+}
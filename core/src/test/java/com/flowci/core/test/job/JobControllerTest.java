@@ -20,6 +20,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flowci.core.common.domain.JsonablePage;
 import com.flowci.core.common.domain.StatusCode;
+import com.flowci.core.common.domain.Variables;
 import com.flowci.core.job.domain.CreateJob;
 import com.flowci.core.job.domain.Executed.Status;
 import com.flowci.core.job.domain.Step;
@@ -156,6 +157,35 @@ public class JobControllerTest extends SpringScenario {
         Assert.assertEquals(first.getId(), page.getContent().get(1).getId());
     }
 
+    @Test
+    public void should_list_job_by_flow_before_build_number() throws Exception {
+        // init:
+        Job first = createJobForFlow(flow);
+        createJobForFlow(flow);
+        createJobForFlow(flow);
+
+        // when:
+        ResponseMessage<JsonablePage<JobItem>> message = mockMvcHelper
+                .expectSuccessAndReturnClass(get("/jobs/hello-flow?before=3&size=1"), JobListType);
+        Assert.assertEquals(StatusCode.OK, message.getCode());
+
+        // then: next page of build number 3 with size 1
+        Page<JobItem> page = message.getData().toPage();
+        Assert.assertEquals(3, page.getTotalElements());
+        Assert.assertEquals(1, page.getNumber());
+        Assert.assertEquals(1, page.getContent().size());
+        Assert.assertEquals(2, page.getContent().get(0).getBuildNumber().intValue());
+
+        // when: last page
+        message = mockMvcHelper.expectSuccessAndReturnClass(get("/jobs/hello-flow?before=2&size=5"), JobListType);
+        page = message.getData().toPage();
+
+        // then:
+        Assert.assertEquals(1, page.getContent().size());
+        Assert.assertEquals(first.getId(), page.getContent().get(0).getId());
+        Assert.assertNull(page.getContent().get(0).getContext().get(Variables.Job.BuildNumber));
+    }
+
     @Test
     public void should_list_job_steps_by_flow_and_build_number() throws Exception {
         // init:
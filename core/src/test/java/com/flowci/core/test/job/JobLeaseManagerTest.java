@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.job;
+
+import com.flowci.core.job.manager.JobLeaseManager;
+import com.flowci.zookeeper.ConnectionListener;
+import com.flowci.zookeeper.InterLock;
+import com.flowci.zookeeper.LocalCoordinationProvider;
+import org.apache.zookeeper.CreateMode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JobLeaseManagerTest {
+
+    private static final String Root = "/job-leases";
+
+    private final AtomicInteger numOfClaims = new AtomicInteger(0);
+
+    private final List<ConnectionListener> connectionListeners = new LinkedList<>();
+
+    private LocalCoordinationProvider provider;
+
+    private JobLeaseManager nodeA;
+
+    private JobLeaseManager nodeB;
+
+    @Before
+    public void init() {
+        provider = new LocalCoordinationProvider(Runnable::run) {
+            @Override
+            public boolean claim(String path, byte[] data) {
+                numOfClaims.incrementAndGet();
+                return super.claim(path, data);
+            }
+
+            @Override
+            public void addConnectionListener(ConnectionListener listener) {
+                connectionListeners.add(listener);
+            }
+        };
+        provider.create(CreateMode.PERSISTENT, Root, null);
+
+        nodeA = new JobLeaseManager(provider, Root, "node-a",
+                (jobId, requester) -> nodeB.onHandoffRequest(jobId, requester), Runnable::run, 10, 60);
+
+        nodeB = new JobLeaseManager(provider, Root, "node-b",
+                (jobId, requester) -> nodeA.onHandoffRequest(jobId, requester), Runnable::run, 10, 60);
+    }
+
+    @After
+    public void close() {
+        provider.close();
+    }
+
+    @Test
+    public void should_reuse_lease_for_chained_transitions() {
+        for (int i = 0; i < 100; i++) {
+            Optional<InterLock> lock = nodeA.acquire("job-1", 1);
+            Assert.assertTrue(lock.isPresent());
+
+            // nested transition on the same thread
+            Optional<InterLock> nested = nodeA.acquire("job-1", 1);
+            Assert.assertTrue(nested.isPresent());
+
+            nodeA.release(nested.get());
+            nodeA.release(lock.get());
+        }
+
+        Assert.assertEquals(1, numOfClaims.get());
+        Assert.assertTrue(nodeA.isOwned("job-1"));
+        Assert.assertTrue(provider.exist(Root + "/job-1"));
+    }
+
+    @Test
+    public void should_hand_off_lease_to_other_node() {
+        Optional<InterLock> lock = nodeA.acquire("job-1", 1);
+        Assert.assertTrue(lock.isPresent());
+        nodeA.release(lock.get());
+
+        lock = nodeB.acquire("job-1", 5);
+        Assert.assertTrue(lock.isPresent());
+        nodeB.release(lock.get());
+
+        Assert.assertFalse(nodeA.isOwned("job-1"));
+        Assert.assertTrue(nodeB.isOwned("job-1"));
+        Assert.assertEquals("node-b", new String(provider.get(Root + "/job-1")));
+    }
+
+    @Test
+    public void should_release_idle_lease() {
+        Optional<InterLock> lock = nodeA.acquire("job-1", 1);
+        Assert.assertTrue(lock.isPresent());
+
+        // not released if locked
+        nodeA.expireIdle(System.currentTimeMillis() + 120 * 1000);
+        Assert.assertTrue(nodeA.isOwned("job-1"));
+
+        nodeA.release(lock.get());
+        nodeA.expireIdle(System.currentTimeMillis() + 120 * 1000);
+
+        Assert.assertFalse(nodeA.isOwned("job-1"));
+        Assert.assertEquals(0, nodeA.size());
+        Assert.assertFalse(provider.exist(Root + "/job-1"));
+    }
+
+    @Test
+    public void should_claim_again_if_lease_node_removed() {
+        Optional<InterLock> lock = nodeA.acquire("job-1", 1);
+        Assert.assertTrue(lock.isPresent());
+        nodeA.release(lock.get());
+
+        // when: lease node removed under the owner
+        provider.delete(Root + "/job-1", false);
+        Assert.assertFalse(nodeA.isOwned("job-1"));
+
+        // then: lease should be claimed again on next acquire
+        lock = nodeA.acquire("job-1", 1);
+        Assert.assertTrue(lock.isPresent());
+        nodeA.release(lock.get());
+
+        Assert.assertEquals(2, numOfClaims.get());
+        Assert.assertEquals("node-a", new String(provider.get(Root + "/job-1")));
+    }
+
+    @Test
+    public void should_fail_to_acquire_if_lease_node_removed_and_claimed_by_other() {
+        Optional<InterLock> lock = nodeA.acquire("job-1", 1);
+        Assert.assertTrue(lock.isPresent());
+        nodeA.release(lock.get());
+
+        // when: lease node removed and claimed by other node without handoff
+        provider.delete(Root + "/job-1", false);
+        provider.claim(Root + "/job-1", "node-x".getBytes());
+
+        // then: should not be acquired within renew interval
+        Assert.assertFalse(nodeA.acquire("job-1", 1).isPresent());
+        Assert.assertFalse(nodeA.isOwned("job-1"));
+    }
+
+    @Test
+    public void should_verify_lease_after_connection_suspended() {
+        Optional<InterLock> lock = nodeA.acquire("job-1", 1);
+        Assert.assertTrue(lock.isPresent());
+        nodeA.release(lock.get());
+
+        // when: connection suspended
+        connectionListeners.forEach(l -> l.onStateChanged(ConnectionListener.State.Suspended));
+        Assert.assertFalse(nodeA.isOwned("job-1"));
+
+        // then: lease node still owned by node a after reconnected
+        connectionListeners.forEach(l -> l.onStateChanged(ConnectionListener.State.Reconnected));
+
+        lock = nodeA.acquire("job-1", 1);
+        Assert.assertTrue(lock.isPresent());
+        nodeA.release(lock.get());
+        Assert.assertTrue(nodeA.isOwned("job-1"));
+    }
+}
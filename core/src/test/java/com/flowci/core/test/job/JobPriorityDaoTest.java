@@ -49,6 +49,9 @@ public class JobPriorityDaoTest extends SpringScenario {
         priority = optional.get();
         Assert.assertEquals(1, priority.getQueue().size());
         Assert.assertEquals(2L, jobPriorityDao.findMinBuildNumber(flowId));
+
+        // then: received counter should not be decreased
+        Assert.assertEquals(2L, jobPriorityDao.countAllReceived());
     }
 
     @Test
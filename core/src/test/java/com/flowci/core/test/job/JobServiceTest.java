@@ -33,6 +33,7 @@ import com.flowci.core.job.dao.JobDao;
 import com.flowci.core.job.domain.Job;
 import com.flowci.core.job.domain.Job.Status;
 import com.flowci.core.job.domain.Job.Trigger;
+import com.flowci.core.job.domain.JobItem;
 import com.flowci.core.job.domain.Step;
 import com.flowci.core.job.event.JobReceivedEvent;
 import com.flowci.core.job.event.JobStatusChangeEvent;
@@ -48,6 +49,7 @@ import com.flowci.tree.Node;
 import com.flowci.tree.NodeTree;
 import com.flowci.tree.YmlParser;
 import com.flowci.util.StringHelper;
+import com.google.common.collect.Lists;
 import lombok.extern.log4j.Log4j2;
 import org.junit.Assert;
 import org.junit.Before;
@@ -59,8 +61,10 @@ import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.Page;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -179,6 +183,37 @@ public class JobServiceTest extends ZookeeperScenario {
         }
     }
 
+    @Test
+    public void should_list_jobs_by_page_without_overlap_if_build_number_has_gaps() {
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(jobService.create(flow, yml.getRaw(), Trigger.MANUAL, StringVars.EMPTY));
+        }
+
+        // init: remove build 2 and 5 as gaps
+        jobDao.delete(jobs.get(1));
+        jobDao.delete(jobs.get(4));
+
+        // when:
+        Page<JobItem> first = jobService.list(flow, 0, 3);
+        Page<JobItem> second = jobService.list(flow, 1, 3);
+
+        // then: pages are fixed ranges of build number, and could be short
+        Assert.assertEquals(Lists.newArrayList(6L, 4L), toBuildNumbers(first));
+        Assert.assertEquals(Lists.newArrayList(3L, 1L), toBuildNumbers(second));
+        Assert.assertTrue(toBuildNumbers(jobService.list(flow, 2, 3)).isEmpty());
+
+
+        // when: last page of build 2 and 1 is short because of gap
+        Page<JobItem> last = jobService.list(flow, 1, 4);
+
+        // then: total is kept as the latest build number
+        Assert.assertEquals(Lists.newArrayList(1L), toBuildNumbers(last));
+        Assert.assertEquals(6, last.getTotalElements());
+        Assert.assertEquals(2, last.getTotalPages());
+        Assert.assertFalse(last.hasNext());
+    }
+
     @Test
     public void should_start_new_job() throws Throwable {
         ObjectWrapper<Job> receivedJob = new ObjectWrapper<>();
@@ -544,6 +579,14 @@ public class JobServiceTest extends ZookeeperScenario {
         return jobDao.save(job);
     }
 
+    private static List<Long> toBuildNumbers(Page<JobItem> page) {
+        List<Long> numbers = new ArrayList<>(page.getContent().size());
+        for (JobItem item : page.getContent()) {
+            numbers.add(item.getBuildNumber());
+        }
+        return numbers;
+    }
+
     private ShellOut getShellOutFromStep(Step step) {
         return new ShellOut()
                 .setId(step.getId())
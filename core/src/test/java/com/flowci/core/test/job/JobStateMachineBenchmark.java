@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.job;
+
+import com.flowci.core.job.domain.Job;
+import com.flowci.core.job.domain.JobSmContext;
+import com.flowci.sm.Action;
+import com.flowci.sm.StateMachine;
+import com.flowci.sm.Status;
+import com.flowci.sm.Transition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of StateMachine.execute on the compiled table, statuses are created per call
+ * from job status as JobActionServiceImpl does, with and without transition listener.
+ * Run by main method or 'java -cp ... org.openjdk.jmh.Main JobStateMachineBenchmark'
+ *
+ * @author yang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JobStateMachineBenchmark {
+
+    @Param({"false", "true"})
+    public boolean withListener;
+
+    private StateMachine<JobSmContext> sm;
+
+    @Setup
+    public void setup() {
+        sm = new StateMachine<>("JOB_STATUS", null);
+
+        Action<JobSmContext> action = new Action<JobSmContext>() {
+            @Override
+            public void accept(JobSmContext context) {
+            }
+        };
+
+        for (Job.Status from : Job.Status.values()) {
+            for (Job.Status to : Job.Status.values()) {
+                sm.add(new Transition(new Status(from.name()), new Status(to.name())), action);
+            }
+        }
+
+        sm.addHookActionOnTargetStatus(context -> {
+        }, new Status(Job.Status.SUCCESS.name()), new Status(Job.Status.FAILURE.name()));
+
+        if (withListener) {
+            sm.addListener((transition, context, durationNanos, error) -> {
+            });
+        }
+
+        sm.compile();
+    }
+
+    @Benchmark
+    public JobSmContext runningToRunning() {
+        return execute(Job.Status.RUNNING, Job.Status.RUNNING);
+    }
+
+    @Benchmark
+    public JobSmContext runningToSuccess() {
+        return execute(Job.Status.RUNNING, Job.Status.SUCCESS);
+    }
+
+    private JobSmContext execute(Job.Status from, Job.Status to) {
+        JobSmContext context = new JobSmContext("job");
+        sm.execute(new Status(from.name()), new Status(to.name()), context);
+        return context;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JobStateMachineBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
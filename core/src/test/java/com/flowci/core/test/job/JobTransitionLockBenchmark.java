@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.job;
+
+import com.flowci.zookeeper.CoordinationProvider;
+import com.flowci.zookeeper.InterLock;
+import com.flowci.zookeeper.LocalCoordinationProvider;
+import com.flowci.zookeeper.LocalServer;
+import com.flowci.zookeeper.ZookeeperClient;
+import org.apache.zookeeper.CreateMode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of job state transitions on coordination provider, each transition acquires
+ * and releases the job lock as JobServiceImpl.lock does, compare embedded zookeeper over loopback
+ * and in-process provider. Run by main method or 'java -cp ... org.openjdk.jmh.Main JobTransitionLockBenchmark'
+ *
+ * @author yang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JobTransitionLockBenchmark {
+
+    private static final String LockRoot = "/job-locks";
+
+    private static final int Port = 2190;
+
+    @Param({"zookeeper", "local"})
+    public String provider;
+
+    @Param({"100"})
+    public int numOfJobs;
+
+    private LocalServer server;
+
+    private ExecutorService executor;
+
+    private CoordinationProvider coordination;
+
+    @Setup
+    public void setup() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+
+        if (provider.equals("local")) {
+            coordination = new LocalCoordinationProvider(executor);
+        } else {
+            server = new LocalServer(Files.createTempDirectory("zk-benchmark"), "127.0.0.1", Port);
+            executor.execute(server);
+            coordination = new ZookeeperClient("127.0.0.1:" + Port, 5, 30, executor);
+        }
+
+        coordination.start();
+
+        if (!coordination.exist(LockRoot)) {
+            coordination.create(CreateMode.PERSISTENT, LockRoot, null);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        coordination.close();
+
+        if (server != null) {
+            server.stop();
+        }
+
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean transition() {
+        int job = ThreadLocalRandom.current().nextInt(numOfJobs);
+        String path = coordination.makePath(LockRoot, "job-" + job);
+
+        Optional<InterLock> lock = coordination.lock(path, 10);
+        if (!lock.isPresent()) {
+            return false;
+        }
+
+        coordination.release(lock.get());
+        return true;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JobTransitionLockBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
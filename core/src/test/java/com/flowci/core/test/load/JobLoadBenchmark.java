@@ -0,0 +1,316 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flowci.core.Application;
+import com.flowci.core.agent.domain.Agent;
+import com.flowci.core.agent.domain.AgentOption;
+import com.flowci.core.agent.service.AgentService;
+import com.flowci.core.common.manager.SessionManager;
+import com.flowci.core.flow.domain.ConfirmOption;
+import com.flowci.core.flow.service.FlowService;
+import com.flowci.core.job.domain.Job;
+import com.flowci.core.job.event.JobCreatedEvent;
+import com.flowci.core.job.event.JobEvent;
+import com.flowci.core.job.event.JobStatusChangeEvent;
+import com.flowci.core.trigger.converter.GitHubConverter;
+import com.flowci.core.user.domain.User;
+import com.flowci.core.user.service.UserService;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * End-to-end throughput of job dispatching, it starts the core application with embedded zookeeper
+ * (or the in-process coordination provider), drives simulated agents over the '/agent' websocket and
+ * fires github push webhooks to a generated flow, then reports jobs/s, dispatch latency and resource usage.
+ * <p>
+ * MongoDB and RabbitMQ are the local instances configured in flow.properties, they can be overridden by args,
+ * ex: --spring.data.mongodb.uri=mongodb://localhost:27017/flow_load --app.rabbitmq.uri=amqp://...
+ * <p>
+ * Options by system properties:
+ * load.agents (10), load.jobs (100), load.rate in webhooks per second (10), load.steps (3),
+ * load.parallel branches of steps, 0 for sequential steps only (0), load.step-millis (100),
+ * load.log-lines per step (10), load.zookeeper embedded or local (embedded), load.timeout in seconds (600)
+ *
+ * @author yang
+ */
+@Log4j2
+public class JobLoadBenchmark implements SimulatedAgent.Listener, ApplicationListener<JobEvent> {
+
+    private static final String WebhookPayload = "github/webhook_push.json";
+
+    private static final int ZookeeperPort = 2182;
+
+    private final int numOfAgents = Integer.getInteger("load.agents", 10);
+
+    private final int numOfJobs = Integer.getInteger("load.jobs", 100);
+
+    private final int rate = Integer.getInteger("load.rate", 10);
+
+    private final int numOfSteps = Integer.getInteger("load.steps", 3);
+
+    private final int numOfBranches = Integer.getInteger("load.parallel", 0);
+
+    private final long stepMillis = Long.getLong("load.step-millis", 100);
+
+    private final int logLines = Integer.getInteger("load.log-lines", 10);
+
+    private final String zookeeper = System.getProperty("load.zookeeper", "embedded");
+
+    private final long timeout = Long.getLong("load.timeout", 600);
+
+    private final String run = "load-" + System.currentTimeMillis();
+
+    private final LoadReport report = new LoadReport();
+
+    private final CountDownLatch done = new CountDownLatch(numOfJobs);
+
+    // key as job id, value as nano time of job created
+    private final Map<String, Long> created = new ConcurrentHashMap<>();
+
+    // key as job id, value as nano time of the last cmd_out of job
+    private final Map<String, Long> lastOut = new ConcurrentHashMap<>();
+
+    // jobs of the current run which first step has been dispatched
+    private final Set<String> dispatched = ConcurrentHashMap.newKeySet();
+
+    private final List<SimulatedAgent> agents = new ArrayList<>(numOfAgents);
+
+    public static void main(String[] args) throws Exception {
+        new JobLoadBenchmark().run(args);
+    }
+
+    public void run(String[] args) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .properties(appProperties())
+                .listeners(this)
+                .run(args);
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(Math.min(numOfAgents + 2, 32));
+
+        try {
+            String flow = setup(context);
+            String port = context.getEnvironment().getProperty("local.server.port");
+
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            StandardWebSocketClient client = new StandardWebSocketClient();
+            URI uri = URI.create("ws://127.0.0.1:" + port + "/agent");
+
+            for (Agent agent : createAgents(context)) {
+                SimulatedAgent simulated = new SimulatedAgent(
+                        agent.getToken(), objectMapper, executor, this, stepMillis, logLines);
+                simulated.connect(client, uri);
+                agents.add(simulated);
+            }
+
+            executor.scheduleAtFixedRate(report::sample, 0, 1, TimeUnit.SECONDS);
+
+            long start = System.nanoTime();
+            fireWebhooks(executor, "http://127.0.0.1:" + port + "/webhooks/" + flow);
+
+            if (!done.await(timeout, TimeUnit.SECONDS)) {
+                log.warn("Timeout, {} of {} jobs are done", report.numOfDone(), numOfJobs);
+            }
+
+            report.print(System.out, System.nanoTime() - start, context.getBean(MeterRegistry.class));
+        } finally {
+            agents.forEach(SimulatedAgent::close);
+            executor.shutdownNow();
+            context.close();
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(JobEvent event) {
+        Job job = event.getJob();
+
+        if (event instanceof JobCreatedEvent) {
+            if (job.getFlowName().equals(run)) {
+                created.put(job.getId(), System.nanoTime());
+            }
+            return;
+        }
+
+        if (!(event instanceof JobStatusChangeEvent) || !job.isDone()) {
+            return;
+        }
+
+        Long createdAt = created.remove(job.getId());
+        if (createdAt == null) {
+            return;
+        }
+
+        lastOut.remove(job.getId());
+        dispatched.remove(job.getId());
+
+        report.onJobDone(System.nanoTime() - createdAt, job.getStatus() == Job.Status.SUCCESS);
+        done.countDown();
+    }
+
+    /**
+     * The first dispatch of job is measured from job created, the others from the last cmd_out of job
+     */
+    @Override
+    public void onShellIn(String jobId, String stepId) {
+        long now = System.nanoTime();
+
+        if (dispatched.add(jobId)) {
+            Long createdAt = created.get(jobId);
+            if (createdAt != null) {
+                report.onTriggerToDispatch(now - createdAt);
+            }
+            return;
+        }
+
+        Long out = lastOut.get(jobId);
+        if (out != null) {
+            report.onStepToDispatch(now - out);
+        }
+    }
+
+    @Override
+    public void onShellOut(String jobId, String stepId) {
+        lastOut.put(jobId, System.nanoTime());
+    }
+
+    private String[] appProperties() throws Exception {
+        List<String> props = new LinkedList<>();
+        props.add("server.port=0");
+
+        if (zookeeper.equals("local")) {
+            props.add("app.zookeeper.provider=local");
+            props.add("app.zookeeper.embedded=false");
+        } else {
+            props.add("app.zookeeper.provider=zookeeper");
+            props.add("app.zookeeper.embedded=true");
+            props.add("app.zookeeper.host=127.0.0.1:" + ZookeeperPort);
+            props.add("app.zookeeper.data-dir=" + Files.createTempDirectory("zk-load"));
+        }
+
+        return props.toArray(new String[0]);
+    }
+
+    /**
+     * Create flow of the run with yaml in the given shape, as the default admin
+     */
+    private String setup(ConfigurableApplicationContext context) {
+        UserService userService = context.getBean(UserService.class);
+        SessionManager sessionManager = context.getBean(SessionManager.class);
+        FlowService flowService = context.getBean(FlowService.class);
+
+        User admin = userService.defaultAdmin()
+                .orElseGet(() -> userService.createDefaultAdmin("load@flow.ci", "12345"));
+        sessionManager.set(admin);
+
+        String yml = Base64.getEncoder().encodeToString(yml().getBytes(StandardCharsets.UTF_8));
+        flowService.create(run);
+        flowService.confirm(run, new ConfirmOption().setYaml(yml));
+
+        log.info("Flow {} created with {} steps in {} branches", run, numOfSteps, Math.max(numOfBranches, 1));
+        return run;
+    }
+
+    private List<Agent> createAgents(ConfigurableApplicationContext context) {
+        AgentService agentService = context.getBean(AgentService.class);
+        List<Agent> list = new ArrayList<>(numOfAgents);
+
+        for (int i = 0; i < numOfAgents; i++) {
+            AgentOption option = new AgentOption();
+            option.setName(run + "-agent-" + i);
+            option.setTags(ImmutableSet.of(run));
+            list.add(agentService.create(option));
+        }
+
+        return list;
+    }
+
+    private void fireWebhooks(ScheduledExecutorService executor, String url) throws Exception {
+        byte[] payload;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(WebhookPayload)) {
+            payload = ByteStreams.toByteArray(Objects.requireNonNull(in));
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(GitHubConverter.Header, "push");
+        HttpEntity<byte[]> request = new HttpEntity<>(payload, headers);
+
+        RestTemplate rest = new RestTemplate();
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(rate, 1);
+
+        for (int i = 0; i < numOfJobs; i++) {
+            executor.schedule(() -> {
+                try {
+                    rest.postForEntity(url, request, Void.class);
+                } catch (Exception e) {
+                    log.warn("Unable to send webhook: {}", e.getMessage());
+                }
+            }, i * interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Sequential steps, or a parallel step with branches of sequential steps
+     */
+    private String yml() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("selector:\n");
+        builder.append("  label: [ \"").append(run).append("\" ]\n\n");
+        builder.append("steps:\n");
+
+        if (numOfBranches <= 0) {
+            appendSteps(builder, "  ", "step");
+            return builder.toString();
+        }
+
+        builder.append("  - parallel:\n");
+        for (int b = 0; b < numOfBranches; b++) {
+            builder.append("      branch-").append(b).append(":\n");
+            builder.append("        selector:\n");
+            builder.append("          label: [ \"").append(run).append("\" ]\n");
+            builder.append("        steps:\n");
+            appendSteps(builder, "          ", "branch-" + b + "-step");
+        }
+
+        return builder.toString();
+    }
+
+    private void appendSteps(StringBuilder builder, String indent, String prefix) {
+        for (int i = 0; i < numOfSteps; i++) {
+            builder.append(indent).append("- name: ").append(prefix).append("-").append(i).append("\n");
+            builder.append(indent).append("  bash: \"echo ").append(i).append("\"\n");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.load;
+
+import com.sun.management.OperatingSystemMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.flowci.core.common.config.MetricsConfig.Prefix;
+
+/**
+ * Throughput, latency percentiles and resource usage of a load run,
+ * resources are sampled from the whole jvm, including the simulated agents.
+ *
+ * @author yang
+ */
+public class LoadReport {
+
+    private static final double[] Percentiles = {0.5, 0.9, 0.99, 1.0};
+
+    private final Queue<Long> triggerToDispatch = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Long> stepToDispatch = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Long> jobDuration = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger succeeded = new AtomicInteger(0);
+
+    private final AtomicInteger failed = new AtomicInteger(0);
+
+    private final OperatingSystemMXBean os =
+            (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private int numOfSamples;
+
+    private double sumOfCpu;
+
+    private double maxCpu;
+
+    private long maxHeap;
+
+    private int maxThreads;
+
+    public void onTriggerToDispatch(long nanos) {
+        triggerToDispatch.add(nanos);
+    }
+
+    public void onStepToDispatch(long nanos) {
+        stepToDispatch.add(nanos);
+    }
+
+    public void onJobDone(long nanos, boolean success) {
+        jobDuration.add(nanos);
+        (success ? succeeded : failed).incrementAndGet();
+    }
+
+    public int numOfDone() {
+        return succeeded.get() + failed.get();
+    }
+
+    public synchronized void sample() {
+        double cpu = Math.max(os.getProcessCpuLoad(), 0);
+        numOfSamples++;
+        sumOfCpu += cpu;
+        maxCpu = Math.max(maxCpu, cpu);
+        maxHeap = Math.max(maxHeap, memory.getHeapMemoryUsage().getUsed());
+        maxThreads = Math.max(maxThreads, threads.getThreadCount());
+    }
+
+    public synchronized void print(PrintStream out, long elapsedNanos, MeterRegistry registry) {
+        double seconds = elapsedNanos / 1e9;
+
+        out.println("==================== Load Report ====================");
+        out.printf("jobs: %d succeeded, %d failed in %.2f s%n", succeeded.get(), failed.get(), seconds);
+        out.printf("throughput: %.2f jobs/s%n", seconds > 0 ? numOfDone() / seconds : 0);
+
+        printPercentiles(out, "trigger -> first dispatch", triggerToDispatch);
+        printPercentiles(out, "cmd_out -> next dispatch", stepToDispatch);
+        printPercentiles(out, "job duration", jobDuration);
+
+        out.printf("cpu: avg %.1f%%, max %.1f%%%n",
+                numOfSamples > 0 ? sumOfCpu / numOfSamples * 100 : 0, maxCpu * 100);
+        out.printf("heap: max %d MB, threads: max %d%n", maxHeap / 1024 / 1024, maxThreads);
+
+        out.println("---------------- Server timers (ms) -----------------");
+        registry.getMeters().stream()
+                .filter(m -> m instanceof Timer && m.getId().getName().startsWith(Prefix))
+                .map(m -> (Timer) m)
+                .filter(t -> t.count() > 0)
+                .sorted(Comparator.comparing(t -> t.getId().getName()))
+                .forEach(t -> out.printf("%s %s: count %d, mean %.2f, max %.2f%n",
+                        t.getId().getName(),
+                        t.getId().getTags(),
+                        t.count(),
+                        t.mean(TimeUnit.MILLISECONDS),
+                        t.max(TimeUnit.MILLISECONDS)));
+    }
+
+    private static void printPercentiles(PrintStream out, String name, Queue<Long> samples) {
+        long[] sorted = samples.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+
+        StringBuilder builder = new StringBuilder(name).append(" (ms, n=").append(sorted.length).append("):");
+        for (double p : Percentiles) {
+            long value = sorted.length == 0 ? 0 : sorted[(int) Math.ceil(p * sorted.length) - 1];
+            builder.append(String.format(" p%s=%.2f", p == 1.0 ? "100" : trim(p * 100), value / 1e6));
+        }
+
+        out.println(builder);
+    }
+
+    private static String trim(double value) {
+        return value == (long) value ? Long.toString((long) value) : Double.toString(value);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flowci.core.agent.domain.*;
+import com.flowci.core.common.domain.StatusCode;
+import com.flowci.core.job.domain.Executed;
+import com.flowci.domain.Common;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent speaks the websocket protocol of AgentEventManager without running anything,
+ * it sends connect and profile frames once connected, and for each shell cmd it sends
+ * the log lines as slog frames and a successful cmd_out after the step duration.
+ *
+ * @author yang
+ */
+@Log4j2
+public class SimulatedAgent extends BinaryWebSocketHandler {
+
+    private static final String HeaderToken = "Token";
+
+    public interface Listener {
+
+        void onShellIn(String jobId, String stepId);
+
+        void onShellOut(String jobId, String stepId);
+    }
+
+    @Getter
+    private final String token;
+
+    private final ObjectMapper objectMapper;
+
+    private final ScheduledExecutorService executor;
+
+    private final Listener listener;
+
+    private final long stepMillis;
+
+    private final int logLines;
+
+    private WebSocketSession session;
+
+    public SimulatedAgent(String token,
+                          ObjectMapper objectMapper,
+                          ScheduledExecutorService executor,
+                          Listener listener,
+                          long stepMillis,
+                          int logLines) {
+        this.token = token;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.listener = listener;
+        this.stepMillis = stepMillis;
+        this.logLines = logLines;
+    }
+
+    public void connect(WebSocketClient client, URI uri) throws Exception {
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.add(HeaderToken, token);
+        session = client.doHandshake(this, headers, uri).get(10, TimeUnit.SECONDS);
+
+        AgentInit init = new AgentInit();
+        init.setStatus(Agent.Status.IDLE);
+        init.setOs(Common.OS.LINUX);
+        init.setK8sCluster(false);
+        send(AgentFrame.Opcode.Connect, objectMapper.writeValueAsBytes(init));
+
+        AgentProfile profile = new AgentProfile()
+                .setCpuNum(Runtime.getRuntime().availableProcessors())
+                .setTotalMemory(4096)
+                .setFreeMemory(2048)
+                .setTotalDisk(102400)
+                .setFreeDisk(51200);
+        send(AgentFrame.Opcode.Profile, objectMapper.writeValueAsBytes(profile));
+    }
+
+    public void close() {
+        if (session == null) {
+            return;
+        }
+
+        try {
+            session.close(CloseStatus.NORMAL);
+        } catch (IOException e) {
+            log.debug(e);
+        }
+    }
+
+    /**
+     * Message from server is either response of connect or json of cmd in
+     */
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        ByteBuffer payload = message.getPayload();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+
+        JsonNode node = objectMapper.readTree(bytes);
+
+        if (node.has("code")) {
+            if (node.get("code").asInt() != StatusCode.OK) {
+                log.warn("Agent {} rejected: {}", token, node.path("message").asText());
+            }
+            return;
+        }
+
+        if (!CmdIn.Type.SHELL.name().equals(node.path("type").asText())) {
+            return;
+        }
+
+        String stepId = node.path("id").asText();
+        String jobId = node.path("jobId").asText();
+        String traceParent = node.path("traceParent").asText(null);
+
+        listener.onShellIn(jobId, stepId);
+
+        Date startAt = new Date();
+        executor.schedule(() -> finish(jobId, stepId, traceParent, startAt), stepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void finish(String jobId, String stepId, String traceParent, Date startAt) {
+        try {
+            long logSize = 0;
+            for (int i = 0; i < logLines; i++) {
+                byte[] line = ("line " + i + " of step " + stepId + "\n").getBytes(StandardCharsets.UTF_8);
+                logSize += line.length;
+
+                ShellLog item = new ShellLog();
+                item.setJobId(jobId);
+                item.setStepId(stepId);
+                item.setLog(Base64.getEncoder().encodeToString(line));
+                send(AgentFrame.Opcode.ShellLog, objectMapper.writeValueAsBytes(item));
+            }
+
+            ShellOut out = new ShellOut()
+                    .setId(stepId)
+                    .setStatus(Executed.Status.SUCCESS)
+                    .setCode(0)
+                    .setStartAt(startAt)
+                    .setFinishAt(new Date())
+                    .setLogSize(logSize)
+                    .setTraceParent(traceParent);
+
+            byte[] json = objectMapper.writeValueAsBytes(out);
+            byte[] body = new byte[json.length + 1];
+            body[0] = CmdOut.ShellOutInd;
+            System.arraycopy(json, 0, body, 1, json.length);
+
+            listener.onShellOut(jobId, stepId);
+            send(AgentFrame.Opcode.CmdOut, body);
+        } catch (IOException e) {
+            log.warn("Agent {} unable to send result of step {}: {}", token, stepId, e.getMessage());
+        }
+    }
+
+    private void send(AgentFrame.Opcode op, byte[] body) throws IOException {
+        BinaryMessage message = new BinaryMessage(AgentFrame.encode(op, body));
+        synchronized (this) {
+            session.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.plugin;
+
+import com.flowci.core.config.service.ConfigService;
+import com.flowci.core.plugin.dao.PluginDao;
+import com.flowci.core.plugin.domain.Plugin;
+import com.flowci.core.plugin.event.PluginRefreshEvent;
+import com.flowci.core.plugin.service.PluginService;
+import com.flowci.core.secret.service.SecretService;
+import com.flowci.core.test.SpringScenario;
+import com.flowci.domain.Input;
+import com.flowci.domain.SimpleAuthPair;
+import com.flowci.domain.StringVars;
+import com.flowci.domain.VarType;
+import com.flowci.domain.Version;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Optional;
+
+public class PluginRegistryTest extends SpringScenario {
+
+    @Autowired
+    private PluginService pluginService;
+
+    @Autowired
+    private PluginDao pluginDao;
+
+    @Autowired
+    private SecretService secretService;
+
+    @Autowired
+    private ConfigService configService;
+
+    @Before
+    public void init() {
+        mockLogin();
+    }
+
+    @Test
+    public void should_refresh_registry_on_plugin_refresh_event() {
+        // init:
+        Plugin plugin = pluginDao.save(newPlugin("0.0.1"));
+        multicastEvent(new PluginRefreshEvent(this));
+        Assert.assertEquals(Version.parse("0.0.1"), pluginService.get("hello").getVersion());
+
+        // when: version changed in db
+        plugin.setVersion(Version.parse("0.0.2"));
+        pluginDao.save(plugin);
+
+        // then: registry keeps the loaded version until refreshed
+        Assert.assertEquals(Version.parse("0.0.1"), pluginService.get("hello").getVersion());
+
+        multicastEvent(new PluginRefreshEvent(this));
+        Assert.assertEquals(Version.parse("0.0.2"), pluginService.get("hello").getVersion());
+    }
+
+    @Test
+    public void should_verify_inputs_by_compiled_validators() {
+        pluginDao.save(newPlugin("0.0.1"));
+        multicastEvent(new PluginRefreshEvent(this));
+        Plugin plugin = pluginService.get("hello");
+
+        secretService.createAuth("my-secret", SimpleAuthPair.of("user", "pass"));
+        configService.save("my-config", "hello");
+
+        // when: valid inputs
+        StringVars context = new StringVars();
+        context.put("SECRET", "my-secret");
+        context.put("CONFIG", "my-config");
+
+        // then: default value is set
+        Assert.assertFalse(pluginService.verifyInputAndSetDefaultValue(plugin, context).isPresent());
+        Assert.assertEquals("60", context.get("TIMEOUT"));
+
+        // when: int input is invalid
+        context.put("TIMEOUT", "abc");
+
+        // then:
+        Optional<String> invalid = pluginService.verifyInputAndSetDefaultValue(plugin, context);
+        Assert.assertEquals("TIMEOUT", invalid.get());
+
+        // when: secret not existed
+        context.put("TIMEOUT", "10");
+        context.put("SECRET", "not-existed");
+
+        // then:
+        invalid = pluginService.verifyInputAndSetDefaultValue(plugin, context);
+        Assert.assertEquals("SECRET", invalid.get());
+
+        // when: config not existed
+        context.put("SECRET", "my-secret");
+        context.put("CONFIG", "not-existed");
+
+        // then:
+        invalid = pluginService.verifyInputAndSetDefaultValue(plugin, context);
+        Assert.assertEquals("CONFIG", invalid.get());
+    }
+
+    private static Plugin newPlugin(String version) {
+        Plugin plugin = new Plugin("hello", Version.parse(version));
+        plugin.setInputs(Lists.newArrayList(
+                new Input().setName("TIMEOUT").setType(VarType.INT).setRequired(false).setValue("60"),
+                new Input().setName("SECRET").setType(VarType.SECRET).setRequired(true),
+                new Input().setName("CONFIG").setType(VarType.CONFIG).setRequired(true)
+        ));
+        return plugin;
+    }
+}
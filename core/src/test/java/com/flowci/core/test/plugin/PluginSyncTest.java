@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.plugin;
+
+import com.flowci.core.common.config.AppProperties;
+import com.flowci.core.plugin.dao.PluginDao;
+import com.flowci.core.plugin.domain.Plugin;
+import com.flowci.core.plugin.event.RepoCloneEvent;
+import com.flowci.core.plugin.service.PluginService;
+import com.flowci.core.plugin.service.PluginServiceImpl;
+import com.flowci.core.test.SpringScenario;
+import com.flowci.domain.Version;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
+/**
+ * Incremental sync of plugins from a local git repo
+ */
+public class PluginSyncTest extends SpringScenario {
+
+    private static final String RepoURL = "http://localhost:8000/plugin/sync.json";
+
+    @ClassRule
+    public static WireMockRule wireMockRule = new WireMockRule(8000);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private PluginService pluginService;
+
+    @Autowired
+    private PluginServiceImpl pluginServiceImpl;
+
+    @Autowired
+    private PluginDao pluginDao;
+
+    @Autowired
+    private AppProperties.Plugin pluginProperties;
+
+    @Autowired
+    private Path pluginDir;
+
+    private String defaultRepo;
+
+    private int keepSeconds;
+
+    private Path source;
+
+    private Git git;
+
+    private final AtomicInteger numOfCloned = new AtomicInteger();
+
+    @Before
+    public void init() throws Exception {
+        defaultRepo = pluginProperties.getDefaultRepo();
+        keepSeconds = pluginProperties.getRetiredVersionKeepSeconds();
+        pluginProperties.setDefaultRepo(RepoURL);
+
+        source = folder.newFolder("hello-plugin").toPath();
+        git = Git.init().setDirectory(source.toFile()).call();
+
+        addEventListener((ApplicationListener<RepoCloneEvent>) event -> numOfCloned.incrementAndGet());
+    }
+
+    @After
+    public void reset() {
+        pluginProperties.setDefaultRepo(defaultRepo);
+        pluginProperties.setRetiredVersionKeepSeconds(keepSeconds);
+        git.close();
+    }
+
+    @Test
+    public void should_fetch_changed_plugins_only() throws Exception {
+        // init: first version
+        release("hello", "0.0.1");
+
+        // when:
+        pluginService.reload().get(30, TimeUnit.SECONDS);
+
+        // then:
+        Assert.assertEquals(1, numOfCloned.get());
+        Plugin plugin = pluginDao.findByName("hello").get();
+        Assert.assertEquals(Version.parse("0.0.1"), plugin.getVersion());
+
+        Path v1 = pluginService.getDir(plugin);
+        Assert.assertTrue(Files.exists(v1));
+
+        // when: reload without change
+        pluginService.reload().get(30, TimeUnit.SECONDS);
+
+        // then: nothing fetched
+        Assert.assertEquals(1, numOfCloned.get());
+
+        // when: new version released
+        release("hello", "0.0.2");
+        pluginService.reload().get(30, TimeUnit.SECONDS);
+
+        // then: new version fetched and the old version dir is kept for agents still fetching it
+        Assert.assertEquals(2, numOfCloned.get());
+        plugin = pluginDao.findByName("hello").get();
+        Assert.assertEquals(Version.parse("0.0.2"), plugin.getVersion());
+
+        Path v2 = pluginService.getDir(plugin);
+        Assert.assertTrue(Files.exists(v2));
+
+        pluginServiceImpl.removeRetiredVersions();
+        Assert.assertTrue(Files.exists(v1));
+
+        // when: keep time passed
+        pluginProperties.setRetiredVersionKeepSeconds(0);
+        release("hello", "0.0.3");
+        pluginService.reload().get(30, TimeUnit.SECONDS);
+        pluginServiceImpl.removeRetiredVersions();
+
+        // then: previous versions removed
+        Path v3 = pluginService.getDir(pluginDao.findByName("hello").get());
+        Assert.assertTrue(Files.exists(v3));
+        Assert.assertFalse(Files.exists(v2));
+    }
+
+    @Test
+    public void should_remove_plugin_not_in_repo_index() throws Exception {
+        // init:
+        release("hello", "0.0.1");
+        pluginService.reload().get(30, TimeUnit.SECONDS);
+        Assert.assertTrue(pluginDao.findByName("hello").isPresent());
+
+        // when: index only has other plugin
+        pluginProperties.setRetiredVersionKeepSeconds(0);
+        stubIndex("[{\"name\": \"other\", \"source\": \"file:///not/existed\", \"version\": \"0.0.1\"}]");
+        pluginService.reload().get(30, TimeUnit.SECONDS);
+        pluginServiceImpl.removeRetiredVersions();
+
+        // then:
+        Assert.assertFalse(pluginDao.findByName("hello").isPresent());
+        Assert.assertFalse(Files.exists(Paths.get(pluginDir.toString(), "hello")));
+    }
+
+    /**
+     * Commit plugin.yml with version to local repo and put it to repo index
+     */
+    private void release(String name, String version) throws Exception {
+        String yml = "name: " + name + "\nversion: " + version + "\n";
+        Files.write(Paths.get(source.toString(), "plugin.yml"), yml.getBytes());
+        git.add().addFilepattern("plugin.yml").call();
+        git.commit().setMessage("release " + version).call();
+
+        stubIndex("[{\"name\": \"" + name + "\", \"source\": \"" + source.toUri() + "\", \"branch\": \"master\", "
+                + "\"version\": \"" + version + "\"}]");
+    }
+
+    private void stubIndex(String body) {
+        stubFor(get(urlPathEqualTo("/plugin/sync.json"))
+                .willReturn(aResponse()
+                        .withBody(body)
+                        .withHeader("Content-Type", "application/json")));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.secret;
+
+import com.flowci.core.common.helper.CipherHelper;
+import com.flowci.core.common.mongo.EncryptConverter;
+import com.flowci.domain.SimpleAuthPair;
+import com.flowci.domain.SimpleKeyPair;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of loading a list of auth and rsa secrets through the mongo converters,
+ * compare cipher per call (previous implementation), thread confined cipher and decrypted value cache.
+ * Run by main method or 'java -cp ... org.openjdk.jmh.Main SecretLoadBenchmark'
+ *
+ * @author yang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SecretLoadBenchmark {
+
+    private static final String AppSecret = "qazWSXedcRFV12#$";
+
+    @Param({"10", "100"})
+    public int numOfSecrets;
+
+    private List<Document> authDocs;
+
+    private List<Document> rsaDocs;
+
+    private EncryptConverter.SimpleAuthPairReader authReader;
+
+    private EncryptConverter.SimpleKeyPairReader rsaReader;
+
+    private EncryptConverter.SimpleAuthPairReader cachedAuthReader;
+
+    private EncryptConverter.SimpleKeyPairReader cachedRsaReader;
+
+    @Setup
+    public void setup() {
+        EncryptConverter converter = new EncryptConverter(AppSecret);
+        authReader = converter.new SimpleAuthPairReader();
+        rsaReader = converter.new SimpleKeyPairReader();
+
+        EncryptConverter cached = new EncryptConverter(AppSecret, 60);
+        cachedAuthReader = cached.new SimpleAuthPairReader();
+        cachedRsaReader = cached.new SimpleKeyPairReader();
+
+        EncryptConverter.SimpleAuthPairWriter authWriter = converter.new SimpleAuthPairWriter();
+        EncryptConverter.SimpleKeyPairWriter rsaWriter = converter.new SimpleKeyPairWriter();
+        SimpleKeyPair rsa = CipherHelper.RSA.gen("benchmark@flow.ci");
+
+        authDocs = new ArrayList<>(numOfSecrets);
+        rsaDocs = new ArrayList<>(numOfSecrets);
+
+        for (int i = 0; i < numOfSecrets; i++) {
+            authDocs.add(authWriter.convert(SimpleAuthPair.of("user-" + i, "password-" + i)));
+            rsaDocs.add(rsaWriter.convert(rsa));
+        }
+    }
+
+    @Benchmark
+    public int cipherPerCall() throws Exception {
+        int length = 0;
+        for (Document doc : authDocs) {
+            length += decryptByNewCipher(doc.getString("username")).length();
+            length += decryptByNewCipher(doc.getString("password")).length();
+        }
+        for (Document doc : rsaDocs) {
+            length += decryptByNewCipher(doc.getString("publicKey")).length();
+            length += decryptByNewCipher(doc.getString("privateKey")).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int threadConfinedCipher() {
+        return load(authReader, rsaReader);
+    }
+
+    @Benchmark
+    public int decryptedCache() {
+        return load(cachedAuthReader, cachedRsaReader);
+    }
+
+    private int load(EncryptConverter.SimpleAuthPairReader authReader, EncryptConverter.SimpleKeyPairReader rsaReader) {
+        int length = 0;
+        for (Document doc : authDocs) {
+            SimpleAuthPair pair = authReader.convert(doc);
+            length += pair.getUsername().length() + pair.getPassword().length();
+        }
+        for (Document doc : rsaDocs) {
+            SimpleKeyPair pair = rsaReader.convert(doc);
+            length += pair.getPublicKey().length() + pair.getPrivateKey().length();
+        }
+        return length;
+    }
+
+    private static String decryptByNewCipher(String encrypted) throws Exception {
+        SecretKeySpec key = new SecretKeySpec(AppSecret.getBytes(StandardCharsets.UTF_8), "AES");
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5PADDING");
+        cipher.init(Cipher.DECRYPT_MODE, key);
+        return new String(cipher.doFinal(Base64.getDecoder().decode(encrypted)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SecretLoadBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,877 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.trigger;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.flowci.core.common.domain.GitSource;
+import com.flowci.core.trigger.domain.*;
+import com.flowci.core.trigger.domain.GitPrTrigger.Source;
+import com.flowci.core.trigger.domain.GitTrigger.GitEvent;
+import com.flowci.core.trigger.util.BranchHelper;
+import com.flowci.exception.ArgumentException;
+import com.flowci.util.ObjectsHelper;
+import com.flowci.util.StringHelper;
+import com.google.common.base.Strings;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Webhook events of each git source mapped to POJOs, which converters read through
+ * EventConverter before streaming the required fields only, as the baseline of TriggerConverterBenchmark
+ *
+ * @author yang
+ */
+final class PojoEvents {
+
+    /**
+     * Get POJO class of push or PR event by git source name
+     */
+    static Class<? extends GitTriggerable> of(String source, boolean isPr) {
+        switch (source) {
+            case "github":
+                return isPr ? GitHub.PrEvent.class : GitHub.PushOrTagEvent.class;
+            case "gitlab":
+                return isPr ? GitLab.PrEvent.class : GitLab.PushOrTagEvent.class;
+            case "gogs":
+                return isPr ? Gogs.PrEvent.class : Gogs.PushEvent.class;
+            default:
+                return isPr ? Gitee.PrEvent.class : Gitee.PushOrTagEvent.class;
+        }
+    }
+
+    static final class GitHub {
+
+        private static class PushOrTagEvent implements GitTriggerable {
+
+            private static final String TagRefPrefix = "refs/tags";
+
+            public String ref;
+
+            public List<Commit> commits;
+
+            @JsonProperty("head_commit")
+            public Commit commit;
+
+            public Author pusher;
+
+            private GitEvent getEvent() {
+                return ref.startsWith(TagRefPrefix) ? GitEvent.TAG : GitEvent.PUSH;
+            }
+
+            @Override
+            public GitPushTrigger toTrigger() {
+                if (Objects.isNull(commit)) {
+                    throw new ArgumentException("No commits data on Github push or tag event");
+                }
+
+                GitPushTrigger trigger = new GitPushTrigger();
+                trigger.setSource(GitSource.GITHUB);
+                trigger.setEvent(getEvent());
+
+                trigger.setCommitId(commit.id);
+                trigger.setMessage(commit.message);
+                trigger.setCommitUrl(commit.url);
+                trigger.setRef(BranchHelper.getBranchName(ref));
+                trigger.setTime(commit.timestamp);
+                trigger.setNumOfCommit(0);
+
+                ObjectsHelper.ifNotNull(commits, val -> {
+                    trigger.setNumOfCommit(val.size());
+                });
+
+                // set commit author info
+                trigger.setAuthor(pusher.toGitUser());
+                return trigger;
+            }
+        }
+
+        private static class PrEvent implements GitTriggerable {
+
+            public static final String PrOpen = "opened";
+
+            public static final String PrClosed = "closed";
+
+            public String action;
+
+            public String number;
+
+            @JsonProperty("pull_request")
+            public PrBody prBody;
+
+            @JsonProperty("sender")
+            public PrSender prSender;
+
+            @Override
+            public GitPrTrigger toTrigger() {
+                GitPrTrigger trigger = new GitPrTrigger();
+                trigger.setEvent(getEvent());
+                trigger.setSource(GitSource.GITHUB);
+
+                trigger.setNumber(number);
+                trigger.setBody(prBody.body);
+                trigger.setTitle(prBody.title);
+                trigger.setUrl(prBody.url);
+                trigger.setTime(prBody.time);
+                trigger.setNumOfCommits(prBody.numOfCommits);
+                trigger.setNumOfFileChanges(prBody.numOfFileChanges);
+                trigger.setMerged(prBody.merged);
+
+                Source head = new Source();
+                head.setCommit(prBody.head.sha);
+                head.setRef(prBody.head.ref);
+                head.setRepoName(prBody.head.repo.fullName);
+                head.setRepoUrl(prBody.head.repo.url);
+                trigger.setHead(head);
+
+                Source base = new Source();
+                base.setCommit(prBody.base.sha);
+                base.setRef(prBody.base.ref);
+                base.setRepoName(prBody.base.repo.fullName);
+                base.setRepoUrl(prBody.base.repo.url);
+                trigger.setBase(base);
+
+                GitUser sender = new GitUser()
+                        .setId(prSender.id)
+                        .setUsername(prSender.username);
+                trigger.setSender(sender);
+
+                return trigger;
+            }
+
+            private GitEvent getEvent() {
+                if (action.equals(PrOpen)) {
+                    return GitEvent.PR_OPENED;
+                }
+
+                if (action.equals(PrClosed) && prBody.merged) {
+                    return GitEvent.PR_MERGED;
+                }
+
+                throw new ArgumentException("Cannot handle action {0} from pull request", action);
+            }
+        }
+
+        private static class PrBody {
+
+            @JsonProperty("html_url")
+            public String url;
+
+            public String title;
+
+            public String body;
+
+            @JsonProperty("created_at")
+            public String time;
+
+            public PrSource head;
+
+            public PrSource base;
+
+            @JsonProperty("commits")
+            public String numOfCommits;
+
+            @JsonProperty("changed_files")
+            public String numOfFileChanges;
+
+            public Boolean merged;
+        }
+
+        private static class PrSource {
+
+            public String ref;
+
+            public String sha;
+
+            public PrRepo repo;
+        }
+
+        private static class PrRepo {
+
+            public String id;
+
+            @JsonProperty("full_name")
+            public String fullName;
+
+            @JsonProperty("html_url")
+            public String url;
+        }
+
+        private static class PrSender {
+
+            public String id;
+
+            @JsonProperty("login")
+            public String username;
+        }
+
+        private static class Commit {
+
+            public String id;
+
+            public String message;
+
+            public String timestamp;
+
+            public String url;
+        }
+
+        private static class Author {
+
+            public String name;
+
+            public String email;
+
+            public String username;
+
+            public GitUser toGitUser() {
+                return new GitUser()
+                        .setEmail(email)
+                        .setName(name)
+                        .setUsername(username);
+            }
+
+        }
+    }
+
+    static final class GitLab {
+
+        private abstract static class Event implements GitTriggerable {
+
+            @JsonProperty("event_name")
+            public String name;
+        }
+
+        private static class PushOrTagEvent extends Event {
+
+            static final String PushEvent = "push";
+
+            static final String TagEvent = "tag_push";
+
+            public String before;
+
+            public String after;
+
+            public String ref;
+
+            public String message;
+
+            @JsonAlias("user_id")
+            public String userId;
+
+            @JsonAlias("user_name")
+            public String nameOfUser;
+
+            @JsonAlias("user_username")
+            public String username;
+
+            @JsonAlias("user_email")
+            public String email;
+
+            @JsonAlias("user_avatar")
+            public String avatar;
+
+            public List<Commit> commits;
+
+            @Override
+            public GitTrigger toTrigger() {
+                if (commits == null || commits.size() == 0) {
+                    throw new ArgumentException("No commits data on GitLab push event");
+                }
+
+                GitPushTrigger trigger = new GitPushTrigger();
+                trigger.setSource(GitSource.GITLAB);
+                trigger.setEvent(getEvent());
+
+                trigger.setCommitId(after);
+                trigger.setMessage(message);
+
+                ObjectsHelper.ifNotNull(commits, val -> {
+                    if (val.size() == 0) {
+                        return;
+                    }
+
+                    Commit topCommit = val.get(0);
+
+                    // get message from commit if no message available
+                    if (Strings.isNullOrEmpty(message)) {
+                        trigger.setMessage(topCommit.message);
+                    }
+
+                    trigger.setCommitUrl(topCommit.url);
+                    trigger.setRef(BranchHelper.getBranchName(ref));
+                    trigger.setTime(topCommit.timestamp);
+                    trigger.setNumOfCommit(val.size());
+
+                    // set commit author info
+                    GitUser gitUser = new GitUser()
+                        .setEmail(topCommit.author.email);
+
+                    if (Objects.equals(topCommit.author.name, nameOfUser)) {
+                        gitUser.setUsername(username);
+                        gitUser.setAvatarLink(avatar);
+                    }
+
+                    trigger.setAuthor(gitUser);
+                });
+
+
+                return trigger;
+            }
+
+            private GitEvent getEvent() {
+                if (name.equals(TagEvent)) {
+                    return GitEvent.TAG;
+                }
+
+                if (name.equals(PushEvent)) {
+                    return GitEvent.PUSH;
+                }
+
+                throw new ArgumentException("Unsupported event '{0}' from gitlab", name);
+            }
+        }
+
+        private static class PrEvent extends Event {
+
+            static final String PrOpened = "opened";
+
+            static final String PrMerged = "merged";
+
+            public GitLabUser user;
+
+            @JsonAlias("object_attributes")
+            public PrAttributes attributes;
+
+            @Override
+            public GitTrigger toTrigger() {
+                GitPrTrigger trigger = new GitPrTrigger();
+                setTriggerEvent(trigger);
+
+                trigger.setSource(GitSource.GITLAB);
+                trigger.setNumber(attributes.number);
+                trigger.setBody(attributes.description);
+                trigger.setTitle(attributes.title);
+                trigger.setUrl(attributes.url);
+                trigger.setTime(attributes.createdAt);
+                trigger.setNumOfCommits("0");
+                trigger.setNumOfFileChanges("0");
+                trigger.setMerged(attributes.state.equals(PrMerged));
+
+                GitPrTrigger.Source head = new GitPrTrigger.Source();
+                head.setCommit(attributes.lastCommit.id);
+                head.setRef(attributes.sourceBranch);
+                head.setRepoName(attributes.source.name);
+                head.setRepoUrl(attributes.source.webUrl);
+                trigger.setHead(head);
+
+                GitPrTrigger.Source base = new GitPrTrigger.Source();
+                base.setCommit(StringHelper.EMPTY);
+                base.setRef(attributes.targetBranch);
+                base.setRepoName(attributes.target.name);
+                base.setRepoUrl(attributes.target.webUrl);
+                trigger.setBase(base);
+
+                GitUser sender = new GitUser()
+                    .setUsername(user.username)
+                    .setAvatarLink(user.avatar);
+                trigger.setSender(sender);
+
+                return trigger;
+            }
+
+            private void setTriggerEvent(GitPrTrigger trigger) {
+                if (attributes.state.equals(PrOpened)) {
+                    trigger.setEvent(GitTrigger.GitEvent.PR_OPENED);
+                    return;
+                }
+
+                if (attributes.state.equals(PrMerged)) {
+                    trigger.setEvent(GitTrigger.GitEvent.PR_MERGED);
+                    return;
+                }
+
+                throw new ArgumentException("Unsupported pr action '{0}' from gitlab", attributes.state);
+            }
+        }
+
+        private static class PrAttributes {
+
+            public String title;
+
+            @JsonAlias("created_at")
+            public String createdAt;
+
+            public String description;
+
+            public String state;
+
+            public String url;
+
+            @JsonAlias("iid")
+            public String number;
+
+            @JsonAlias("source_branch")
+            public String sourceBranch;
+
+            public Project source;
+
+            @JsonAlias("target_branch")
+            public String targetBranch;
+
+            public Project target;
+
+            @JsonAlias("last_commit")
+            public Commit lastCommit;
+
+        }
+
+        private static class Project {
+
+            public String id;
+
+            public String name;
+
+            @JsonAlias("web_url")
+            public String webUrl;
+        }
+
+        private static class GitLabUser {
+
+            @JsonAlias("user_id")
+            public String id;
+
+            @JsonAlias({"user_name", "name"})
+            public String name;
+
+            @JsonAlias({"user_username", "username"})
+            public String username;
+
+            @JsonAlias("user_email")
+            public String email;
+
+            @JsonAlias({"user_avatar", "avatar_url"})
+            public String avatar;
+        }
+
+        private static class Commit {
+
+            public String id;
+
+            public String message;
+
+            public String timestamp;
+
+            public String url;
+
+            public GitLabUser author;
+
+            // modified file name list
+            public List<String> modified;
+
+            // removed file name list
+            public List<String> removed;
+        }
+    }
+
+    static final class Gogs {
+
+        private static class PushEvent implements GitTriggerable {
+
+            public String before;
+
+            public String after;
+
+            public String ref;
+
+            public List<Commit> commits;
+
+            public User pusher;
+
+            @Override
+            public GitTrigger toTrigger() {
+                if (Objects.isNull(commits) || commits.isEmpty()) {
+                    throw new ArgumentException("No commits data on Gogs push event");
+                }
+
+                GitPushTrigger trigger = new GitPushTrigger();
+                trigger.setSource(GitSource.GOGS);
+                trigger.setEvent(GitTrigger.GitEvent.PUSH);
+
+                Commit commit = commits.get(0);
+
+                trigger.setCommitId(commit.id);
+                trigger.setMessage(commit.message);
+                trigger.setCommitUrl(commit.url);
+                trigger.setRef(BranchHelper.getBranchName(ref));
+                trigger.setTime(commit.timestamp);
+                trigger.setNumOfCommit(commits.size());
+
+                // set commit author info
+                trigger.setAuthor(pusher.toGitUser());
+
+                return trigger;
+            }
+        }
+
+        // Release event
+        private static class PrEvent implements GitTriggerable {
+
+            static final String ACTION_OPENED = "opened";
+
+            static final String ACTION_CLOSED = "closed";
+
+            public String action;
+
+            @JsonAlias("pull_request")
+            public PrBody prBody;
+
+            public User sender;
+
+            @Override
+            public GitTrigger toTrigger() {
+                GitPrTrigger trigger = new GitPrTrigger();
+                setTriggerEvent(trigger);
+
+                trigger.setSource(GitSource.GOGS);
+                trigger.setNumber(prBody.number);
+                trigger.setBody(prBody.body);
+                trigger.setTitle(prBody.title);
+                trigger.setUrl(prBody.url);
+                trigger.setTime(prBody.mergedAt);
+                trigger.setNumOfCommits(StringHelper.EMPTY);
+                trigger.setNumOfFileChanges(StringHelper.EMPTY);
+                trigger.setMerged(prBody.merged);
+
+                GitPrTrigger.Source head = new GitPrTrigger.Source();
+                head.setCommit(StringHelper.EMPTY);
+                head.setRef(prBody.headBranch);
+                head.setRepoName(prBody.head.fullName);
+                head.setRepoUrl(prBody.head.url);
+                trigger.setHead(head);
+
+                GitPrTrigger.Source base = new GitPrTrigger.Source();
+                base.setCommit(StringHelper.EMPTY);
+                base.setRef(prBody.baseBranch);
+                base.setRepoName(prBody.base.fullName);
+                base.setRepoUrl(prBody.base.url);
+                trigger.setBase(base);
+
+                trigger.setSender(sender.toGitUser());
+
+                if (!StringHelper.hasValue(trigger.getTime())) {
+                    trigger.setTime(StringHelper.EMPTY);
+                }
+
+                return trigger;
+            }
+
+            private void setTriggerEvent(GitPrTrigger trigger) {
+                if (action.equals(ACTION_OPENED)) {
+                    trigger.setEvent(GitTrigger.GitEvent.PR_OPENED);
+                    return;
+                }
+
+                if (action.equals(ACTION_CLOSED) && prBody.merged) {
+                    trigger.setEvent(GitTrigger.GitEvent.PR_MERGED);
+                    return;
+                }
+
+                throw new ArgumentException("Cannot handle action {0} from pull request", action);
+            }
+        }
+
+        private static class PrBody {
+
+            public String id;
+
+            public String number;
+
+            public String title;
+
+            public String body;
+
+            public User user;
+
+            @JsonAlias("html_url")
+            public String url;
+
+            @JsonAlias("head_repo")
+            public Repo head;
+
+            @JsonAlias("head_branch")
+            public String headBranch;
+
+            @JsonAlias("base_repo")
+            public Repo base;
+
+            @JsonAlias("base_branch")
+            public String baseBranch;
+
+            public boolean merged;
+
+            @JsonAlias("merged_at")
+            public String mergedAt;
+        }
+
+        private static class Repo {
+
+            public String name;
+
+            @JsonAlias("full_name")
+            public String fullName;
+
+            @JsonAlias("html_url")
+            public String url;
+        }
+
+        private static class Commit {
+
+            public String id;
+
+            public String message;
+
+            public String url;
+
+            public User author;
+
+            public User committer;
+
+            public List<String> modified;
+
+            public String timestamp;
+        }
+
+        private static class User {
+
+            public String id;
+
+            public String username;
+
+            public String email;
+
+            @JsonAlias("avatar_url")
+            public String avatarUrl;
+
+            GitUser toGitUser() {
+                return new GitUser()
+                        .setId(id)
+                        .setEmail(email)
+                        .setUsername(username)
+                        .setAvatarLink(avatarUrl);
+            }
+        }
+    }
+
+    static final class Gitee {
+
+        private static class PushOrTagEvent implements GitTriggerable {
+
+            private static final String TagRefPrefix = "refs/tags";
+
+            public String ref;
+
+            @JsonProperty("head_commit")
+            public Commit commit;
+
+            @JsonProperty("total_commits_count")
+            public int numOfCommit;
+
+            public Author pusher;
+
+            public Author sender;
+
+            private GitTrigger.GitEvent getEvent() {
+                return ref.startsWith(TagRefPrefix) ? GitTrigger.GitEvent.TAG : GitTrigger.GitEvent.PUSH;
+            }
+
+            @Override
+            public GitTrigger toTrigger() {
+                if (Objects.isNull(commit)) {
+                    throw new ArgumentException("No commits data on Gitee push or tag event");
+                }
+
+                GitPushTrigger trigger = new GitPushTrigger();
+                trigger.setSource(GitSource.GITEE);
+                trigger.setEvent(getEvent());
+
+                trigger.setAuthor(pusher.toGitUser());
+                trigger.setCommitId(commit.id);
+                trigger.setMessage(commit.message);
+                trigger.setCommitUrl(commit.url);
+                trigger.setRef(BranchHelper.getBranchName(ref));
+                trigger.setTime(commit.timestamp);
+                trigger.setNumOfCommit(numOfCommit);
+
+                if (pusher.equals(sender)) {
+                    trigger.getAuthor().setAvatarLink(sender.avatarUrl);
+                }
+
+                return trigger;
+            }
+        }
+
+        private static class PrEvent implements GitTriggerable {
+
+            public static final String PrOpen = "open";
+
+            public static final String PrMerged = "merge";
+
+            public String action;
+
+            @JsonProperty("pull_request")
+            public PullRequest prBody;
+
+            public Author sender;
+
+            @Override
+            public GitTrigger toTrigger() {
+                GitPrTrigger trigger = new GitPrTrigger();
+                trigger.setSource(GitSource.GITEE);
+                trigger.setEvent(getEvent());
+
+                trigger.setTitle(prBody.title);
+                trigger.setBody(prBody.body);
+                trigger.setTime(prBody.createdAt);
+                trigger.setNumber(prBody.number);
+                trigger.setUrl(prBody.url);
+                trigger.setMerged(isMerged());
+                trigger.setNumOfCommits(prBody.numOfCommits);
+                trigger.setNumOfFileChanges(prBody.numOfFileChanges);
+                trigger.setSender(sender.toGitUser());
+
+                GitPrTrigger.Source head = new GitPrTrigger.Source();
+                head.setCommit(prBody.head.sha);
+                head.setRef(prBody.head.ref);
+                head.setRepoName(prBody.head.repo.fullName);
+                head.setRepoUrl(prBody.head.repo.url);
+                trigger.setHead(head);
+
+                GitPrTrigger.Source base = new GitPrTrigger.Source();
+                base.setCommit(prBody.base.sha);
+                base.setRef(prBody.base.ref);
+                base.setRepoName(prBody.base.repo.fullName);
+                base.setRepoUrl(prBody.base.repo.url);
+                trigger.setBase(base);
+
+                return trigger;
+            }
+
+            private boolean isMerged() {
+                return PrMerged.equals(action);
+            }
+
+            private GitTrigger.GitEvent getEvent() {
+                if (PrOpen.equals(action)) {
+                    return GitTrigger.GitEvent.PR_OPENED;
+                }
+
+                if (PrMerged.equals(action)) {
+                    return GitTrigger.GitEvent.PR_MERGED;
+                }
+
+                throw new ArgumentException("Cannot handle action {0} from pull request", action);
+            }
+        }
+
+        private static class PullRequest {
+
+            public String id;
+
+            public String number;
+
+            public String title;
+
+            public String body;
+
+            @JsonProperty("created_at")
+            public String createdAt;
+
+            @JsonProperty("html_url")
+            public String url;
+
+            @JsonProperty("commits")
+            public String numOfCommits;
+
+            @JsonProperty("changed_files")
+            public String numOfFileChanges;
+
+            public PrSource head;
+
+            public PrSource base;
+        }
+
+        private static class PrSource {
+
+            public String ref;
+
+            public String sha;
+
+            public PrRepo repo;
+        }
+
+        private static class PrRepo {
+
+            public String id;
+
+            @JsonProperty("full_name")
+            public String fullName;
+
+            @JsonProperty("html_url")
+            public String url;
+        }
+
+        private static class Commit {
+
+            public String id;
+
+            public String message;
+
+            public String timestamp;
+
+            public String url;
+
+            public Author author;
+        }
+
+        @EqualsAndHashCode(of = {"id"})
+        private static class Author {
+
+            public String id;
+
+            public String name;
+
+            public String email;
+
+            public String username;
+
+            @JsonProperty("avatar_url")
+            public String avatarUrl;
+
+            public GitUser toGitUser() {
+                return new GitUser()
+                        .setId(id)
+                        .setEmail(email)
+                        .setName(name)
+                        .setAvatarLink(avatarUrl)
+                        .setUsername(username);
+            }
+        }
+    }
+}
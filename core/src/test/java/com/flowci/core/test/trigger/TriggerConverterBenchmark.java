@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.core.test.trigger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flowci.core.common.helper.JacksonHelper;
+import com.flowci.core.trigger.converter.*;
+import com.flowci.core.trigger.domain.GitTrigger;
+import com.flowci.core.trigger.domain.GitTriggerable;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare streaming field extraction of converters with mapping the whole webhook payload to POJO,
+ * run by main method or 'java -cp ... org.openjdk.jmh.Main TriggerConverterBenchmark'
+ *
+ * @author yang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TriggerConverterBenchmark {
+
+    @Param({
+            "github/webhook_push.json",
+            "github/webhook_pr_open.json",
+            "gitlab/webhook_push.json",
+            "gitlab/webhook_mr_opened.json",
+            "gogs/webhook_push.json",
+            "gogs/webhook_pr_opened.json",
+            "gitee/webhook_push.json",
+            "gitee/webhook_pr_open.json"
+    })
+    public String payload;
+
+    private final ObjectMapper objectMapper = JacksonHelper.create();
+
+    private TriggerConverter converter;
+
+    private Class<? extends GitTriggerable> pojo;
+
+    private String event;
+
+    private byte[] body;
+
+    @Setup
+    public void setup() throws IOException {
+        String provider = payload.substring(0, payload.indexOf('/'));
+        boolean isPr = payload.contains("_pr_") || payload.contains("_mr_");
+
+        switch (provider) {
+            case "github":
+                converter = new GitHubConverter();
+                event = isPr ? GitHubConverter.PR : GitHubConverter.PushOrTag;
+                break;
+            case "gitlab":
+                converter = new GitLabConverter();
+                event = isPr ? GitLabConverter.PR : GitLabConverter.Push;
+                break;
+            case "gogs":
+                converter = new GogsConverter();
+                event = isPr ? GogsConverter.PR : GogsConverter.Push;
+                break;
+            default:
+                converter = new GiteeConverter();
+                event = isPr ? GiteeConverter.PR : GiteeConverter.Push;
+        }
+
+        pojo = PojoEvents.of(provider, isPr);
+
+        try (InputStream stream = getClass().getClassLoader().getResourceAsStream(payload)) {
+            body = ByteStreams.toByteArray(stream);
+        }
+    }
+
+    @Benchmark
+    public Optional<GitTrigger> streaming() {
+        return converter.convert(event, new ByteArrayInputStream(body));
+    }
+
+    @Benchmark
+    public GitTrigger pojo() throws IOException {
+        GitTriggerable event = objectMapper.readValue(new ByteArrayInputStream(body), pojo);
+        return event.toTrigger();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TriggerConverterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
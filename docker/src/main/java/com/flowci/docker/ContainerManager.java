@@ -3,7 +3,9 @@ package com.flowci.docker;
 import com.flowci.docker.domain.Output;
 import com.flowci.docker.domain.StartOption;
 import com.flowci.docker.domain.Unit;
+import com.flowci.docker.domain.UnitEvent;
 
+import java.io.Closeable;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -22,4 +24,14 @@ public interface ContainerManager {
     void resume(String id) throws Exception;
 
     void delete(String id) throws Exception;
+
+    /**
+     * Watch state changes of units which name starts with prefix, instead of listing them
+     *
+     * @param onEvent invoked from watch thread, Closed event is the last one if watch closed by error
+     * @return handle to stop watching
+     */
+    default Closeable watch(String namePrefix, Consumer<UnitEvent> onEvent) throws Exception {
+        throw new UnsupportedOperationException("Un-support watch");
+    }
 }
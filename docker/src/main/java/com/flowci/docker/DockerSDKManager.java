@@ -5,15 +5,15 @@ import com.flowci.util.StringHelper;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.*;
 import com.github.dockerjava.api.exception.DockerException;
-import com.github.dockerjava.api.model.Container;
-import com.github.dockerjava.api.model.Frame;
-import com.github.dockerjava.api.model.Image;
-import com.github.dockerjava.api.model.PullResponseItem;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.*;
 import com.github.dockerjava.core.DefaultDockerClientConfig;
 import com.github.dockerjava.core.DockerClientBuilder;
 import com.google.common.collect.Lists;
 import lombok.extern.log4j.Log4j2;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -24,6 +24,10 @@ import java.util.function.Consumer;
 @Log4j2
 public class DockerSDKManager implements DockerManager {
 
+    private static final String[] WatchedEvents = {"create", "start", "restart", "pause", "unpause", "die", "destroy"};
+
+    private static final String EventDestroy = "destroy";
+
     private final String dockerHost;
 
     private final ContainerManager containerManager = new ContainerManagerImpl();
@@ -194,6 +198,24 @@ public class DockerSDKManager implements DockerManager {
                 removeCmd.exec();
             }
         }
+
+        @Override
+        public Closeable watch(String namePrefix, Consumer<UnitEvent> onEvent) throws Exception {
+            DockerClient client = newClient();
+            EventCallback callback = new EventCallback(client, namePrefix, onEvent);
+
+            try {
+                client.eventsCmd().withEventFilter(WatchedEvents).exec(callback);
+            } catch (Exception e) {
+                client.close();
+                throw e;
+            }
+
+            return () -> {
+                callback.stopped = true;
+                client.close();
+            };
+        }
     }
 
     private DockerClient newClient() {
@@ -218,6 +240,73 @@ public class DockerSDKManager implements DockerManager {
         }
     }
 
+    /**
+     * Convert container events to unit events, container is inspected on change
+     */
+    private static class EventCallback extends DockerCallback<Event> {
+
+        private final DockerClient client;
+
+        private final String namePrefix;
+
+        private final Consumer<UnitEvent> onEvent;
+
+        private volatile boolean stopped;
+
+        private EventCallback(DockerClient client, String namePrefix, Consumer<UnitEvent> onEvent) {
+            this.client = client;
+            this.namePrefix = namePrefix;
+            this.onEvent = onEvent;
+        }
+
+        @Override
+        public void onNext(Event event) {
+            if (event.getType() != EventType.CONTAINER || event.getActor() == null) {
+                return;
+            }
+
+            String id = event.getId();
+            String name = event.getActor().getAttributes().get("name");
+
+            if (id == null || name == null || !name.startsWith(namePrefix)) {
+                return;
+            }
+
+            if (EventDestroy.equals(event.getAction())) {
+                onEvent.accept(new UnitEvent(UnitEvent.Type.Removed, id, name, null));
+                return;
+            }
+
+            try {
+                InspectContainerResponse r = client.inspectContainerCmd(id).exec();
+                onEvent.accept(new UnitEvent(UnitEvent.Type.Changed, id, name, new ContainerUnit(r)));
+            } catch (NotFoundException e) {
+                onEvent.accept(new UnitEvent(UnitEvent.Type.Removed, id, name, null));
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            super.onError(throwable);
+            if (!stopped) {
+                onEvent.accept(UnitEvent.closed());
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            super.onComplete();
+            if (!stopped) {
+                onEvent.accept(UnitEvent.closed());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            stopped = true;
+        }
+    }
+
     private static class FrameCallback extends DockerCallback<Frame> {
 
         private final Consumer<Output> onLog;
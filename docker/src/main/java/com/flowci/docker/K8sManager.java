@@ -10,6 +10,8 @@ import io.fabric8.kubernetes.api.model.rbac.SubjectBuilder;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.LogWatch;
 import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.PodResource;
@@ -17,6 +19,7 @@ import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.kubernetes.client.internal.KubeConfigUtils;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
@@ -253,6 +256,37 @@ public class K8sManager implements DockerManager {
                 throw new Exception(String.format("Pod %s not deleted", podName));
             }
         }
+
+        @Override
+        public Closeable watch(String namePrefix, Consumer<UnitEvent> onEvent) throws Exception {
+            Watch watch = client.pods().inNamespace(option.getNamespace()).withLabel(LabelApp).watch(new Watcher<Pod>() {
+                @Override
+                public void eventReceived(Action action, Pod pod) {
+                    String name = pod.getMetadata().getName();
+                    if (!name.startsWith(namePrefix)) {
+                        return;
+                    }
+
+                    if (action == Action.DELETED) {
+                        onEvent.accept(new UnitEvent(UnitEvent.Type.Removed, name, name, null));
+                        return;
+                    }
+
+                    if (action == Action.ADDED || action == Action.MODIFIED) {
+                        onEvent.accept(new UnitEvent(UnitEvent.Type.Changed, name, name, new PodUnit(pod)));
+                    }
+                }
+
+                @Override
+                public void onClose(KubernetesClientException cause) {
+                    if (cause != null) {
+                        onEvent.accept(UnitEvent.closed());
+                    }
+                }
+            });
+
+            return watch::close;
+        }
     }
 
     private class ImageManagerImpl implements ImageManager {
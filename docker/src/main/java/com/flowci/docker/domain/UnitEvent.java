@@ -0,0 +1,42 @@
+package com.flowci.docker.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * State change of container or pod from docker event stream or k8s watch
+ */
+@Getter
+@AllArgsConstructor
+public class UnitEvent {
+
+    public enum Type {
+
+        /**
+         * Unit created or state changed, unit is present
+         */
+        Changed,
+
+        /**
+         * Unit removed, only id and name are present
+         */
+        Removed,
+
+        /**
+         * Watch closed by error, the state should be listed again
+         */
+        Closed
+    }
+
+    private final Type type;
+
+    private final String id;
+
+    private final String name;
+
+    private final Unit unit;
+
+    public static UnitEvent closed() {
+        return new UnitEvent(Type.Closed, null, null, null);
+    }
+}
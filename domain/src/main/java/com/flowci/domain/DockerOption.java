@@ -18,8 +18,10 @@ package com.flowci.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.flowci.util.Copyable;
 import com.flowci.util.StringHelper;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
@@ -28,11 +30,13 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Getter
 @Setter
+@NoArgsConstructor
 @Accessors(chain = true)
-public class DockerOption implements Serializable {
+public class DockerOption implements Serializable, Copyable<DockerOption> {
 
     private String image;
 
@@ -66,8 +70,33 @@ public class DockerOption implements Serializable {
 
     private String containerId;
 
+    public DockerOption(DockerOption src) {
+        this.image = src.image;
+        this.auth = src.auth;
+        this.name = src.name;
+        this.entrypoint = copyOf(src.entrypoint);
+        this.command = copyOf(src.command);
+        this.network = src.network;
+        this.user = src.user;
+        this.environment = Objects.isNull(src.environment) ? null : new HashMap<>(src.environment);
+        this.runtime = src.runtime;
+        this.ports = copyOf(src.ports);
+        this.stopContainer = src.stopContainer;
+        this.deleteContainer = src.deleteContainer;
+        this.containerId = src.containerId;
+    }
+
     @JsonIgnore
     public boolean hasName() {
         return StringHelper.hasValue(name);
     }
+
+    @Override
+    public DockerOption copy() {
+        return new DockerOption(this);
+    }
+
+    private static List<String> copyOf(List<String> src) {
+        return Objects.isNull(src) ? null : new LinkedList<>(src);
+    }
 }
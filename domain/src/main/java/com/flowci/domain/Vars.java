@@ -21,11 +21,21 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.flowci.util.ObjectsHelper;
 
 import java.io.Serializable;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+/**
+ * Vars can be layered by 'overlay', the layers are shared by reference instead of copying,
+ * and read through in priority order under its own entries, ex: step envs -> job context -> flow vars.
+ * <p>
+ * Writes by put always go to its own entries, the layers will be copied in before
+ * remove, replace or compute, so layers never be modified through the vars.
+ * <p>
+ * Layered vars are not thread safe against changes of layers, call flatten before
+ * handing over to other threads, ex: env of container or agent cmd.
+ */
 @JsonTypeInfo(
         use = JsonTypeInfo.Id.NAME,
         include = JsonTypeInfo.As.PROPERTY,
@@ -42,6 +52,9 @@ public abstract class Vars<V> extends LinkedHashMap<String, V> implements Serial
 
     public static final String JSON_TYPED_TYPE = "_typed_";
 
+    // read through layers in priority order, null if not layered
+    private transient List<Vars<V>> layers;
+
     Vars() {
         super();
     }
@@ -82,6 +95,55 @@ public abstract class Vars<V> extends LinkedHashMap<String, V> implements Serial
         return this;
     }
 
+    /**
+     * Add vars as read through layers under existing entries and layers without copying,
+     * the first one has the highest priority.
+     * <p>
+     * It's equivalent to merge(layer, false) for each layer, but changes of layer are visible
+     */
+    @SafeVarargs
+    public final Vars<V> overlay(Vars<V>... layers) {
+        for (Vars<V> layer : layers) {
+            if (Objects.isNull(layer) || layer == this) {
+                continue;
+            }
+
+            if (Objects.isNull(this.layers)) {
+                this.layers = new ArrayList<>(layers.length);
+            }
+
+            this.layers.add(layer);
+        }
+        return this;
+    }
+
+    public boolean isLayered() {
+        return Objects.nonNull(layers);
+    }
+
+    /**
+     * Copy entries of layers in and detach from layers
+     */
+    public Vars<V> flatten() {
+        if (!isLayered()) {
+            return this;
+        }
+
+        List<Map.Entry<String, V>> fromLayers = new LinkedList<>();
+        for (Map.Entry<String, V> entry : entrySet()) {
+            if (!super.containsKey(entry.getKey())) {
+                fromLayers.add(entry);
+            }
+        }
+
+        layers = null;
+
+        for (Map.Entry<String, V> entry : fromLayers) {
+            super.put(entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+
     /**
      * Convert vars to key=value list
      */
@@ -96,4 +158,348 @@ public abstract class Vars<V> extends LinkedHashMap<String, V> implements Serial
             put(entry.getKey(), entry.getValue());
         }
     }
+
+    //====================================================================
+    //        %% Read through layers
+    //====================================================================
+
+    @Override
+    public V get(Object key) {
+        if (!isLayered() || super.containsKey(key)) {
+            return super.get(key);
+        }
+
+        for (Vars<V> layer : layers) {
+            if (layer.containsKey(key)) {
+                return layer.get(key);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        return containsKey(key) ? get(key) : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (super.containsKey(key)) {
+            return true;
+        }
+
+        if (isLayered()) {
+            for (Vars<V> layer : layers) {
+                if (layer.containsKey(key)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (!isLayered()) {
+            return super.containsValue(value);
+        }
+
+        for (Map.Entry<String, V> entry : entrySet()) {
+            if (Objects.equals(entry.getValue(), value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The size of layered vars is not cached since layers can be changed underneath,
+     * it walks all entries with shadow checks, O(n * L) for n entries in L layers,
+     * flatten first if size is needed repeatedly, ex: copy or serialize in a loop
+     */
+    @Override
+    public int size() {
+        if (!isLayered()) {
+            return super.size();
+        }
+
+        int size = 0;
+        Iterator<Map.Entry<String, V>> iterator = new LayeredIterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (!super.isEmpty()) {
+            return false;
+        }
+
+        if (isLayered()) {
+            for (Vars<V> layer : layers) {
+                if (!layer.isEmpty()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        if (!isLayered()) {
+            return super.entrySet();
+        }
+
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new LayeredIterator();
+            }
+
+            @Override
+            public int size() {
+                return Vars.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<String> keySet() {
+        if (!isLayered()) {
+            return super.keySet();
+        }
+
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<Map.Entry<String, V>> iterator = new LayeredIterator();
+                return new Iterator<String>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return iterator.next().getKey();
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return Vars.this.containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return Vars.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        if (!isLayered()) {
+            return super.values();
+        }
+
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                Iterator<Map.Entry<String, V>> iterator = new LayeredIterator();
+                return new Iterator<V>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        return iterator.next().getValue();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return Vars.this.size();
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super V> action) {
+        if (!isLayered()) {
+            super.forEach(action);
+            return;
+        }
+
+        for (Map.Entry<String, V> entry : entrySet()) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    //====================================================================
+    //        %% Copy layers in before modification
+    //====================================================================
+
+    @Override
+    public V putIfAbsent(String key, V value) {
+        V current = get(key);
+        if (Objects.isNull(current)) {
+            put(key, value);
+        }
+        return current;
+    }
+
+    @Override
+    public V remove(Object key) {
+        return flatten().superRemove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        flatten();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, V oldValue, V newValue) {
+        flatten();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V replace(String key, V value) {
+        flatten();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super V, ? extends V> function) {
+        flatten();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+        flatten();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+        flatten();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public V compute(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+        flatten();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public V merge(String key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        flatten();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void clear() {
+        layers = null;
+        super.clear();
+    }
+
+    /**
+     * Clone to flat vars, since HashMap.clone copies entries from entrySet
+     */
+    @Override
+    public Object clone() {
+        Vars<?> cloned = (Vars<?>) super.clone();
+        cloned.layers = null;
+        return cloned;
+    }
+
+    /**
+     * Layers are transient, serialize flat copy instead
+     */
+    protected Object writeReplace() {
+        return isLayered() ? clone() : this;
+    }
+
+    private V superRemove(Object key) {
+        return super.remove(key);
+    }
+
+    /**
+     * Iterate own entries then entries of layers not shadowed by upper ones, entries from layers are read only
+     */
+    private class LayeredIterator implements Iterator<Map.Entry<String, V>> {
+
+        private final Iterator<Map.Entry<String, V>> own = Vars.super.entrySet().iterator();
+
+        private int index = -1;
+
+        private Iterator<Map.Entry<String, V>> current = own;
+
+        private Map.Entry<String, V> next;
+
+        @Override
+        public boolean hasNext() {
+            if (Objects.nonNull(next)) {
+                return true;
+            }
+
+            while (true) {
+                while (current.hasNext()) {
+                    Map.Entry<String, V> entry = current.next();
+                    if (current == own) {
+                        next = entry;
+                        return true;
+                    }
+
+                    if (!isShadowed(entry.getKey())) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(entry);
+                        return true;
+                    }
+                }
+
+                if (++index >= layers.size()) {
+                    return false;
+                }
+
+                current = layers.get(index).entrySet().iterator();
+            }
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Map.Entry<String, V> entry = next;
+            next = null;
+            return entry;
+        }
+
+        private boolean isShadowed(String key) {
+            if (Vars.super.containsKey(key)) {
+                return true;
+            }
+
+            for (int i = 0; i < index; i++) {
+                if (layers.get(i).containsKey(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.domain.test;
+
+import com.flowci.domain.DockerOption;
+import com.flowci.util.ObjectsHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * @author yang
+ */
+public class DockerOptionTest {
+
+    @Test
+    public void should_deep_copy_docker_option() {
+        DockerOption option = new DockerOption()
+                .setImage("ubuntu:18.04")
+                .setName("ubuntu")
+                .setEntrypoint(Arrays.asList("/bin/bash", "-c"))
+                .setCommand(null)
+                .setNetwork("host")
+                .setRuntime(true)
+                .setStopContainer(false)
+                .setContainerId("12345");
+        option.getEnvironment().put("HELLO", "world");
+        option.getPorts().add("8080:8080");
+
+        DockerOption copied = ObjectsHelper.copy(option);
+        Assert.assertNotSame(option, copied);
+        Assert.assertEquals("ubuntu:18.04", copied.getImage());
+        Assert.assertEquals("ubuntu", copied.getName());
+        Assert.assertEquals(Arrays.asList("/bin/bash", "-c"), copied.getEntrypoint());
+        Assert.assertNull(copied.getCommand());
+        Assert.assertEquals("host", copied.getNetwork());
+        Assert.assertEquals("root", copied.getUser());
+        Assert.assertTrue(copied.isRuntime());
+        Assert.assertFalse(copied.isStopContainer());
+        Assert.assertTrue(copied.isDeleteContainer());
+        Assert.assertEquals("12345", copied.getContainerId());
+
+        copied.getEnvironment().put("HELLO", "changed");
+        copied.getPorts().add("9090:9090");
+        copied.getEntrypoint().set(0, "/bin/sh");
+
+        Assert.assertEquals("world", option.getEnvironment().get("HELLO"));
+        Assert.assertEquals(1, option.getPorts().size());
+        Assert.assertEquals("/bin/bash", option.getEntrypoint().get(0));
+    }
+}
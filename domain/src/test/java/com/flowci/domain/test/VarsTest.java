@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.domain.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flowci.domain.StringVars;
+import com.flowci.domain.Vars;
+import com.flowci.util.ObjectsHelper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * @author yang
+ */
+public class VarsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private StringVars flow;
+
+    private StringVars job;
+
+    private StringVars step;
+
+    @Before
+    public void init() {
+        flow = new StringVars();
+        flow.put("FLOW_NAME", "hello");
+        flow.put("OVERWRITE", "flow");
+
+        job = new StringVars();
+        job.put("JOB_BUILD_NUMBER", "1");
+        job.put("OVERWRITE", "job");
+
+        step = new StringVars();
+        step.overlay(job, flow);
+    }
+
+    @Test
+    public void should_read_through_layers_by_priority() {
+        Assert.assertTrue(step.isLayered());
+        Assert.assertEquals(3, step.size());
+        Assert.assertEquals("hello", step.get("FLOW_NAME"));
+        Assert.assertEquals("1", step.get("JOB_BUILD_NUMBER"));
+        Assert.assertEquals("job", step.get("OVERWRITE"));
+        Assert.assertEquals("default", step.get("NOT_EXIST", "default"));
+
+        List<String> keys = new LinkedList<>(step.keySet());
+        Assert.assertEquals(Arrays.asList("JOB_BUILD_NUMBER", "OVERWRITE", "FLOW_NAME"), keys);
+    }
+
+    @Test
+    public void should_write_to_own_entries_only() {
+        step.put("OVERWRITE", "step");
+        Assert.assertEquals("step", step.get("OVERWRITE"));
+        Assert.assertEquals("job", job.get("OVERWRITE"));
+        Assert.assertEquals(3, step.size());
+
+        step.remove("FLOW_NAME");
+        Assert.assertFalse(step.isLayered());
+        Assert.assertFalse(step.containsKey("FLOW_NAME"));
+        Assert.assertEquals("hello", flow.get("FLOW_NAME"));
+        Assert.assertEquals(2, step.size());
+    }
+
+    @Test
+    public void should_be_same_as_merge_without_overwrite() {
+        StringVars merged = new StringVars();
+        merged.put("OVERWRITE", "step");
+        merged.merge(job, false).merge(flow, false);
+
+        StringVars layered = new StringVars();
+        layered.put("OVERWRITE", "step");
+        layered.overlay(job, flow);
+
+        Assert.assertEquals(merged, layered);
+        Assert.assertEquals(merged.toList(), layered.toList());
+    }
+
+    @Test
+    public void should_serialize_layered_vars_as_flat_vars() throws IOException {
+        String json = mapper.writeValueAsString(step);
+        Assert.assertTrue(json.contains(Vars.JSON_STRING_TYPE));
+
+        StringVars fromJson = mapper.readValue(json, StringVars.class);
+        Assert.assertFalse(fromJson.isLayered());
+        Assert.assertEquals(step, fromJson);
+
+        StringVars copied = ObjectsHelper.copy(step);
+        Assert.assertFalse(copied.isLayered());
+        Assert.assertEquals(step, copied);
+    }
+}
@@ -8,4 +8,11 @@ public abstract class SmException {
             super("Transition already existed");
         }
     }
+
+    public static class Frozen extends IllegalStateException {
+
+        public Frozen() {
+            super("State machine has been compiled");
+        }
+    }
 }
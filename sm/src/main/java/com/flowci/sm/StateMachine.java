@@ -1,43 +1,86 @@
 package com.flowci.sm;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
+/**
+ * Transitions and hooks are registered first, then compiled to an immutable table indexed by
+ * the ordinal of status, which is assigned in registration order. The table is rebuilt on demand
+ * if anything registered before compile, and registration is rejected after compile.
+ */
 @Log4j2
-@Setter
 @Getter
 @RequiredArgsConstructor
 public class StateMachine<T extends Context> {
 
-    private final Map<Status, Map<Status, Action<T>>> actions = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<Transition, Action<T>> actions = new LinkedHashMap<>();
 
+    @Getter(AccessLevel.NONE)
     private final Map<Status, List<Consumer<T>>> hooksOnTargetStatus = new HashMap<>();
 
+    @Getter(AccessLevel.NONE)
+    private final Map<Transition, TransitionMetrics> metrics = new LinkedHashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    private final List<TransitionListener<T>> listeners = new CopyOnWriteArrayList<>();
+
     private final String name;
 
     private final Executor executor;
 
-    public void addHookActionOnTargetStatus(Consumer<T> action, Status... targets) {
+    @Getter(AccessLevel.NONE)
+    private volatile Table<T> table;
+
+    private volatile boolean frozen;
+
+    public synchronized void addHookActionOnTargetStatus(Consumer<T> action, Status... targets) {
+        checkNotFrozen();
+
         for (Status target : targets) {
             List<Consumer<T>> actions = hooksOnTargetStatus.computeIfAbsent(target, status -> new LinkedList<>());
             actions.add(action);
         }
-    }
 
-    public void add(Transition t, Action<T> action) {
-        Map<Status, Action<T>> map = actions.computeIfAbsent(t.getFrom(), k -> new HashMap<>());
+        table = null;
+    }
 
-        if (map.containsKey(t.getTo())) {
+    public synchronized void add(Transition t, Action<T> action) {
+        if (actions.containsKey(t)) {
             throw new SmException.TransitionExisted();
         }
 
-        map.put(t.getTo(), action);
+        checkNotFrozen();
+
+        actions.put(t, action);
+        metrics.put(t, new TransitionMetrics(t));
+        table = null;
+    }
+
+    public void addListener(TransitionListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Metrics of registered transitions in registration order
+     */
+    public synchronized List<TransitionMetrics> getMetrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    /**
+     * Build the transition table and reject registration afterwards
+     */
+    public synchronized void compile() {
+        table = new Table<>(actions, hooksOnTargetStatus, metrics);
+        frozen = true;
     }
 
     public void execute(Status current, Status target, T context) {
@@ -52,22 +95,29 @@ public class StateMachine<T extends Context> {
         Objects.requireNonNull(current, "SM current status is missing");
         Objects.requireNonNull(target, "SM target status is missing");
 
-        Map<Status, Action<T>> actionMap = actions.get(current);
-        if (Objects.isNull(actionMap)) {
+        Table<T> t = getTable();
+
+        Integer from = t.ordinals.get(current);
+        if (Objects.isNull(from)) {
             log.warn("No status from {}", current.getName());
             return;
         }
 
-        Action<T> action = actionMap.get(target);
-        if (Objects.isNull(action)) {
+        Integer to = t.ordinals.get(target);
+        Entry<T> entry = Objects.isNull(to) ? null : t.entries[from][to];
+        if (Objects.isNull(entry)) {
             log.warn("No status from {} to {}", current.getName(), target.getName());
             return;
         }
 
+        Action<T> action = entry.action;
         if (!action.canRun(context)) {
             return;
         }
 
+        long start = System.nanoTime();
+        Throwable error = null;
+
         try {
             action.accept(context);
 
@@ -76,22 +126,106 @@ public class StateMachine<T extends Context> {
             }
 
             // execute target hook
-            hooksOnTargetStatus.computeIfPresent(target, (status, hooks) -> {
-                for (Consumer<T> hook : hooks) {
-                    hook.accept(context);
-                }
-                return hooks;
-            });
+            for (Consumer<T> hook : t.hooks[to]) {
+                hook.accept(context);
+            }
 
         } catch (Throwable e) {
+            error = e;
             log.debug(e);
             action.onException(e, context);
         } finally {
             action.onFinally(context);
+            onExecuted(entry, context, System.nanoTime() - start, error);
+        }
+    }
+
+    private void onExecuted(Entry<T> entry, T context, long duration, Throwable error) {
+        entry.metrics.record(duration, error != null);
+
+        for (TransitionListener<T> listener : listeners) {
+            try {
+                listener.onExecuted(entry.transition, context, duration, error);
+            } catch (Throwable e) {
+                log.warn("Transition listener error: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Table<T> getTable() {
+        Table<T> t = table;
+        if (t != null) {
+            return t;
+        }
+
+        synchronized (this) {
+            if (table == null) {
+                table = new Table<>(actions, hooksOnTargetStatus, metrics);
+            }
+            return table;
+        }
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new SmException.Frozen();
         }
     }
 
     private boolean isOnSameContext(Status current, Status target, T context) {
         return context.getTo() == target && context.getCurrent() == current;
     }
+
+    private static final class Entry<T extends Context> {
+
+        private final Transition transition;
+
+        private final Action<T> action;
+
+        private final TransitionMetrics metrics;
+
+        Entry(Transition transition, Action<T> action, TransitionMetrics metrics) {
+            this.transition = transition;
+            this.action = action;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * Immutable snapshot of registered transitions and hooks
+     */
+    private static final class Table<T extends Context> {
+
+        private final Map<Status, Integer> ordinals = new HashMap<>();
+
+        private final Entry<T>[][] entries;
+
+        private final List<Consumer<T>>[] hooks;
+
+        @SuppressWarnings("unchecked")
+        Table(Map<Transition, Action<T>> actions,
+              Map<Status, List<Consumer<T>>> hooksOnTargetStatus,
+              Map<Transition, TransitionMetrics> metrics) {
+
+            for (Transition t : actions.keySet()) {
+                ordinals.putIfAbsent(t.getFrom(), ordinals.size());
+                ordinals.putIfAbsent(t.getTo(), ordinals.size());
+            }
+
+            int size = ordinals.size();
+            entries = new Entry[size][size];
+            hooks = new List[size];
+
+            actions.forEach((t, action) -> {
+                int from = ordinals.get(t.getFrom());
+                int to = ordinals.get(t.getTo());
+                entries[from][to] = new Entry<>(t, action, metrics.get(t));
+            });
+
+            for (Map.Entry<Status, Integer> entry : ordinals.entrySet()) {
+                List<Consumer<T>> list = hooksOnTargetStatus.getOrDefault(entry.getKey(), Collections.emptyList());
+                hooks[entry.getValue()] = Collections.unmodifiableList(new ArrayList<>(list));
+            }
+        }
+    }
 }
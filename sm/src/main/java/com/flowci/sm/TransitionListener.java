@@ -0,0 +1,16 @@
+package com.flowci.sm;
+
+/**
+ * Listener invoked after each transition executed by state machine
+ */
+@FunctionalInterface
+public interface TransitionListener<T extends Context> {
+
+    /**
+     * @param transition    registered transition
+     * @param context       context of execution
+     * @param durationNanos duration of action, target hooks and finally
+     * @param error         exception from action or hooks, null if no error
+     */
+    void onExecuted(Transition transition, T context, long durationNanos, Throwable error);
+}
@@ -0,0 +1,92 @@
+package com.flowci.sm;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count, exceptions and latency histogram of a transition
+ */
+@RequiredArgsConstructor
+public final class TransitionMetrics {
+
+    /**
+     * Upper bounds of latency buckets in millis, the last bucket is for the rest
+     */
+    public static final long[] BucketBoundsInMillis = {1, 5, 10, 50, 100, 500, 1000, 5000, 30000};
+
+    private static final long[] BucketBoundsInNanos = new long[BucketBoundsInMillis.length];
+
+    static {
+        for (int i = 0; i < BucketBoundsInMillis.length; i++) {
+            BucketBoundsInNanos[i] = TimeUnit.MILLISECONDS.toNanos(BucketBoundsInMillis[i]);
+        }
+    }
+
+    @Getter
+    private final Transition transition;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder exceptions = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong(0);
+
+    private final LongAdder[] buckets = newBuckets();
+
+    void record(long durationNanos, boolean hasError) {
+        count.increment();
+        totalNanos.add(durationNanos);
+        maxNanos.accumulateAndGet(durationNanos, Math::max);
+
+        if (hasError) {
+            exceptions.increment();
+        }
+
+        int i = 0;
+        while (i < BucketBoundsInNanos.length && durationNanos > BucketBoundsInNanos[i]) {
+            i++;
+        }
+        buckets[i].increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getExceptions() {
+        return exceptions.sum();
+    }
+
+    public long getTotal(TimeUnit unit) {
+        return unit.convert(totalNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMax(TimeUnit unit) {
+        return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Num of executions in each bucket of BucketBoundsInMillis, plus the overflow bucket
+     */
+    public long[] getBuckets() {
+        long[] values = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            values[i] = buckets[i].sum();
+        }
+        return values;
+    }
+
+    private static LongAdder[] newBuckets() {
+        LongAdder[] buckets = new LongAdder[BucketBoundsInMillis.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+        return buckets;
+    }
+}
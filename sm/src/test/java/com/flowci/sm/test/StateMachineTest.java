@@ -4,6 +4,7 @@ import com.flowci.sm.*;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -79,4 +80,71 @@ public class StateMachineTest {
         Assert.assertTrue(shouldNotExecute.get());
         Assert.assertTrue(shouldExecuteOnHook.get());
     }
+
+    @Test(expected = SmException.Frozen.class)
+    public void should_reject_transition_after_compiled() {
+        sm.add(AtoB, new Action<TestContext>() {
+            @Override
+            public void accept(TestContext ctx) {
+            }
+        });
+
+        sm.compile();
+        Assert.assertTrue(sm.isFrozen());
+
+        sm.add(BtoC, new Action<TestContext>() {
+            @Override
+            public void accept(TestContext ctx) {
+            }
+        });
+    }
+
+    @Test
+    public void should_record_metrics_and_notify_listener() {
+        sm.add(AtoB, new Action<TestContext>() {
+            @Override
+            public void accept(TestContext ctx) {
+            }
+        });
+
+        sm.add(AtoC, new Action<TestContext>() {
+            @Override
+            public void accept(TestContext ctx) {
+                throw new IllegalStateException("error");
+            }
+        });
+
+        AtomicInteger numOfErrors = new AtomicInteger(0);
+        sm.addListener((transition, context, durationNanos, error) -> {
+            if (error != null) {
+                Assert.assertEquals(AtoC, transition);
+                numOfErrors.incrementAndGet();
+            }
+        });
+
+        sm.compile();
+
+        sm.execute(A, B, new TestContext());
+        sm.execute(new Status("A"), new Status("B"), new TestContext());
+        sm.execute(A, C, new TestContext());
+
+        List<TransitionMetrics> metrics = sm.getMetrics();
+        Assert.assertEquals(2, metrics.size());
+
+        TransitionMetrics ab = metrics.get(0);
+        Assert.assertEquals(AtoB, ab.getTransition());
+        Assert.assertEquals(2, ab.getCount());
+        Assert.assertEquals(0, ab.getExceptions());
+
+        long sum = 0;
+        for (long bucket : ab.getBuckets()) {
+            sum += bucket;
+        }
+        Assert.assertEquals(2, sum);
+
+        TransitionMetrics ac = metrics.get(1);
+        Assert.assertEquals(1, ac.getCount());
+        Assert.assertEquals(1, ac.getExceptions());
+        Assert.assertEquals(1, numOfErrors.get());
+    }
 }
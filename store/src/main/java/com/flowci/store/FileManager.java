@@ -46,6 +46,14 @@ public interface FileManager {
      */
     String remove(String filePath) throws IOException;
 
+    /**
+     * Remove directory and files within it, but no more than limit entries in one call,
+     * so the large directory can be removed by batch
+     *
+     * @return num of entries removed, less than limit means the directory is removed completely
+     */
+    int removeDir(int limit, Pathable... objs) throws IOException;
+
     /**
      * Check directory is existed
      */
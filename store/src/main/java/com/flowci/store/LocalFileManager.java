@@ -21,7 +21,9 @@ import com.flowci.util.FileHelper;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
@@ -96,6 +98,40 @@ public class LocalFileManager implements FileManager {
         return filePath;
     }
 
+    @Override
+    public int removeDir(int limit, Pathable... objs) throws IOException {
+        Path dir = connect(base, objs);
+        if (limit <= 0 || !Files.exists(dir)) {
+            return 0;
+        }
+        return remove(dir, limit);
+    }
+
+    /**
+     * Remove children in depth first and the path itself, stop when limit reached
+     */
+    private static int remove(Path path, int limit) throws IOException {
+        int removed = 0;
+
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+                for (Path child : children) {
+                    if (removed >= limit) {
+                        return removed;
+                    }
+                    removed += remove(child, limit - removed);
+                }
+            }
+        }
+
+        if (removed >= limit) {
+            return removed;
+        }
+
+        Files.deleteIfExists(path);
+        return removed + 1;
+    }
+
     private static Path connect(Path base, Pathable... objs) {
         Path path = base;
 
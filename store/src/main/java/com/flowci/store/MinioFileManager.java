@@ -17,6 +17,8 @@
 package com.flowci.store;
 
 import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -127,6 +129,31 @@ public class MinioFileManager implements FileManager {
         }
     }
 
+    /**
+     * Remove objects with prefix "x/y/z/", since directory is not an object in minio
+     */
+    @Override
+    public int removeDir(int limit, Pathable... objs) throws IOException {
+        try {
+            if (limit <= 0 || !minioClient.bucketExists(bucket)) {
+                return 0;
+            }
+
+            int removed = 0;
+            for (Result<Item> result : minioClient.listObjects(bucket, getObjectName(objs), true)) {
+                if (removed >= limit) {
+                    break;
+                }
+
+                minioClient.removeObject(bucket, result.get().objectName());
+                removed++;
+            }
+            return removed;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
     private String initBucket() throws Exception {
         if (!minioClient.bucketExists(bucket)) {
             minioClient.makeBucket(bucket);
@@ -77,6 +77,28 @@ public class LocalFileManagerTest {
         Assert.assertFalse(exist);
     }
 
+    @Test
+    public void should_remove_dir_by_batch() throws IOException {
+        fileManager.save("a.log", StringHelper.toInputStream("a"), flow, job, logDir);
+        fileManager.save("b.log", StringHelper.toInputStream("b"), flow, job, logDir);
+        fileManager.save("c.zip", StringHelper.toInputStream("c"), flow, job);
+
+        // when: remove with limit 2
+        int removed = fileManager.removeDir(2, flow);
+
+        // then: dir still existed
+        Assert.assertEquals(2, removed);
+        Assert.assertTrue(fileManager.exist(flow));
+
+        // when: remove the rest, 1 file and 3 dirs
+        removed = fileManager.removeDir(10, flow);
+
+        // then: dir should be removed
+        Assert.assertEquals(4, removed);
+        Assert.assertFalse(fileManager.exist(flow));
+        Assert.assertEquals(0, fileManager.removeDir(10, flow));
+    }
+
     @Test(expected = IOException.class)
     public void should_throw_exception_if_not_found() throws IOException {
         fileManager.read("hello", flow, job, logDir);
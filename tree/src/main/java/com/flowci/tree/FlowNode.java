@@ -53,8 +53,34 @@ public final class FlowNode extends Node {
         return wrapper.getValue();
     }
 
+    /**
+     * Max resource hints of steps in the flow, not including steps of parallel sub flows
+     * since they are running on their own agents
+     */
+    @JsonIgnore
+    public Resources fetchResources() {
+        ObjectWrapper<Resources> wrapper = new ObjectWrapper<>(Resources.EMPTY);
+        collectResources(children, wrapper);
+        return wrapper.getValue();
+    }
+
     @JsonIgnore
     public boolean hasSelector() {
         return !this.selector.getLabel().isEmpty();
     }
+
+    private static void collectResources(List<Node> nodes, ObjectWrapper<Resources> wrapper) {
+        for (Node node : nodes) {
+            if (!(node instanceof RegularStepNode)) {
+                continue;
+            }
+
+            RegularStepNode step = (RegularStepNode) node;
+            if (step.getResources() != null) {
+                wrapper.setValue(wrapper.getValue().max(step.getResources()));
+            }
+
+            collectResources(step.getChildren(), wrapper);
+        }
+    }
 }
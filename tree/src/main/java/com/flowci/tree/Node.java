@@ -149,12 +149,15 @@ public abstract class Node implements Serializable {
         return !dockers.isEmpty();
     }
 
+    /**
+     * Environments layered from current node up to root, writes only go to the returned vars
+     */
     @JsonIgnore
     public StringVars fetchEnvs() {
         StringVars output = new StringVars();
 
         this.forEachBottomUp(this, (n) -> {
-            output.merge(n.getEnvironments(), false);
+            output.overlay(n.getEnvironments());
             return true;
         });
 
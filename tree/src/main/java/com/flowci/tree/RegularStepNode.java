@@ -67,6 +67,11 @@ public final class RegularStepNode extends Node {
      */
     private Cache cache;
 
+    /**
+     * Resource hints for agent placement
+     */
+    private Resources resources;
+
     /**
      * Sub steps
      */
@@ -0,0 +1,47 @@
+package com.flowci.tree;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Resource hints of step, required free resources on agent
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@EqualsAndHashCode
+public class Resources implements Serializable {
+
+    public static final Resources EMPTY = new Resources();
+
+    private int cpu; // num of cpu
+
+    private int memory; // in MB
+
+    private int disk; // in MB
+
+    public Resources(int cpu, int memory, int disk) {
+        this.cpu = cpu;
+        this.memory = memory;
+        this.disk = disk;
+    }
+
+    public boolean isEmpty() {
+        return cpu <= 0 && memory <= 0 && disk <= 0;
+    }
+
+    /**
+     * Max of each resource, new instance returned
+     */
+    public Resources max(Resources other) {
+        return new Resources(
+                Math.max(cpu, other.cpu),
+                Math.max(memory, other.memory),
+                Math.max(disk, other.disk)
+        );
+    }
+}
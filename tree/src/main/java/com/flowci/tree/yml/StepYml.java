@@ -62,6 +62,8 @@ public class StepYml extends YmlBase<RegularStepNode> {
 
     private Cache cache;
 
+    private Resources resources;
+
     private List<String> exports = new LinkedList<>();
 
     private List<String> secrets = new LinkedList<>();
@@ -116,6 +118,7 @@ public class StepYml extends YmlBase<RegularStepNode> {
         step.setSecrets(Sets.newHashSet(secrets));
 
         setCacheToNode(step);
+        setResourcesToNode(step);
         setDockerToNode(step);
 
         if (StringHelper.hasValue(step.getName()) && !NodePath.validate(step.getName())) {
@@ -145,6 +148,21 @@ public class StepYml extends YmlBase<RegularStepNode> {
         return DefaultStepPrefix + index;
     }
 
+    /**
+     * set resource hints from yaml, ex: resources: {cpu: 2, memory: 4096}
+     */
+    private void setResourcesToNode(RegularStepNode node) {
+        if (Objects.isNull(resources)) {
+            return;
+        }
+
+        if (resources.getCpu() < 0 || resources.getMemory() < 0 || resources.getDisk() < 0) {
+            throw new YmlException("Resources cannot be negative");
+        }
+
+        node.setResources(new Resources(resources.getCpu(), resources.getMemory(), resources.getDisk()));
+    }
+
     /**
      * set cache from yaml
      * read only cache if path not specified
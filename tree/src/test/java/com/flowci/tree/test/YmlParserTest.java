@@ -109,6 +109,11 @@ public class YmlParserTest {
         Assert.assertEquals("2700:2700", dockerOption.getPorts().get(1));
         Assert.assertEquals("/bin/sh", dockerOption.getEntrypoint().get(0));
         Assert.assertEquals("host", dockerOption.getNetwork());
+
+        // verify resources
+        Assert.assertNull(step1.getResources());
+        Assert.assertEquals(new Resources(2, 4096, 0), step2.getResources());
+        Assert.assertEquals(new Resources(2, 4096, 0), root.fetchResources());
     }
 
     @Test
@@ -93,7 +93,14 @@ public abstract class ObjectsHelper {
         return dest;
     }
 
+    /**
+     * Deep copy object, by Copyable.copy if implemented, otherwise by java serialization
+     */
     public static <T extends Serializable> T copy(T source) {
+        if (source instanceof Copyable) {
+            return ((Copyable<T>) source).copy();
+        }
+
         try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
 
             try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
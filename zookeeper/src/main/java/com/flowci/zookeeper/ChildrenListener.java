@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flowci.zookeeper;
+
+/**
+ * Listener of direct children changes under a watched root
+ *
+ * @author yang
+ */
+@FunctionalInterface
+public interface ChildrenListener {
+
+    enum Type {
+
+        Added,
+
+        Updated,
+
+        Removed
+    }
+
+    /**
+     * @param type event type
+     * @param path full path of child node
+     * @param data data of child node, empty if removed
+     */
+    void onEvent(Type type, String path, byte[] data);
+}
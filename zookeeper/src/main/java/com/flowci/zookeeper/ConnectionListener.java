@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.zookeeper;
+
+/**
+ * Listener of connection state of coordination provider
+ *
+ * @author yang
+ */
+@FunctionalInterface
+public interface ConnectionListener {
+
+    enum State {
+
+        Connected,
+
+        /**
+         * Connection lost temporarily, ephemeral nodes might be kept if reconnected within session timeout
+         */
+        Suspended,
+
+        Reconnected,
+
+        /**
+         * Session expired, ephemeral nodes of the session are removed
+         */
+        Lost
+    }
+
+    void onStateChanged(State state);
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flowci.zookeeper;
+
+import org.apache.zookeeper.CreateMode;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Coordination backend of locks, ephemeral nodes as task claims, and children watches.
+ * <p>
+ * Implemented by zookeeper for multiple server nodes, and by in-process registry for single node deployment.
+ * Paths are in zookeeper format, node must be created under an existing parent.
+ *
+ * @author yang
+ */
+public interface CoordinationProvider extends AutoCloseable {
+
+    boolean start();
+
+    String makePath(String parent, String child);
+
+    boolean exist(String path);
+
+    /**
+     * Create node with data
+     *
+     * @return created path, which has sequential suffix if mode is sequential
+     * @throws ZookeeperException if node existed or parent not existed
+     */
+    String create(CreateMode mode, String path, byte[] data);
+
+    List<String> children(String root);
+
+    void delete(String path, boolean isDeleteChildren);
+
+    byte[] get(String path);
+
+    void set(String path, byte[] data);
+
+    /**
+     * Run consumer with lock on path, throw ZookeeperException if lock not available immediately
+     */
+    void lock(String path, Consumer<String> consumer);
+
+    /**
+     * Acquire lock on path within timeout in seconds
+     */
+    Optional<InterLock> lock(String path, int timeout);
+
+    void release(InterLock lock);
+
+    /**
+     * Lock statistics, key as parent path of locks, ex: /job-locks
+     */
+    default Map<String, LockMetrics> getLockMetrics() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Watch added, updated and removed children of root
+     *
+     * @return false if root not existed or has been watched
+     */
+    boolean watchChildren(String rootPath, ChildrenListener listener);
+
+    /**
+     * Listen to connection state changes, the in-process provider is always connected
+     */
+    default void addConnectionListener(ConnectionListener listener) {
+
+    }
+
+    /**
+     * Claim a task by ephemeral node, which is released when the provider session ended
+     *
+     * @return false if claimed by others
+     */
+    default boolean claim(String path, byte[] data) {
+        try {
+            create(CreateMode.EPHEMERAL, path, data);
+            return true;
+        } catch (ZookeeperException e) {
+            return false;
+        }
+    }
+
+    default void unclaim(String path) {
+        try {
+            delete(path, false);
+        } catch (ZookeeperException ignore) {
+
+        }
+    }
+
+    @Override
+    void close();
+}
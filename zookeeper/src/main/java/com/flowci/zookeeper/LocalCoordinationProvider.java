@@ -0,0 +1,302 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.zookeeper;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.common.PathUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * In-process coordination for single node deployment, without network round trip per operation.
+ * <p>
+ * Locks are reentrant locks per path, created on demand and removed once no thread holds or waits for it,
+ * so locks on different paths never block each other. Nodes are kept in a sorted concurrent map,
+ * so children of a node are a continuous range of keys. All nodes are ephemeral to the process.
+ *
+ * @author yang
+ */
+public class LocalCoordinationProvider implements CoordinationProvider {
+
+    private static final String Root = "/";
+
+    private static final byte[] Empty = new byte[0];
+
+    // key as full path of node, value as data
+    private final ConcurrentNavigableMap<String, byte[]> nodes = new ConcurrentSkipListMap<>();
+
+    // key as watched root path
+    private final Map<String, ChildrenListener> watchers = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong(0);
+
+    // key as lock path
+    private final Map<String, LockEntry> locks = new ConcurrentHashMap<>();
+
+    private final Executor watchExecutor;
+
+    public LocalCoordinationProvider(Executor watchExecutor) {
+        this.watchExecutor = watchExecutor;
+    }
+
+    @Override
+    public boolean start() {
+        return true;
+    }
+
+    @Override
+    public String makePath(String parent, String child) {
+        return ZKPaths.makePath(parent, child);
+    }
+
+    @Override
+    public boolean exist(String path) {
+        return Root.equals(path) || nodes.containsKey(path);
+    }
+
+    @Override
+    public String create(CreateMode mode, String path, byte[] data) {
+        validate(path);
+
+        if (data == null) {
+            data = Empty;
+        }
+
+        synchronized (nodes) {
+            String parent = ZKPaths.getPathAndNode(path).getPath();
+            if (!exist(parent)) {
+                throw new ZookeeperException("Fail to create node: parent of {0} not existed", path);
+            }
+
+            if (mode.isSequential()) {
+                path = path + String.format("%010d", sequence.getAndIncrement());
+            }
+
+            if (nodes.putIfAbsent(path, data) != null) {
+                throw new ZookeeperException("Fail to create node: {0} existed", path);
+            }
+        }
+
+        notify(ChildrenListener.Type.Added, path, data);
+        return path;
+    }
+
+    @Override
+    public List<String> children(String root) {
+        if (!exist(root)) {
+            throw new ZookeeperException("Fail to list children of {0} : {1}", root, "node not existed");
+        }
+
+        String prefix = Root.equals(root) ? Root : root + "/";
+        List<String> children = new ArrayList<>();
+
+        for (String path : descendants(prefix).keySet()) {
+            String name = path.substring(prefix.length());
+            if (name.indexOf('/') < 0) {
+                children.add(name);
+            }
+        }
+
+        return children;
+    }
+
+    @Override
+    public void delete(String path, boolean isDeleteChildren) {
+        if (Root.equals(path)) {
+            throw new ZookeeperException("Fail to delete node of path: {0}", path);
+        }
+
+        List<String> removed = new ArrayList<>();
+
+        synchronized (nodes) {
+            if (!nodes.containsKey(path)) {
+                return;
+            }
+
+            NavigableMap<String, byte[]> descendants = descendants(path + "/");
+            if (!descendants.isEmpty() && !isDeleteChildren) {
+                throw new ZookeeperException("Fail to delete node of path: {0} has children", path);
+            }
+
+            removed.addAll(descendants.descendingKeySet());
+            removed.add(path);
+
+            descendants.clear();
+            nodes.remove(path);
+        }
+
+        for (String item : removed) {
+            notify(ChildrenListener.Type.Removed, item, Empty);
+        }
+    }
+
+    @Override
+    public byte[] get(String path) {
+        byte[] data = nodes.get(path);
+        if (data == null) {
+            throw new ZookeeperException("Node path {0} does not existed", path);
+        }
+        return data;
+    }
+
+    @Override
+    public void set(String path, byte[] data) {
+        if (data == null) {
+            data = Empty;
+        }
+
+        if (nodes.replace(path, data) == null) {
+            throw new ZookeeperException("Node path {0} does not existed", path);
+        }
+
+        notify(ChildrenListener.Type.Updated, path, data);
+    }
+
+    @Override
+    public void lock(String path, Consumer<String> consumer) {
+        Optional<InterLock> lock = lock(path, 0);
+        if (!lock.isPresent()) {
+            throw new ZookeeperException("Cannot acquire the lock on path: {0}", path);
+        }
+
+        try {
+            consumer.accept(path);
+        } finally {
+            release(lock.get());
+        }
+    }
+
+    @Override
+    public Optional<InterLock> lock(String path, int timeout) {
+        LockEntry entry = retain(path);
+
+        try {
+            if (entry.acquire(timeout, TimeUnit.SECONDS)) {
+                return Optional.of(new InterLock(path, entry));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        unretain(path);
+        return Optional.empty();
+    }
+
+    @Override
+    public void release(InterLock lock) {
+        try {
+            lock.getLock().release();
+        } catch (Exception e) {
+            throw new ZookeeperException("Unable to release lock: {0}", e.getMessage());
+        } finally {
+            unretain(lock.getPath());
+        }
+    }
+
+    @Override
+    public boolean watchChildren(String rootPath, ChildrenListener listener) {
+        if (!exist(rootPath)) {
+            return false;
+        }
+        return watchers.putIfAbsent(rootPath, listener) == null;
+    }
+
+    @Override
+    public void close() {
+        watchers.clear();
+        nodes.clear();
+    }
+
+    private NavigableMap<String, byte[]> descendants(String prefix) {
+        // '0' is next char of '/', keys in range are all starts with prefix
+        String end = prefix.substring(0, prefix.length() - 1) + '0';
+        return nodes.subMap(prefix, true, end, false);
+    }
+
+    private void notify(ChildrenListener.Type type, String path, byte[] data) {
+        String parent = ZKPaths.getPathAndNode(path).getPath();
+        ChildrenListener listener = watchers.get(parent);
+
+        if (listener != null) {
+            watchExecutor.execute(() -> listener.onEvent(type, path, data));
+        }
+    }
+
+    private LockEntry retain(String path) {
+        return locks.compute(path, (k, entry) -> {
+            if (entry == null) {
+                entry = new LockEntry();
+            }
+            entry.refs++;
+            return entry;
+        });
+    }
+
+    private void unretain(String path) {
+        locks.computeIfPresent(path, (k, entry) -> --entry.refs == 0 ? null : entry);
+    }
+
+    private static void validate(String path) {
+        try {
+            PathUtils.validatePath(path);
+        } catch (IllegalArgumentException e) {
+            throw new ZookeeperException("Invalid path {0}: {1}", path, e.getMessage());
+        }
+    }
+
+    private static final class LockEntry implements InterProcessLock {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // num of acquisitions holding or waiting, updated within map compute
+        private volatile int refs;
+
+        @Override
+        public void acquire() {
+            lock.lock();
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws InterruptedException {
+            return lock.tryLock(time, unit);
+        }
+
+        @Override
+        public void release() {
+            lock.unlock();
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return lock.isLocked();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.zookeeper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Acquisition statistics of locks
+ *
+ * @author yang
+ */
+public final class LockMetrics {
+
+    private final LongAdder acquired = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    // acquisitions which other threads of the process held or waited for the lock
+    private final LongAdder contended = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+
+    public void onAcquired(long waitNanos, boolean isContended) {
+        acquired.increment();
+        if (isContended) {
+            contended.increment();
+        }
+        onWait(waitNanos);
+    }
+
+    public void onTimeout(long waitNanos) {
+        timeouts.increment();
+        onWait(waitNanos);
+    }
+
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getContended() {
+        return contended.sum();
+    }
+
+    public long getTotalWait(TimeUnit unit) {
+        return unit.convert(totalWaitNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxWait(TimeUnit unit) {
+        return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    private void onWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+}
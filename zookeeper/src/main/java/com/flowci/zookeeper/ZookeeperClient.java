@@ -17,17 +17,19 @@
 package com.flowci.zookeeper;
 
 import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.api.DeleteBuilder;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
 import org.apache.curator.framework.recipes.cache.PathChildrenCache;
-import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.locks.InterProcessMutex;
 import org.apache.curator.retry.RetryNTimes;
 import org.apache.curator.utils.ZKPaths;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 
 import java.util.List;
 import java.util.Map;
@@ -41,7 +43,8 @@ import java.util.function.Consumer;
 /**
  * @author yang
  */
-public class ZookeeperClient implements AutoCloseable {
+@Log4j2
+public class ZookeeperClient implements CoordinationProvider {
 
     private static final int RetryBetweenInMs = 1000 * 10;
 
@@ -56,6 +59,13 @@ public class ZookeeperClient implements AutoCloseable {
     @Getter
     private final Executor watchExecutor;
 
+    // key as lock path, the mutex is kept while any thread holds or waits for it, so it's reentrant
+    private final Map<String, LockEntry> locks = new ConcurrentHashMap<>();
+
+    // key as parent of lock path, since lock path could be per job
+    @Getter
+    private final Map<String, LockMetrics> lockMetrics = new ConcurrentHashMap<>();
+
     public ZookeeperClient(String connection, int retryTimes, int timeOutInSeconds, Executor watchExecutor) {
         RetryPolicy policy = new RetryNTimes(retryTimes, RetryBetweenInMs);
         client = CuratorFrameworkFactory.newClient(connection, policy);
@@ -63,10 +73,12 @@ public class ZookeeperClient implements AutoCloseable {
         this.watchExecutor = watchExecutor;
     }
 
+    @Override
     public String makePath(String parent, String child) {
         return ZKPaths.makePath(parent, child);
     }
 
+    @Override
     public boolean start() {
         try {
             CuratorFrameworkState state = client.getState();
@@ -81,6 +93,7 @@ public class ZookeeperClient implements AutoCloseable {
         }
     }
 
+    @Override
     public boolean exist(String path) {
         try {
             return client.checkExists().forPath(path) != null;
@@ -89,6 +102,7 @@ public class ZookeeperClient implements AutoCloseable {
         }
     }
 
+    @Override
     public String create(CreateMode mode, String path, byte[] data) {
         if (data == null) {
             data = new byte[0];
@@ -103,6 +117,7 @@ public class ZookeeperClient implements AutoCloseable {
         }
     }
 
+    @Override
     public List<String> children(String root) {
         try {
             return client.getChildren().forPath(root);
@@ -111,12 +126,9 @@ public class ZookeeperClient implements AutoCloseable {
         }
     }
 
+    @Override
     public void delete(String path, boolean isDeleteChildren) {
         try {
-            if (!exist(path)) {
-                return;
-            }
-
             DeleteBuilder builder = client.delete();
 
             if (isDeleteChildren) {
@@ -125,74 +137,85 @@ public class ZookeeperClient implements AutoCloseable {
             }
 
             builder.guaranteed().forPath(path);
+        } catch (KeeperException.NoNodeException ignore) {
+
         } catch (Throwable e) {
             throw new ZookeeperException("Fail to delete node of path: {0}", e.getMessage());
         }
     }
 
+    @Override
     public byte[] get(String path) {
-        if (!exist(path)) {
-            throw new ZookeeperException("Node path {0} does not existed", path);
-        }
-
         try {
             return client.getData().forPath(path);
+        } catch (KeeperException.NoNodeException e) {
+            throw new ZookeeperException("Node path {0} does not existed", path);
         } catch (Throwable e) {
             throw new ZookeeperException("Fail to get data for node: {0}", e.getMessage());
         }
     }
 
+    @Override
     public void set(String path, byte[] data) {
-        if (!exist(path)) {
-            throw new ZookeeperException("Node path {} does not existed", path);
-        }
-
         try {
             client.setData().forPath(path, data);
+        } catch (KeeperException.NoNodeException e) {
+            throw new ZookeeperException("Node path {0} does not existed", path);
         } catch (Throwable e) {
             throw new ZookeeperException("Fail to set data for node: {0}", e.getMessage());
         }
     }
 
+    @Override
     public void lock(String path, Consumer<String> consumer) {
-        InterProcessMutex lock = new InterProcessMutex(client, path);
+        Optional<InterLock> lock = lock(path, 0);
+        if (!lock.isPresent()) {
+            throw new ZookeeperException("Cannot acquire the lock on path: {0}", path);
+        }
 
         try {
-            if (!lock.acquire(0, TimeUnit.SECONDS)) {
-                throw new ZookeeperException("Cannot acquire the lock on path: " + path);
-            }
             consumer.accept(path);
-        } catch (Exception e) {
-            throw new ZookeeperException("Cannot acquire the lock on path {0}: {1}", path, e.getMessage());
         } finally {
-            try {
-                lock.release();
-            } catch (Exception ignored) {
-            }
+            release(lock.get());
         }
     }
 
+    @Override
     public Optional<InterLock> lock(String path, int timeout) {
-        InterProcessMutex lock = new InterProcessMutex(client, path);
+        LockEntry entry = retain(path);
+        InterProcessMutex mutex = entry.mutex;
+        boolean contended = entry.refs > 1 && !mutex.isOwnedByCurrentThread();
+
+        LockMetrics metrics = lockMetrics.computeIfAbsent(ZKPaths.getPathAndNode(path).getPath(), k -> new LockMetrics());
+        long start = System.nanoTime();
+
         try {
-            if (lock.acquire(timeout, TimeUnit.SECONDS)) {
-                return Optional.of(new InterLock(path, lock));
+            if (mutex.acquire(timeout, TimeUnit.SECONDS)) {
+                metrics.onAcquired(System.nanoTime() - start, contended);
+                return Optional.of(new InterLock(path, mutex));
             }
-        } catch (Exception ignore) {
-            ignore.printStackTrace();
+            metrics.onTimeout(System.nanoTime() - start);
+        } catch (Exception e) {
+            log.warn("Unable to acquire lock on path {}: {}", path, e.getMessage());
         }
+
+        unretain(path);
         return Optional.empty();
     }
 
+    @Override
     public void release(InterLock lock) {
         try {
             lock.getLock().release();
         } catch (Exception e) {
             throw new ZookeeperException("Unable to release lock: {0}", e.getMessage());
+        } finally {
+            unretain(lock.getPath());
         }
     }
 
-    public boolean watchChildren(String rootPath, PathChildrenCacheListener listener) {
+    @Override
+    public boolean watchChildren(String rootPath, ChildrenListener listener) {
         if (!exist(rootPath)) {
             return false;
         }
@@ -203,16 +226,58 @@ public class ZookeeperClient implements AutoCloseable {
         }
 
         try {
-            pcc = new PathChildrenCache(client, rootPath, false);
+            pcc = new PathChildrenCache(client, rootPath, true);
             pcc.start();
-            pcc.getListenable().addListener(listener, watchExecutor);
+            pcc.getListenable().addListener((c, event) -> {
+                ChildData child = event.getData();
+                if (child == null) {
+                    return;
+                }
+
+                byte[] data = child.getData() == null ? new byte[0] : child.getData();
+
+                switch (event.getType()) {
+                    case CHILD_ADDED:
+                        listener.onEvent(ChildrenListener.Type.Added, child.getPath(), data);
+                        break;
+                    case CHILD_UPDATED:
+                        listener.onEvent(ChildrenListener.Type.Updated, child.getPath(), data);
+                        break;
+                    case CHILD_REMOVED:
+                        listener.onEvent(ChildrenListener.Type.Removed, child.getPath(), new byte[0]);
+                        break;
+                }
+            }, watchExecutor);
             nodeChildrenCache.put(rootPath, pcc);
             return true;
         } catch (Throwable e) {
-            throw new ZookeeperException("Unable to watch children for root: {}", rootPath);
+            throw new ZookeeperException("Unable to watch children for root: {0}", rootPath);
         }
     }
 
+    /**
+     * Listener is called on curator event thread, so it's not delayed by busy watch executor
+     */
+    @Override
+    public void addConnectionListener(ConnectionListener listener) {
+        client.getConnectionStateListenable().addListener((c, state) -> {
+            switch (state) {
+                case CONNECTED:
+                    listener.onStateChanged(ConnectionListener.State.Connected);
+                    break;
+                case SUSPENDED:
+                    listener.onStateChanged(ConnectionListener.State.Suspended);
+                    break;
+                case RECONNECTED:
+                    listener.onStateChanged(ConnectionListener.State.Reconnected);
+                    break;
+                case LOST:
+                    listener.onStateChanged(ConnectionListener.State.Lost);
+                    break;
+            }
+        });
+    }
+
     @Override
     public void close() {
         if (Objects.isNull(client)) {
@@ -220,4 +285,30 @@ public class ZookeeperClient implements AutoCloseable {
         }
         client.close();
     }
+
+    private LockEntry retain(String path) {
+        return locks.compute(path, (k, entry) -> {
+            if (entry == null) {
+                entry = new LockEntry(new InterProcessMutex(client, k));
+            }
+            entry.refs++;
+            return entry;
+        });
+    }
+
+    private void unretain(String path) {
+        locks.computeIfPresent(path, (k, entry) -> --entry.refs == 0 ? null : entry);
+    }
+
+    private static final class LockEntry {
+
+        private final InterProcessMutex mutex;
+
+        // num of acquisitions holding or waiting, updated within map compute
+        private volatile int refs;
+
+        LockEntry(InterProcessMutex mutex) {
+            this.mutex = mutex;
+        }
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 flow.ci
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flowci.zookeeper.test;
+
+import com.flowci.zookeeper.ChildrenListener;
+import com.flowci.zookeeper.InterLock;
+import com.flowci.zookeeper.LocalCoordinationProvider;
+import com.flowci.zookeeper.ZookeeperException;
+import org.apache.zookeeper.CreateMode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class LocalCoordinationProviderTest {
+
+    private LocalCoordinationProvider provider;
+
+    @Before
+    public void init() {
+        provider = new LocalCoordinationProvider(Runnable::run);
+        provider.create(CreateMode.PERSISTENT, "/root", null);
+    }
+
+    @After
+    public void close() {
+        provider.close();
+    }
+
+    @Test
+    public void should_create_and_list_direct_children() {
+        provider.create(CreateMode.PERSISTENT, "/root/a", "a".getBytes());
+        provider.create(CreateMode.EPHEMERAL, "/root/b", null);
+        provider.create(CreateMode.EPHEMERAL, "/root/a/c", null);
+        provider.create(CreateMode.PERSISTENT, "/root-other", null);
+
+        List<String> children = provider.children("/root");
+        Collections.sort(children);
+        Assert.assertEquals(2, children.size());
+        Assert.assertEquals("a", children.get(0));
+        Assert.assertEquals("b", children.get(1));
+
+        Assert.assertEquals("a", new String(provider.get("/root/a")));
+
+        provider.set("/root/a", "aa".getBytes());
+        Assert.assertEquals("aa", new String(provider.get("/root/a")));
+    }
+
+    @Test(expected = ZookeeperException.class)
+    public void should_throw_exception_if_parent_not_existed() {
+        provider.create(CreateMode.PERSISTENT, "/root/a/b", null);
+    }
+
+    @Test
+    public void should_claim_only_once() {
+        Assert.assertTrue(provider.claim("/root/task", null));
+        Assert.assertFalse(provider.claim("/root/task", null));
+
+        provider.unclaim("/root/task");
+        Assert.assertTrue(provider.claim("/root/task", null));
+    }
+
+    @Test
+    public void should_delete_with_children() {
+        provider.create(CreateMode.PERSISTENT, "/root/a", null);
+        provider.create(CreateMode.PERSISTENT, "/root/a/b", null);
+
+        try {
+            provider.delete("/root/a", false);
+            Assert.fail();
+        } catch (ZookeeperException ignore) {
+
+        }
+
+        provider.delete("/root/a", true);
+        Assert.assertFalse(provider.exist("/root/a"));
+        Assert.assertFalse(provider.exist("/root/a/b"));
+        Assert.assertTrue(provider.exist("/root"));
+    }
+
+    @Test
+    public void should_watch_children() {
+        List<String> events = new ArrayList<>();
+        ChildrenListener listener = (type, path, data) -> events.add(type + ":" + path);
+
+        Assert.assertTrue(provider.watchChildren("/root", listener));
+        Assert.assertFalse(provider.watchChildren("/root", listener));
+
+        provider.create(CreateMode.EPHEMERAL, "/root/a", null);
+        provider.set("/root/a", "a".getBytes());
+        provider.delete("/root/a", false);
+
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals("Added:/root/a", events.get(0));
+        Assert.assertEquals("Updated:/root/a", events.get(1));
+        Assert.assertEquals("Removed:/root/a", events.get(2));
+    }
+
+    @Test
+    public void should_lock_and_reentrant() throws InterruptedException {
+        Optional<InterLock> lock = provider.lock("/job-locks/1", 1);
+        Assert.assertTrue(lock.isPresent());
+
+        // reentrant on same thread
+        Optional<InterLock> again = provider.lock("/job-locks/1", 1);
+        Assert.assertTrue(again.isPresent());
+        provider.release(again.get());
+
+        // other thread cannot acquire
+        AtomicBoolean acquired = new AtomicBoolean(true);
+        CountDownLatch latch = new CountDownLatch(1);
+        new Thread(() -> {
+            acquired.set(provider.lock("/job-locks/1", 1).isPresent());
+            latch.countDown();
+        }).start();
+
+        latch.await();
+        Assert.assertFalse(acquired.get());
+
+        provider.release(lock.get());
+    }
+
+    @Test
+    public void should_not_block_lock_on_other_path() throws InterruptedException {
+        int numOfPaths = 1000;
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        // hold locks of first half paths on other thread
+        new Thread(() -> {
+            List<InterLock> held = new ArrayList<>(numOfPaths / 2);
+            for (int i = 0; i < numOfPaths / 2; i++) {
+                held.add(provider.lock("/job-locks/" + i, 1).get());
+            }
+            locked.countDown();
+
+            try {
+                done.await();
+            } catch (InterruptedException ignore) {
+
+            }
+
+            held.forEach(provider::release);
+        }).start();
+
+        locked.await();
+
+        // no wait lock of other paths should never fail
+        for (int i = numOfPaths / 2; i < numOfPaths; i++) {
+            AtomicBoolean called = new AtomicBoolean(false);
+            provider.lock("/job-locks/" + i, path -> called.set(true));
+            Assert.assertTrue(called.get());
+        }
+
+        done.countDown();
+    }
+
+    @Test
+    public void should_acquire_from_other_thread_after_released() throws InterruptedException {
+        Optional<InterLock> lock = provider.lock("/job-locks/1", 1);
+        Assert.assertTrue(lock.isPresent());
+        provider.release(lock.get());
+
+        AtomicBoolean acquired = new AtomicBoolean(false);
+        Thread thread = new Thread(() -> {
+            Optional<InterLock> other = provider.lock("/job-locks/1", 0);
+            acquired.set(other.isPresent());
+            other.ifPresent(provider::release);
+        });
+        thread.start();
+        thread.join();
+
+        Assert.assertTrue(acquired.get());
+    }
+}
@@ -1,7 +1,9 @@
 package com.flowci.zookeeper.test;
 
 import com.flowci.zookeeper.InterLock;
+import com.flowci.zookeeper.LockMetrics;
 import com.flowci.zookeeper.ZookeeperClient;
+import com.flowci.zookeeper.ZookeeperException;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -60,6 +62,39 @@ public class ZookeeperClientTest {
         Assert.assertFalse(client.exist(lockPath));
     }
 
+    @Test
+    public void should_lock_reentrant_on_same_thread() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        ZookeeperClient client = new ZookeeperClient("localhost:2181", 5, 10, executor);
+        client.start();
+
+        String lockPath = client.makePath("/lock-test", "reentrant");
+
+        Optional<InterLock> lock = client.lock(lockPath, 1);
+        Assert.assertTrue(lock.isPresent());
+
+        Optional<InterLock> nested = client.lock(lockPath, 1);
+        Assert.assertTrue(nested.isPresent());
+        Assert.assertSame(lock.get().getLock(), nested.get().getLock());
+
+        client.release(nested.get());
+        client.release(lock.get());
+
+        LockMetrics metrics = client.getLockMetrics().get("/lock-test");
+        Assert.assertEquals(2, metrics.getAcquired());
+        Assert.assertEquals(0, metrics.getContended());
+        client.close();
+    }
+
+    @Test(expected = ZookeeperException.class)
+    public void should_throw_exception_if_get_data_of_non_existed_node() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try (ZookeeperClient client = new ZookeeperClient("localhost:2181", 5, 10, executor)) {
+            client.start();
+            client.get("/not-existed-node");
+        }
+    }
+
     private void sleep(int second) {
         try {
             Thread.sleep(1000L * second);